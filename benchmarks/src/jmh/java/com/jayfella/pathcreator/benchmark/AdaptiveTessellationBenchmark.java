@@ -0,0 +1,70 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the adaptive flatness splitter against the angle error splitter. Build time is measured by jmh, and the
+ * vertex count and maximum deviation from the true curve of each splitter are printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdaptiveTessellationBenchmark {
+
+    @Param({ "10", "100" })
+    public int numSegments;
+
+    @Param({ "0.01", "0.001" })
+    public float flatness;
+
+    private BezierPath bezierPath;
+
+    // the number of vertices the flatness splitter used, so the max deviation of the budget splitter can be compared directly.
+    private int vertexBudget;
+
+    @Setup
+    public void setup() {
+        bezierPath = BenchmarkPaths.createPath(numSegments, PathSpace.xyz);
+        vertexBudget = VertexPathUtility.SplitBezierPathByFlatness(bezierPath, flatness).getVertices().size();
+    }
+
+    @TearDown
+    public void printQuality() {
+        print("angle error 0.3", VertexPathUtility.SplitBezierPathByAngleError(bezierPath, 0.3f, 0.01f, 10));
+        print("flatness " + flatness, VertexPathUtility.SplitBezierPathByFlatness(bezierPath, flatness));
+        print("max deviation " + flatness, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, flatness));
+        print("vertex budget " + vertexBudget, VertexPathUtility.SplitBezierPathByVertexBudget(bezierPath, vertexBudget));
+    }
+
+    private void print(String splitter, VertexPathUtility.PathSplitData splitData) {
+        System.out.printf("%n%s (%d segments): %d vertices, max deviation %.5f%n",
+                splitter, numSegments, splitData.getVertices().size(), BenchmarkPaths.measureMaxDeviation(bezierPath, splitData));
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByAngleError() {
+        return VertexPathUtility.SplitBezierPathByAngleError(bezierPath, 0.3f, 0.01f, 10);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByFlatness() {
+        return VertexPathUtility.SplitBezierPathByFlatness(bezierPath, flatness);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByMaxDeviation() {
+        return VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, flatness);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByVertexBudget() {
+        return VertexPathUtility.SplitBezierPathByVertexBudget(bezierPath, vertexBudget);
+    }
+
+
+}
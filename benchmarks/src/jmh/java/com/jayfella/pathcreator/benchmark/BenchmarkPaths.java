@@ -0,0 +1,90 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.utility.CubicBezierUtility;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import java.util.List;
+
+import java.util.Random;
+
+/**
+ * Creates deterministic bezier paths for the benchmarks.
+ */
+final class BenchmarkPaths {
+
+    private BenchmarkPaths() {
+    }
+
+    /**
+     * Creates a path that wanders randomly through space, so it has a mix of straight runs and tight turns.
+     * @param numSegments the number of segments the path should have.
+     * @param space       the space of the path.
+     * @return the path.
+     */
+    static BezierPath createPath(int numSegments, PathSpace space) {
+
+        Random random = new Random(42);
+        BezierPath path = new BezierPath(new Vector3f(), false, space);
+
+        Vector3f anchor = path.getPoint(path.getNumPoints() - 1).clone();
+
+        while (path.getNumSegments() < numSegments) {
+            anchor.addLocal(
+                    random.nextFloat() * 10 - 2,
+                    space == PathSpace.xz ? 0 : random.nextFloat() * 4 - 2,
+                    space == PathSpace.xy ? 0 : random.nextFloat() * 10 - 5);
+
+            path.addSegmentToEnd(anchor.clone());
+        }
+
+        return path;
+    }
+
+    /**
+     * Measures how far the true curve strays from the polyline, by sampling every segment densely and finding the
+     * distance from each sample to the nearest polyline edge of that segment.
+     * @param path      the bezier path.
+     * @param splitData the vertices the path was split into.
+     * @return the maximum deviation in world units.
+     */
+    static float measureMaxDeviation(BezierPath path, VertexPathUtility.PathSplitData splitData) {
+
+        List<Vector3f> vertices = splitData.getVertices();
+        List<Integer> anchorVertexMap = splitData.getAnchorVertexMap();
+
+        float maxDeviation = 0;
+
+        for (int segmentIndex = 0; segmentIndex < path.getNumSegments(); segmentIndex++) {
+
+            Vector3f[] segmentPoints = path.getPointsInSegment(segmentIndex);
+            int firstVertex = anchorVertexMap.get(segmentIndex);
+            int lastVertex = anchorVertexMap.get(segmentIndex + 1);
+
+            for (int sample = 0; sample <= 1000; sample++) {
+
+                Vector3f pointOnCurve = CubicBezierUtility.evaluateCurve(segmentPoints, sample / 1000f);
+                float minDistance = Float.MAX_VALUE;
+
+                for (int i = firstVertex; i < lastVertex; i++) {
+                    minDistance = Math.min(minDistance, distanceToSegment(pointOnCurve, vertices.get(i), vertices.get(i + 1)));
+                }
+
+                maxDeviation = Math.max(maxDeviation, minDistance);
+            }
+        }
+
+        return maxDeviation;
+    }
+
+    private static float distanceToSegment(Vector3f p, Vector3f a, Vector3f b) {
+        Vector3f ab = b.subtract(a);
+        float sqrLength = ab.lengthSquared();
+        float t = (sqrLength == 0) ? 0 : FastMath.clamp(p.subtract(a).dot(ab) / sqrLength, 0, 1);
+        return p.distance(a.add(ab.multLocal(t)));
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.CompactVertexPath;
+import com.jayfella.pathcreator.objects.EndOfPathInstruction;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sampling and closest point queries on a compressed vertex path against the full precision path it was compressed from.
+ * The memory each path holds is printed once per trial, as JMH only measures allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompactVertexPathBenchmark {
+
+    @Param({ "10", "100" })
+    public int numSegments;
+
+    private VertexPath vertexPath;
+    private CompactVertexPath compactPath;
+    private final Vector3f queryPoint = new Vector3f(12, 1, -3);
+
+    // the queries step through these times so the searches don't always take the same branches. They are stepped in the
+    // benchmark methods, as an invocation level fixture would cost more than the queries themselves.
+    private static final int numTimes = 1024;
+    private final float[] times = new float[numTimes];
+    private int timeIndex;
+
+    @Setup
+    public void setup() {
+        BezierPath bezierPath = BenchmarkPaths.createPath(numSegments, PathSpace.xyz);
+        vertexPath = new VertexPath(bezierPath, null, 0.3f, 0.01f);
+        compactPath = new CompactVertexPath(vertexPath);
+
+        // points, tangents, normals, rotations, times and cumulative lengths
+        long fullBytes = vertexPath.getNumPoints() * 15L * Float.BYTES;
+
+        System.out.printf("%n%d vertices: full precision %d bytes, compact %d bytes (%.2fx), max point error %.3g, max length error %.3g%n",
+                vertexPath.getNumPoints(), fullBytes, compactPath.getMemorySize(), fullBytes / (double) compactPath.getMemorySize(),
+                compactPath.getMaxPointError(), compactPath.getMaxLengthError());
+
+        float t = 0;
+
+        for (int i = 0; i < numTimes; i++) {
+            t = (t + 0.618034f) % 1;
+            times[i] = t;
+        }
+    }
+
+    private float nextTime() {
+        timeIndex = (timeIndex + 1) & (numTimes - 1);
+        return times[timeIndex];
+    }
+
+    @Benchmark
+    public Vector3f fullGetPointAtTime() {
+        return vertexPath.GetPointAtTime(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Vector3f compactGetPointAtTime() {
+        return compactPath.GetPointAtTime(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Vector3f fullGetDirection() {
+        return vertexPath.GetDirection(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Vector3f compactGetDirection() {
+        return compactPath.GetDirection(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Quaternion fullGetRotation() {
+        return vertexPath.GetRotation(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Quaternion compactGetRotation() {
+        return compactPath.GetRotation(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Vector3f fullGetClosestPointOnPath() {
+        return vertexPath.GetClosestPointOnPath(queryPoint);
+    }
+
+    @Benchmark
+    public Vector3f compactGetClosestPointOnPath() {
+        return compactPath.GetClosestPointOnPath(queryPoint);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CompactVertexPath compress() {
+        return new CompactVertexPath(vertexPath);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.utility.CubicBezierUtility;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CubicBezierBenchmark {
+
+    private final Vector3f[] points = {
+            new Vector3f(0, 0, 0),
+            new Vector3f(1, 2, 0),
+            new Vector3f(3, 2, 1),
+            new Vector3f(4, 0, 1)
+    };
+
+    private float t = 0.37f;
+
+    @Benchmark
+    public Vector3f evaluateCurve() {
+        return CubicBezierUtility.evaluateCurve(points, t);
+    }
+
+    @Benchmark
+    public Vector3f evaluateCurveDerivative() {
+        return CubicBezierUtility.evaluateCurveDerivative(points, t);
+    }
+
+    @Benchmark
+    public Vector3f evaluateCurveSecondDerivative() {
+        return CubicBezierUtility.evaluateCurveSecondDerivative(points, t);
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting bezier paths into evenly spaced vertices across segment counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvenTessellationBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int numSegments;
+
+    @Param({ "0.1", "1" })
+    public float spacing;
+
+    @Param({ "xyz", "xz" })
+    public PathSpace space;
+
+    private BezierPath bezierPath;
+
+    @Setup
+    public void setup() {
+        bezierPath = BenchmarkPaths.createPath(numSegments, space);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitEvenly() {
+        return VertexPathUtility.SplitBezierPathEvenly(bezierPath, spacing, 10);
+    }
+
+}
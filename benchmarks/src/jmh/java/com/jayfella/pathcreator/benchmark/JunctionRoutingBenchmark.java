@@ -0,0 +1,160 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.network.JunctionGraph;
+import com.jayfella.pathcreator.network.Route;
+import com.jayfella.pathcreator.network.RouteSearch;
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.EndOfPathInstruction;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures route searches on a road grid, with a path along every row and every column joined at each crossing.
+ * A grid with 224 junctions along each side has 2 * 224 * 223 = 99,904 edges.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JunctionRoutingBenchmark {
+
+    @Param({ "32", "224" })
+    public int gridSize;
+
+    private JunctionGraph graph;
+    private final RouteSearch search = new RouteSearch();
+    private Route route;
+
+    private final Random random = new Random(42);
+
+    // the routes and sample times cycle through these, picked in the benchmark methods rather than an invocation level fixture,
+    // which would cost more than sampling a route.
+    private static final int numQueries = 1024;
+    private final int[] fromJunctions = new int[numQueries];
+    private final int[] toJunctions = new int[numQueries];
+    private final float[] sampleTimes = new float[numQueries];
+    private int routeIndex;
+    private int sampleIndex;
+
+    @Setup
+    public void setup() {
+
+        float spacing = 10;
+
+        // jitter the crossings so the edges have different lengths and the shortest route is unique.
+        Vector3f[][] crossings = new Vector3f[gridSize][gridSize];
+
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                crossings[row][column] = new Vector3f(
+                        column * spacing + random.nextFloat() * 4 - 2,
+                        0,
+                        row * spacing + random.nextFloat() * 4 - 2);
+            }
+        }
+
+        graph = new JunctionGraph();
+        int[][] junctions = new int[gridSize][gridSize];
+
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                junctions[row][column] = graph.addJunction();
+            }
+        }
+
+        int pathId = 0;
+
+        for (int row = 0; row < gridSize; row++) {
+
+            List<Vector3f> anchors = new ArrayList<>();
+
+            for (int column = 0; column < gridSize; column++) {
+                anchors.add(crossings[row][column]);
+            }
+
+            graph.setPath(pathId, createVertexPath(anchors));
+
+            for (int column = 0; column < gridSize; column++) {
+                graph.connect(junctions[row][column], pathId, column);
+            }
+
+            pathId++;
+        }
+
+        for (int column = 0; column < gridSize; column++) {
+
+            List<Vector3f> anchors = new ArrayList<>();
+
+            for (int row = 0; row < gridSize; row++) {
+                anchors.add(crossings[row][column]);
+            }
+
+            graph.setPath(pathId, createVertexPath(anchors));
+
+            for (int row = 0; row < gridSize; row++) {
+                graph.connect(junctions[row][column], pathId, row);
+            }
+
+            pathId++;
+        }
+
+        graph.build();
+        route = graph.findRoute(0, graph.getNumJunctions() - 1, search);
+
+        for (int i = 0; i < numQueries; i++) {
+            fromJunctions[i] = random.nextInt(graph.getNumJunctions());
+            toJunctions[i] = random.nextInt(graph.getNumJunctions());
+            sampleTimes[i] = random.nextFloat();
+        }
+
+        System.out.printf("%n%d junctions, %d edges%n", graph.getNumJunctions(), graph.getNumEdges());
+    }
+
+    @Benchmark
+    public Route findRoute() {
+        routeIndex = (routeIndex + 1) & (numQueries - 1);
+        return graph.findRoute(fromJunctions[routeIndex], toJunctions[routeIndex], search);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Vector3f sampleRoute() {
+        sampleIndex = (sampleIndex + 1) & (numQueries - 1);
+        return route.GetPointAtTime(sampleTimes[sampleIndex], EndOfPathInstruction.Stop);
+    }
+
+    /**
+     * Creates a path through the anchors with gently curved segments. Each piece ends on a vertex, so every anchor has a vertex on it.
+     */
+    private static VertexPath createVertexPath(List<Vector3f> anchors) {
+
+        List<Vector3f> points = new ArrayList<>();
+        List<Float> anchorNormalsAngles = new ArrayList<>();
+
+        for (int i = 0; i < anchors.size(); i++) {
+
+            Vector3f anchor = anchors.get(i);
+
+            if (i > 0) {
+                Vector3f previous = anchors.get(i - 1);
+                Vector3f offset = anchor.subtract(previous);
+                points.add(previous.add(offset.mult(1 / 3f)).addLocal(offset.z * 0.1f, 0, -offset.x * 0.1f));
+                points.add(previous.add(offset.mult(2 / 3f)).addLocal(offset.z * 0.1f, 0, -offset.x * 0.1f));
+            }
+
+            points.add(anchor.clone());
+            anchorNormalsAngles.add(0f);
+        }
+
+        BezierPath bezierPath = new BezierPath(points, anchorNormalsAngles, false, PathSpace.xz, BezierPath.ControlMode.Free, 0.3f);
+        return new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.05f), null);
+    }
+
+}
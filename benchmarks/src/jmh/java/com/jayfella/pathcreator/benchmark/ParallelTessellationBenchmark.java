@@ -0,0 +1,45 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serial and segment-parallel splitting of long paths with the max deviation splitter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelTessellationBenchmark {
+
+    @Param({ "100", "1000" })
+    public int numSegments;
+
+    @Param({ "true", "false" })
+    public boolean parallel;
+
+    private BezierPath bezierPath;
+    private int previousThreshold;
+
+    @Setup
+    public void setup() {
+        bezierPath = BenchmarkPaths.createPath(numSegments, PathSpace.xyz);
+
+        previousThreshold = VertexPathUtility.getParallelSegmentThreshold();
+        VertexPathUtility.setParallelSegmentThreshold(parallel ? 1 : Integer.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        VertexPathUtility.setParallelSegmentThreshold(previousThreshold);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByMaxDeviation() {
+        return VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.001f);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.network.PathCrossing;
+import com.jayfella.pathcreator.network.PathIntersector;
+import com.jayfella.pathcreator.network.PathNetwork;
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding every crossing in a network of wandering paths, and between a single pair of long paths.
+ * The paths are spread out so each crosses a handful of its neighbours, and the number of crossings grows with the number of paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathIntersectionBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int numPaths;
+
+    private PathNetwork network;
+    private BezierPath pathA;
+    private BezierPath pathB;
+
+    private final List<PathCrossing> crossings = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        float span = (float) Math.sqrt(numPaths) * 15;
+
+        network = new PathNetwork(10);
+
+        for (int i = 0; i < numPaths; i++) {
+            network.addPath(createPath(random, span, 8));
+        }
+
+        pathA = createPath(random, 100, numPaths / 10);
+        pathB = createPath(random, 100, numPaths / 10);
+
+        crossings.clear();
+        network.collectCrossings(0.01f, crossings);
+
+        System.out.printf("%n%d paths, %d crossings%n", network.getNumPaths(), crossings.size());
+    }
+
+    @Benchmark
+    public List<PathCrossing> networkCrossings() {
+        crossings.clear();
+        network.collectCrossings(0.01f, crossings);
+        return crossings;
+    }
+
+    @Benchmark
+    public List<PathCrossing> pairCrossings() {
+        crossings.clear();
+        PathIntersector.collectCrossings(pathA, pathB, 0.01f, crossings);
+        return crossings;
+    }
+
+    /**
+     * Creates a path that starts somewhere in the span and wanders from there, with smooth automatic control points.
+     */
+    private static BezierPath createPath(Random random, float span, int numSegments) {
+
+        Vector3f start = new Vector3f(random.nextFloat() * span, 0, random.nextFloat() * span);
+
+        BezierPath path = new BezierPath(start, false, PathSpace.xz);
+        path.setControlMode(BezierPath.ControlMode.Automatic);
+        path.movePoint(0, start.clone(), false);
+
+        Vector3f anchor = start.add(random.nextFloat() * 20 - 10, 0, random.nextFloat() * 20 - 10);
+        path.movePoint(3, anchor, false);
+
+        while (path.getNumSegments() < numSegments) {
+            anchor = anchor.add(random.nextFloat() * 20 - 10, 0, random.nextFloat() * 20 - 10);
+            path.addSegmentToEnd(anchor);
+        }
+
+        return path;
+    }
+
+}
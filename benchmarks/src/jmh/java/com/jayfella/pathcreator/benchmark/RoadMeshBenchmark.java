@@ -0,0 +1,43 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.PathCreator;
+import com.jayfella.pathcreator.ext.RoadMesh;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating a road mesh from a vertex path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoadMeshBenchmark {
+
+    @Param({ "10", "100" })
+    public int numSegments;
+
+    private RoadMesh roadMesh;
+
+    @Setup
+    public void setup() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+
+        PathCreator pathCreator = new PathCreator();
+        pathCreator.getEditorData().setBezierPath(BenchmarkPaths.createPath(numSegments, PathSpace.xyz));
+
+        roadMesh = new RoadMesh(pathCreator, assetManager);
+
+        // build the vertex path up front so only the mesh generation is measured.
+        pathCreator.getVertexPath();
+    }
+
+    @Benchmark
+    public void createRoadMesh() {
+        roadMesh.updateMesh();
+    }
+
+}
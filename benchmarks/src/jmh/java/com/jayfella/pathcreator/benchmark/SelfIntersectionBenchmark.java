@@ -0,0 +1,81 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.SelfIntersectionUtility;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding self intersections on a closed race track, a wavy loop that never crosses itself, and on a figure of eight.
+ * Every edge has to be tested on the loop that doesn't cross, so it is the worst case for rejecting tracks before baking.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SelfIntersectionBenchmark {
+
+    @Param({ "10000", "1000000" })
+    public int numVertices;
+
+    private VertexPath track;
+    private VertexPath figureOfEight;
+
+    @Setup
+    public void setup() {
+
+        float[] trackPoints = new float[numVertices * 3];
+        float[] figureOfEightPoints = new float[numVertices * 3];
+
+        for (int i = 0; i < numVertices; i++) {
+
+            double angle = 2 * Math.PI * i / numVertices;
+
+            trackPoints[i * 3] = (float) (1000 * Math.cos(angle) + 3 * Math.sin(angle * 200));
+            trackPoints[i * 3 + 2] = (float) (1000 * Math.sin(angle));
+
+            figureOfEightPoints[i * 3] = (float) (1000 * Math.sin(angle));
+            figureOfEightPoints[i * 3 + 2] = (float) (500 * Math.sin(2 * angle));
+        }
+
+        track = createVertexPath(trackPoints);
+        figureOfEight = createVertexPath(figureOfEightPoints);
+    }
+
+    @Benchmark
+    public List<SelfIntersectionUtility.SelfIntersection> findTrackIntersections() {
+        return SelfIntersectionUtility.findSelfIntersections(track);
+    }
+
+    @Benchmark
+    public boolean isFigureOfEightSelfIntersecting() {
+        return SelfIntersectionUtility.isSelfIntersecting(figureOfEight);
+    }
+
+    /**
+     * Creates a closed xz path straight from its points. Only the points are used, so the other vertex data is left empty.
+     */
+    private static VertexPath createVertexPath(float[] points) {
+
+        int numPoints = points.length / 3;
+        float[] cumulativeLengths = new float[numPoints];
+
+        for (int i = 1; i < numPoints; i++) {
+            float dx = points[i * 3] - points[i * 3 - 3];
+            float dz = points[i * 3 + 2] - points[i * 3 - 1];
+            cumulativeLengths[i] = cumulativeLengths[i - 1] + (float) Math.sqrt(dx * dx + dz * dz);
+        }
+
+        return new VertexPath(PathSpace.xz, true,
+                FloatBuffer.wrap(points), FloatBuffer.allocate(numPoints * 3), FloatBuffer.allocate(numPoints * 3),
+                FloatBuffer.allocate(numPoints), FloatBuffer.wrap(cumulativeLengths), IntBuffer.wrap(new int[] { 0, numPoints - 1 }),
+                new BoundingBox(), new Vector3f(0, 1, 0), null);
+    }
+
+}
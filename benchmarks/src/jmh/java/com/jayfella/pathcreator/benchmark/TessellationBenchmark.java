@@ -0,0 +1,42 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting bezier paths into vertices, and building vertex paths, across segment counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TessellationBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int numSegments;
+
+    @Param({ "xyz", "xz" })
+    public PathSpace space;
+
+    private BezierPath bezierPath;
+
+    @Setup
+    public void setup() {
+        bezierPath = BenchmarkPaths.createPath(numSegments, space);
+    }
+
+    @Benchmark
+    public VertexPathUtility.PathSplitData splitByAngleError() {
+        return VertexPathUtility.SplitBezierPathByAngleError(bezierPath, 0.3f, 0.01f, 10);
+    }
+
+    @Benchmark
+    public VertexPath createVertexPath() {
+        return new VertexPath(bezierPath, null, 0.3f, 0.01f);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.jayfella.pathcreator.benchmark;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.EndOfPathInstruction;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sampling and closest point queries on a prebuilt vertex path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VertexPathQueryBenchmark {
+
+    @Param({ "10", "100" })
+    public int numSegments;
+
+    private BezierPath bezierPath;
+    private VertexPath vertexPath;
+    private final Vector3f queryPoint = new Vector3f(12, 1, -3);
+
+    // the queries step through these times so the binary search doesn't always take the same branches. They are stepped in
+    // the benchmark methods, as an invocation level fixture would cost more than the queries themselves.
+    private static final int numTimes = 1024;
+    private final float[] times = new float[numTimes];
+    private int timeIndex;
+
+    @Setup
+    public void setup() {
+        bezierPath = BenchmarkPaths.createPath(numSegments, PathSpace.xyz);
+        vertexPath = new VertexPath(bezierPath, null, 0.3f, 0.01f);
+
+        float t = 0;
+
+        for (int i = 0; i < numTimes; i++) {
+            t = (t + 0.618034f) % 1;
+            times[i] = t;
+        }
+    }
+
+    private float nextTime() {
+        timeIndex = (timeIndex + 1) & (numTimes - 1);
+        return times[timeIndex];
+    }
+
+    @Benchmark
+    public Vector3f getPointAtTime() {
+        return vertexPath.GetPointAtTime(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Quaternion getRotation() {
+        return vertexPath.GetRotation(nextTime(), EndOfPathInstruction.Loop);
+    }
+
+    @Benchmark
+    public Vector3f getClosestPointOnPath() {
+        return vertexPath.GetClosestPointOnPath(queryPoint);
+    }
+
+    @Benchmark
+    public VertexPath.ClosestPointData getClosestPointOnBezierPath() {
+        return vertexPath.GetClosestPointOnBezierPath(bezierPath, queryPoint);
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.jayfella.pathcreator.event;
 
+import com.jayfella.pathcreator.metrics.PathMetrics;
+
 import java.util.List;
 
 public interface CreatorEvent {
@@ -7,6 +9,7 @@ public interface CreatorEvent {
     void eventTriggered();
 
     static void triggerEvents(List<CreatorEvent> events) {
+        PathMetrics.increment(PathMetrics.EVENT_FAN_OUT, events.size());
         events.forEach(CreatorEvent::eventTriggered);
     }
 
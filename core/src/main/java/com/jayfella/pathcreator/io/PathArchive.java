@@ -0,0 +1,229 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.scene.Spatial;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A read-only archive of baked vertex paths that is opened with {@link FileChannel#map}.
+ *
+ * <pre>
+ * header  int magic ("PCPA"), short version, short reserved, int numPaths, int reserved
+ * index   numPaths entries sorted by id: long id, long offset, int length, int reserved
+ * data    one vertex path section (see {@link PathSerializer}) per entry
+ * </pre>
+ *
+ * Opening an archive only maps the file. Nothing is deserialized onto the heap: the index is searched in place and
+ * each vertex path returned by {@link #getVertexPath(long, Spatial)} is a zero-copy view over the mapped region, so
+ * the operating system only pages in the paths that are actually queried.
+ *
+ * A single mapping is limited to 2GB, so an archive may not exceed that size.
+ */
+public class PathArchive implements Closeable {
+
+    public static final int MAGIC = 0x41504350; // "PCPA" in little-endian byte order
+    public static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private MappedByteBuffer buffer;
+    private final int numPaths;
+
+    private PathArchive(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("The file is not a path archive.");
+        }
+
+        short version = buffer.getShort(4);
+
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported path archive version: " + version);
+        }
+
+        this.numPaths = buffer.getInt(8);
+
+        if (numPaths < 0 || HEADER_SIZE + (long) numPaths * INDEX_ENTRY_SIZE > buffer.capacity()) {
+            throw new IllegalArgumentException("The path archive is corrupt: an index of " + numPaths + " paths does not fit in "
+                    + buffer.capacity() + " bytes.");
+        }
+    }
+
+    /**
+     * Maps the given archive file into memory.
+     * @param file the archive file.
+     * @return the opened archive.
+     * @throws IOException if the file could not be mapped.
+     */
+    public static PathArchive open(Path file) throws IOException {
+        // the mapping remains valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new PathArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the given vertex paths to an archive file, replacing the file if it exists.
+     * @param file  the archive file.
+     * @param paths the vertex paths to write, keyed by path id.
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(Path file, Map<Long, VertexPath> paths) throws IOException {
+
+        SortedMap<Long, VertexPath> sortedPaths = new TreeMap<>(paths);
+
+        long size = HEADER_SIZE + (long) sortedPaths.size() * INDEX_ENTRY_SIZE;
+
+        for (VertexPath path : sortedPaths.values()) {
+            size += PathSerializer.getSerializedSize(path);
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A path archive cannot exceed 2GB. Split the paths over several archives.");
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putShort((short) 0);
+            out.putInt(sortedPaths.size());
+            out.putInt(0);
+
+            int dataOffset = HEADER_SIZE + sortedPaths.size() * INDEX_ENTRY_SIZE;
+            int indexOffset = HEADER_SIZE;
+
+            for (Map.Entry<Long, VertexPath> entry : sortedPaths.entrySet()) {
+
+                int length = PathSerializer.getSerializedSize(entry.getValue());
+
+                out.putLong(indexOffset, entry.getKey());
+                out.putLong(indexOffset + 8, dataOffset);
+                out.putInt(indexOffset + 16, length);
+                out.putInt(indexOffset + 20, 0);
+
+                out.position(dataOffset);
+                PathSerializer.writeVertexPath(entry.getValue(), out);
+
+                indexOffset += INDEX_ENTRY_SIZE;
+                dataOffset += length;
+            }
+
+            out.force();
+        }
+    }
+
+    public int getNumPaths() {
+        return numPaths;
+    }
+
+    /**
+     * Returns the id of the path at the given position in the index. Ids are sorted in ascending order.
+     * @param index the position in the index.
+     * @return the path id.
+     */
+    public long getPathId(int index) {
+        return getBuffer().getLong(HEADER_SIZE + index * INDEX_ENTRY_SIZE);
+    }
+
+    public boolean contains(long pathId) {
+        return indexOf(pathId) >= 0;
+    }
+
+    /**
+     * Returns the baked vertex path with the given id as a view over the mapped file.
+     * @param pathId  the id of the path.
+     * @param spatial the spatial the vertex path is attached to, or null.
+     * @return the vertex path, or null if the archive does not contain the path.
+     * @throws IllegalArgumentException if the index entry or the vertex path of the path is corrupt.
+     */
+    public VertexPath getVertexPath(long pathId, Spatial spatial) {
+
+        int index = indexOf(pathId);
+
+        if (index < 0) {
+            return null;
+        }
+
+        ByteBuffer archive = getBuffer();
+
+        int entryOffset = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+        long offset = archive.getLong(entryOffset + 8);
+        int length = archive.getInt(entryOffset + 16);
+
+        if (offset < HEADER_SIZE + (long) numPaths * INDEX_ENTRY_SIZE || length < 0 || length > archive.capacity() - offset) {
+            throw new IllegalArgumentException("The path archive is corrupt: path " + pathId + " has " + length + " bytes at offset "
+                    + offset + ", outside of the " + archive.capacity() + " byte file.");
+        }
+
+        // chained through Buffer, since ByteBuffer only overrides limit and position to return itself from Java 9 onwards.
+        ByteBuffer region = archive.duplicate();
+        ((Buffer) region).limit((int) offset + length).position((int) offset);
+
+        return PathSerializer.readVertexPathView(region.order(ByteOrder.LITTLE_ENDIAN), spatial);
+    }
+
+    // binary search over the mapped index.
+    private int indexOf(long pathId) {
+
+        ByteBuffer archive = getBuffer();
+
+        int low = 0;
+        int high = numPaths - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = archive.getLong(HEADER_SIZE + mid * INDEX_ENTRY_SIZE);
+
+            if (midId < pathId) {
+                low = mid + 1;
+            }
+            else if (midId > pathId) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    private ByteBuffer getBuffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("The path archive has been closed.");
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Releases the archive's reference to the mapped file. Vertex paths that were returned by this archive remain
+     * valid, and the mapping itself is released by the garbage collector once they are no longer referenced.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+}
@@ -0,0 +1,408 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes bezier paths and baked vertex paths in a compact, versioned, little-endian binary format.
+ *
+ * <pre>
+ * header       int magic ("PCPF"), short version, byte flags, byte reserved
+ * bezier path  byte space, byte controlMode, byte closed, byte flipNormals,
+ *              float autoControlLength, float globalNormalsAngle,
+ *              int numPoints, int numAnchorAngles,
+ *              float[numPoints * 3] points, float[numAnchorAngles] anchorAngles
+ * vertex path  (only if FLAG_VERTEX_PATH is set)
+ *              byte space, byte closed, short reserved, int numVertices, int numAnchors,
+ *              float[3] boundsCenter, float[3] boundsExtent, float[3] up,
+ *              float[numVertices * 3] points, float[numVertices * 3] tangents, float[numVertices * 3] normals,
+ *              float[numVertices] times, float[numVertices] cumulativeLengths, int[numAnchors] anchorVertexMap
+ * </pre>
+ *
+ * Every field is 4-byte aligned relative to the start of a section. Vertex path data is either copied in bulk
+ * straight from the buffer into the arrays backing the {@link VertexPath}, or read as a zero-copy view over the
+ * buffer. In both cases no objects are created per vertex.
+ */
+public class PathSerializer {
+
+    public static final int MAGIC = 0x46504350; // "PCPF" in little-endian byte order
+    public static final short VERSION = 1;
+
+    public static final byte FLAG_VERTEX_PATH = 1;
+
+    public static final int HEADER_SIZE = 8;
+
+    /**
+     * Returns the number of bytes required to store the given paths.
+     * @param bezierPath the bezier path.
+     * @param vertexPath the baked vertex path, or null.
+     * @return the number of bytes required.
+     */
+    public static int getSerializedSize(BezierPath bezierPath, VertexPath vertexPath) {
+        int size = HEADER_SIZE + getSerializedSize(bezierPath);
+
+        if (vertexPath != null) {
+            size += getSerializedSize(vertexPath);
+        }
+
+        return size;
+    }
+
+    public static int getSerializedSize(BezierPath bezierPath) {
+        return 20
+                + bezierPath.getNumPoints() * 3 * Float.BYTES
+                + bezierPath.getAnchorNormalsAngles().size() * Float.BYTES;
+    }
+
+    public static int getSerializedSize(VertexPath vertexPath) {
+        return 12
+                + 9 * Float.BYTES
+                + vertexPath.getNumPoints() * 11 * Float.BYTES
+                + vertexPath.getAnchorVertexMap().limit() * Integer.BYTES;
+    }
+
+    /**
+     * Writes the given paths into a new heap buffer. The returned buffer is flipped and ready to be read.
+     * @param bezierPath the bezier path.
+     * @param vertexPath the baked vertex path, or null.
+     * @return a buffer containing the serialized paths.
+     */
+    public static ByteBuffer write(BezierPath bezierPath, VertexPath vertexPath) {
+        ByteBuffer buffer = ByteBuffer.allocate(getSerializedSize(bezierPath, vertexPath));
+        write(bezierPath, vertexPath, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes the given paths at the current position of the buffer, advancing its position.
+     * @param bezierPath the bezier path.
+     * @param vertexPath the baked vertex path, or null.
+     * @param buffer     the buffer to write to.
+     */
+    public static void write(BezierPath bezierPath, VertexPath vertexPath, ByteBuffer buffer) {
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(vertexPath != null ? FLAG_VERTEX_PATH : 0);
+        buffer.put((byte) 0);
+
+        writeBezierPath(bezierPath, buffer);
+
+        if (vertexPath != null) {
+            writeVertexPath(vertexPath, buffer);
+        }
+
+        buffer.order(order);
+    }
+
+    /**
+     * Reads paths previously written by {@link #write(BezierPath, VertexPath, ByteBuffer)} from the current position
+     * of the buffer, advancing its position.
+     * @param buffer  the buffer to read from.
+     * @param spatial the spatial the vertex path is attached to, or null.
+     * @return the paths that were read.
+     * @throws IllegalArgumentException if the buffer does not hold paths in this version of the format, or is truncated.
+     */
+    public static PathData read(ByteBuffer buffer, Spatial spatial) {
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte flags = readHeader(buffer);
+
+        BezierPath bezierPath = readBezierPath(buffer);
+        VertexPath vertexPath = ((flags & FLAG_VERTEX_PATH) != 0) ? readVertexPath(buffer, spatial) : null;
+
+        buffer.order(order);
+
+        return new PathData(bezierPath, vertexPath);
+    }
+
+    /**
+     * Reads and validates the file header.
+     * @param buffer a little-endian buffer positioned at the start of the header.
+     * @return the header flags.
+     */
+    static byte readHeader(ByteBuffer buffer) {
+
+        checkRemaining(buffer, HEADER_SIZE);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not contain a serialized path.");
+        }
+
+        short version = buffer.getShort();
+
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported path format version: " + version);
+        }
+
+        byte flags = buffer.get();
+        buffer.get(); // reserved
+
+        return flags;
+    }
+
+    /**
+     * Writes the bezier path section. The buffer must be in little-endian byte order.
+     * @param bezierPath the bezier path to write.
+     * @param buffer     the buffer to write to.
+     */
+    public static void writeBezierPath(BezierPath bezierPath, ByteBuffer buffer) {
+
+        List<Float> anchorAngles = bezierPath.getAnchorNormalsAngles();
+
+        buffer.put((byte) bezierPath.getSpace().ordinal());
+        buffer.put((byte) bezierPath.getControlMode().ordinal());
+        buffer.put((byte) (bezierPath.isClosed() ? 1 : 0));
+        buffer.put((byte) (bezierPath.getFlipNormals() ? 1 : 0));
+        buffer.putFloat(bezierPath.getAutoControlLength());
+        buffer.putFloat(bezierPath.getGlobalNormalsAngle());
+        buffer.putInt(bezierPath.getNumPoints());
+        buffer.putInt(anchorAngles.size());
+
+        for (int i = 0; i < bezierPath.getNumPoints(); i++) {
+            Vector3f point = bezierPath.getPoint(i);
+            buffer.putFloat(point.x).putFloat(point.y).putFloat(point.z);
+        }
+
+        for (float angle : anchorAngles) {
+            buffer.putFloat(angle);
+        }
+    }
+
+    /**
+     * Reads the bezier path section. The buffer must be in little-endian byte order.
+     * @param buffer the buffer to read from.
+     * @return the bezier path.
+     */
+    public static BezierPath readBezierPath(ByteBuffer buffer) {
+
+        checkRemaining(buffer, 20);
+
+        PathSpace space = getOrdinal(buffer, PathSpace.values(), "path space");
+        BezierPath.ControlMode controlMode = getOrdinal(buffer, BezierPath.ControlMode.values(), "control mode");
+        boolean closed = buffer.get() != 0;
+        boolean flipNormals = buffer.get() != 0;
+        float autoControlLength = buffer.getFloat();
+        float globalNormalsAngle = buffer.getFloat();
+        int numPoints = buffer.getInt();
+        int numAnchorAngles = buffer.getInt();
+
+        checkCount(numPoints);
+        checkCount(numAnchorAngles);
+        checkRemaining(buffer, ((long) numPoints * 3 + numAnchorAngles) * Float.BYTES);
+
+        List<Vector3f> points = new ArrayList<>(numPoints);
+
+        for (int i = 0; i < numPoints; i++) {
+            points.add(new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat()));
+        }
+
+        List<Float> anchorAngles = new ArrayList<>(numAnchorAngles);
+
+        for (int i = 0; i < numAnchorAngles; i++) {
+            anchorAngles.add(buffer.getFloat());
+        }
+
+        BezierPath bezierPath = new BezierPath(points, anchorAngles, closed, space, controlMode, autoControlLength);
+        bezierPath.setFlipNormals(flipNormals);
+        bezierPath.setGlobalNormalsAngle(globalNormalsAngle);
+
+        return bezierPath;
+    }
+
+    /**
+     * Writes the baked vertex path section. The buffer must be in little-endian byte order.
+     * @param vertexPath the vertex path to write.
+     * @param buffer     the buffer to write to.
+     */
+    public static void writeVertexPath(VertexPath vertexPath, ByteBuffer buffer) {
+
+        BoundingBox bounds = vertexPath.getBounds();
+        Vector3f center = bounds.getCenter();
+        Vector3f up = vertexPath.getUp();
+
+        buffer.put((byte) vertexPath.getSpace().ordinal());
+        buffer.put((byte) (vertexPath.isClosedLoop() ? 1 : 0));
+        buffer.putShort((short) 0);
+        buffer.putInt(vertexPath.getNumPoints());
+        buffer.putInt(vertexPath.getAnchorVertexMap().limit());
+
+        buffer.putFloat(center.x).putFloat(center.y).putFloat(center.z);
+        buffer.putFloat(bounds.getXExtent()).putFloat(bounds.getYExtent()).putFloat(bounds.getZExtent());
+        buffer.putFloat(up.x).putFloat(up.y).putFloat(up.z);
+
+        putFloats(buffer, vertexPath.getLocalPoints());
+        putFloats(buffer, vertexPath.getLocalTangents());
+        putFloats(buffer, vertexPath.getLocalNormals());
+        putFloats(buffer, vertexPath.getTimes());
+        putFloats(buffer, vertexPath.getCumulativeLengths());
+
+        IntBuffer anchorVertexMap = vertexPath.getAnchorVertexMap().duplicate();
+        anchorVertexMap.position(0);
+        buffer.asIntBuffer().put(anchorVertexMap);
+        buffer.position(buffer.position() + anchorVertexMap.limit() * Integer.BYTES);
+    }
+
+    /**
+     * Reads the baked vertex path section. The buffer must be in little-endian byte order.
+     * @param buffer  the buffer to read from.
+     * @param spatial the spatial the vertex path is attached to, or null.
+     * @return the vertex path.
+     */
+    public static VertexPath readVertexPath(ByteBuffer buffer, Spatial spatial) {
+        return readVertexPath(buffer, spatial, true);
+    }
+
+    /**
+     * Reads the baked vertex path section without copying the vertex data. The returned vertex path is a view over
+     * the given buffer, so the buffer contents must not change for as long as the vertex path is in use.
+     * The buffer must be in little-endian byte order.
+     * @param buffer  the buffer to read from, typically a memory-mapped file.
+     * @param spatial the spatial the vertex path is attached to, or null.
+     * @return a vertex path backed by the given buffer.
+     */
+    public static VertexPath readVertexPathView(ByteBuffer buffer, Spatial spatial) {
+        return readVertexPath(buffer, spatial, false);
+    }
+
+    private static VertexPath readVertexPath(ByteBuffer buffer, Spatial spatial, boolean copy) {
+
+        checkRemaining(buffer, 12 + 9 * Float.BYTES);
+
+        PathSpace space = getOrdinal(buffer, PathSpace.values(), "path space");
+        boolean closed = buffer.get() != 0;
+        buffer.getShort(); // reserved
+        int numVertices = buffer.getInt();
+        int numAnchors = buffer.getInt();
+
+        Vector3f center = new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        Vector3f extent = new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        Vector3f up = new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+
+        checkCount(numVertices);
+        checkCount(numAnchors);
+        checkRemaining(buffer, ((long) numVertices * 11) * Float.BYTES + (long) numAnchors * Integer.BYTES);
+
+        FloatBuffer points = getFloats(buffer, numVertices * 3, copy);
+        FloatBuffer tangents = getFloats(buffer, numVertices * 3, copy);
+        FloatBuffer normals = getFloats(buffer, numVertices * 3, copy);
+        FloatBuffer times = getFloats(buffer, numVertices, copy);
+        FloatBuffer cumulativeLengths = getFloats(buffer, numVertices, copy);
+        IntBuffer anchorVertexMap = getInts(buffer, numAnchors, copy);
+
+        return new VertexPath(space, closed, points, tangents, normals, times, cumulativeLengths, anchorVertexMap,
+                new BoundingBox(center, extent.x, extent.y, extent.z), up, spatial);
+    }
+
+    // checked before anything is read, so a truncated buffer is rejected instead of allocating arrays for counts it doesn't hold.
+    private static void checkRemaining(ByteBuffer buffer, long numBytes) {
+        if (buffer.remaining() < numBytes) {
+            throw new IllegalArgumentException("The buffer is truncated: " + numBytes + " bytes are needed, but only " + buffer.remaining() + " remain.");
+        }
+    }
+
+    /// Reads a byte naming one of the constants of an enum, rejecting values that don't name any of them.
+    private static <E extends Enum<E>> E getOrdinal(ByteBuffer buffer, E[] values, String name) {
+
+        int ordinal = buffer.get();
+
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("The buffer is corrupt: " + ordinal + " is not a valid " + name + ".");
+        }
+
+        return values[ordinal];
+    }
+
+    private static void checkCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("The buffer is corrupt: found a negative count of " + count);
+        }
+    }
+
+    private static void putFloats(ByteBuffer buffer, FloatBuffer values) {
+        FloatBuffer source = values.duplicate();
+        source.position(0);
+        buffer.asFloatBuffer().put(source);
+        buffer.position(buffer.position() + source.limit() * Float.BYTES);
+    }
+
+    private static FloatBuffer getFloats(ByteBuffer buffer, int count, boolean copy) {
+        FloatBuffer values;
+
+        if (copy) {
+            float[] array = new float[count];
+            buffer.asFloatBuffer().get(array);
+            values = FloatBuffer.wrap(array);
+        }
+        else {
+            values = slice(buffer, count * Float.BYTES).asFloatBuffer();
+        }
+
+        buffer.position(buffer.position() + count * Float.BYTES);
+        return values;
+    }
+
+    private static IntBuffer getInts(ByteBuffer buffer, int count, boolean copy) {
+        IntBuffer values;
+
+        if (copy) {
+            int[] array = new int[count];
+            buffer.asIntBuffer().get(array);
+            values = IntBuffer.wrap(array);
+        }
+        else {
+            values = slice(buffer, count * Integer.BYTES).asIntBuffer();
+        }
+
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    // slices do not inherit the byte order of their parent.
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        return slice.order(buffer.order());
+    }
+
+    public static class PathData {
+
+        private final BezierPath bezierPath;
+        private final VertexPath vertexPath;
+
+        PathData(BezierPath bezierPath, VertexPath vertexPath) {
+            this.bezierPath = bezierPath;
+            this.vertexPath = vertexPath;
+        }
+
+        public BezierPath getBezierPath() {
+            return bezierPath;
+        }
+
+        /**
+         * Returns the baked vertex path, or null if the vertex path was not stored.
+         * @return the baked vertex path, or null.
+         */
+        public VertexPath getVertexPath() {
+            return vertexPath;
+        }
+    }
+
+}
@@ -0,0 +1,408 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.objects.VertexPathStorage;
+import com.jme3.scene.Spatial;
+import com.jme3.util.BufferUtils;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A local disk cache of baked vertex paths, keyed by a content hash of the bezier path and the tessellation settings.
+ *
+ * The cache is bounded by size. When it grows beyond its limit the least recently used entries are deleted. The
+ * last modified time of each file is updated on every hit, so the usage order survives between launches.
+ *
+ * Entries are named by a 64-bit hash of their content key, and each file starts with the full key, so two keys with the same
+ * hash are told apart rather than one being given the other's vertex path. Files are written under a temporary name and
+ * moved into place, so a cache directory shared between launches never holds a half written entry.
+ *
+ * Failing to read or write the cache is never fatal: the failure is logged and treated as a miss.
+ */
+public class TessellationCache {
+
+    private static final Logger log = Logger.getLogger(TessellationCache.class.getName());
+
+    private static final String FILE_EXTENSION = ".pcv";
+
+    // the layout of the hashed content. Bumped whenever it changes, so entries hashed the old way are never hit and age out of the cache.
+    // 2: the tessellation mode is always the first setting.
+    // 3: files start with the full key.
+    private static final short KEY_VERSION = 3;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    // content hash -> file size, in least recently used order.
+    private final LinkedHashMap<Long, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache in the given directory, creating the directory if it does not exist.
+     * @param directory    the directory to store cached vertex paths in.
+     * @param maxSizeBytes the maximum total size of the cached files.
+     * @throws IOException if the directory could not be created or read.
+     */
+    public TessellationCache(Path directory, long maxSizeBytes) throws IOException {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            stream.forEach(files::add);
+        }
+
+        // oldest first, so the most recently used files end up at the back of the access order.
+        files.sort(Comparator.comparing(TessellationCache::getLastModifiedTime));
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+
+            try {
+                long key = Long.parseUnsignedLong(name.substring(0, name.length() - FILE_EXTENSION.length()), 16);
+                long size = Files.size(file);
+                entries.put(key, size);
+                sizeBytes += size;
+            }
+            catch (NumberFormatException ignored) {
+                // not one of ours.
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Computes the content key of a bezier path and its tessellation settings: the serialized control points and settings of
+     * the bezier path, followed by the tessellation settings. The key only depends on the serialized form of the path, so it is
+     * the same across launches and machines. Two paths with the same key produce the same vertex path.
+     * @param bezierPath           the bezier path.
+     * @param tessellationSettings the settings used to split the path: the tessellation mode, followed by the settings of that mode.
+     * @return the content key.
+     */
+    public static byte[] computeContentKey(BezierPath bezierPath, float... tessellationSettings) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(PathSerializer.getSerializedSize(bezierPath) + 4 + tessellationSettings.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putShort(KEY_VERSION);
+        buffer.putShort(PathSerializer.VERSION);
+        PathSerializer.writeBezierPath(bezierPath, buffer);
+
+        for (float setting : tessellationSettings) {
+            buffer.putFloat(setting);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Computes a stable 64-bit content hash (FNV-1a) of the content key of a bezier path and its tessellation settings.
+     * @param bezierPath           the bezier path.
+     * @param tessellationSettings the settings used to split the path: the tessellation mode, followed by the settings of that mode.
+     * @return the content hash.
+     */
+    public static long computeContentHash(BezierPath bezierPath, float... tessellationSettings) {
+        return hash(computeContentKey(bezierPath, tessellationSettings));
+    }
+
+    /**
+     * Computes the stable 64-bit hash (FNV-1a) entries with the given content key are named by.
+     * @param contentKey the content key.
+     * @return the hash of the key.
+     */
+    public static long hash(byte[] contentKey) {
+
+        long hash = FNV_OFFSET_BASIS;
+
+        for (byte value : contentKey) {
+            hash ^= value & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Loads the cached vertex path with the given content key, with its vertex data on the heap.
+     * @param contentKey the content key of the path, from computeContentKey.
+     * @param spatial    the spatial the vertex path is attached to, or null.
+     * @return the cached vertex path, or null on a miss.
+     */
+    public VertexPath load(byte[] contentKey, Spatial spatial) {
+        return load(contentKey, spatial, VertexPathStorage.Heap);
+    }
+
+    /**
+     * Loads the cached vertex path with the given content key, keeping its vertex data in the given storage.
+     * Direct paths are views over a single direct buffer holding the whole file, so they do not own their memory, and
+     * it is freed once the path is garbage collected.
+     * @param contentKey the content key of the path, from computeContentKey.
+     * @param spatial    the spatial the vertex path is attached to, or null.
+     * @param storage    where to keep the vertex data of the loaded path.
+     * @return the cached vertex path, or null on a miss.
+     */
+    public synchronized VertexPath load(byte[] contentKey, Spatial spatial, VertexPathStorage storage) {
+
+        long contentHash = hash(contentKey);
+
+        if (entries.get(contentHash) == null) {
+            misses++;
+            return null;
+        }
+
+        Path file = getFile(contentHash);
+
+        try {
+            ByteBuffer buffer = read(file, storage == VertexPathStorage.Direct);
+
+            if (!readKey(buffer, contentKey)) {
+                // another key with the same hash. Its entry is left alone, and replaced if this path is stored.
+                misses++;
+                return null;
+            }
+
+            VertexPath vertexPath = (storage == VertexPathStorage.Direct)
+                    ? readVertexPathView(buffer, spatial)
+                    : PathSerializer.read(buffer, spatial).getVertexPath();
+
+            if (vertexPath != null) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                hits++;
+                return vertexPath;
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Unable to read cached vertex path: " + file, e);
+        }
+
+        // the file is unreadable or does not contain a vertex path.
+        remove(contentHash);
+        misses++;
+        return null;
+    }
+
+    /// Reads a whole file into a little-endian buffer, direct or on the heap.
+    private static ByteBuffer read(Path file, boolean direct) throws IOException {
+
+        if (!direct) {
+            return ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            buffer = BufferUtils.createByteBuffer((int) channel.size());
+
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends.
+            }
+        }
+
+        ((Buffer) buffer).flip();
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /// Reads the key at the start of a cached file, returning true if it is the given key.
+    private static boolean readKey(ByteBuffer buffer, byte[] contentKey) {
+
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("The cached file is truncated.");
+        }
+
+        int keyLength = buffer.getInt();
+
+        if (keyLength < 0 || keyLength > buffer.remaining()) {
+            throw new IllegalArgumentException("The cached file is corrupt: its key is " + keyLength + " bytes long.");
+        }
+
+        ByteBuffer key = buffer.duplicate();
+        ((Buffer) key).limit(key.position() + keyLength);
+        ((Buffer) buffer).position(buffer.position() + keyLength);
+
+        return key.equals(ByteBuffer.wrap(contentKey));
+    }
+
+    /// Returns a vertex path over the buffer, or null if the file has no vertex path.
+    private static VertexPath readVertexPathView(ByteBuffer buffer, Spatial spatial) {
+
+        if ((PathSerializer.readHeader(buffer) & PathSerializer.FLAG_VERTEX_PATH) == 0) {
+            return null;
+        }
+
+        PathSerializer.readBezierPath(buffer);
+        return PathSerializer.readVertexPathView(buffer, spatial);
+    }
+
+    /**
+     * Stores a baked vertex path in the cache, evicting the least recently used entries if the cache is full.
+     * An entry with another key and the same hash is replaced.
+     * @param contentKey the content key of the path, from computeContentKey.
+     * @param bezierPath the bezier path the vertex path was created from.
+     * @param vertexPath the baked vertex path.
+     */
+    public synchronized void store(byte[] contentKey, BezierPath bezierPath, VertexPath vertexPath) {
+
+        long contentHash = hash(contentKey);
+        Path file = getFile(contentHash);
+
+        int size = Integer.BYTES + contentKey.length + PathSerializer.getSerializedSize(bezierPath, vertexPath);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(contentKey.length);
+        buffer.put(contentKey);
+        PathSerializer.write(bezierPath, vertexPath, buffer);
+
+        Path temporaryFile = null;
+
+        try {
+            // written under another name first, so the entry is either missing or complete for anyone reading the directory.
+            temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temporaryFile, buffer.array());
+            move(temporaryFile, file);
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Unable to write cached vertex path: " + file, e);
+            deleteQuietly(temporaryFile);
+            return;
+        }
+
+        Long previousSize = entries.put(contentHash, (long) size);
+
+        if (previousSize != null) {
+            sizeBytes -= previousSize;
+        }
+
+        sizeBytes += size;
+
+        evict();
+    }
+
+    /**
+     * Deletes every cached vertex path. The hit and miss counters are not reset.
+     */
+    public synchronized void clear() {
+        for (Long key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public synchronized int getNumEntries() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, Long>> iterator = entries.entrySet().iterator();
+
+        while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<Long, Long> entry = iterator.next();
+            iterator.remove();
+            sizeBytes -= entry.getValue();
+            deleteFile(entry.getKey());
+        }
+    }
+
+    private void remove(long contentHash) {
+        Long size = entries.remove(contentHash);
+
+        if (size != null) {
+            sizeBytes -= size;
+        }
+
+        deleteFile(contentHash);
+    }
+
+    /// Moves a file over another atomically, or as close to it as the file system allows.
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException ignored) {
+                // left for the next launch to overwrite.
+            }
+        }
+    }
+
+    private void deleteFile(long contentHash) {
+        try {
+            Files.deleteIfExists(getFile(contentHash));
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Unable to delete cached vertex path: " + getFile(contentHash), e);
+        }
+    }
+
+    private Path getFile(long contentHash) {
+        return directory.resolve(String.format("%016x", contentHash) + FILE_EXTENSION);
+    }
+
+    private static FileTime getLastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        }
+        catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+}
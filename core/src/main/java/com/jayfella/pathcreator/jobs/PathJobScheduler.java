@@ -0,0 +1,328 @@
+package com.jayfella.pathcreator.jobs;
+
+import com.jayfella.pathcreator.metrics.PathMetrics;
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Runs heavy path work (tessellation, meshes, indexes) a little at a time on the render thread, rather than all at once
+ * in the event that caused it.
+ *
+ * Jobs are queued by priority (lower first), then in the order they were submitted, and each frame the queue is drained
+ * until the frame budget is spent. A running average of how long each type of job takes is kept, and a job is left for the
+ * next frame if it is not expected to fit in what is left of the budget. At least one job runs every frame so the queue
+ * always makes progress, which means a single job longer than the budget overruns it. Overruns are counted, along with
+ * the jobs run and superseded.
+ *
+ * Each job belongs to a key (usually the path, or the mesh chunk, it rebuilds) and a type. Submitting a job for a key
+ * and type that is already queued supersedes the queued job: the old job is taken out of the queue and only the newest
+ * one runs, but it keeps the place in the queue of the job it replaced, so a path that is edited every frame is not
+ * starved by newer work, and the queue never grows beyond one job per key and type.
+ *
+ * Jobs may be submitted from any thread, but always run on the render thread.
+ */
+public class PathJobScheduler extends BaseAppState {
+
+    private final PriorityQueue<Job> queue = new PriorityQueue<>();
+    private final Map<JobKey, Job> queuedJobs = new HashMap<>();
+
+    private float budgetMillis = 2;
+    private long nextSequence;
+
+    // running average of how long each type of job takes, in nanoseconds.
+    private static final float averageWeight = 0.2f;
+    private final float[] averageJobNanos = new float[PathJobType.values().length];
+
+    // stats
+    private long jobsRun;
+    private long jobsSuperseded;
+    private long overrunFrames;
+    private float lastFrameMillis;
+    private float maxOverrunMillis;
+
+    public PathJobScheduler() {
+    }
+
+    /**
+     * Creates a scheduler that spends at most 'budgetMillis' a frame running jobs.
+     * @param budgetMillis the frame budget, in milliseconds.
+     */
+    public PathJobScheduler(float budgetMillis) {
+        setBudgetMillis(budgetMillis);
+    }
+
+    public float getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Sets how long each frame may spend running jobs.
+     * @param budgetMillis the frame budget, in milliseconds.
+     */
+    public void setBudgetMillis(float budgetMillis) {
+
+        if (!(budgetMillis > 0)) {
+            throw new IllegalArgumentException("The frame budget must be larger than zero.");
+        }
+
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Queues a job with the default priority of its type, superseding any queued job with the same key and type.
+     * @param key  what the job rebuilds, such as a path or a mesh chunk.
+     * @param type the type of the job.
+     * @param work the work to do.
+     */
+    public void submit(Object key, PathJobType type, Runnable work) {
+        submit(key, type, type.getDefaultPriority(), work);
+    }
+
+    /**
+     * Queues a job, superseding any queued job with the same key and type.
+     * @param key      what the job rebuilds, such as a path or a mesh chunk.
+     * @param type     the type of the job.
+     * @param priority the priority of the job. Lower priorities run first.
+     * @param work     the work to do.
+     */
+    public synchronized void submit(Object key, PathJobType type, int priority, Runnable work) {
+
+        Objects.requireNonNull(key, "A job needs a key.");
+        Objects.requireNonNull(type, "A job needs a type.");
+        Objects.requireNonNull(work, "A job needs work to do.");
+
+        JobKey jobKey = new JobKey(key, type);
+        Job previous = queuedJobs.get(jobKey);
+
+        long sequence;
+
+        if (previous != null) {
+            queue.remove(previous);
+            sequence = previous.sequence;
+            jobsSuperseded++;
+            PathMetrics.increment(PathMetrics.SCHEDULER_JOBS_SUPERSEDED, 1);
+        }
+        else {
+            sequence = nextSequence++;
+        }
+
+        Job job = new Job(jobKey, priority, sequence, work);
+        queue.add(job);
+        queuedJobs.put(jobKey, job);
+    }
+
+    /**
+     * Removes any queued job with the given key and type, for example when the path it rebuilds is removed.
+     * @param key  what the job rebuilds.
+     * @param type the type of the job.
+     * @return true if a job was removed.
+     */
+    public synchronized boolean cancel(Object key, PathJobType type) {
+
+        Job job = queuedJobs.remove(new JobKey(key, type));
+
+        if (job != null) {
+            queue.remove(job);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs every queued job now, ignoring the frame budget. Useful before saving, or when the scheduler is disabled.
+     */
+    public void runAll() {
+
+        Job job;
+
+        while ((job = poll()) != null) {
+            run(job);
+        }
+    }
+
+    /// The number of jobs waiting to run.
+    public synchronized int getQueueDepth() {
+        return queuedJobs.size();
+    }
+
+    /// The number of jobs that have run.
+    public synchronized long getJobsRun() {
+        return jobsRun;
+    }
+
+    /// The number of jobs that were replaced by a newer job for the same key and type before they ran.
+    public synchronized long getJobsSuperseded() {
+        return jobsSuperseded;
+    }
+
+    /// The number of frames that spent longer than the budget running jobs.
+    public synchronized long getOverrunFrames() {
+        return overrunFrames;
+    }
+
+    /// The longest time (in milliseconds) a frame has spent running jobs beyond the budget.
+    public synchronized float getMaxOverrunMillis() {
+        return maxOverrunMillis;
+    }
+
+    /// The time (in milliseconds) the last frame spent running jobs.
+    public synchronized float getLastFrameMillis() {
+        return lastFrameMillis;
+    }
+
+    /// Resets the job, superseded and overrun stats.
+    public synchronized void resetStats() {
+        jobsRun = 0;
+        jobsSuperseded = 0;
+        overrunFrames = 0;
+        maxOverrunMillis = 0;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+
+    }
+
+    @Override
+    protected void onEnable() {
+
+    }
+
+    @Override
+    protected void onDisable() {
+
+    }
+
+    @Override
+    public void update(float tpf) {
+
+        long frameStart = System.nanoTime();
+        long budgetNanos = (long) (budgetMillis * 1_000_000);
+
+        Job job = poll();
+
+        while (job != null) {
+
+            run(job);
+
+            long remainingNanos = budgetNanos - (System.nanoTime() - frameStart);
+            job = (remainingNanos > 0) ? pollWithin(remainingNanos) : null;
+        }
+
+        long frameNanos = System.nanoTime() - frameStart;
+        PathMetrics.stopTimer(PathMetrics.SCHEDULER_FRAME, frameStart);
+
+        synchronized (this) {
+            lastFrameMillis = frameNanos / 1_000_000f;
+
+            if (frameNanos > budgetNanos) {
+                overrunFrames++;
+                maxOverrunMillis = Math.max(maxOverrunMillis, (frameNanos - budgetNanos) / 1_000_000f);
+                PathMetrics.increment(PathMetrics.SCHEDULER_OVERRUNS, 1);
+            }
+        }
+    }
+
+    /// Takes the next job off the queue, or returns null if there is none.
+    private synchronized Job poll() {
+
+        Job job = queue.poll();
+
+        if (job != null) {
+            queuedJobs.remove(job.key);
+        }
+
+        return job;
+    }
+
+    /// Takes the next job off the queue if it is expected to finish within 'remainingNanos', or returns null.
+    private synchronized Job pollWithin(long remainingNanos) {
+
+        Job job = queue.peek();
+
+        if (job == null || averageJobNanos[job.key.type.ordinal()] > remainingNanos) {
+            return null;
+        }
+
+        return poll();
+    }
+
+    private void run(Job job) {
+
+        long jobStart = System.nanoTime();
+
+        // the job runs outside of the lock, so it may submit more jobs.
+        job.work.run();
+
+        long jobNanos = System.nanoTime() - jobStart;
+
+        synchronized (this) {
+            jobsRun++;
+
+            int type = job.key.type.ordinal();
+            averageJobNanos[type] = (averageJobNanos[type] == 0)
+                    ? jobNanos
+                    : averageJobNanos[type] + (jobNanos - averageJobNanos[type]) * averageWeight;
+        }
+    }
+
+    private static final class JobKey {
+
+        private final Object key;
+        private final PathJobType type;
+
+        JobKey(Object key, PathJobType type) {
+            this.key = key;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof JobKey)) return false;
+            JobKey other = (JobKey) o;
+            return key.equals(other.key) && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + type.hashCode();
+        }
+    }
+
+    private static final class Job implements Comparable<Job> {
+
+        private final JobKey key;
+        private final int priority;
+        private final long sequence;
+        private final Runnable work;
+
+        Job(JobKey key, int priority, long sequence, Runnable work) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
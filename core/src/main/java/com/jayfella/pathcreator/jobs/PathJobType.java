@@ -0,0 +1,24 @@
+package com.jayfella.pathcreator.jobs;
+
+/// The kinds of work the PathJobScheduler runs, in the order they run by default.
+/// Vertex paths come first because meshes and indexes are built from them.
+public enum PathJobType {
+
+    /// Re-tessellate a vertex path.
+    RebuildVertexPath(0),
+    /// Refresh a spatial index or bounds tree used for picking and queries.
+    RefreshIndex(1),
+    /// Rebuild a mesh (or a chunk of one) from a vertex path.
+    RebuildMesh(2);
+
+    private final int defaultPriority;
+
+    PathJobType(int defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+    /// The priority jobs of this type are submitted with unless one is given. Lower priorities run first.
+    public int getDefaultPriority() {
+        return defaultPriority;
+    }
+}
@@ -0,0 +1,134 @@
+package com.jayfella.pathcreator.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the metrics of a {@link SimpleMetricsRecorder} as a single dynamic MBean. Every counter becomes an attribute
+ * with the counter's name, and every timer becomes a set of attributes suffixed with .count, .meanMicros, .maxMicros,
+ * .p50Micros and .p99Micros. Attributes appear as soon as the metric is first recorded.
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.jayfella.pathcreator:type=PathMetrics";
+
+    private static final String[] TIMER_ATTRIBUTES = { "count", "meanMicros", "maxMicros", "p50Micros", "p99Micros" };
+
+    private final SimpleMetricsRecorder recorder;
+
+    public JmxMetricsExporter(SimpleMetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Registers the recorder with the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     * @param recorder the recorder to export.
+     * @return the name the MBean was registered under.
+     * @throws JMException if the MBean could not be registered.
+     */
+    public static ObjectName register(SimpleMetricsRecorder recorder) throws JMException {
+        return register(recorder, new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    public static ObjectName register(SimpleMetricsRecorder recorder, ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxMetricsExporter(recorder), objectName);
+        return objectName;
+    }
+
+    public static void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+
+        Map<String, Long> counters = recorder.getCounters();
+
+        if (counters.containsKey(attribute)) {
+            return counters.get(attribute);
+        }
+
+        int separator = attribute.lastIndexOf('.');
+
+        if (separator > 0) {
+
+            SimpleMetricsRecorder.Timer timer = recorder.getTimer(attribute.substring(0, separator));
+
+            if (timer != null) {
+                switch (attribute.substring(separator + 1)) {
+                    case "count": return timer.getCount();
+                    case "meanMicros": return timer.getMeanNanos() / 1000d;
+                    case "maxMicros": return timer.getMaxNanos() / 1000d;
+                    case "p50Micros": return timer.getPercentileNanos(0.5) / 1000d;
+                    case "p99Micros": return timer.getPercentileNanos(0.99) / 1000d;
+                }
+            }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException ignored) {
+                // missing attributes are left out, as the DynamicMBean contract allows.
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Path metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName)) {
+            recorder.reset();
+            return null;
+        }
+
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+
+        for (String counter : recorder.getCounters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(counter, "long", "Counter", true, false, false));
+        }
+
+        for (String timer : recorder.getTimers().keySet()) {
+            attributes.add(new MBeanAttributeInfo(timer + ".count", "long", "Number of timings", true, false, false));
+
+            for (int i = 1; i < TIMER_ATTRIBUTES.length; i++) {
+                attributes.add(new MBeanAttributeInfo(timer + "." + TIMER_ATTRIBUTES[i], "double", "Timing in microseconds", true, false, false));
+            }
+        }
+
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Resets all metrics",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Path creator metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] { reset }, null);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.jayfella.pathcreator.metrics;
+
+/**
+ * Receives the counters and timings reported by {@link PathMetrics}.
+ * Implementations are called from hot paths, possibly from several threads, so they must be cheap and thread safe.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * A recorder that discards everything. This is the default.
+     */
+    MetricsRecorder NONE = new MetricsRecorder() {
+        @Override
+        public void increment(String name, long amount) {
+        }
+
+        @Override
+        public void recordTime(String name, long nanos) {
+        }
+    };
+
+    /**
+     * Adds the given amount to a counter.
+     * @param name   the name of the counter.
+     * @param amount the amount to add.
+     */
+    void increment(String name, long amount);
+
+    /**
+     * Records a single timing.
+     * @param name  the name of the timer.
+     * @param nanos the elapsed time in nanoseconds.
+     */
+    void recordTime(String name, long nanos);
+
+}
@@ -0,0 +1,81 @@
+package com.jayfella.pathcreator.metrics;
+
+/**
+ * The entry point for runtime instrumentation. Metrics are discarded unless a recorder has been set, and while
+ * disabled no clock is read, so the instrumentation costs a single volatile read per call site.
+ *
+ * <pre>
+ * long start = PathMetrics.startTimer();
+ * // work...
+ * PathMetrics.stopTimer(PathMetrics.VERTEX_PATH_BUILD, start);
+ * </pre>
+ */
+public final class PathMetrics {
+
+    // timers
+    public static final String VERTEX_PATH_BUILD = "vertexPath.build";
+    public static final String SPLIT_SEGMENT = "vertexPath.splitSegment";
+    public static final String CLOSEST_POINT_QUERY = "vertexPath.closestPointQuery";
+    public static final String ROAD_MESH_BUILD = "roadMesh.build";
+    public static final String EDITOR_REPAINT = "editor.repaint";
+    public static final String EDITOR_HANDLE_PICK_BUILD = "editor.handlePickBuild";
+    public static final String SCHEDULER_FRAME = "scheduler.frame";
+
+    // counters
+    public static final String VERTEX_PATH_VERTICES = "vertexPath.vertices";
+    public static final String VERTEX_PATH_DIRECT_BYTES_ALLOCATED = "vertexPath.directBytesAllocated";
+    public static final String VERTEX_PATH_DIRECT_BYTES_RELEASED = "vertexPath.directBytesReleased";
+    public static final String ROAD_MESH_BUFFER_BYTES = "roadMesh.bufferBytes";
+    public static final String EVENT_FAN_OUT = "event.fanOut";
+    public static final String SCHEDULER_JOBS_SUPERSEDED = "scheduler.jobsSuperseded";
+    public static final String SCHEDULER_OVERRUNS = "scheduler.overruns";
+    public static final String SPLIT_DEPTH_CAPPED = "vertexPath.splitDepthCapped";
+
+    private static volatile MetricsRecorder recorder = MetricsRecorder.NONE;
+
+    private PathMetrics() {
+    }
+
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Sets the recorder that receives all metrics, or null to discard them.
+     * @param recorder the recorder to use, or null.
+     */
+    public static void setRecorder(MetricsRecorder recorder) {
+        PathMetrics.recorder = (recorder == null) ? MetricsRecorder.NONE : recorder;
+    }
+
+    public static boolean isEnabled() {
+        return recorder != MetricsRecorder.NONE;
+    }
+
+    /**
+     * Returns the start time of a timing, or zero if metrics are disabled.
+     * @return the start time to pass to {@link #stopTimer(String, long)}.
+     */
+    public static long startTimer() {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time elapsed since the given start time.
+     * @param name  the name of the timer.
+     * @param start the value returned by {@link #startTimer()}.
+     */
+    public static void stopTimer(String name, long start) {
+        MetricsRecorder recorder = PathMetrics.recorder;
+
+        // a zero start means metrics were enabled part-way through the timing.
+        if (recorder != MetricsRecorder.NONE && start != 0) {
+            recorder.recordTime(name, System.nanoTime() - start);
+        }
+    }
+
+    public static void increment(String name, long amount) {
+        recorder.increment(name, amount);
+    }
+
+}
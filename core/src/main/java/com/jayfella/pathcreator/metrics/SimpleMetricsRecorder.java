@@ -0,0 +1,134 @@
+package com.jayfella.pathcreator.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory recorder that keeps a running total for every counter, and a count, total, maximum and latency
+ * histogram for every timer.
+ */
+public class SimpleMetricsRecorder implements MetricsRecorder {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name, long amount) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    public void recordTime(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+    }
+
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return (counter == null) ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the timer with the given name, or null if nothing has been recorded.
+     * @param name the name of the timer.
+     * @return the timer, or null.
+     */
+    public Timer getTimer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * Returns the current value of every counter, sorted by name.
+     * @return the counters.
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, counter) -> result.put(name, counter.sum()));
+        return result;
+    }
+
+    /**
+     * Returns every timer, sorted by name.
+     * @return the timers.
+     */
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+
+    public void reset() {
+        counters.clear();
+        timers.clear();
+    }
+
+    /**
+     * The timings recorded under a single name. Latencies are kept in a histogram of power-of-two nanosecond buckets,
+     * so percentiles are accurate to within a factor of two.
+     */
+    public static class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            // bucket i holds timings from 2^i up to 2^(i + 1) - 1 nanoseconds.
+            buckets.incrementAndGet((nanos == 0) ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            long count = getCount();
+            return (count == 0) ? 0 : (double) getTotalNanos() / count;
+        }
+
+        /**
+         * Returns an upper bound for the given percentile of the recorded timings.
+         * @param percentile the percentile, between 0 and 1.
+         * @return the upper bound of the histogram bucket the percentile falls in, in nanoseconds.
+         */
+        public long getPercentileNanos(double percentile) {
+            long count = 0;
+            long[] snapshot = new long[buckets.length()];
+
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                count += snapshot[i];
+            }
+
+            long target = (long) Math.ceil(count * percentile);
+            long seen = 0;
+
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+
+                if (seen >= target && seen > 0) {
+                    return Math.min((i >= 62) ? Long.MAX_VALUE : (2L << i) - 1, getMaxNanos());
+                }
+            }
+
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,491 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.math.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/// Joins vertex paths together at junctions, so routes can be found across many paths.
+///
+/// Any anchor of a path can be connected to a junction: its first or last anchor to continue onto another path,
+/// or an interior anchor to make a crossing. The part of a path between two anchors that are connected to junctions
+/// becomes an edge of the graph, with its length taken from the cumulative lengths of the vertex path.
+/// Parts before the first or after the last connected anchor of an open path lead nowhere and are left out.
+///
+/// Paths are added with an id chosen by the caller, such as the id the path has in a PathNetwork, so the
+/// same id can be used everywhere. Changes only mark the graph, and it is rebuilt into flat arrays by the next route search.
+/// The edges of the built graph can be read with getEdge* for preprocessing such as contraction hierarchies.
+///
+/// Lengths and junction positions are in the local space of the paths, so all the paths are expected to share one space.
+/// An anchor is found along its path at the vertex the vertex path maps it to. That vertex is exactly on the anchor for paths
+/// split by deviation or flatness, but paths split by angle error or even spacing can stop a little short of it, so the paths
+/// meeting at a junction may be slightly apart there. Route searches use the cost of going from junction to junction, which is the length
+/// along the path plus the gap between the anchor at each end and its junction, so the straight line between two junctions never exceeds it.
+public class JunctionGraph {
+
+    private final Map<Integer, GraphPath> paths = new LinkedHashMap<>();
+
+    // junction positions as flat xyz triplets, set from the first anchor connected to each junction.
+    private float[] junctionPositions = new float[48];
+    private boolean[] junctionPositioned = new boolean[16];
+    private int numJunctions;
+
+    private boolean dirty = true;
+
+    // the built graph
+    private int numEdges;
+    private int[] edgeFrom = new int[0];
+    private int[] edgeTo = new int[0];
+    private float[] edgeLength = new float[0];
+    private float[] edgeStart = new float[0];
+    // the length plus the gaps between the anchors at each end and their junctions, which is what route searches use.
+    private float[] edgeCost = new float[0];
+    private GraphPath[] edgePath = new GraphPath[0];
+
+    // outgoing arcs of each junction, with arcs of junction j between arcOffsets[j] and arcOffsets[j + 1].
+    // Each arc is an edge travelled forwards or backwards, stored as (edge << 1 | reversed).
+    private int[] arcOffsets = new int[1];
+    private int[] arcTargets = new int[0];
+    private int[] arcEdges = new int[0];
+    private float[] arcLengths = new float[0];
+
+    private RouteSearch defaultSearch;
+
+    /// Adds a junction and returns its id. Junction ids are consecutive, starting at zero.
+    public int addJunction() {
+
+        if (numJunctions == junctionPositioned.length) {
+            junctionPositioned = Arrays.copyOf(junctionPositioned, numJunctions * 2);
+            junctionPositions = Arrays.copyOf(junctionPositions, numJunctions * 6);
+        }
+
+        dirty = true;
+        return numJunctions++;
+    }
+
+    public int getNumJunctions() {
+        return numJunctions;
+    }
+
+    /// The position of the first anchor that was connected to the junction, or null if nothing has been connected to it.
+    public Vector3f getJunctionPosition(int junction) {
+        checkJunction(junction);
+        return junctionPositioned[junction]
+                ? new Vector3f(junctionPositions[junction * 3], junctionPositions[junction * 3 + 1], junctionPositions[junction * 3 + 2])
+                : null;
+    }
+
+    /// Adds a path with the given id, or replaces the vertex path of an existing one. A replaced path keeps
+    /// its connections to anchors that still exist, so a path can be regenerated after an edit without connecting it again.
+    public void setPath(int pathId, VertexPath vertexPath) {
+
+        GraphPath path = paths.get(pathId);
+
+        if (path == null) {
+            paths.put(pathId, new GraphPath(pathId, vertexPath));
+        }
+        else {
+            path.vertexPath = vertexPath;
+            path.anchorJunctions.tailMap(getNumAnchors(vertexPath)).clear();
+        }
+
+        dirty = true;
+    }
+
+    /// Removes a path and its connections. Returns false if there is no path with the id.
+    public boolean removePath(int pathId) {
+
+        if (paths.remove(pathId) == null) {
+            return false;
+        }
+
+        dirty = true;
+        return true;
+    }
+
+    public VertexPath getPath(int pathId) {
+        GraphPath path = paths.get(pathId);
+        return (path == null) ? null : path.vertexPath;
+    }
+
+    /// The ids of every path in the graph. The returned set is read only and reflects later changes.
+    public Set<Integer> getPathIds() {
+        return Collections.unmodifiableSet(paths.keySet());
+    }
+
+    /// Sets whether a path can only be travelled from its start towards its end. Paths are two way by default.
+    public void setOneWay(int pathId, boolean oneWay) {
+        getGraphPath(pathId).oneWay = oneWay;
+        dirty = true;
+    }
+
+    public boolean isOneWay(int pathId) {
+        return getGraphPath(pathId).oneWay;
+    }
+
+    /// Connects an anchor of a path to a junction. An anchor can only be connected to one junction,
+    /// so connecting it again moves it. Anchors joined at one junction are expected to be at the same position.
+    public void connect(int junction, int pathId, int anchorIndex) {
+
+        checkJunction(junction);
+        GraphPath path = getGraphPath(pathId);
+
+        int numAnchors = getNumAnchors(path.vertexPath);
+
+        if (anchorIndex < 0 || anchorIndex >= numAnchors) {
+            throw new IllegalArgumentException("Anchor index " + anchorIndex + " is out of range. The path has " + numAnchors + " anchors.");
+        }
+
+        path.anchorJunctions.put(anchorIndex, junction);
+
+        if (!junctionPositioned[junction]) {
+            int vertex = path.vertexPath.getAnchorVertexMap().get(anchorIndex) * 3;
+            FloatBuffer points = path.vertexPath.getLocalPoints();
+
+            junctionPositions[junction * 3] = points.get(vertex);
+            junctionPositions[junction * 3 + 1] = points.get(vertex + 1);
+            junctionPositions[junction * 3 + 2] = points.get(vertex + 2);
+            junctionPositioned[junction] = true;
+        }
+
+        dirty = true;
+    }
+
+    /// Disconnects an anchor of a path from its junction. Returns false if it was not connected.
+    public boolean disconnect(int pathId, int anchorIndex) {
+
+        if (getGraphPath(pathId).anchorJunctions.remove(anchorIndex) == null) {
+            return false;
+        }
+
+        dirty = true;
+        return true;
+    }
+
+    /// The junction an anchor of a path is connected to, or -1 if it isn't connected.
+    public int getJunction(int pathId, int anchorIndex) {
+        Integer junction = getGraphPath(pathId).anchorJunctions.get(anchorIndex);
+        return (junction == null) ? -1 : junction;
+    }
+
+    /// The number of edges in the graph. Two way edges are counted once.
+    public int getNumEdges() {
+        build();
+        return numEdges;
+    }
+
+    public int getEdgeFrom(int edge) {
+        build();
+        return edgeFrom[edge];
+    }
+
+    public int getEdgeTo(int edge) {
+        build();
+        return edgeTo[edge];
+    }
+
+    /// The length of an edge along its path.
+    public float getEdgeLength(int edge) {
+        build();
+        return edgeLength[edge];
+    }
+
+    /// The cost of travelling an edge from junction to junction: its length along the path, plus how far the anchors at its
+    /// ends are from their junctions. The same as the length when the anchors are exactly on their junctions.
+    public float getEdgeCost(int edge) {
+        build();
+        return edgeCost[edge];
+    }
+
+    public int getEdgePathId(int edge) {
+        build();
+        return edgePath[edge].id;
+    }
+
+    public boolean isEdgeOneWay(int edge) {
+        build();
+        return edgePath[edge].oneWay;
+    }
+
+    /// Finds the shortest route between two junctions, or returns null if there is none.
+    /// This reuses one search for every call, so it isn't safe to call from several threads at once. Use
+    /// findRoute(from, to, search) with a search per thread to route concurrently once the graph has been built.
+    public Route findRoute(int fromJunction, int toJunction) {
+
+        if (defaultSearch == null) {
+            defaultSearch = new RouteSearch();
+        }
+
+        return findRoute(fromJunction, toJunction, defaultSearch);
+    }
+
+    /// Finds the shortest route between two junctions with A*, or returns null if there is none.
+    /// The search is guided by the straight line distance between junctions. Every edge costs at least the straight line between
+    /// its junctions, so the estimate never overestimates and never drops by more than the cost of an edge, and the route
+    /// found is always a cheapest one.
+    /// The search holds the per-junction state, and is reused between calls to avoid allocating it for every route.
+    public Route findRoute(int fromJunction, int toJunction, RouteSearch search) {
+
+        checkJunction(fromJunction);
+        checkJunction(toJunction);
+        build();
+
+        if (!search.search(this, fromJunction, toJunction)) {
+            return null;
+        }
+
+        // walk back from the goal to count the arcs, then again to fill them in.
+        int numLegs = 0;
+
+        for (int junction = toJunction; junction != fromJunction; junction = edgeStartJunction(search.getParentArc(junction))) {
+            numLegs++;
+        }
+
+        Route.Leg[] legs = new Route.Leg[numLegs];
+        int[] junctions = new int[numLegs + 1];
+        junctions[numLegs] = toJunction;
+
+        int junction = toJunction;
+
+        for (int i = numLegs - 1; i >= 0; i--) {
+
+            int arc = search.getParentArc(junction);
+            int edge = arc >>> 1;
+            boolean reversed = (arc & 1) == 1;
+
+            GraphPath path = edgePath[edge];
+            legs[i] = new Route.Leg(path.id, path.vertexPath, edgeStart[edge], edgeLength[edge], reversed);
+
+            junction = reversed ? edgeTo[edge] : edgeFrom[edge];
+            junctions[i] = junction;
+        }
+
+        return new Route(legs, junctions, getJunctionPosition(fromJunction));
+    }
+
+    private int edgeStartJunction(int arc) {
+        int edge = arc >>> 1;
+        return ((arc & 1) == 1) ? edgeTo[edge] : edgeFrom[edge];
+    }
+
+    // #region Used by RouteSearch
+
+    int getArcStart(int junction) {
+        return arcOffsets[junction];
+    }
+
+    int getArcEnd(int junction) {
+        return arcOffsets[junction + 1];
+    }
+
+    int getArcTarget(int arc) {
+        return arcTargets[arc];
+    }
+
+    int getArcEdge(int arc) {
+        return arcEdges[arc];
+    }
+
+    float getArcLength(int arc) {
+        return arcLengths[arc];
+    }
+
+    /// The least a route between two junctions could cost: the straight line distance between them, shortened a little
+    /// so float error in the costs can't make it an overestimate. Zero if either junction has no position.
+    float getMinDistance(int a, int b) {
+
+        if (!junctionPositioned[a] || !junctionPositioned[b]) {
+            return 0;
+        }
+
+        float dx = junctionPositions[a * 3] - junctionPositions[b * 3];
+        float dy = junctionPositions[a * 3 + 1] - junctionPositions[b * 3 + 1];
+        float dz = junctionPositions[a * 3 + 2] - junctionPositions[b * 3 + 2];
+
+        return Math.max(0, (float) Math.sqrt(dx * dx + dy * dy + dz * dz) * 0.9999f - 1e-4f);
+    }
+
+    // #endregion
+
+    /// Rebuilds the edges and arcs from the paths and their connections if anything has changed since the last build.
+    /// Route searches do this themselves, so this only needs calling to choose when the work happens.
+    public void build() {
+
+        if (!dirty) {
+            return;
+        }
+
+        dirty = false;
+        numEdges = 0;
+
+        for (GraphPath path : paths.values()) {
+
+            int numConnected = path.anchorJunctions.size();
+
+            if (numConnected == 0) {
+                continue;
+            }
+
+            IntBuffer anchorVertexMap = path.vertexPath.getAnchorVertexMap();
+            FloatBuffer cumulativeLengths = path.vertexPath.getCumulativeLengths();
+
+            int previousAnchor = -1;
+            int previousJunction = -1;
+            float previousGap = 0;
+            int firstAnchor = -1;
+            int firstJunction = -1;
+            float firstGap = 0;
+
+            for (Map.Entry<Integer, Integer> connection : path.anchorJunctions.entrySet()) {
+
+                int anchor = connection.getKey();
+                int junction = connection.getValue();
+
+                float gap = getJunctionGap(junction, path.vertexPath, anchorVertexMap.get(anchor));
+
+                if (previousAnchor < 0) {
+                    firstAnchor = anchor;
+                    firstJunction = junction;
+                    firstGap = gap;
+                }
+                else {
+                    float start = cumulativeLengths.get(anchorVertexMap.get(previousAnchor));
+                    float end = cumulativeLengths.get(anchorVertexMap.get(anchor));
+                    addEdge(path, previousJunction, junction, start, end - start, previousGap + gap);
+                }
+
+                previousAnchor = anchor;
+                previousJunction = junction;
+                previousGap = gap;
+            }
+
+            // a closed path continues from its last connected anchor, through its start, to its first connected anchor.
+            if (path.vertexPath.isClosedLoop() && numConnected > 1) {
+                float loopLength = cumulativeLengths.get(anchorVertexMap.get(anchorVertexMap.limit() - 1));
+                float start = cumulativeLengths.get(anchorVertexMap.get(previousAnchor));
+                float end = cumulativeLengths.get(anchorVertexMap.get(firstAnchor));
+                addEdge(path, previousJunction, firstJunction, start, loopLength - start + end, previousGap + firstGap);
+            }
+        }
+
+        buildArcs();
+    }
+
+    /// How far the vertex of an anchor is from the junction it is connected to.
+    private float getJunctionGap(int junction, VertexPath vertexPath, int vertex) {
+
+        FloatBuffer points = vertexPath.getLocalPoints();
+        float dx = points.get(vertex * 3) - junctionPositions[junction * 3];
+        float dy = points.get(vertex * 3 + 1) - junctionPositions[junction * 3 + 1];
+        float dz = points.get(vertex * 3 + 2) - junctionPositions[junction * 3 + 2];
+
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private void addEdge(GraphPath path, int from, int to, float start, float length, float gaps) {
+
+        if (numEdges == edgeFrom.length) {
+            int capacity = Math.max(16, numEdges * 2);
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeLength = Arrays.copyOf(edgeLength, capacity);
+            edgeStart = Arrays.copyOf(edgeStart, capacity);
+            edgeCost = Arrays.copyOf(edgeCost, capacity);
+            edgePath = Arrays.copyOf(edgePath, capacity);
+        }
+
+        edgeFrom[numEdges] = from;
+        edgeTo[numEdges] = to;
+        edgeStart[numEdges] = start;
+        edgeLength[numEdges] = length;
+        edgeCost[numEdges] = length + gaps;
+        edgePath[numEdges] = path;
+        numEdges++;
+    }
+
+    /// Sorts the arcs by the junction they leave from, so the arcs of each junction are next to each other.
+    private void buildArcs() {
+
+        arcOffsets = new int[numJunctions + 1];
+
+        for (int edge = 0; edge < numEdges; edge++) {
+            arcOffsets[edgeFrom[edge] + 1]++;
+
+            if (!edgePath[edge].oneWay) {
+                arcOffsets[edgeTo[edge] + 1]++;
+            }
+        }
+
+        for (int junction = 0; junction < numJunctions; junction++) {
+            arcOffsets[junction + 1] += arcOffsets[junction];
+        }
+
+        int numArcs = arcOffsets[numJunctions];
+        arcTargets = new int[numArcs];
+        arcEdges = new int[numArcs];
+        arcLengths = new float[numArcs];
+
+        int[] next = Arrays.copyOf(arcOffsets, numJunctions);
+
+        for (int edge = 0; edge < numEdges; edge++) {
+
+            int arc = next[edgeFrom[edge]]++;
+            arcTargets[arc] = edgeTo[edge];
+            arcEdges[arc] = edge << 1;
+            arcLengths[arc] = edgeCost[edge];
+
+            if (!edgePath[edge].oneWay) {
+                arc = next[edgeTo[edge]]++;
+                arcTargets[arc] = edgeFrom[edge];
+                arcEdges[arc] = (edge << 1) | 1;
+                arcLengths[arc] = edgeCost[edge];
+            }
+        }
+    }
+
+    private GraphPath getGraphPath(int pathId) {
+
+        GraphPath path = paths.get(pathId);
+
+        if (path == null) {
+            throw new IllegalArgumentException("There is no path with id " + pathId);
+        }
+
+        return path;
+    }
+
+    private void checkJunction(int junction) {
+        if (junction < 0 || junction >= numJunctions) {
+            throw new IllegalArgumentException("There is no junction with id " + junction);
+        }
+    }
+
+    /// The number of anchors of the bezier path a vertex path was created from.
+    /// The anchor vertex map of a closed path ends with its first anchor again, which isn't counted.
+    private static int getNumAnchors(VertexPath vertexPath) {
+        int numEntries = vertexPath.getAnchorVertexMap().limit();
+        return vertexPath.isClosedLoop() ? numEntries - 1 : numEntries;
+    }
+
+    private static final class GraphPath {
+
+        private final int id;
+        private VertexPath vertexPath;
+        private boolean oneWay;
+        /// The junction each connected anchor is connected to, in anchor order.
+        private final TreeMap<Integer, Integer> anchorJunctions = new TreeMap<>();
+
+        GraphPath(int id, VertexPath vertexPath) {
+            this.id = id;
+            this.vertexPath = vertexPath;
+        }
+    }
+
+}
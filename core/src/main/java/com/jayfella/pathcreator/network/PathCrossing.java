@@ -0,0 +1,71 @@
+package com.jayfella.pathcreator.network;
+
+import com.jme3.math.Vector3f;
+
+/// A place where two bezier paths cross, or pass within the tolerance they were tested with.
+/// Each path is described by the segment the crossing lies on and the time (between 0 and 1) within that segment.
+public class PathCrossing {
+
+    private final int pathIdA;
+    private final int segmentIndexA;
+    private final float timeA;
+    private final int pathIdB;
+    private final int segmentIndexB;
+    private final float timeB;
+    private final Vector3f point;
+    private final float distance;
+
+    PathCrossing(int pathIdA, int segmentIndexA, float timeA, int pathIdB, int segmentIndexB, float timeB, Vector3f point, float distance) {
+        this.pathIdA = pathIdA;
+        this.segmentIndexA = segmentIndexA;
+        this.timeA = timeA;
+        this.pathIdB = pathIdB;
+        this.segmentIndexB = segmentIndexB;
+        this.timeB = timeB;
+        this.point = point;
+        this.distance = distance;
+    }
+
+    /// The id of the first path in its network, or -1 if the paths were tested on their own.
+    public int getPathIdA() {
+        return pathIdA;
+    }
+
+    public int getSegmentIndexA() {
+        return segmentIndexA;
+    }
+
+    public float getTimeA() {
+        return timeA;
+    }
+
+    /// The id of the second path in its network, or -1 if the paths were tested on their own.
+    public int getPathIdB() {
+        return pathIdB;
+    }
+
+    public int getSegmentIndexB() {
+        return segmentIndexB;
+    }
+
+    public float getTimeB() {
+        return timeB;
+    }
+
+    /// The point halfway between the two paths at the crossing.
+    public Vector3f getPoint() {
+        return point;
+    }
+
+    /// How far apart the two paths are at the crossing. This is close to zero where they truly cross.
+    public float getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "PathCrossing[" + pathIdA + ":" + segmentIndexA + "@" + timeA + ", " + pathIdB + ":" + segmentIndexB + "@" + timeB
+                + ", point=" + point + ", distance=" + distance + "]";
+    }
+
+}
@@ -0,0 +1,517 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Finds where bezier paths cross each other.
+///
+/// Pairs of paths are pruned with the bounds of their segments. Two paths are searched together down the bounds trees
+/// of their segments, so only pairs of segments whose bounds come within the tolerance of each other are tested, and
+/// PathNetwork does the same across a whole network with its spatial hash. A pair of segments is then refined by subdivision:
+/// the bounds of the control points of each piece are tested, and the larger piece is split in half, until both pieces are flat
+/// enough to be treated as lines. Where the lines come close enough for the pieces to be within the tolerance, their closest points
+/// are polished with a few Newton steps on the curves, so the crossing is found precisely without subdividing down to the tolerance.
+///
+/// A crossing is reported wherever the paths come within the tolerance of each other, so crossings closer together than the
+/// tolerance are reported once, and paths that run alongside each other are reported about every tolerance along the way.
+public class PathIntersector {
+
+    // pieces are flat enough to be treated as lines once their control points are this fraction of the tolerance from their chord,
+    // after which the Newton steps find the crossing. Pieces within this fraction of their own size of their chord are flat enough
+    // to be rejected as lines, when their chords don't come within the tolerance plus their deviations of each other.
+    private static final float flatnessScale = 0.25f;
+    private static final float relativeFlatness = 0.01f;
+    // a pair of pieces this many splits deep is treated as lines regardless, which only happens where curves overlap or are degenerate.
+    private static final int maxDepth = 32;
+    private static final int refineIterations = 4;
+
+    /// Adds every place two different paths cross, or pass within 'tolerance' of each other, to 'store'.
+    /// The paths are expected to be in the same space. Path ids in the crossings are -1.
+    public static void collectCrossings(BezierPath pathA, BezierPath pathB, float tolerance, List<PathCrossing> store) {
+
+        if (pathA == pathB) {
+            throw new IllegalArgumentException("The paths must be different paths.");
+        }
+
+        checkTolerance(tolerance);
+
+        CrossingMerger merger = new CrossingMerger(store, tolerance);
+
+        // search down both bounds trees at once by splitting the larger range of segments in half each step.
+        ArrayDeque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[] { 0, pathA.getNumSegments() - 1, 0, pathB.getNumSegments() - 1 });
+
+        while (!ranges.isEmpty()) {
+
+            int[] range = ranges.pop();
+
+            if (!boundsOverlap(pathA.getSegmentBounds(range[0], range[1]), pathB.getSegmentBounds(range[2], range[3]), tolerance)) {
+                continue;
+            }
+
+            int sizeA = range[1] - range[0];
+            int sizeB = range[3] - range[2];
+
+            if (sizeA == 0 && sizeB == 0) {
+                collectCrossings(pathA.getPointsInSegment(range[0]), -1, range[0],
+                        pathB.getPointsInSegment(range[2]), -1, range[2], tolerance, merger);
+            }
+            else if (sizeA >= sizeB) {
+                int middle = range[0] + sizeA / 2;
+                ranges.push(new int[] { range[0], middle, range[2], range[3] });
+                ranges.push(new int[] { middle + 1, range[1], range[2], range[3] });
+            }
+            else {
+                int middle = range[2] + sizeB / 2;
+                ranges.push(new int[] { range[0], range[1], range[2], middle });
+                ranges.push(new int[] { range[0], range[1], middle + 1, range[3] });
+            }
+        }
+    }
+
+    /// Adds every place two bezier segments (anchor1, control1, control2, anchor2) cross, or pass within 'tolerance' of each other, to 'store'.
+    public static void collectCrossings(Vector3f[] segmentA, Vector3f[] segmentB, float tolerance, List<PathCrossing> store) {
+        checkTolerance(tolerance);
+        collectCrossings(segmentA, -1, 0, segmentB, -1, 0, tolerance, new CrossingMerger(store, tolerance));
+    }
+
+    /// Refines a pair of segments by subdivision. Crossings within the tolerance of one already added through 'merger' are merged
+    /// with it, keeping whichever is closer, so the pieces either side of a split, or the segments either side of an anchor,
+    /// don't report the same crossing twice.
+    static void collectCrossings(Vector3f[] segmentA, int pathIdA, int segmentIndexA,
+                                 Vector3f[] segmentB, int pathIdB, int segmentIndexB,
+                                 float tolerance, CrossingMerger merger) {
+
+        float[] curveA = toFloats(segmentA);
+        float[] curveB = toFloats(segmentB);
+        float sqrFlatness = (tolerance * flatnessScale) * (tolerance * flatnessScale);
+
+        ArrayDeque<PiecePair> pairs = new ArrayDeque<>();
+        pairs.push(new PiecePair(curveA, 0, 1, curveB, 0, 1, 0));
+
+        while (!pairs.isEmpty()) {
+
+            PiecePair pair = pairs.pop();
+
+            if (!controlBoundsOverlap(pair.a, pair.b, tolerance)) {
+                continue;
+            }
+
+            float extentA = chordExtent(pair.a);
+            float extentB = chordExtent(pair.b);
+            float sqrDeviationA = sqrDistanceFromChord(pair.a);
+            float sqrDeviationB = sqrDistanceFromChord(pair.b);
+
+            boolean flatA = sqrDeviationA <= sqrFlatness;
+            boolean flatB = sqrDeviationB <= sqrFlatness;
+            boolean roughlyFlatA = flatA || sqrDeviationA <= sqr(extentA * relativeFlatness);
+            boolean roughlyFlatB = flatB || sqrDeviationB <= sqr(extentB * relativeFlatness);
+
+            if ((roughlyFlatA && roughlyFlatB) || pair.depth >= maxDepth) {
+
+                float[] closest = closestPointsOnChords(pair.a, pair.b);
+
+                // the pieces are within their deviation of their chords, so they can't come within the tolerance if the chords don't.
+                float reach = tolerance + (float) Math.sqrt(sqrDeviationA) + (float) Math.sqrt(sqrDeviationB);
+
+                if (closest[2] > reach * reach) {
+                    continue;
+                }
+
+                // a piece that is only flat for its size can still cross the other more than once within its deviation,
+                // so the pair is split until both pieces are flat for the tolerance, and each crossing has its own pair.
+                if (!(flatA && flatB) && pair.depth < maxDepth) {
+                    splitLarger(pair, flatA, flatB, extentA, extentB, pairs);
+                    continue;
+                }
+
+                float timeA = pair.a0 + (pair.a1 - pair.a0) * closest[0];
+                float timeB = pair.b0 + (pair.b1 - pair.b0) * closest[1];
+
+                addCrossing(curveA, pathIdA, segmentIndexA, timeA, curveB, pathIdB, segmentIndexB, timeB, tolerance, merger);
+                continue;
+            }
+
+            splitLarger(pair, flatA, flatB, extentA, extentB, pairs);
+        }
+    }
+
+    /// Splits whichever piece of a pair is larger, unless it is already flat, and pushes both halves.
+    private static void splitLarger(PiecePair pair, boolean flatA, boolean flatB, float extentA, float extentB, ArrayDeque<PiecePair> pairs) {
+
+        boolean splitA = !flatA && (flatB || extentA >= extentB);
+
+        if (splitA) {
+            float[][] halves = splitInHalf(pair.a);
+            float middle = (pair.a0 + pair.a1) * 0.5f;
+            pairs.push(new PiecePair(halves[0], pair.a0, middle, pair.b, pair.b0, pair.b1, pair.depth + 1));
+            pairs.push(new PiecePair(halves[1], middle, pair.a1, pair.b, pair.b0, pair.b1, pair.depth + 1));
+        }
+        else {
+            float[][] halves = splitInHalf(pair.b);
+            float middle = (pair.b0 + pair.b1) * 0.5f;
+            pairs.push(new PiecePair(pair.a, pair.a0, pair.a1, halves[0], pair.b0, middle, pair.depth + 1));
+            pairs.push(new PiecePair(pair.a, pair.a0, pair.a1, halves[1], middle, pair.b1, pair.depth + 1));
+        }
+    }
+
+    /// Polishes the closest points with Newton steps, then stores the crossing if the curves are within the tolerance there.
+    private static void addCrossing(float[] curveA, int pathIdA, int segmentIndexA, float timeA,
+                                    float[] curveB, int pathIdB, int segmentIndexB, float timeB,
+                                    float tolerance, CrossingMerger merger) {
+
+        float[] pointA = new float[3], pointB = new float[3];
+        float[] derivativeA = new float[3], derivativeB = new float[3];
+
+        evaluate(curveA, timeA, pointA, derivativeA);
+        evaluate(curveB, timeB, pointB, derivativeB);
+        float sqrDistance = sqrDistance(pointA, pointB);
+
+        for (int i = 0; i < refineIterations && sqrDistance > 0; i++) {
+
+            // Gauss-Newton step on |a(s) - b(t)|^2
+            float rx = pointA[0] - pointB[0], ry = pointA[1] - pointB[1], rz = pointA[2] - pointB[2];
+
+            float aa = dot(derivativeA, derivativeA);
+            float ab = dot(derivativeA, derivativeB);
+            float bb = dot(derivativeB, derivativeB);
+            float ar = derivativeA[0] * rx + derivativeA[1] * ry + derivativeA[2] * rz;
+            float br = derivativeB[0] * rx + derivativeB[1] * ry + derivativeB[2] * rz;
+
+            float determinant = aa * bb - ab * ab;
+
+            if (determinant <= 1e-12f * aa * bb) {
+                // the curves are parallel here, so there is no single closest pair of points to move to.
+                break;
+            }
+
+            float nextTimeA = FastMath.clamp(timeA + (ab * br - bb * ar) / determinant, 0, 1);
+            float nextTimeB = FastMath.clamp(timeB + (aa * br - ab * ar) / determinant, 0, 1);
+
+            float[] nextPointA = new float[3], nextPointB = new float[3];
+            float[] nextDerivativeA = new float[3], nextDerivativeB = new float[3];
+            evaluate(curveA, nextTimeA, nextPointA, nextDerivativeA);
+            evaluate(curveB, nextTimeB, nextPointB, nextDerivativeB);
+            float nextSqrDistance = sqrDistance(nextPointA, nextPointB);
+
+            if (nextSqrDistance >= sqrDistance) {
+                break;
+            }
+
+            timeA = nextTimeA;
+            timeB = nextTimeB;
+            pointA = nextPointA;
+            pointB = nextPointB;
+            derivativeA = nextDerivativeA;
+            derivativeB = nextDerivativeB;
+            sqrDistance = nextSqrDistance;
+        }
+
+        if (sqrDistance > tolerance * tolerance) {
+            return;
+        }
+
+        Vector3f point = new Vector3f(
+                (pointA[0] + pointB[0]) * 0.5f,
+                (pointA[1] + pointB[1]) * 0.5f,
+                (pointA[2] + pointB[2]) * 0.5f);
+
+        float distance = (float) Math.sqrt(sqrDistance);
+        merger.add(new PathCrossing(pathIdA, segmentIndexA, timeA, pathIdB, segmentIndexB, timeB, point, distance));
+    }
+
+    static boolean boundsOverlap(BoundingBox a, BoundingBox b, float tolerance) {
+        return Math.abs(a.getCenter().x - b.getCenter().x) <= a.getXExtent() + b.getXExtent() + tolerance
+                && Math.abs(a.getCenter().y - b.getCenter().y) <= a.getYExtent() + b.getYExtent() + tolerance
+                && Math.abs(a.getCenter().z - b.getCenter().z) <= a.getZExtent() + b.getZExtent() + tolerance;
+    }
+
+    static void checkTolerance(float tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("The tolerance must be larger than zero.");
+        }
+    }
+
+    private static float[] toFloats(Vector3f[] points) {
+
+        float[] curve = new float[12];
+
+        for (int i = 0; i < 4; i++) {
+            curve[i * 3] = points[i].x;
+            curve[i * 3 + 1] = points[i].y;
+            curve[i * 3 + 2] = points[i].z;
+        }
+
+        return curve;
+    }
+
+    /// Whether the bounds of the control points of two pieces come within the tolerance of each other.
+    /// A piece always lies inside the bounds of its control points.
+    private static boolean controlBoundsOverlap(float[] a, float[] b, float tolerance) {
+
+        for (int axis = 0; axis < 3; axis++) {
+
+            float minA = Math.min(Math.min(a[axis], a[axis + 3]), Math.min(a[axis + 6], a[axis + 9]));
+            float maxA = Math.max(Math.max(a[axis], a[axis + 3]), Math.max(a[axis + 6], a[axis + 9]));
+            float minB = Math.min(Math.min(b[axis], b[axis + 3]), Math.min(b[axis + 6], b[axis + 9]));
+            float maxB = Math.max(Math.max(b[axis], b[axis + 3]), Math.max(b[axis + 6], b[axis + 9]));
+
+            if (minA > maxB + tolerance || minB > maxA + tolerance) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /// The furthest either control point is from the chord between the anchors. A piece never strays further from its chord than this.
+    private static float sqrDistanceFromChord(float[] curve) {
+        return Math.max(sqrDistanceToChord(curve, 3), sqrDistanceToChord(curve, 6));
+    }
+
+    private static float sqrDistanceToChord(float[] curve, int offset) {
+
+        float chordX = curve[9] - curve[0], chordY = curve[10] - curve[1], chordZ = curve[11] - curve[2];
+        float px = curve[offset] - curve[0], py = curve[offset + 1] - curve[1], pz = curve[offset + 2] - curve[2];
+
+        float sqrLength = chordX * chordX + chordY * chordY + chordZ * chordZ;
+        float t = (sqrLength == 0) ? 0 : FastMath.clamp((px * chordX + py * chordY + pz * chordZ) / sqrLength, 0, 1);
+
+        float dx = px - chordX * t, dy = py - chordY * t, dz = pz - chordZ * t;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /// The largest extent of the bounds of the control points, used to decide which piece to split.
+    private static float chordExtent(float[] curve) {
+
+        float extent = 0;
+
+        for (int axis = 0; axis < 3; axis++) {
+            float min = Math.min(Math.min(curve[axis], curve[axis + 3]), Math.min(curve[axis + 6], curve[axis + 9]));
+            float max = Math.max(Math.max(curve[axis], curve[axis + 3]), Math.max(curve[axis + 6], curve[axis + 9]));
+            extent = Math.max(extent, max - min);
+        }
+
+        return extent;
+    }
+
+    /// Splits a piece at its middle with de Casteljau's algorithm.
+    private static float[][] splitInHalf(float[] curve) {
+
+        float[] first = new float[12];
+        float[] second = new float[12];
+
+        for (int axis = 0; axis < 3; axis++) {
+
+            float p0 = curve[axis], p1 = curve[axis + 3], p2 = curve[axis + 6], p3 = curve[axis + 9];
+
+            float a1 = (p0 + p1) * 0.5f;
+            float a2 = (p1 + p2) * 0.5f;
+            float a3 = (p2 + p3) * 0.5f;
+            float b1 = (a1 + a2) * 0.5f;
+            float b2 = (a2 + a3) * 0.5f;
+            float middle = (b1 + b2) * 0.5f;
+
+            first[axis] = p0;
+            first[axis + 3] = a1;
+            first[axis + 6] = b1;
+            first[axis + 9] = middle;
+
+            second[axis] = middle;
+            second[axis + 3] = b2;
+            second[axis + 6] = a3;
+            second[axis + 9] = p3;
+        }
+
+        return new float[][] { first, second };
+    }
+
+    /// The parameters (between 0 and 1) of the closest points between the chords of two pieces.
+    private static float[] closestPointsOnChords(float[] a, float[] b) {
+
+        float d1x = a[9] - a[0], d1y = a[10] - a[1], d1z = a[11] - a[2];
+        float d2x = b[9] - b[0], d2y = b[10] - b[1], d2z = b[11] - b[2];
+        float rx = a[0] - b[0], ry = a[1] - b[1], rz = a[2] - b[2];
+
+        float aa = d1x * d1x + d1y * d1y + d1z * d1z;
+        float ee = d2x * d2x + d2y * d2y + d2z * d2z;
+        float f = d2x * rx + d2y * ry + d2z * rz;
+
+        float s, t;
+
+        if (aa == 0 && ee == 0) {
+            return new float[] { 0, 0, rx * rx + ry * ry + rz * rz };
+        }
+
+        if (aa == 0) {
+            s = 0;
+            t = FastMath.clamp(f / ee, 0, 1);
+        }
+        else {
+            float c = d1x * rx + d1y * ry + d1z * rz;
+
+            if (ee == 0) {
+                t = 0;
+                s = FastMath.clamp(-c / aa, 0, 1);
+            }
+            else {
+                float bb = d1x * d2x + d1y * d2y + d1z * d2z;
+                float denominator = aa * ee - bb * bb;
+
+                s = (denominator != 0) ? FastMath.clamp((bb * f - c * ee) / denominator, 0, 1) : 0;
+                t = (bb * s + f) / ee;
+
+                if (t < 0) {
+                    t = 0;
+                    s = FastMath.clamp(-c / aa, 0, 1);
+                }
+                else if (t > 1) {
+                    t = 1;
+                    s = FastMath.clamp((bb - c) / aa, 0, 1);
+                }
+            }
+        }
+
+        float dx = rx + d1x * s - d2x * t;
+        float dy = ry + d1y * s - d2y * t;
+        float dz = rz + d1z * s - d2z * t;
+
+        return new float[] { s, t, dx * dx + dy * dy + dz * dz };
+    }
+
+    /// The point and first derivative of a curve at time t.
+    private static void evaluate(float[] curve, float t, float[] point, float[] derivative) {
+
+        float mt = 1 - t;
+
+        for (int axis = 0; axis < 3; axis++) {
+
+            float p0 = curve[axis], p1 = curve[axis + 3], p2 = curve[axis + 6], p3 = curve[axis + 9];
+
+            point[axis] = mt * mt * mt * p0 + 3 * mt * mt * t * p1 + 3 * mt * t * t * p2 + t * t * t * p3;
+            derivative[axis] = 3 * mt * mt * (p1 - p0) + 6 * mt * t * (p2 - p1) + 3 * t * t * (p3 - p2);
+        }
+    }
+
+    private static float sqr(float value) {
+        return value * value;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static float sqrDistance(float[] a, float[] b) {
+        float dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /// Adds crossings to a list, merging each with the first crossing it added that lies within the tolerance, if there is one,
+    /// and keeping whichever of the two is closer.
+    ///
+    /// Crossings are hashed into cubic cells as wide as the tolerance, so a new crossing is only compared with the crossings in the
+    /// cells around it, rather than every crossing so far, which adds up quickly for paths that run alongside each other.
+    static final class CrossingMerger {
+
+        private final List<PathCrossing> store;
+        private final float tolerance;
+
+        // the indices in 'store' of the crossings in each cell.
+        private final Map<Long, List<Integer>> cells = new HashMap<>();
+
+        CrossingMerger(List<PathCrossing> store, float tolerance) {
+            this.store = store;
+            this.tolerance = tolerance;
+        }
+
+        List<PathCrossing> getCrossings() {
+            return store;
+        }
+
+        void add(PathCrossing crossing) {
+
+            Vector3f point = crossing.getPoint();
+            int cellX = toCell(point.x), cellY = toCell(point.y), cellZ = toCell(point.z);
+
+            // points within the tolerance of each other are at most one cell apart on every axis.
+            int match = -1;
+
+            for (int x = cellX - 1; x <= cellX + 1; x++) {
+                for (int y = cellY - 1; y <= cellY + 1; y++) {
+                    for (int z = cellZ - 1; z <= cellZ + 1; z++) {
+
+                        List<Integer> indices = cells.get(cellKey(x, y, z));
+
+                        if (indices == null) {
+                            continue;
+                        }
+
+                        for (int index : indices) {
+
+                            PathCrossing existing = store.get(index);
+
+                            if ((match < 0 || index < match)
+                                    && existing.getPathIdA() == crossing.getPathIdA() && existing.getPathIdB() == crossing.getPathIdB()
+                                    && existing.getPoint().distanceSquared(point) <= tolerance * tolerance) {
+                                match = index;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (match < 0) {
+                cells.computeIfAbsent(cellKey(cellX, cellY, cellZ), key -> new ArrayList<>()).add(store.size());
+                store.add(crossing);
+                return;
+            }
+
+            PathCrossing existing = store.get(match);
+
+            if (crossing.getDistance() < existing.getDistance()) {
+                Vector3f previous = existing.getPoint();
+                cells.get(cellKey(toCell(previous.x), toCell(previous.y), toCell(previous.z))).remove((Integer) match);
+                cells.computeIfAbsent(cellKey(cellX, cellY, cellZ), key -> new ArrayList<>()).add(match);
+                store.set(match, crossing);
+            }
+        }
+
+        private int toCell(float value) {
+            return (int) Math.floor((double) value / tolerance);
+        }
+
+        // cells far apart can share a key, which only puts their crossings in the same list. The distance test still tells them apart.
+        private static long cellKey(int x, int y, int z) {
+            return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+        }
+    }
+
+    /// Two pieces of two segments, with the range of time each covers within its segment.
+    private static final class PiecePair {
+
+        private final float[] a;
+        private final float a0, a1;
+        private final float[] b;
+        private final float b0, b1;
+        private final int depth;
+
+        PiecePair(float[] a, float a0, float a1, float[] b, float b0, float b1, int depth) {
+            this.a = a;
+            this.a0 = a0;
+            this.a1 = a1;
+            this.b = b;
+            this.b0 = b0;
+            this.b1 = b1;
+            this.depth = depth;
+        }
+    }
+
+}
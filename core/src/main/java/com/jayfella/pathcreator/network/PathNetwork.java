@@ -0,0 +1,871 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.event.CreatorEvent;
+import com.jayfella.pathcreator.jobs.PathJobScheduler;
+import com.jayfella.pathcreator.jobs.PathJobType;
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.utility.CubicBezierUtility;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/// Owns many bezier paths, each with an id that stays the same for as long as the path is in the network, and keeps a spatial hash
+/// over the bounds of every segment of every path, so the whole network can be searched without looking at each path.
+///
+/// The spatial hash is a uniform grid of cubic cells, of which only the occupied ones are stored. Each segment is listed in every cell its
+/// bounds overlap. When a path is modified it is only marked, and the next query re-indexes it: the segments whose bounds moved to other
+/// cells are moved, and the rest are left alone, so dragging a handle re-indexes a couple of segments rather than the whole network.
+///
+/// Queries work in the space of the paths' own points. Pick a cell size close to the length of a typical segment: much smaller and long
+/// segments are listed in many cells, much larger and each cell holds many segments.
+public class PathNetwork {
+
+    static final int closestPointSamples = 16;
+    static final int closestPointIterations = 8;
+
+    private final float cellSize;
+
+    private final Map<Integer, NetworkPath> paths = new LinkedHashMap<>();
+    private final Map<BezierPath, NetworkPath> pathsByBezierPath = new HashMap<>();
+    private final List<NetworkPath> dirtyPaths = new ArrayList<>();
+    private int nextId;
+
+    private final Map<CellKey, CellEntries> cells = new HashMap<>();
+
+    // cells are looked up through this key, so only adding a cell allocates one.
+    private final CellKey lookupKey = new CellKey();
+
+    // the range of occupied cells, which limits how far a nearest path search has to look.
+    private int minCellX, minCellY, minCellZ;
+    private int maxCellX = -1, maxCellY = -1, maxCellZ = -1;
+    private boolean cellRangeOutOfDate;
+
+    // segments are listed in several cells, so each query stamps the segments it has tested to only test them once.
+    private int queryStamp;
+
+    // optional scheduler that re-indexes modified paths within a frame budget, instead of in the next query.
+    private PathJobScheduler scheduler;
+
+    /// Creates an empty network.
+    /// @param cellSize the width of each cell of the spatial hash.
+    public PathNetwork(float cellSize) {
+
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be larger than zero.");
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public PathJobScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /// Sets a scheduler to queue re-indexing with whenever a path is modified, or null to leave it to the next query.
+    /// Queries still re-index any path that is modified before the queued job runs.
+    public void setScheduler(PathJobScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /// Adds a path to the network and returns its id. Ids are never reused.
+    public int addPath(BezierPath bezierPath) {
+
+        if (pathsByBezierPath.containsKey(bezierPath)) {
+            throw new IllegalArgumentException("The path is already in the network, with id " + pathsByBezierPath.get(bezierPath).id);
+        }
+
+        NetworkPath path = new NetworkPath(nextId, bezierPath);
+        checkCellRange(path);
+
+        nextId++;
+        path.modifiedEvent = () -> markDirty(path);
+
+        paths.put(path.id, path);
+        pathsByBezierPath.put(bezierPath, path);
+        bezierPath.addModifiedEvent(path.modifiedEvent);
+
+        reindex(path);
+
+        return path.id;
+    }
+
+    /// Removes a path from the network, and returns it, or null if there is no path with the id.
+    public BezierPath removePath(int pathId) {
+
+        NetworkPath path = paths.remove(pathId);
+
+        if (path == null) {
+            return null;
+        }
+
+        pathsByBezierPath.remove(path.bezierPath);
+        path.bezierPath.removeModifiedEvent(path.modifiedEvent);
+        dirtyPaths.remove(path);
+
+        for (int segment = 0; segment < path.numIndexedSegments; segment++) {
+            removeSegment(path, segment);
+        }
+
+        path.numIndexedSegments = 0;
+        cellRangeOutOfDate = true;
+
+        return path.bezierPath;
+    }
+
+    /// Returns the path with the given id, or null if there is none.
+    public BezierPath getPath(int pathId) {
+        NetworkPath path = paths.get(pathId);
+        return (path == null) ? null : path.bezierPath;
+    }
+
+    /// Returns the id of a path in the network, or -1 if it is not in the network.
+    public int getPathId(BezierPath bezierPath) {
+        NetworkPath path = pathsByBezierPath.get(bezierPath);
+        return (path == null) ? -1 : path.id;
+    }
+
+    /// The ids of every path in the network, in the order they were added. The returned set is read only and reflects later changes.
+    public Set<Integer> getPathIds() {
+        return Collections.unmodifiableSet(paths.keySet());
+    }
+
+    public int getNumPaths() {
+        return paths.size();
+    }
+
+    /// The number of occupied cells in the spatial hash.
+    public int getNumCells() {
+        update();
+        return cells.size();
+    }
+
+    /// Re-indexes every path modified since the last query. Queries do this themselves, so this only needs calling to choose when the work happens.
+    public void update() {
+
+        if (!dirtyPaths.isEmpty()) {
+
+            for (NetworkPath path : dirtyPaths) {
+                path.dirty = false;
+                reindex(path);
+            }
+
+            dirtyPaths.clear();
+        }
+
+        if (cellRangeOutOfDate) {
+            updateCellRange();
+        }
+    }
+
+    /// Finds the closest point on any path in the network to 'point', or returns null if the network is empty.
+    /// Cells are searched in rings around the point, nearest first, until no unsearched cell can hold anything closer.
+    public NetworkHit getNearestPath(Vector3f point) {
+        return getNearestPath(point, Float.POSITIVE_INFINITY);
+    }
+
+    /// Finds the closest point on any path in the network to 'point' that is no further away than 'maxDistance', or returns null if there is none.
+    public NetworkHit getNearestPath(Vector3f point, float maxDistance) {
+
+        update();
+
+        if (cells.isEmpty()) {
+            return null;
+        }
+
+        int stamp = ++queryStamp;
+
+        int centerX = toCell(point.x), centerY = toCell(point.y), centerZ = toCell(point.z);
+
+        // rings closer than the occupied range are empty, and rings past the furthest occupied cell hold nothing.
+        int minRing = Math.max(Math.max(outside(centerX, minCellX, maxCellX), outside(centerY, minCellY, maxCellY)),
+                outside(centerZ, minCellZ, maxCellZ));
+
+        int maxRing = Math.max(
+                Math.max(Math.max(centerX - minCellX, maxCellX - centerX), Math.max(centerY - minCellY, maxCellY - centerY)),
+                Math.max(centerZ - minCellZ, maxCellZ - centerZ));
+
+        SearchResult best = new SearchResult();
+        best.sqrDistance = (maxDistance == Float.POSITIVE_INFINITY) ? Float.POSITIVE_INFINITY : maxDistance * maxDistance;
+
+        for (int ring = minRing; ring <= maxRing; ring++) {
+
+            // every cell in this ring is at least (ring - 1) cells away from the point.
+            float ringDistance = Math.max(0, ring - 1) * cellSize;
+
+            if (ringDistance * ringDistance > best.sqrDistance) {
+                break;
+            }
+
+            // only the part of the ring that overlaps the occupied range is visited.
+            int fromX = Math.max(centerX - ring, minCellX), toX = Math.min(centerX + ring, maxCellX);
+            int fromY = Math.max(centerY - ring, minCellY), toY = Math.min(centerY + ring, maxCellY);
+            int fromZ = Math.max(centerZ - ring, minCellZ), toZ = Math.min(centerZ + ring, maxCellZ);
+
+            for (int x = fromX; x <= toX; x++) {
+                for (int y = fromY; y <= toY; y++) {
+
+                    if (Math.abs(x - centerX) == ring || Math.abs(y - centerY) == ring) {
+                        // on a face of the ring, so the whole column belongs to it.
+                        for (int z = fromZ; z <= toZ; z++) {
+                            searchCell(getCell(x, y, z), point, stamp, best);
+                        }
+                    }
+                    else {
+                        // inside the ring, so only the cells at either end of the column belong to it.
+                        if (centerZ - ring >= minCellZ && centerZ - ring <= maxCellZ) {
+                            searchCell(getCell(x, y, centerZ - ring), point, stamp, best);
+                        }
+
+                        if (ring > 0 && centerZ + ring >= minCellZ && centerZ + ring <= maxCellZ) {
+                            searchCell(getCell(x, y, centerZ + ring), point, stamp, best);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (best.path == null) {
+            return null;
+        }
+
+        Vector3f closest = CubicBezierUtility.evaluateCurve(best.path.bezierPath.getPointsInSegment(best.segmentIndex), best.time);
+        return new NetworkHit(best.path.id, best.segmentIndex, best.time, closest, (float) Math.sqrt(best.sqrDistance));
+    }
+
+    /// Adds the id of every path with a segment whose bounds intersect 'box' to 'store', once each.
+    /// The bounds of a segment are tight, but a curve can pass through the corner of its bounds without entering the box.
+    public void collectPaths(BoundingBox box, Collection<Integer> store) {
+
+        update();
+
+        Vector3f min = box.getMin(null);
+        Vector3f max = box.getMax(null);
+
+        int stamp = ++queryStamp;
+        Map<Integer, Boolean> found = new HashMap<>();
+
+        forEachCell(min, max, entries -> {
+
+            for (int i = 0; i < entries.size; i++) {
+
+                NetworkPath path = paths.get(entries.getPathId(i));
+
+                if (found.containsKey(path.id) || !path.stamp(entries.getSegmentIndex(i), stamp)) {
+                    continue;
+                }
+
+                if (path.boundsIntersect(entries.getSegmentIndex(i), min, max)) {
+                    found.put(path.id, Boolean.TRUE);
+                    store.add(path.id);
+                }
+            }
+        });
+    }
+
+    /// Adds the id of every path that comes within 'radius' of 'point' to 'store', once each.
+    /// Segments are first culled by the distance to their bounds, then tested against the closest point on the curve.
+    public void collectPathsWithinRadius(Vector3f point, float radius, Collection<Integer> store) {
+
+        update();
+
+        Vector3f min = point.subtract(radius, radius, radius);
+        Vector3f max = point.add(radius, radius, radius);
+        float sqrRadius = radius * radius;
+
+        int stamp = ++queryStamp;
+        Map<Integer, Boolean> found = new HashMap<>();
+
+        forEachCell(min, max, entries -> {
+
+            for (int i = 0; i < entries.size; i++) {
+
+                NetworkPath path = paths.get(entries.getPathId(i));
+                int segment = entries.getSegmentIndex(i);
+
+                if (found.containsKey(path.id) || !path.stamp(segment, stamp)) {
+                    continue;
+                }
+
+                if (path.sqrDistanceToBounds(segment, point) > sqrRadius) {
+                    continue;
+                }
+
+                Vector3f[] segmentPoints = path.bezierPath.getPointsInSegment(segment);
+                float t = CubicBezierUtility.closestTime(segmentPoints, point, closestPointSamples, closestPointIterations);
+
+                if (CubicBezierUtility.evaluateCurve(segmentPoints, t).distanceSquared(point) <= sqrRadius) {
+                    found.put(path.id, Boolean.TRUE);
+                    store.add(path.id);
+                }
+            }
+        });
+    }
+
+    /// Adds every segment (as a path id and segment index) whose bounds intersect 'box' to 'store', once each.
+    /// This is the broad phase for work between paths, such as finding where they cross.
+    public void collectSegments(BoundingBox box, Collection<SegmentRef> store) {
+
+        update();
+
+        Vector3f min = box.getMin(null);
+        Vector3f max = box.getMax(null);
+        int stamp = ++queryStamp;
+
+        forEachCell(min, max, entries -> {
+
+            for (int i = 0; i < entries.size; i++) {
+
+                NetworkPath path = paths.get(entries.getPathId(i));
+                int segment = entries.getSegmentIndex(i);
+
+                if (path.stamp(segment, stamp) && path.boundsIntersect(segment, min, max)) {
+                    store.add(new SegmentRef(path.id, segment));
+                }
+            }
+        });
+    }
+
+    /// Adds every place two paths in the network cross, or pass within 'tolerance' of each other, to 'store'.
+    /// Each segment only looks for segments of paths with a larger id in the cells its bounds cover, so the work grows with
+    /// the number of segments that are close together rather than with the number of pairs of paths.
+    /// Crossings are grouped by path pair, with the smaller id as path A. See PathIntersector for how segments are refined.
+    public void collectCrossings(float tolerance, List<PathCrossing> store) {
+
+        PathIntersector.checkTolerance(tolerance);
+        update();
+
+        // the crossings of the current path A with each path B, so crossings are only merged with those of the same pair.
+        Map<Integer, PathIntersector.CrossingMerger> pairCrossings = new TreeMap<>();
+
+        for (NetworkPath pathA : paths.values()) {
+
+            for (int segmentA = 0; segmentA < pathA.numIndexedSegments; segmentA++) {
+
+                int offset = segmentA * 6;
+                Vector3f min = new Vector3f(pathA.bounds[offset] - tolerance, pathA.bounds[offset + 1] - tolerance, pathA.bounds[offset + 2] - tolerance);
+                Vector3f max = new Vector3f(pathA.bounds[offset + 3] + tolerance, pathA.bounds[offset + 4] + tolerance, pathA.bounds[offset + 5] + tolerance);
+
+                int stamp = ++queryStamp;
+                Vector3f[] pointsA = pathA.bezierPath.getPointsInSegment(segmentA);
+                int segmentIndexA = segmentA;
+
+                forEachCell(min, max, entries -> {
+
+                    for (int i = 0; i < entries.size; i++) {
+
+                        int pathIdB = entries.getPathId(i);
+
+                        if (pathIdB <= pathA.id) {
+                            continue;
+                        }
+
+                        NetworkPath pathB = paths.get(pathIdB);
+                        int segmentB = entries.getSegmentIndex(i);
+
+                        if (!pathB.stamp(segmentB, stamp) || !pathB.boundsIntersect(segmentB, min, max)) {
+                            continue;
+                        }
+
+                        PathIntersector.CrossingMerger merger = pairCrossings.computeIfAbsent(pathIdB,
+                                id -> new PathIntersector.CrossingMerger(new ArrayList<>(), tolerance));
+
+                        PathIntersector.collectCrossings(pointsA, pathA.id, segmentIndexA, pathB.bezierPath.getPointsInSegment(segmentB),
+                                pathIdB, segmentB, tolerance, merger);
+                    }
+                });
+            }
+
+            for (PathIntersector.CrossingMerger crossings : pairCrossings.values()) {
+                store.addAll(crossings.getCrossings());
+            }
+
+            pairCrossings.clear();
+        }
+    }
+
+    private void markDirty(NetworkPath path) {
+        if (!path.dirty) {
+            path.dirty = true;
+            dirtyPaths.add(path);
+
+            if (scheduler != null) {
+                scheduler.submit(this, PathJobType.RefreshIndex, this::update);
+            }
+        }
+    }
+
+    /// Brings the cells of a path up to date with its segments, only moving the segments that now overlap other cells.
+    private void reindex(NetworkPath path) {
+
+        int numSegments = path.bezierPath.getNumSegments();
+        checkCellRange(path);
+
+        // segments that no longer exist
+        for (int segment = numSegments; segment < path.numIndexedSegments; segment++) {
+            removeSegment(path, segment);
+        }
+
+        path.ensureCapacity(numSegments);
+
+        for (int segment = 0; segment < numSegments; segment++) {
+
+            BoundingBox bounds = path.bezierPath.getSegmentBounds(segment);
+            Vector3f min = bounds.getMin(null);
+            Vector3f max = bounds.getMax(null);
+
+            int offset = segment * 6;
+            boolean indexed = segment < path.numIndexedSegments;
+
+            if (indexed
+                    && path.cellRanges[offset] == toCell(min.x) && path.cellRanges[offset + 1] == toCell(min.y)
+                    && path.cellRanges[offset + 2] == toCell(min.z) && path.cellRanges[offset + 3] == toCell(max.x)
+                    && path.cellRanges[offset + 4] == toCell(max.y) && path.cellRanges[offset + 5] == toCell(max.z)) {
+
+                // still in the same cells, so only the bounds change.
+                path.setBounds(segment, min, max);
+                continue;
+            }
+
+            if (indexed) {
+                removeSegment(path, segment);
+            }
+
+            path.setBounds(segment, min, max);
+            path.cellRanges[offset] = toCell(min.x);
+            path.cellRanges[offset + 1] = toCell(min.y);
+            path.cellRanges[offset + 2] = toCell(min.z);
+            path.cellRanges[offset + 3] = toCell(max.x);
+            path.cellRanges[offset + 4] = toCell(max.y);
+            path.cellRanges[offset + 5] = toCell(max.z);
+
+            addSegment(path, segment);
+        }
+
+        path.numIndexedSegments = numSegments;
+    }
+
+    private void addSegment(NetworkPath path, int segment) {
+
+        int[] range = path.cellRanges;
+        int offset = segment * 6;
+
+        for (int x = range[offset]; x <= range[offset + 3]; x++) {
+            for (int y = range[offset + 1]; y <= range[offset + 4]; y++) {
+                for (int z = range[offset + 2]; z <= range[offset + 5]; z++) {
+
+                    CellEntries entries = getCell(x, y, z);
+
+                    if (entries == null) {
+                        entries = new CellEntries();
+                        cells.put(new CellKey().set(x, y, z), entries);
+                    }
+
+                    entries.add(path.id, segment);
+                }
+            }
+        }
+
+        if (maxCellX < minCellX) {
+            // the first occupied cells
+            minCellX = range[offset];
+            minCellY = range[offset + 1];
+            minCellZ = range[offset + 2];
+            maxCellX = range[offset + 3];
+            maxCellY = range[offset + 4];
+            maxCellZ = range[offset + 5];
+        }
+        else {
+            minCellX = Math.min(minCellX, range[offset]);
+            minCellY = Math.min(minCellY, range[offset + 1]);
+            minCellZ = Math.min(minCellZ, range[offset + 2]);
+            maxCellX = Math.max(maxCellX, range[offset + 3]);
+            maxCellY = Math.max(maxCellY, range[offset + 4]);
+            maxCellZ = Math.max(maxCellZ, range[offset + 5]);
+        }
+    }
+
+    private void removeSegment(NetworkPath path, int segment) {
+
+        int[] range = path.cellRanges;
+        int offset = segment * 6;
+
+        for (int x = range[offset]; x <= range[offset + 3]; x++) {
+            for (int y = range[offset + 1]; y <= range[offset + 4]; y++) {
+                for (int z = range[offset + 2]; z <= range[offset + 5]; z++) {
+
+                    CellEntries entries = getCell(x, y, z);
+
+                    if (entries != null && entries.remove(path.id, segment) && entries.size == 0) {
+                        cells.remove(lookupKey.set(x, y, z));
+                    }
+                }
+            }
+        }
+
+        // the occupied range only ever grows while segments are added, so it is recalculated when the next query needs it.
+        cellRangeOutOfDate = true;
+    }
+
+    private void updateCellRange() {
+
+        cellRangeOutOfDate = false;
+
+        minCellX = minCellY = minCellZ = Integer.MAX_VALUE;
+        maxCellX = maxCellY = maxCellZ = Integer.MIN_VALUE;
+
+        for (NetworkPath path : paths.values()) {
+            for (int segment = 0; segment < path.numIndexedSegments; segment++) {
+                int offset = segment * 6;
+                minCellX = Math.min(minCellX, path.cellRanges[offset]);
+                minCellY = Math.min(minCellY, path.cellRanges[offset + 1]);
+                minCellZ = Math.min(minCellZ, path.cellRanges[offset + 2]);
+                maxCellX = Math.max(maxCellX, path.cellRanges[offset + 3]);
+                maxCellY = Math.max(maxCellY, path.cellRanges[offset + 4]);
+                maxCellZ = Math.max(maxCellZ, path.cellRanges[offset + 5]);
+            }
+        }
+
+        if (minCellX > maxCellX) {
+            // empty
+            minCellX = minCellY = minCellZ = 0;
+            maxCellX = maxCellY = maxCellZ = -1;
+        }
+    }
+
+    /// Tests every segment in a cell that hasn't been tested in this query, keeping the closest point found.
+    private void searchCell(CellEntries entries, Vector3f point, int stamp, SearchResult best) {
+
+        if (entries == null) {
+            return;
+        }
+
+        for (int i = 0; i < entries.size; i++) {
+
+            NetworkPath path = paths.get(entries.getPathId(i));
+            int segment = entries.getSegmentIndex(i);
+
+            if (!path.stamp(segment, stamp) || path.sqrDistanceToBounds(segment, point) >= best.sqrDistance) {
+                continue;
+            }
+
+            Vector3f[] segmentPoints = path.bezierPath.getPointsInSegment(segment);
+            float t = CubicBezierUtility.closestTime(segmentPoints, point, closestPointSamples, closestPointIterations);
+            float sqrDistance = CubicBezierUtility.evaluateCurve(segmentPoints, t).distanceSquared(point);
+
+            if (sqrDistance < best.sqrDistance) {
+                best.sqrDistance = sqrDistance;
+                best.path = path;
+                best.segmentIndex = segment;
+                best.time = t;
+            }
+        }
+    }
+
+    private void forEachCell(Vector3f min, Vector3f max, CellVisitor visitor) {
+
+        int fromX = Math.max(toCell(min.x), minCellX), toX = Math.min(toCell(max.x), maxCellX);
+        int fromY = Math.max(toCell(min.y), minCellY), toY = Math.min(toCell(max.y), maxCellY);
+        int fromZ = Math.max(toCell(min.z), minCellZ), toZ = Math.min(toCell(max.z), maxCellZ);
+
+        long numCells = (long) (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+
+        if (numCells <= 0) {
+            return;
+        }
+
+        if (numCells > cells.size()) {
+            // the box covers more cells than are occupied, so go through the occupied cells instead.
+            for (Map.Entry<CellKey, CellEntries> cell : cells.entrySet()) {
+                CellKey key = cell.getKey();
+
+                if (key.x >= fromX && key.x <= toX && key.y >= fromY && key.y <= toY && key.z >= fromZ && key.z <= toZ) {
+                    visitor.visit(cell.getValue());
+                }
+            }
+
+            return;
+        }
+
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+
+                    CellEntries entries = getCell(x, y, z);
+
+                    if (entries != null) {
+                        visitor.visit(entries);
+                    }
+                }
+            }
+        }
+    }
+
+    /// How many cells 'cell' lies outside of the range 'min' to 'max'.
+    private static int outside(int cell, int min, int max) {
+        return Math.max(0, Math.max(min - cell, cell - max));
+    }
+
+    /// Cells are int coordinates, so segments past the first and last cell an int holds can't be indexed.
+    /// Checked before a path is indexed, so a path that can't be is left as it was.
+    private void checkCellRange(NetworkPath path) {
+
+        float limit = (float) Integer.MAX_VALUE * cellSize;
+
+        for (int segment = 0; segment < path.bezierPath.getNumSegments(); segment++) {
+
+            BoundingBox bounds = path.bezierPath.getSegmentBounds(segment);
+            Vector3f min = bounds.getMin(null);
+            Vector3f max = bounds.getMax(null);
+
+            if (!(min.x > -limit && min.y > -limit && min.z > -limit && max.x < limit && max.y < limit && max.z < limit)) {
+                throw new IllegalArgumentException("Segment " + segment + " of path " + path.id
+                        + " is too far from the origin for a cell size of " + cellSize + ".");
+            }
+        }
+    }
+
+    private int toCell(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private CellEntries getCell(int x, int y, int z) {
+        return cells.get(lookupKey.set(x, y, z));
+    }
+
+    private interface CellVisitor {
+        void visit(CellEntries entries);
+    }
+
+    private static final class SearchResult {
+        private NetworkPath path;
+        private int segmentIndex;
+        private float time;
+        private float sqrDistance;
+    }
+
+    /// A path in the network, with the bounds and cells of its segments as they were last indexed.
+    private static final class NetworkPath {
+
+        private final int id;
+        private final BezierPath bezierPath;
+        private CreatorEvent modifiedEvent;
+        private boolean dirty;
+
+        private int numIndexedSegments;
+        // 6 per segment: minX, minY, minZ, maxX, maxY, maxZ
+        private float[] bounds = new float[0];
+        private int[] cellRanges = new int[0];
+        private int[] stamps = new int[0];
+
+        NetworkPath(int id, BezierPath bezierPath) {
+            this.id = id;
+            this.bezierPath = bezierPath;
+        }
+
+        void ensureCapacity(int numSegments) {
+            if (stamps.length < numSegments) {
+                int capacity = Math.max(numSegments, stamps.length * 2);
+                bounds = Arrays.copyOf(bounds, capacity * 6);
+                cellRanges = Arrays.copyOf(cellRanges, capacity * 6);
+                stamps = Arrays.copyOf(stamps, capacity);
+            }
+        }
+
+        void setBounds(int segment, Vector3f min, Vector3f max) {
+            int offset = segment * 6;
+            bounds[offset] = min.x;
+            bounds[offset + 1] = min.y;
+            bounds[offset + 2] = min.z;
+            bounds[offset + 3] = max.x;
+            bounds[offset + 4] = max.y;
+            bounds[offset + 5] = max.z;
+        }
+
+        /// Marks the segment as tested in the query, returning false if it already was.
+        boolean stamp(int segment, int stamp) {
+            if (stamps[segment] == stamp) {
+                return false;
+            }
+
+            stamps[segment] = stamp;
+            return true;
+        }
+
+        boolean boundsIntersect(int segment, Vector3f min, Vector3f max) {
+            int offset = segment * 6;
+            return bounds[offset] <= max.x && bounds[offset + 3] >= min.x
+                    && bounds[offset + 1] <= max.y && bounds[offset + 4] >= min.y
+                    && bounds[offset + 2] <= max.z && bounds[offset + 5] >= min.z;
+        }
+
+        float sqrDistanceToBounds(int segment, Vector3f point) {
+            int offset = segment * 6;
+            float dx = Math.max(0, Math.max(bounds[offset] - point.x, point.x - bounds[offset + 3]));
+            float dy = Math.max(0, Math.max(bounds[offset + 1] - point.y, point.y - bounds[offset + 4]));
+            float dz = Math.max(0, Math.max(bounds[offset + 2] - point.z, point.z - bounds[offset + 5]));
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /// The coordinate of a cell. Every int coordinate is its own cell, however far the paths are from the origin.
+    private static final class CellKey {
+
+        private int x, y, z;
+
+        CellKey set(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CellKey)) return false;
+            CellKey other = (CellKey) o;
+            return x == other.x && y == other.y && z == other.z;
+        }
+
+        @Override
+        public int hashCode() {
+            return (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+        }
+    }
+
+    /// The segments listed in a cell, as pairs of path id and segment index. Removal swaps the last entry into the gap.
+    private static final class CellEntries {
+
+        private long[] entries = new long[4];
+        private int size;
+
+        void add(int pathId, int segment) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+
+            entries[size++] = pack(pathId, segment);
+        }
+
+        boolean remove(int pathId, int segment) {
+            long entry = pack(pathId, segment);
+
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    entries[i] = entries[--size];
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        int getPathId(int index) {
+            return (int) (entries[index] >>> 32);
+        }
+
+        int getSegmentIndex(int index) {
+            return (int) entries[index];
+        }
+
+        private static long pack(int pathId, int segment) {
+            return ((long) pathId << 32) | (segment & 0xFFFFFFFFL);
+        }
+    }
+
+    /// A segment of a path in the network.
+    public static class SegmentRef {
+
+        private final int pathId;
+        private final int segmentIndex;
+
+        public SegmentRef(int pathId, int segmentIndex) {
+            this.pathId = pathId;
+            this.segmentIndex = segmentIndex;
+        }
+
+        public int getPathId() {
+            return pathId;
+        }
+
+        public int getSegmentIndex() {
+            return segmentIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SegmentRef)) return false;
+            SegmentRef other = (SegmentRef) o;
+            return pathId == other.pathId && segmentIndex == other.segmentIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * pathId + segmentIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "SegmentRef[path=" + pathId + ", segment=" + segmentIndex + "]";
+        }
+    }
+
+    /// The closest point on a path in the network to a query point.
+    public static class NetworkHit {
+
+        private final int pathId;
+        private final int segmentIndex;
+        private final float time;
+        private final Vector3f point;
+        private final float distance;
+
+        NetworkHit(int pathId, int segmentIndex, float time, Vector3f point, float distance) {
+            this.pathId = pathId;
+            this.segmentIndex = segmentIndex;
+            this.time = time;
+            this.point = point;
+            this.distance = distance;
+        }
+
+        /// The id of the path the point lies on.
+        public int getPathId() {
+            return pathId;
+        }
+
+        /// The index of the bezier segment the point lies on.
+        public int getSegmentIndex() {
+            return segmentIndex;
+        }
+
+        /// The time (between 0 and 1) of the point within its bezier segment.
+        public float getTime() {
+            return time;
+        }
+
+        /// The closest point, in the space of the path's points.
+        public Vector3f getPoint() {
+            return point;
+        }
+
+        /// The distance from the query point to the closest point.
+        public float getDistance() {
+            return distance;
+        }
+    }
+
+}
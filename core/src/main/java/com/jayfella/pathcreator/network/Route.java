@@ -0,0 +1,236 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.EndOfPathInstruction;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.UnityMath;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+import java.util.Arrays;
+
+/// A route through a JunctionGraph, made of legs that each follow part of one path, forwards or backwards.
+/// It samples like a single vertex path, by distance or by time (where 0 is the start, and 1 is the end of the route),
+/// and looks each sample up on the vertex path of the leg it falls in.
+public class Route {
+
+    private final Leg[] legs;
+    private final int[] junctions;
+    /// The distance along the route at the start of each leg, followed by the length of the route.
+    private final float[] legStarts;
+    private final Vector3f startPosition;
+
+    Route(Leg[] legs, int[] junctions, Vector3f startPosition) {
+
+        this.legs = legs;
+        this.junctions = junctions;
+        this.startPosition = startPosition;
+
+        legStarts = new float[legs.length + 1];
+
+        for (int i = 0; i < legs.length; i++) {
+            legStarts[i + 1] = legStarts[i] + legs[i].length;
+        }
+    }
+
+    /// The length of the route along its paths.
+    public float getLength() {
+        return legStarts[legs.length];
+    }
+
+    public int getNumLegs() {
+        return legs.length;
+    }
+
+    public Leg getLeg(int index) {
+        return legs[index];
+    }
+
+    /// The junctions the route passes through, from the junction it starts at to the one it ends at.
+    public int[] getJunctions() {
+        return Arrays.copyOf(junctions, junctions.length);
+    }
+
+    /// The distance along the route at which a leg starts.
+    public float getLegStart(int index) {
+        return legStarts[index];
+    }
+
+    /// Gets point on route based on distance travelled.
+    public Vector3f GetPointAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+
+        if (legs.length == 0) {
+            // the route starts and ends at the same junction
+            return (startPosition == null) ? new Vector3f() : startPosition.clone();
+        }
+
+        dst = constrainDistance(dst, endOfPathInstruction);
+        int leg = findLeg(dst);
+        return legs[leg].GetPointAtDistance(dst - legStarts[leg]);
+    }
+
+    /// Gets forward direction on route based on distance travelled.
+    public Vector3f GetDirectionAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        checkHasLegs();
+        dst = constrainDistance(dst, endOfPathInstruction);
+        int leg = findLeg(dst);
+        return legs[leg].GetDirectionAtDistance(dst - legStarts[leg]);
+    }
+
+    /// Gets normal vector on route based on distance travelled.
+    public Vector3f GetNormalAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        checkHasLegs();
+        dst = constrainDistance(dst, endOfPathInstruction);
+        int leg = findLeg(dst);
+        return legs[leg].GetNormalAtDistance(dst - legStarts[leg]);
+    }
+
+    /// Gets a rotation that will orient an object in the direction of travel along the route, with local up along the path's normal
+    public Quaternion GetRotationAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        checkHasLegs();
+        dst = constrainDistance(dst, endOfPathInstruction);
+        int leg = findLeg(dst);
+        return legs[leg].GetRotationAtDistance(dst - legStarts[leg]);
+    }
+
+    /// Gets point on route based on 'time' (where 0 is start, and 1 is end of route).
+    public Vector3f GetPointAtTime (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        return GetPointAtDistance(t * getLength(), endOfPathInstruction);
+    }
+
+    /// Gets forward direction on route based on 'time' (where 0 is start, and 1 is end of route).
+    public Vector3f GetDirection (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        return GetDirectionAtDistance(t * getLength(), endOfPathInstruction);
+    }
+
+    /// Gets normal vector on route based on 'time' (where 0 is start, and 1 is end of route).
+    public Vector3f GetNormal (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        return GetNormalAtDistance(t * getLength(), endOfPathInstruction);
+    }
+
+    /// Gets a rotation that will orient an object in the direction of travel along the route, based on 'time' (where 0 is start, and 1 is end of route).
+    public Quaternion GetRotation (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Stop */) {
+        return GetRotationAtDistance(t * getLength(), endOfPathInstruction);
+    }
+
+    private float constrainDistance(float dst, EndOfPathInstruction endOfPathInstruction) {
+
+        float length = getLength();
+        float t = dst / length;
+
+        switch (endOfPathInstruction) {
+            case Loop:
+                if (t < 0) {
+                    t += (int)Math.ceil(Math.abs(t));
+                }
+                t %= 1;
+                break;
+            case Reverse:
+                t = UnityMath.pingPong (t, 1);
+                break;
+            case Stop:
+                t = FastMath.clamp(t, 0, 1);
+                break;
+        }
+
+        return t * length;
+    }
+
+    /// The index of the leg that contains the distance, which must already be between 0 and the length of the route.
+    private int findLeg(float dst) {
+
+        int low = 0;
+        int high = legs.length - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (legStarts[middle] <= dst) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void checkHasLegs() {
+        if (legs.length == 0) {
+            throw new IllegalStateException("The route starts and ends at the same junction, so it has no direction.");
+        }
+    }
+
+    /// Part of a route that follows one path between two junctions.
+    public static class Leg {
+
+        // turns a rotation around its local up axis to face the other way
+        private static final Quaternion turnAround = new Quaternion(0, 1, 0, 0);
+
+        private final int pathId;
+        private final VertexPath vertexPath;
+        private final float pathStart;
+        private final float length;
+        private final boolean reversed;
+
+        Leg(int pathId, VertexPath vertexPath, float pathStart, float length, boolean reversed) {
+            this.pathId = pathId;
+            this.vertexPath = vertexPath;
+            this.pathStart = pathStart;
+            this.length = length;
+            this.reversed = reversed;
+        }
+
+        public int getPathId() {
+            return pathId;
+        }
+
+        public VertexPath getVertexPath() {
+            return vertexPath;
+        }
+
+        /// The distance along the path of the end of the leg nearest the start of the path.
+        public float getPathStart() {
+            return pathStart;
+        }
+
+        public float getLength() {
+            return length;
+        }
+
+        /// Whether the leg travels from the end of the path towards its start.
+        public boolean isReversed() {
+            return reversed;
+        }
+
+        /// The distance along the path at a distance along the leg.
+        public float getPathDistance(float legDistance) {
+            return reversed ? pathStart + length - legDistance : pathStart + legDistance;
+        }
+
+        Vector3f GetPointAtDistance(float legDistance) {
+            return vertexPath.GetPointAtDistance(getPathDistance(legDistance), getEndOfPathInstruction());
+        }
+
+        Vector3f GetDirectionAtDistance(float legDistance) {
+            Vector3f direction = vertexPath.GetDirectionAtDistance(getPathDistance(legDistance), getEndOfPathInstruction());
+            return reversed ? direction.negateLocal() : direction;
+        }
+
+        Vector3f GetNormalAtDistance(float legDistance) {
+            return vertexPath.GetNormalAtDistance(getPathDistance(legDistance), getEndOfPathInstruction());
+        }
+
+        Quaternion GetRotationAtDistance(float legDistance) {
+            Quaternion rotation = vertexPath.GetRotationAtDistance(getPathDistance(legDistance), getEndOfPathInstruction());
+            return reversed ? rotation.multLocal(turnAround) : rotation;
+        }
+
+        // a leg of a closed path can pass through the start of the path, so it wraps around.
+        private EndOfPathInstruction getEndOfPathInstruction() {
+            return vertexPath.isClosedLoop() ? EndOfPathInstruction.Loop : EndOfPathInstruction.Stop;
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.jayfella.pathcreator.network;
+
+import java.util.Arrays;
+
+/// The working state of an A* search over a JunctionGraph: the best known cost and arc into each junction, and the open set.
+/// A search grows to fit the graph it is used with and is cleared in constant time between searches,
+/// so keeping one per thread lets routes be found without allocating anything but the route itself.
+public class RouteSearch {
+
+    private float[] costs = new float[0];
+    private int[] parentArcs = new int[0];
+    // a junction's cost and parent are only valid if its stamp is the current search.
+    private int[] stamps = new int[0];
+    private int stamp;
+
+    // a binary min-heap of junctions by estimated total cost, along with the cost each was pushed with.
+    // Junctions are pushed again when a cheaper way to them is found, and the stale entries are skipped when they are popped.
+    private int[] heapJunctions = new int[16];
+    private float[] heapKeys = new float[16];
+    private float[] heapCosts = new float[16];
+    private int heapSize;
+
+    private int numSettled;
+
+    /// The number of junctions the last search expanded, which shows how much of the graph it had to explore.
+    public int getNumSettled() {
+        return numSettled;
+    }
+
+    int getParentArc(int junction) {
+        return parentArcs[junction];
+    }
+
+    /// Runs a search from one junction to another, returning false if there is no route between them.
+    /// The estimate of the remaining distance is consistent, so each junction is normally expanded once, from its cheapest route.
+    /// Stale heap entries are skipped, and a junction is only expanded again if float error finds it a cheaper route later.
+    boolean search(JunctionGraph graph, int from, int to) {
+
+        prepare(graph.getNumJunctions());
+
+        heapSize = 0;
+        numSettled = 0;
+
+        costs[from] = 0;
+        stamps[from] = stamp;
+        push(from, graph.getMinDistance(from, to), 0);
+
+        while (heapSize > 0) {
+
+            float cost = heapCosts[0];
+            int junction = pop();
+
+            if (cost > costs[junction]) {
+                // a stale entry for a junction that has since been reached more cheaply
+                continue;
+            }
+
+            numSettled++;
+
+            if (junction == to) {
+                return true;
+            }
+
+            for (int arc = graph.getArcStart(junction), end = graph.getArcEnd(junction); arc < end; arc++) {
+
+                int target = graph.getArcTarget(arc);
+                float targetCost = cost + graph.getArcLength(arc);
+
+                if (stamps[target] != stamp || targetCost < costs[target]) {
+                    stamps[target] = stamp;
+                    costs[target] = targetCost;
+                    parentArcs[target] = graph.getArcEdge(arc);
+                    push(target, targetCost + graph.getMinDistance(target, to), targetCost);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void prepare(int numJunctions) {
+
+        if (stamps.length < numJunctions) {
+            costs = new float[numJunctions];
+            parentArcs = new int[numJunctions];
+            stamps = new int[numJunctions];
+            stamp = 0;
+        }
+
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+
+        stamp++;
+    }
+
+    private void push(int junction, float key, float cost) {
+
+        if (heapSize == heapJunctions.length) {
+            heapJunctions = Arrays.copyOf(heapJunctions, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        }
+
+        int index = heapSize++;
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+
+            heapJunctions[index] = heapJunctions[parent];
+            heapKeys[index] = heapKeys[parent];
+            heapCosts[index] = heapCosts[parent];
+            index = parent;
+        }
+
+        heapJunctions[index] = junction;
+        heapKeys[index] = key;
+        heapCosts[index] = cost;
+    }
+
+    private int pop() {
+
+        int top = heapJunctions[0];
+
+        int lastJunction = heapJunctions[--heapSize];
+        float lastKey = heapKeys[heapSize];
+        float lastCost = heapCosts[heapSize];
+
+        int index = 0;
+
+        while (true) {
+            int child = index * 2 + 1;
+
+            if (child >= heapSize) {
+                break;
+            }
+
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+
+            if (heapKeys[child] >= lastKey) {
+                break;
+            }
+
+            heapJunctions[index] = heapJunctions[child];
+            heapKeys[index] = heapKeys[child];
+            heapCosts[index] = heapCosts[child];
+            index = child;
+        }
+
+        if (heapSize > 0) {
+            heapJunctions[index] = lastJunction;
+            heapKeys[index] = lastKey;
+            heapCosts[index] = lastCost;
+        }
+
+        return top;
+    }
+
+}
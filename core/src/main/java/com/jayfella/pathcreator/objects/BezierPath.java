@@ -2,17 +2,26 @@ package com.jayfella.pathcreator.objects;
 
 import com.jayfella.pathcreator.event.CreatorEvent;
 import com.jayfella.pathcreator.utility.CubicBezierUtility;
+import com.jayfella.pathcreator.utility.UnityMath;
 import com.jme3.bounding.BoundingBox;
 import com.jme3.math.FastMath;
+import com.jme3.math.Ray;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 public class BezierPath {
 
     private final List<CreatorEvent> modifiedEvents = new ArrayList<>();
 
+    // The number of samples and refinement iterations pickCurve uses on each candidate segment.
+    static final int pickSamples = 32;
+    static final int pickIterations = 8;
+
     public enum ControlMode { Aligned, Mirrored, Free, Automatic };
 
     private List<Vector3f> points;
@@ -20,8 +29,11 @@ public class BezierPath {
     private PathSpace space;
     private ControlMode controlMode = ControlMode.Aligned;
     private float autoControlLength = .3f;
-    private boolean boundsUpToDate;
-    private BoundingBox bounds;
+
+    // The bounds of each segment, rebuilt in full when segments are added or removed (null) and otherwise only
+    // recalculated for the segments marked dirty by an edit.
+    private SegmentBoundsTree boundsTree;
+    private final BitSet dirtySegments = new BitSet();
 
     // Normals settings
     private List<Float> perAnchorNormalsAngle;
@@ -63,6 +75,26 @@ public class BezierPath {
 
     }
 
+    /**
+     * Creates a bezier path from previously stored points, for example when loading a path from disk.
+     * The points must already contain the two extra control points required by a closed path.
+     * @param points                the anchor and control points of the path.
+     * @param perAnchorNormalsAngle the normal angle of each anchor point.
+     * @param isClosed              whether the path is closed.
+     * @param space                 the space of the path.
+     * @param controlMode           the control mode of the path.
+     * @param autoControlLength     the relative length of automatically placed control points.
+     */
+    public BezierPath(List<Vector3f> points, List<Float> perAnchorNormalsAngle, boolean isClosed, PathSpace space,
+                      ControlMode controlMode, float autoControlLength) {
+        this.points = new ArrayList<>(points);
+        this.perAnchorNormalsAngle = new ArrayList<>(perAnchorNormalsAngle);
+        this.isClosed = isClosed;
+        this.space = space;
+        this.controlMode = controlMode;
+        this.autoControlLength = autoControlLength;
+    }
+
     public void addModifiedEvent(CreatorEvent event) {
         modifiedEvents.add(event);
     }
@@ -119,12 +151,30 @@ public class BezierPath {
         }
     }
 
+    /// The bounds of the whole path.
     public BoundingBox getPathBounds() {
-        if (!boundsUpToDate) {
-            updateBounds();
-        }
+        return getBoundsTree().getBounds();
+    }
+
+    /// The bounds of a single segment.
+    public BoundingBox getSegmentBounds(int segmentIndex) {
+        return getBoundsTree().getSegmentBounds(segmentIndex);
+    }
+
+    /// The bounds of the segments from 'fromSegment' to 'toSegment' (both inclusive).
+    public BoundingBox getSegmentBounds(int fromSegment, int toSegment) {
+        return getBoundsTree().getBounds(fromSegment, toSegment);
+    }
+
+    /// Adds the index of every segment whose bounds are hit by the ray to 'store', in segment order.
+    public void collectSegments(Ray ray, List<Integer> store) {
+        getBoundsTree().collectSegments(ray, store);
+    }
 
-        return bounds;
+    /// Adds the index of every segment whose bounds are inside or intersect the frustum of the camera to 'store', in segment order.
+    /// The camera is expected to be in the same space as the points of the path.
+    public void collectSegments(Camera camera, List<Integer> store) {
+        getBoundsTree().collectSegments(camera, store);
     }
 
     /**
@@ -145,35 +195,138 @@ public class BezierPath {
     }
 
     /**
-     * Update the bounding box of the path
+     * Finds the point on the curve nearest to the ray origin that passes within 'tolerance' + 'tolerancePerDistance' * (distance along the ray)
+     * of the ray. Each segment is represented by its point closest to the ray. For picking with the mouse, 'tolerance' is the width of a few pixels for an orthographic camera, and 'tolerancePerDistance'
+     * is the width of a few pixels at unit distance from a perspective camera. Only segments whose bounds are near the ray are tested.
+     * The ray is expected to be in the same space as the points of the path.
+     * @param ray                  the ray, with a normalized direction.
+     * @param tolerance            how far the curve may be from the ray at its origin.
+     * @param tolerancePerDistance how much further the curve may be from the ray for each unit along it.
+     * @return the hit nearest to the ray origin, or null if the curve is not within the tolerance of the ray.
      */
-    private void updateBounds() {
+    public CurveHit pickCurve(Ray ray, float tolerance, float tolerancePerDistance) {
 
-        if (boundsUpToDate) {
-            return;
+        List<Integer> candidates = new ArrayList<>();
+        getBoundsTree().collectSegments(ray, tolerance, tolerancePerDistance, candidates);
+
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+
+        CurveHit nearest = null;
+
+        for (int segmentIndex : candidates) {
+
+            Vector3f[] p = getPointsInSegment(segmentIndex);
+            float t = CubicBezierUtility.closestTimeToRay(p, origin, direction, pickSamples, pickIterations);
+
+            Vector3f point = CubicBezierUtility.evaluateCurve(p, t);
+            float distanceAlongRay = Math.max(0, point.subtract(origin).dot(direction));
+            float distanceToRay = (float) Math.sqrt(CubicBezierUtility.sqrDistanceToRay(point, origin, direction));
+
+            boolean isHit = distanceAlongRay <= ray.getLimit()
+                    && distanceToRay <= tolerance + tolerancePerDistance * distanceAlongRay;
+
+            if (isHit && (nearest == null || distanceAlongRay < nearest.distanceAlongRay)) {
+                nearest = new CurveHit(segmentIndex, t, point, distanceToRay, distanceAlongRay);
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Returns the bounds tree of the path, recalculating the bounds of any segments that have been edited since it was last used.
+     */
+    private SegmentBoundsTree getBoundsTree() {
+
+        if (boundsTree == null || boundsTree.getNumSegments() != getNumSegments()) {
+            boundsTree = new SegmentBoundsTree(getNumSegments());
+            dirtySegments.set(0, getNumSegments());
         }
 
-        // Loop through all segments and keep track of the minmax points of all their bounding boxes
+        for (int i = dirtySegments.nextSetBit(0); i >= 0; i = dirtySegments.nextSetBit(i + 1)) {
+            updateSegmentBounds(i);
+        }
+
+        dirtySegments.clear();
+
+        return boundsTree;
+    }
+
+    /**
+     * Update the bounding box of a segment
+     */
+    private void updateSegmentBounds(int segmentIndex) {
+
+        // Keep track of the minmax points of the anchors and the extreme points of the curve between them
         MinMax3D minMax = new MinMax3D ();
 
-        for (int i = 0; i < getNumSegments(); i++) {
-            Vector3f[] p = getPointsInSegment(i);
-            minMax.addValue(p[0]);
-            minMax.addValue(p[3]);
+        Vector3f[] p = getPointsInSegment(segmentIndex);
+        minMax.addValue(p[0]);
+        minMax.addValue(p[3]);
 
-            List<Float> extremePointTimes = CubicBezierUtility.extremePointTimes (p[0], p[1], p[2], p[3]);
+        List<Float> extremePointTimes = CubicBezierUtility.extremePointTimes (p[0], p[1], p[2], p[3]);
 
-            for (float t : extremePointTimes) {
-                minMax.addValue (CubicBezierUtility.evaluateCurve (p, t));
+        for (float t : extremePointTimes) {
+            minMax.addValue (CubicBezierUtility.evaluateCurve (p, t));
+        }
+
+        boundsTree.setSegmentBounds(segmentIndex, minMax.getMin(), minMax.getMax());
+    }
+
+    /// Sets a point, marking the segments it belongs to as needing new bounds.
+    private void setPoint(int i, Vector3f point) {
+        points.set(i, point);
+        markPointModified(i);
+    }
+
+    /// Marks the segments that point 'i' belongs to as needing new bounds.
+    /// Anchors belong to the segment they start and the segment they end.
+    private void markPointModified(int i) {
+
+        if (boundsTree == null) {
+            return;
+        }
+
+        int numSegments = getNumSegments();
+        int segmentIndex = i / 3;
+
+        if (segmentIndex < numSegments) {
+            dirtySegments.set(segmentIndex);
+        }
+
+        if (i % 3 == 0) {
+            int previousSegment = (i > 0) ? segmentIndex - 1 : (isClosed ? numSegments - 1 : -1);
+
+            if (previousSegment >= 0) {
+                dirtySegments.set(previousSegment);
             }
         }
+    }
+
+    /// Makes room in the bounds for a segment split in two at 'segmentIndex'. The segments after it keep their bounds and
+    /// move up by one, and only the two halves are marked as needing new bounds.
+    private void insertSegmentBounds(int segmentIndex) {
 
-        boundsUpToDate = true;
-        // bounds = new Bounds ((minMax.Min + minMax.Max) / 2, minMax.Max - minMax.Min);
-        bounds = new BoundingBox(
-                minMax.getMin().add(minMax.getMax()).divide(2),
-                minMax.getMax().subtract(minMax.getMin())
-        );
+        if (boundsTree == null) {
+            return;
+        }
+
+        boundsTree = boundsTree.insertSegment(segmentIndex + 1);
+
+        // move the dirty segments after the split up by one, from the top down so none are overwritten.
+        for (int i = dirtySegments.previousSetBit(dirtySegments.length()); i > segmentIndex; i = dirtySegments.previousSetBit(i - 1)) {
+            dirtySegments.clear(i);
+            dirtySegments.set(i + 1);
+        }
+
+        dirtySegments.set(segmentIndex, segmentIndex + 2);
+    }
+
+    /// Marks the bounds of every segment as needing to be rebuilt, for edits that add, remove or move all of the points.
+    private void invalidateAllBounds() {
+        boundsTree = null;
+        dirtySegments.clear();
     }
 
     /// Calculates good positions (to result in smooth path) for the controls around specified anchor
@@ -204,7 +357,7 @@ public class BezierPath {
             int controlIndex = anchorIndex + i * 2 - 1;
             if (controlIndex >= 0 && controlIndex < points.size() || isClosed) {
                 // points[LoopIndex (controlIndex)] = anchorPos + dir * neighbourDistances[i] * autoControlLength;
-                points.set(loopIndex (controlIndex), anchorPos.add(dir.mult(neighbourDistances[i]).mult(autoControlLength)));
+                setPoint(loopIndex (controlIndex), anchorPos.add(dir.mult(neighbourDistances[i]).mult(autoControlLength)));
             }
         }
 
@@ -222,13 +375,13 @@ public class BezierPath {
                 Vector3f perp = dirAnchorAToB.cross((space == PathSpace.xy) ? Vector3f.UNIT_Z.clone() : Vector3f.UNIT_Y.clone());
 
                 // points[1] = points[0] + perp * dstBetweenAnchors / 2f;
-                points.set(1, points.get(0).add(perp.mult(dstBetweenAnchors)).divide(2.0f));
+                setPoint(1, points.get(0).add(perp.mult(dstBetweenAnchors)).divide(2.0f));
                 // points[5] = points[0] - perp * dstBetweenAnchors / 2f;
-                points.set(5, points.get(0).subtract(perp.mult(dstBetweenAnchors)).divide(2.0f));
+                setPoint(5, points.get(0).subtract(perp.mult(dstBetweenAnchors)).divide(2.0f));
                 // points[2] = points[3] + perp * dstBetweenAnchors / 2f;
-                points.set(2, points.get(3).add(perp.mult(dstBetweenAnchors)).divide(2.0f));
+                setPoint(2, points.get(3).add(perp.mult(dstBetweenAnchors)).divide(2.0f));
                 // points[4] = points[3] - perp * dstBetweenAnchors / 2f;
-                points.set(4, points.get(3).subtract(perp.mult(dstBetweenAnchors)).divide(2.0f));
+                setPoint(4, points.get(3).subtract(perp.mult(dstBetweenAnchors)).divide(2.0f));
 
             }
             else {
@@ -242,17 +395,17 @@ public class BezierPath {
             if (getNumAnchorPoints() == 2) {
 
                 // points[1] = points[0] + (points[3] - points[0]) * .25f;
-                points.set(1, points.get(0).add(points.get(3).subtract(points.get(0))).mult(0.25f));
+                setPoint(1, points.get(0).add(points.get(3).subtract(points.get(0))).mult(0.25f));
                 // points[2] = points[3] + (points[0] - points[3]) * .25f;
-                points.set(2, points.get(3).add(points.get(0).subtract(points.get(3))).mult(0.25f));
+                setPoint(2, points.get(3).add(points.get(0).subtract(points.get(3))).mult(0.25f));
 
             }
             else {
 
                 // points[1] = (points[0] + points[2]) * .5f;
-                points.set(1, points.get(0).add(points.get(2)).mult(0.5f));
+                setPoint(1, points.get(0).add(points.get(2)).mult(0.5f));
                 // points[points.Count - 2] = (points[points.Count - 1] + points[points.Count - 3]) * .5f;
-                points.set(points.size() - 2, points.get(points.size() - 1).add(points.get(points.size() - 3)).mult(0.5f));
+                setPoint(points.size() - 2, points.get(points.size() - 1).add(points.get(points.size() - 3)).mult(0.5f));
 
             }
 
@@ -312,6 +465,7 @@ public class BezierPath {
             }
         }
 
+        invalidateAllBounds();
         notifyPathModified();
     }
 
@@ -342,6 +496,7 @@ public class BezierPath {
             }
             points.add(lastAnchorSecondControl);
             points.add(firstAnchorSecondControl);
+            invalidateAllBounds();
         }
         else {
 
@@ -350,6 +505,8 @@ public class BezierPath {
             for (int i = start; i < start + 1; i++) {
                 points.remove(i);
             }
+
+            invalidateAllBounds();
         }
 
         if (controlMode == ControlMode.Automatic) {
@@ -383,6 +540,7 @@ public class BezierPath {
         points.add(0, anchorPos);
         points.add(1, controlForNewAnchor);
         points.add(2, secondControlForOldFirstAnchor);
+        invalidateAllBounds();
         perAnchorNormalsAngle.add(0, perAnchorNormalsAngle.get(0));
 
         if (controlMode == ControlMode.Automatic) {
@@ -413,6 +571,7 @@ public class BezierPath {
         points.add(secondControlForOldLastAnchor);
         points.add(controlForNewAnchor);
         points.add(anchorPos);
+        invalidateAllBounds();
         perAnchorNormalsAngle.add(perAnchorNormalsAngle.get(perAnchorNormalsAngle.size() - 1));
 
         if (controlMode == ControlMode.Automatic) {
@@ -422,6 +581,51 @@ public class BezierPath {
         notifyPathModified ();
     }
 
+    /**
+     * Inserts an anchor at time 't' of a segment, splitting it in two. The new control points come from splitting the curve,
+     * so the shape of the path does not change (unless the control mode is automatic, where the controls around the new
+     * anchor are placed automatically like any other anchor). Only the split segment changes, and the normal angle of the
+     * new anchor is interpolated from the anchors either side of it.
+     * @param segmentIndex the segment to split.
+     * @param t            the time along the segment to insert the anchor at, between 0 and 1 (exclusive).
+     * @return the point index of the new anchor.
+     */
+    public int insertAnchor (int segmentIndex, float t) {
+
+        if (segmentIndex < 0 || segmentIndex >= getNumSegments()) {
+            throw new IllegalArgumentException("Segment index " + segmentIndex + " is outside of the " + getNumSegments() + " segments.");
+        }
+
+        if (!(t > 0 && t < 1)) {
+            throw new IllegalArgumentException("An anchor can only be inserted between the ends of a segment, but t is " + t);
+        }
+
+        Vector3f[][] curves = CubicBezierUtility.splitCurve(getPointsInSegment(segmentIndex), t);
+
+        int anchorIndex = segmentIndex * 3 + 3;
+
+        // the first half keeps the start anchor, the second half keeps the end anchor.
+        points.set(anchorIndex - 2, curves[0][1]);
+        points.set(anchorIndex - 1, curves[0][2]);
+        points.add(anchorIndex, curves[1][0]);
+        points.add(anchorIndex + 1, curves[1][1]);
+        points.add(anchorIndex + 2, curves[1][2]);
+        insertSegmentBounds(segmentIndex);
+
+        // interpolate the short way around, so angles either side of +/-180 don't spin the normal through a full turn.
+        float startAngle = perAnchorNormalsAngle.get(segmentIndex);
+        float endAngle = perAnchorNormalsAngle.get((segmentIndex + 1) % perAnchorNormalsAngle.size());
+        perAnchorNormalsAngle.add(segmentIndex + 1, startAngle + UnityMath.deltaAngle(startAngle, endAngle) * t);
+
+        if (controlMode == ControlMode.Automatic) {
+            autoSetAllAffectedControlPoints (anchorIndex);
+        }
+
+        notifyPathModified ();
+
+        return anchorIndex;
+    }
+
     /// Determines good positions (for a smooth path) for the control points affected by a moved/inserted anchor point
     private void autoSetAllAffectedControlPoints (int updatedAnchorIndex) {
         for (int i = updatedAnchorIndex - 3; i <= updatedAnchorIndex + 3; i += 3) {
@@ -447,7 +651,7 @@ public class BezierPath {
         // Don't process control point if control mode is set to automatic
         if (isAnchorPoint || controlMode != ControlMode.Automatic) {
             // points[i] = pointPos;
-            points.set(i, pointPos);
+            setPoint(i, pointPos);
 
             if (controlMode == ControlMode.Automatic) {
                 autoSetAllAffectedControlPoints(i);
@@ -457,10 +661,12 @@ public class BezierPath {
                     if (i + 1 < points.size() || isClosed) {
                         // points[LoopIndex (i + 1)] += deltaMove;
                         points.get(loopIndex (i + 1)).addLocal(deltaMove);
+                        markPointModified(loopIndex (i + 1));
                     }
                     if (i - 1 >= 0 || isClosed) {
                         // points[LoopIndex (i - 1)] += deltaMove;
                         points.get(loopIndex (i - 1)).addLocal(deltaMove);
+                        markPointModified(loopIndex (i - 1));
                     }
                 }
                 // If not in free control mode, then move attached control point to be aligned/mirrored (depending on mode)
@@ -485,7 +691,7 @@ public class BezierPath {
                         // Vector3f dir = (points[loopIndex (anchorIndex)] - pointPos).normalized;
                         Vector3f dir = points.get(loopIndex(anchorIndex)).subtract(pointPos).normalize();
                         // points[loopIndex (attachedControlIndex)] = points[loopIndex (anchorIndex)] + dir * distanceFromAnchor;
-                        points.set(loopIndex(attachedControlIndex), points.get(loopIndex(anchorIndex)).add(dir.mult(distanceFromAnchor)));
+                        setPoint(loopIndex(attachedControlIndex), points.get(loopIndex(anchorIndex)).add(dir.mult(distanceFromAnchor)));
                     }
                 }
             }
@@ -538,6 +744,26 @@ public class BezierPath {
         return perAnchorNormalsAngle.get(anchorIndex) % 360;
     }
 
+    /// The desired normal angle of every anchor point, as set by the user.
+    public List<Float> getAnchorNormalsAngles() {
+        return Collections.unmodifiableList(perAnchorNormalsAngle);
+    }
+
+    /// The length of automatically placed control points, relative to the distance between anchors
+    public float getAutoControlLength() {
+        return autoControlLength;
+    }
+
+    public void setAutoControlLength(float autoControlLength) {
+        if (this.autoControlLength != autoControlLength) {
+            this.autoControlLength = autoControlLength;
+            if (controlMode == ControlMode.Automatic) {
+                autoSetAllControlPoints();
+            }
+            notifyPathModified();
+        }
+    }
+
     /// Number of anchor points making up the path
     public int getNumAnchorPoints() {
         return (isClosed()) ? points.size() / 3 : (points.size() + 2) / 3;
@@ -550,11 +776,53 @@ public class BezierPath {
 
     // Called when the path is modified
     public void notifyPathModified() {
-        boundsUpToDate = false;
 
         if (!modifiedEvents.isEmpty()) {
             CreatorEvent.triggerEvents(modifiedEvents);
         }
     }
 
+    /// A point on the curve found by pickCurve.
+    public static class CurveHit {
+
+        private final int segmentIndex;
+        private final float time;
+        private final Vector3f point;
+        private final float distanceToRay;
+        private final float distanceAlongRay;
+
+        public CurveHit(int segmentIndex, float time, Vector3f point, float distanceToRay, float distanceAlongRay) {
+            this.segmentIndex = segmentIndex;
+            this.time = time;
+            this.point = point;
+            this.distanceToRay = distanceToRay;
+            this.distanceAlongRay = distanceAlongRay;
+        }
+
+        /// The segment the point is on.
+        public int getSegmentIndex() {
+            return segmentIndex;
+        }
+
+        /// The time of the point along its segment.
+        public float getTime() {
+            return time;
+        }
+
+        /// The point on the curve.
+        public Vector3f getPoint() {
+            return point;
+        }
+
+        /// The distance from the point to the ray.
+        public float getDistanceToRay() {
+            return distanceToRay;
+        }
+
+        /// The distance from the ray origin to the point, measured along the ray.
+        public float getDistanceAlongRay() {
+            return distanceAlongRay;
+        }
+    }
+
 }
@@ -0,0 +1,581 @@
+package com.jayfella.pathcreator.objects;
+
+import com.jayfella.pathcreator.utility.MathUtility;
+import com.jayfella.pathcreator.utility.UnityMath;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/// A read-only, compressed copy of a vertex path, for paths that never change once they are loaded, such as rivers, rails and fences.
+/// It has the same sampling and closest point methods as VertexPath, and decodes only the vertices each query touches.
+///
+/// Each vertex takes 16 bytes, against 60 for a full precision vertex path (points, tangents, normals, rotations, times and lengths):
+/// - Positions are quantized to 16 bits per axis, relative to the bounds of the path.
+/// - Tangents and normals are octahedral encoded, with 16 bits for each of the two coordinates.
+/// - Cumulative lengths are stored as 16 bit steps from the previous vertex, with the full length stored every 64 vertices.
+///   Times are the cumulative lengths divided by the length of the path, so they aren't stored at all.
+///
+/// Error bounds, against the vertex path it was compressed from:
+/// - A position is off by at most getMaxPointError(): half a quantization step on each axis, where a step is 1/65535 of the bounds
+///   on that axis, plus the float rounding of the decoded value.
+/// - A tangent or normal is off by less than 0.01 degrees. Directions are stored as unit vectors.
+/// - A cumulative length is off by at most getMaxLengthError(): half of 1/65534 of the longest edge, plus float rounding.
+///   Errors don't accumulate along the path.
+/// Rotations are built from the decoded tangent and normal, so they carry the same error as the directions.
+/// Samples between vertices are also shifted along their edge by the length error. On edges only a few quantization steps long,
+/// where the path turns sharply, that can visibly change the interpolated direction or rotation.
+public class CompactVertexPath {
+
+    // the number of vertices between each full precision cumulative length.
+    private static final int lengthBlockShift = 6;
+    private static final int lengthBlockSize = 1 << lengthBlockShift;
+
+    private static final float maxQuantized = 65535;
+    private static final float maxOctahedral = 32767;
+
+    private final PathSpace space;
+    private final boolean closedLoop;
+    private final Vector3f up;
+    private final Spatial spatial;
+    private final int numPoints;
+    private final float length;
+
+    // position = min + quantized * step
+    private final float minX, minY, minZ;
+    private final float stepX, stepY, stepZ;
+    private final short[] points;
+
+    // two snorm16 octahedral coordinates per vertex
+    private final short[] tangents;
+    private final short[] normals;
+
+    // cumulative length = blockLengths[i / lengthBlockSize] + lengthStep * (the sum of the deltas in the block up to and including i)
+    private final float lengthStep;
+    private final float[] blockLengths;
+    private final short[] lengthDeltas;
+
+    private final int[] anchorVertexMap;
+
+    /// Compresses a vertex path. The compressed path keeps the spatial of the vertex path, and shares nothing else with it.
+    public CompactVertexPath(VertexPath vertexPath) {
+
+        this.space = vertexPath.getSpace();
+        this.closedLoop = vertexPath.isClosedLoop();
+        this.up = vertexPath.getUp().clone();
+        this.spatial = vertexPath.spatial;
+        this.numPoints = vertexPath.getNumPoints();
+        this.length = vertexPath.getLength();
+
+        if (numPoints < 2) {
+            throw new IllegalArgumentException("A vertex path needs at least two points to be compressed.");
+        }
+
+        FloatBuffer sourcePoints = vertexPath.getLocalPoints();
+        FloatBuffer sourceTangents = vertexPath.getLocalTangents();
+        FloatBuffer sourceNormals = vertexPath.getLocalNormals();
+        FloatBuffer sourceLengths = vertexPath.getCumulativeLengths();
+
+        // positions
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+
+        for (int i = 0; i < numPoints * 3; i++) {
+            min[i % 3] = Math.min(min[i % 3], sourcePoints.get(i));
+            max[i % 3] = Math.max(max[i % 3], sourcePoints.get(i));
+        }
+
+        float[] step = new float[3];
+
+        for (int axis = 0; axis < 3; axis++) {
+            step[axis] = (max[axis] - min[axis]) / maxQuantized;
+        }
+
+        this.minX = min[0];
+        this.minY = min[1];
+        this.minZ = min[2];
+        this.stepX = step[0];
+        this.stepY = step[1];
+        this.stepZ = step[2];
+
+        this.points = new short[numPoints * 3];
+
+        for (int i = 0; i < numPoints * 3; i++) {
+            int axis = i % 3;
+            float quantized = (step[axis] == 0) ? 0 : (sourcePoints.get(i) - min[axis]) / step[axis];
+            points[i] = (short) Math.round(FastMath.clamp(quantized, 0, maxQuantized));
+        }
+
+        // directions
+        this.tangents = new short[numPoints * 2];
+        this.normals = new short[numPoints * 2];
+
+        for (int i = 0; i < numPoints; i++) {
+            encodeOctahedral(sourceTangents.get(i * 3), sourceTangents.get(i * 3 + 1), sourceTangents.get(i * 3 + 2), tangents, i * 2);
+            encodeOctahedral(sourceNormals.get(i * 3), sourceNormals.get(i * 3 + 1), sourceNormals.get(i * 3 + 2), normals, i * 2);
+        }
+
+        // lengths
+        float longestEdge = 0;
+
+        for (int i = 1; i < numPoints; i++) {
+            longestEdge = Math.max(longestEdge, sourceLengths.get(i) - sourceLengths.get(i - 1));
+        }
+
+        // one step less than the full range, so an edge plus the rounding of both of its ends always fits.
+        this.lengthStep = longestEdge / (maxQuantized - 1);
+        this.blockLengths = new float[(numPoints + lengthBlockSize - 1) >> lengthBlockShift];
+        this.lengthDeltas = new short[numPoints];
+
+        long previousSteps = 0;
+
+        for (int i = 0; i < numPoints; i++) {
+
+            float cumulativeLength = sourceLengths.get(i);
+
+            if ((i & (lengthBlockSize - 1)) == 0) {
+                blockLengths[i >> lengthBlockShift] = cumulativeLength;
+                lengthDeltas[i] = 0;
+                previousSteps = 0;
+                continue;
+            }
+
+            // quantize the length from the start of the block rather than the edge, so rounding errors don't add up along the block.
+            float fromBlockStart = cumulativeLength - blockLengths[i >> lengthBlockShift];
+            long steps = (lengthStep == 0) ? 0 : Math.round(fromBlockStart / lengthStep);
+            lengthDeltas[i] = (short) Math.max(0, Math.min((long) maxQuantized, steps - previousSteps));
+            previousSteps += lengthDeltas[i] & 0xFFFF;
+        }
+
+        IntBuffer sourceAnchors = vertexPath.getAnchorVertexMap();
+        this.anchorVertexMap = new int[sourceAnchors.limit()];
+
+        for (int i = 0; i < anchorVertexMap.length; i++) {
+            anchorVertexMap[i] = sourceAnchors.get(i);
+        }
+    }
+
+    public boolean isClosedLoop() {
+        return closedLoop;
+    }
+
+    public PathSpace getSpace() {
+        return space;
+    }
+
+    public Vector3f getUp() {
+        return up;
+    }
+
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    /// Total distance between the vertices of the polyline
+    public float getLength() {
+        return length;
+    }
+
+    /// The bounds of the vertices, in local space.
+    public BoundingBox getBounds() {
+        return new BoundingBox(new Vector3f(minX, minY, minZ),
+                new Vector3f(minX + stepX * maxQuantized, minY + stepY * maxQuantized, minZ + stepZ * maxQuantized));
+    }
+
+    /// The furthest any decoded point can be from the point it was compressed from.
+    public float getMaxPointError() {
+        float errorX = getMaxAxisError(minX, stepX);
+        float errorY = getMaxAxisError(minY, stepY);
+        float errorZ = getMaxAxisError(minZ, stepZ);
+        return (float) Math.sqrt(errorX * errorX + errorY * errorY + errorZ * errorZ);
+    }
+
+    /// The furthest any decoded cumulative length can be from the length it was compressed from.
+    public float getMaxLengthError() {
+        return 0.5f * lengthStep + Math.ulp(length);
+    }
+
+    /// Half a quantization step, plus the rounding of min + quantized * step at the largest value on the axis.
+    private static float getMaxAxisError(float min, float step) {
+        float largest = Math.max(Math.abs(min), Math.abs(min + step * maxQuantized));
+        return 0.5f * step + Math.ulp(largest);
+    }
+
+    /// The index of the vertex at each anchor point of the bezier path. The returned array is not a copy.
+    public int[] getAnchorVertexMap() {
+        return anchorVertexMap;
+    }
+
+    /// The approximate number of bytes the compressed data takes.
+    public long getMemorySize() {
+        return points.length * 2L + tangents.length * 2L + normals.length * 2L + lengthDeltas.length * 2L
+                + blockLengths.length * 4L + anchorVertexMap.length * 4L;
+    }
+
+    public Vector3f getPoint(int index) {
+        return transformPoint(getLocalPoint(index, new Vector3f()));
+    }
+
+    public Vector3f getTangent(int index) {
+        return transformDirection(decodeOctahedral(tangents, index * 2, new Vector3f()));
+    }
+
+    public Vector3f getNormal(int index) {
+        return transformDirection(decodeOctahedral(normals, index * 2, new Vector3f()));
+    }
+
+    /// Gets the rotation at the vertex: an object with this rotation faces along the path, with its local up along the normal.
+    public Quaternion getRotation(int index) {
+        return transformRotation(getLocalRotation(index));
+    }
+
+    /// The time (0 at the start of the path, 1 at the end) of the vertex.
+    public float getTime(int index) {
+        return getCumulativeLength(index) / length;
+    }
+
+    /// The distance from the first vertex to the vertex, along the polyline.
+    public float getCumulativeLength(int index) {
+
+        int blockStart = index & ~(lengthBlockSize - 1);
+        int steps = 0;
+
+        for (int i = blockStart + 1; i <= index; i++) {
+            steps += lengthDeltas[i] & 0xFFFF;
+        }
+
+        return blockLengths[index >> lengthBlockShift] + steps * lengthStep;
+    }
+
+    /// Decompresses the path into a full precision vertex path, with the same spatial.
+    public VertexPath toVertexPath() {
+
+        float[] decodedPoints = new float[numPoints * 3];
+        float[] decodedTangents = new float[numPoints * 3];
+        float[] decodedNormals = new float[numPoints * 3];
+        float[] decodedTimes = new float[numPoints];
+        float[] decodedLengths = new float[numPoints];
+
+        Vector3f store = new Vector3f();
+
+        for (int i = 0; i < numPoints; i++) {
+            getLocalPoint(i, store);
+            decodedPoints[i * 3] = store.x;
+            decodedPoints[i * 3 + 1] = store.y;
+            decodedPoints[i * 3 + 2] = store.z;
+
+            decodeOctahedral(tangents, i * 2, store);
+            decodedTangents[i * 3] = store.x;
+            decodedTangents[i * 3 + 1] = store.y;
+            decodedTangents[i * 3 + 2] = store.z;
+
+            decodeOctahedral(normals, i * 2, store);
+            decodedNormals[i * 3] = store.x;
+            decodedNormals[i * 3 + 1] = store.y;
+            decodedNormals[i * 3 + 2] = store.z;
+
+            decodedLengths[i] = getCumulativeLength(i);
+            decodedTimes[i] = decodedLengths[i] / length;
+        }
+
+        return new VertexPath(space, closedLoop,
+                FloatBuffer.wrap(decodedPoints), FloatBuffer.wrap(decodedTangents), FloatBuffer.wrap(decodedNormals),
+                FloatBuffer.wrap(decodedTimes), FloatBuffer.wrap(decodedLengths), IntBuffer.wrap(anchorVertexMap.clone()),
+                getBounds(), up.clone(), spatial);
+    }
+
+    /// Gets point on path based on distance travelled.
+    public Vector3f GetPointAtDistance (float dst, EndOfPathInstruction endOfPathInstruction) {
+        return GetPointAtTime(dst / length, endOfPathInstruction);
+    }
+
+    /// Gets forward direction on path based on distance travelled.
+    public Vector3f GetDirectionAtDistance (float dst, EndOfPathInstruction endOfPathInstruction) {
+        return GetDirection(dst / length, endOfPathInstruction);
+    }
+
+    /// Gets normal vector on path based on distance travelled.
+    public Vector3f GetNormalAtDistance (float dst, EndOfPathInstruction endOfPathInstruction) {
+        return GetNormal(dst / length, endOfPathInstruction);
+    }
+
+    /// Gets a rotation that will orient an object in the direction of the path at this point, with local up point along the path's normal
+    public Quaternion GetRotationAtDistance (float dst, EndOfPathInstruction endOfPathInstruction) {
+        return GetRotation(dst / length, endOfPathInstruction);
+    }
+
+    /// Gets point on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetPointAtTime (float t, EndOfPathInstruction endOfPathInstruction) {
+        VertexPath.TimeOnPathData data = CalculatePercentOnPathData(t, endOfPathInstruction);
+        Vector3f point = getLocalPoint(data.getPreviousIndex(), new Vector3f())
+                .interpolateLocal(getLocalPoint(data.getNextIndex(), new Vector3f()), data.getPercentBetweenIndices());
+        return transformPoint(point);
+    }
+
+    /// Gets forward direction on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetDirection (float t, EndOfPathInstruction endOfPathInstruction) {
+        VertexPath.TimeOnPathData data = CalculatePercentOnPathData(t, endOfPathInstruction);
+        return transformDirection(interpolateDirection(tangents, data));
+    }
+
+    /// Gets normal vector on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetNormal (float t, EndOfPathInstruction endOfPathInstruction) {
+        VertexPath.TimeOnPathData data = CalculatePercentOnPathData(t, endOfPathInstruction);
+        return transformDirection(interpolateDirection(normals, data));
+    }
+
+    /// Gets a rotation that will orient an object in the direction of the path at this point, with local up point along the path's normal
+    public Quaternion GetRotation (float t, EndOfPathInstruction endOfPathInstruction) {
+        VertexPath.TimeOnPathData data = CalculatePercentOnPathData(t, endOfPathInstruction);
+
+        // normalized lerp between the rotations at the two vertices, the same as VertexPath, so the two agree even where the path turns sharply.
+        Quaternion rotation = getLocalRotation(data.getPreviousIndex());
+        rotation.nlerp(getLocalRotation(data.getNextIndex()), data.getPercentBetweenIndices());
+        return transformRotation(rotation);
+    }
+
+    /// Finds the closest point on the path from any point in the world
+    public Vector3f GetClosestPointOnPath (Vector3f worldPoint) {
+        VertexPath.TimeOnPathData data = CalculateClosestPointOnPathData(worldPoint);
+        return new Vector3f().interpolateLocal(getPoint(data.getPreviousIndex()), getPoint(data.getNextIndex()), data.getPercentBetweenIndices());
+    }
+
+    /// Finds the 'time' (0=start of path, 1=end of path) along the path that is closest to the given point
+    public float GetClosestTimeOnPath (Vector3f worldPoint) {
+        VertexPath.TimeOnPathData data = CalculateClosestPointOnPathData(worldPoint);
+        return FastMath.interpolateLinear(data.getPercentBetweenIndices(), getTime(data.getPreviousIndex()), getTime(data.getNextIndex()));
+    }
+
+    /// Finds the distance along the path that is closest to the given point
+    public float GetClosestDistanceAlongPath (Vector3f worldPoint) {
+        VertexPath.TimeOnPathData data = CalculateClosestPointOnPathData(worldPoint);
+        return FastMath.interpolateLinear(data.getPercentBetweenIndices(),
+                getCumulativeLength(data.getPreviousIndex()), getCumulativeLength(data.getNextIndex()));
+    }
+
+    /// For a given value 't' between 0 and 1, calculate the indices of the two vertices before and after t,
+    /// and how far t is between them. The block of 64 vertices holding t is found by a binary search of the block lengths,
+    /// then the lengths within the block are decoded one after the other until t is passed.
+    private VertexPath.TimeOnPathData CalculatePercentOnPathData (float t, EndOfPathInstruction endOfPathInstruction) {
+
+        switch (endOfPathInstruction) {
+            case Loop:
+                if (t < 0) {
+                    t += (int) Math.ceil(Math.abs(t));
+                }
+                t %= 1;
+                break;
+            case Reverse:
+                t = UnityMath.pingPong(t, 1);
+                break;
+            case Stop:
+                t = FastMath.clamp(t, 0, 1);
+                break;
+        }
+
+        float dst = t * length;
+
+        // the last block that starts at or before the distance
+        int low = 0, high = blockLengths.length - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (blockLengths[mid] <= dst) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        int prevIndex = low << lengthBlockShift;
+        float prevLength = blockLengths[low];
+
+        if (prevIndex >= numPoints - 1) {
+            prevIndex = numPoints - 2;
+            prevLength = getCumulativeLength(prevIndex);
+        }
+
+        int nextIndex = prevIndex + 1;
+        float nextLength = getNextCumulativeLength(nextIndex, prevLength);
+
+        // walk forward until the next vertex is at or past the distance, decoding one delta per vertex.
+        while (nextLength < dst && nextIndex < numPoints - 1) {
+
+            prevIndex = nextIndex;
+            prevLength = nextLength;
+            nextIndex++;
+            nextLength = getNextCumulativeLength(nextIndex, nextLength);
+        }
+
+        float abPercent = UnityMath.inverseLerp(prevLength, nextLength, dst);
+
+        return new VertexPath.TimeOnPathData(prevIndex, nextIndex, abPercent);
+    }
+
+    /// Calculate time data for closest point on the path from given world point
+    private VertexPath.TimeOnPathData CalculateClosestPointOnPathData (Vector3f worldPoint) {
+
+        // search in local space, so each vertex is only decoded and not transformed.
+        Vector3f localPoint = inverseTransformPoint(worldPoint);
+
+        float minSqrDst = Float.MAX_VALUE;
+        int closestIndexA = 0;
+        int closestIndexB = 0;
+        float closestPercent = 0;
+
+        Vector3f a = getLocalPoint(0, new Vector3f());
+        Vector3f b = new Vector3f();
+        int numEdges = (closedLoop) ? numPoints : numPoints - 1;
+
+        for (int i = 0; i < numEdges; i++) {
+
+            int nextI = (i + 1) % numPoints;
+            getLocalPoint(nextI, b);
+
+            float abX = b.x - a.x, abY = b.y - a.y, abZ = b.z - a.z;
+            float sqrLength = abX * abX + abY * abY + abZ * abZ;
+            float percent = (sqrLength == 0) ? 0
+                    : FastMath.clamp(((localPoint.x - a.x) * abX + (localPoint.y - a.y) * abY + (localPoint.z - a.z) * abZ) / sqrLength, 0, 1);
+
+            float dX = a.x + abX * percent - localPoint.x;
+            float dY = a.y + abY * percent - localPoint.y;
+            float dZ = a.z + abZ * percent - localPoint.z;
+            float sqrDst = dX * dX + dY * dY + dZ * dZ;
+
+            if (sqrDst < minSqrDst) {
+                minSqrDst = sqrDst;
+                closestIndexA = i;
+                closestIndexB = nextI;
+                closestPercent = percent;
+            }
+
+            Vector3f swap = a;
+            a = b;
+            b = swap;
+        }
+
+        return new VertexPath.TimeOnPathData(closestIndexA, closestIndexB, closestPercent);
+    }
+
+    /// The cumulative length of a vertex, given the cumulative length of the vertex before it.
+    private float getNextCumulativeLength(int index, float previousLength) {
+        return ((index & (lengthBlockSize - 1)) == 0)
+                ? blockLengths[index >> lengthBlockShift]
+                : previousLength + (lengthDeltas[index] & 0xFFFF) * lengthStep;
+    }
+
+    private Quaternion getLocalRotation(int index) {
+        return new Quaternion().lookAt(
+                decodeOctahedral(tangents, index * 2, new Vector3f()),
+                decodeOctahedral(normals, index * 2, new Vector3f()));
+    }
+
+    private Vector3f getLocalPoint(int index, Vector3f store) {
+        int offset = index * 3;
+        return store.set(
+                minX + (points[offset] & 0xFFFF) * stepX,
+                minY + (points[offset + 1] & 0xFFFF) * stepY,
+                minZ + (points[offset + 2] & 0xFFFF) * stepZ);
+    }
+
+    private static Vector3f interpolateDirection(short[] directions, VertexPath.TimeOnPathData data) {
+        Vector3f next = decodeOctahedral(directions, data.getNextIndex() * 2, new Vector3f());
+        return decodeOctahedral(directions, data.getPreviousIndex() * 2, new Vector3f())
+                .interpolateLocal(next, data.getPercentBetweenIndices());
+    }
+
+    /// Stores a direction as two snorm16 coordinates of the octahedral map: the direction is projected onto the octahedron
+    /// |x| + |y| + |z| = 1, and the lower half of the octahedron is folded over the upper half onto the square of x and y.
+    /// Of the four nearest quantized coordinates, the one that decodes closest to the direction is kept.
+    private static void encodeOctahedral(float x, float y, float z, short[] store, int offset) {
+
+        float sum = Math.abs(x) + Math.abs(y) + Math.abs(z);
+
+        if (sum == 0) {
+            store[offset] = 0;
+            store[offset + 1] = (short) maxOctahedral;
+            return;
+        }
+
+        float u = x / sum;
+        float v = y / sum;
+
+        if (z < 0) {
+            float foldedU = (1 - Math.abs(v)) * signNotZero(u);
+            float foldedV = (1 - Math.abs(u)) * signNotZero(v);
+            u = foldedU;
+            v = foldedV;
+        }
+
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        float bestDot = -Float.MAX_VALUE;
+
+        Vector3f decoded = new Vector3f();
+        short[] candidate = new short[2];
+
+        for (int i = 0; i < 4; i++) {
+
+            float scaledU = u * maxOctahedral;
+            float scaledV = v * maxOctahedral;
+
+            candidate[0] = (short) FastMath.clamp(((i & 1) == 0) ? (float) Math.floor(scaledU) : (float) Math.ceil(scaledU), -maxOctahedral, maxOctahedral);
+            candidate[1] = (short) FastMath.clamp(((i & 2) == 0) ? (float) Math.floor(scaledV) : (float) Math.ceil(scaledV), -maxOctahedral, maxOctahedral);
+
+            decodeOctahedral(candidate, 0, decoded);
+            float dot = (decoded.x * x + decoded.y * y + decoded.z * z) / length;
+
+            if (dot > bestDot) {
+                bestDot = dot;
+                store[offset] = candidate[0];
+                store[offset + 1] = candidate[1];
+            }
+        }
+    }
+
+    /// Decodes a unit direction stored by encodeOctahedral.
+    private static Vector3f decodeOctahedral(short[] directions, int offset, Vector3f store) {
+
+        float x = directions[offset] / maxOctahedral;
+        float y = directions[offset + 1] / maxOctahedral;
+        float z = 1 - Math.abs(x) - Math.abs(y);
+
+        // unfold the lower half of the octahedron
+        if (z < 0) {
+            float foldedX = (1 - Math.abs(y)) * signNotZero(x);
+            float foldedY = (1 - Math.abs(x)) * signNotZero(y);
+            x = foldedX;
+            y = foldedY;
+        }
+
+        return store.set(x, y, z).normalizeLocal();
+    }
+
+    /// The sign of a value, treating zero as positive so that directions on the fold of the octahedron survive the round trip.
+    private static float signNotZero(float value) {
+        return (value >= 0) ? 1 : -1;
+    }
+
+    // A path without a spatial is treated as being in world space, the same as VertexPath.
+    private Vector3f transformPoint(Vector3f p) {
+        return (spatial == null) ? p : MathUtility.TransformPoint(p, spatial, space);
+    }
+
+    private Vector3f inverseTransformPoint(Vector3f p) {
+        return (spatial == null) ? p : p.subtract(spatial.getLocalTranslation()).divideLocal(spatial.getLocalScale());
+    }
+
+    private Vector3f transformDirection(Vector3f p) {
+        return (spatial == null) ? p : MathUtility.TransformDirection(p, spatial, space);
+    }
+
+    private Quaternion transformRotation(Quaternion rotation) {
+        return (spatial == null) ? rotation : spatial.getWorldRotation().mult(rotation, rotation);
+    }
+
+}
@@ -32,4 +32,11 @@ public class MinMax3D {
         max.set(Math.max(max.x, v.x), Math.max(max.y, v.y), Math.max(max.z, v.z));
     }
 
+    /// Grows these bounds to also contain the values added to 'other'.
+    public void addValues(MinMax3D other)
+    {
+        addValue(other.min);
+        addValue(other.max);
+    }
+
 }
@@ -0,0 +1,364 @@
+package com.jayfella.pathcreator.objects;
+
+import com.jayfella.pathcreator.event.CreatorEvent;
+import com.jayfella.pathcreator.io.TessellationCache;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import java.util.function.Consumer;
+
+public class PathCreatorData {
+
+    private CreatorEvent bezierPathEdited;
+
+    private CreatorEvent bezierOrVertexPathModified;
+    private CreatorEvent bezierCreated;
+    private Consumer<VertexPath> vertexPathReplaced;
+
+    private boolean vertexPathUpToDate = false;
+
+    // vertex path settings
+    public TessellationMode vertexPathMode = TessellationMode.AngleError;
+    public float vertexPathMaxAngleError = .3f;
+    public float vertexPathMinVertexSpacing = 0.01f;
+    public float vertexPathMaxDeviation = 0.01f;
+    public int vertexPathVertexBudget = 256;
+    // where the vertex data of new vertex paths is kept. A replaced vertex path is released (freeing its direct memory straight away),
+    // unless a replacement handler has been set, which then owns it.
+    public VertexPathStorage vertexPathStorage = VertexPathStorage.Heap;
+
+    // interactive preview settings
+    public float previewMaxDeviation = 0.05f;
+    public float previewFrameTimeTarget = 4;
+
+    // while previewing, the deviation is coarsened (from previewMaxDeviation) until a build fits the frame time target.
+    private static final float maxPreviewDeviationScale = 64;
+    private boolean previewMode;
+    private float previewDeviation;
+    private final VertexPathUtility.SegmentCache previewSegmentCache = new VertexPathUtility.SegmentCache();
+
+    private BezierPath bezierPath;
+    private VertexPath vertexPath;
+
+    // optional disk cache of baked vertex paths.
+    private TessellationCache tessellationCache;
+
+    public PathCreatorData(boolean defaultIs2D) {
+
+        bezierPathEdited = this::bezierPathEdited;
+
+        createBezier (new Vector3f(), defaultIs2D);
+        vertexPathUpToDate = false;
+
+        bezierPath.addModifiedEvent(bezierPathEdited);
+    }
+
+    private void createBezier(Vector3f center) {
+        createBezier(center, false);
+    }
+
+    private void createBezier(Vector3f center, boolean defaultIs2D) {
+
+        if (bezierPath != null) {
+            // bezierPath.OnModified -= BezierPathEdited;
+            bezierPath.removeModifiedEvent(bezierPathEdited);
+        }
+
+        PathSpace space = (defaultIs2D) ? PathSpace.xy : PathSpace.xyz;
+        bezierPath = new BezierPath (center, false, space);
+
+        // bezierPath.OnModified += BezierPathEdited;
+        bezierPath.addModifiedEvent(bezierPathEdited);
+        vertexPathUpToDate = false;
+
+        if (bezierOrVertexPathModified != null) {
+            bezierOrVertexPathModified.eventTriggered();
+        }
+        if (bezierCreated != null) {
+            bezierCreated.eventTriggered();
+        }
+
+    }
+
+    public void setBezierOrVertexPathModified(CreatorEvent event) {
+        this.bezierOrVertexPathModified = event;
+    }
+
+    public BezierPath getBezierPath() {
+        return bezierPath;
+    }
+
+    /**
+     * Sets a handler that is given each vertex path when it is replaced by a rebuild, for consumers that keep using a path
+     * (for example by sharing its direct buffers with a mesh) after it is out of date. The handler owns the paths it is given
+     * and is responsible for releasing them. Without a handler, replaced paths are released as soon as they are replaced.
+     * @param vertexPathReplaced the handler, or null to release replaced paths.
+     */
+    public void setVertexPathReplaced(Consumer<VertexPath> vertexPathReplaced) {
+        this.vertexPathReplaced = vertexPathReplaced;
+    }
+
+    // get the current vertex path
+    public VertexPath getVertexPath(Spatial spatial) {
+
+        if (!vertexPathUpToDate || vertexPath == null) {
+
+            vertexPathUpToDate = true;
+
+            VertexPath previous = vertexPath;
+
+            if (previewMode) {
+                vertexPath = createPreviewVertexPath(spatial);
+            }
+            else if (tessellationCache != null) {
+
+                byte[] contentKey = getContentKey();
+                vertexPath = tessellationCache.load(contentKey, spatial, vertexPathStorage);
+
+                if (vertexPath == null) {
+                    vertexPath = createVertexPath(spatial);
+                    tessellationCache.store(contentKey, bezierPath, vertexPath);
+                }
+            }
+            else {
+                vertexPath = createVertexPath(spatial);
+            }
+
+            if (previous != null) {
+                replaced(previous);
+            }
+        }
+
+        return vertexPath;
+    }
+
+    /// Hands a replaced vertex path to the replacement handler, or releases it if there is none.
+    /// Paths loaded from the cache are views that don't own their memory, so releasing them only marks them released.
+    private void replaced(VertexPath previous) {
+        if (vertexPathReplaced != null) {
+            vertexPathReplaced.accept(previous);
+        }
+        else {
+            previous.release();
+        }
+    }
+
+    private VertexPath createVertexPath(Spatial spatial) {
+
+        switch (vertexPathMode) {
+
+            case MaxDeviation:
+                return new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, vertexPathMaxDeviation),
+                        spatial, vertexPathStorage);
+
+            case VertexBudget:
+                return new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByVertexBudget(bezierPath, getEffectiveVertexBudget()),
+                        spatial, vertexPathStorage);
+
+            case AngleError:
+            default:
+                return new VertexPath(bezierPath,
+                        VertexPathUtility.SplitBezierPathByAngleError(bezierPath, vertexPathMaxAngleError, vertexPathMinVertexSpacing, VertexPath.accuracy),
+                        spatial, vertexPathStorage);
+        }
+    }
+
+    /// Builds a reduced accuracy vertex path, only splitting the segments that changed since the last preview.
+    /// The preview deviation is doubled whenever a build takes longer than the frame time target, and halved (down to
+    /// previewMaxDeviation) when a build takes less than a quarter of it.
+    private VertexPath createPreviewVertexPath(Spatial spatial) {
+
+        long buildStart = System.nanoTime();
+
+        VertexPath previewPath = new VertexPath(bezierPath,
+                VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, previewDeviation, previewSegmentCache), spatial);
+
+        float buildMillis = (System.nanoTime() - buildStart) / 1_000_000f;
+
+        if (buildMillis > previewFrameTimeTarget) {
+            previewDeviation = Math.min(previewDeviation * 2, previewMaxDeviation * maxPreviewDeviationScale);
+        }
+        else if (buildMillis < previewFrameTimeTarget * 0.25f) {
+            previewDeviation = Math.max(previewDeviation * 0.5f, previewMaxDeviation);
+        }
+
+        return previewPath;
+    }
+
+    public boolean isPreviewMode() {
+        return previewMode;
+    }
+
+    /**
+     * Turns the interactive preview on or off, for example while a handle is being dragged.
+     * While previewing, vertex paths are built with max deviation splitting at the preview accuracy, only re-splitting the
+     * segments that changed, and are never stored in the tessellation cache. Expensive consumers such as road meshes skip
+     * their updates. Turning the preview off notifies the path as modified, so everything is rebuilt once at full quality.
+     * @param previewMode whether to preview.
+     */
+    public void setPreviewMode(boolean previewMode) {
+
+        if (this.previewMode == previewMode) {
+            return;
+        }
+
+        this.previewMode = previewMode;
+
+        if (previewMode) {
+            previewDeviation = previewMaxDeviation;
+        }
+        else {
+            previewSegmentCache.clear();
+            bezierPath.notifyPathModified();
+        }
+    }
+
+    public float getPreviewMaxDeviation() {
+        return previewMaxDeviation;
+    }
+
+    /// The finest deviation the preview tessellates with.
+    public void setPreviewMaxDeviation(float previewMaxDeviation) {
+        this.previewMaxDeviation = previewMaxDeviation;
+        this.previewDeviation = previewMaxDeviation;
+    }
+
+    public float getPreviewFrameTimeTarget() {
+        return previewFrameTimeTarget;
+    }
+
+    /// How long (in milliseconds) a preview build may take before the preview accuracy is reduced.
+    public void setPreviewFrameTimeTarget(float previewFrameTimeTarget) {
+        this.previewFrameTimeTarget = previewFrameTimeTarget;
+    }
+
+    /**
+     * Returns a stable hash of the bezier path and the vertex path settings.
+     * Two paths with the same hash produce the same vertex path. The mode always comes first, so settings from
+     * different modes that happen to have the same values never share a hash.
+     * @return the content hash of this path.
+     */
+    public long getContentHash() {
+        return TessellationCache.hash(getContentKey());
+    }
+
+    /// The content key of the bezier path and the vertex path settings, which the tessellation cache checks entries against.
+    private byte[] getContentKey() {
+        switch (vertexPathMode) {
+
+            case MaxDeviation:
+                return TessellationCache.computeContentKey(bezierPath, vertexPathMode.ordinal(), vertexPathMaxDeviation);
+
+            case VertexBudget:
+                return TessellationCache.computeContentKey(bezierPath, vertexPathMode.ordinal(), getEffectiveVertexBudget());
+
+            case AngleError:
+            default:
+                return TessellationCache.computeContentKey(bezierPath, TessellationMode.AngleError.ordinal(),
+                        vertexPathMaxAngleError, vertexPathMinVertexSpacing);
+        }
+    }
+
+    public TessellationCache getTessellationCache() {
+        return tessellationCache;
+    }
+
+    /**
+     * Sets a disk cache that vertex paths are loaded from and stored in, or null to always tessellate.
+     * @param tessellationCache the cache to use, or null.
+     */
+    public void setTessellationCache(TessellationCache tessellationCache) {
+        this.tessellationCache = tessellationCache;
+    }
+
+    public void setBezierPath(BezierPath bezierPath) {
+
+        if (this.bezierPath != null) {
+            this.bezierPath.removeModifiedEvent(bezierPathEdited);
+            this.vertexPathUpToDate = false;
+            this.bezierPath = bezierPath;
+            this.bezierPath.addModifiedEvent(bezierPathEdited);
+        }
+
+    }
+
+    private void bezierPathEdited () {
+        vertexPathUpToDate = false;
+        if (bezierOrVertexPathModified != null) {
+            bezierOrVertexPathModified.eventTriggered();
+        }
+    }
+
+    public VertexPathStorage getVertexPathStorage() {
+        return vertexPathStorage;
+    }
+
+    public void setVertexPathStorage(VertexPathStorage vertexPathStorage) {
+        if (this.vertexPathStorage != vertexPathStorage) {
+            this.vertexPathStorage = vertexPathStorage;
+            bezierPathEdited();
+        }
+    }
+
+    public TessellationMode getVertexPathMode() {
+        return vertexPathMode;
+    }
+
+    public void setVertexPathMode(TessellationMode vertexPathMode) {
+        if (this.vertexPathMode != vertexPathMode) {
+            this.vertexPathMode = vertexPathMode;
+            bezierPathEdited();
+        }
+    }
+
+    public float getVertexPathMaxDeviation() {
+        return vertexPathMaxDeviation;
+    }
+
+    public void setVertexPathMaxDeviation(float vertexPathMaxDeviation) {
+        if (this.vertexPathMaxDeviation != vertexPathMaxDeviation) {
+            this.vertexPathMaxDeviation = vertexPathMaxDeviation;
+            bezierPathEdited();
+        }
+    }
+
+    public int getVertexPathVertexBudget() {
+        return vertexPathVertexBudget;
+    }
+
+    public void setVertexPathVertexBudget(int vertexPathVertexBudget) {
+        if (this.vertexPathVertexBudget != vertexPathVertexBudget) {
+            this.vertexPathVertexBudget = vertexPathVertexBudget;
+            bezierPathEdited();
+        }
+    }
+
+    /// The vertex budget actually used. Every anchor needs a vertex, so a budget that is too small for the path is raised to the minimum.
+    private int getEffectiveVertexBudget() {
+        return Math.max(vertexPathVertexBudget, bezierPath.getNumSegments() + 1);
+    }
+
+    public float getVertexPathMaxAngleError() {
+        return vertexPathMaxAngleError;
+    }
+
+    public void setVertexPathMaxAngleError(float vertexPathMaxAngleError) {
+        if (this.vertexPathMaxAngleError != vertexPathMaxAngleError) {
+            this.vertexPathMaxAngleError = vertexPathMaxAngleError;
+            bezierPathEdited();
+        }
+    }
+
+    public float getVertexPathMinVertexSpacing() {
+        return vertexPathMinVertexSpacing;
+    }
+
+    public void setVertexPathMinVertexSpacing(float vertexPathMinVertexSpacing) {
+        if (this.vertexPathMinVertexSpacing != vertexPathMinVertexSpacing) {
+            this.vertexPathMinVertexSpacing = vertexPathMinVertexSpacing;
+            bezierPathEdited();
+        }
+    }
+}
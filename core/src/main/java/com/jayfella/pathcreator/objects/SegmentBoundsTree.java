@@ -0,0 +1,388 @@
+package com.jayfella.pathcreator.objects;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Plane;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+import java.util.List;
+
+/// A balanced tree of axis aligned bounding boxes over the segments of a path.
+/// Each leaf holds the bounds of one segment and each node holds the union of its two children, so changing the bounds
+/// of a segment only updates the nodes above it, and the bounds of the whole path (the root) or any range of segments
+/// are found in O(log n). Ray and frustum queries skip every subtree whose bounds they miss.
+///
+/// The tree is stored implicitly in a flat array: node 1 is the root, the children of node i are 2i and 2i + 1,
+/// and the leaves start at the first power of two that holds every segment. Unused leaves hold empty bounds.
+public class SegmentBoundsTree {
+
+    // bounds are stored as 6 floats per node: minX, minY, minZ, maxX, maxY, maxZ
+    private static final int stride = 6;
+
+    private final int numSegments;
+    private final int firstLeaf;
+    private final float[] bounds;
+
+    /// Creates a tree for 'numSegments' segments, all with empty bounds.
+    public SegmentBoundsTree(int numSegments) {
+
+        if (numSegments < 1) {
+            throw new IllegalArgumentException("A bounds tree needs at least one segment.");
+        }
+
+        this.numSegments = numSegments;
+
+        int leaves = 1;
+
+        while (leaves < numSegments) {
+            leaves <<= 1;
+        }
+
+        this.firstLeaf = leaves;
+        this.bounds = new float[leaves * 2 * stride];
+
+        for (int node = 1; node < leaves * 2; node++) {
+            setEmpty(node);
+        }
+    }
+
+    public int getNumSegments() {
+        return numSegments;
+    }
+
+    /// Sets the bounds of a segment and updates every node above it.
+    public void setSegmentBounds(int segmentIndex, Vector3f min, Vector3f max) {
+
+        checkSegmentIndex(segmentIndex);
+
+        int node = firstLeaf + segmentIndex;
+        int offset = node * stride;
+
+        bounds[offset] = min.x;
+        bounds[offset + 1] = min.y;
+        bounds[offset + 2] = min.z;
+        bounds[offset + 3] = max.x;
+        bounds[offset + 4] = max.y;
+        bounds[offset + 5] = max.z;
+
+        for (node >>= 1; node >= 1; node >>= 1) {
+            setUnion(node, node * 2, node * 2 + 1);
+        }
+    }
+
+    /// Returns a tree with an empty segment inserted at 'segmentIndex', and the segments from there on moved up by one.
+    /// The bounds of every other segment are kept, so only the inserted segment (and any that changed) need to be set again.
+    public SegmentBoundsTree insertSegment(int segmentIndex) {
+
+        if (segmentIndex < 0 || segmentIndex > numSegments) {
+            throw new IllegalArgumentException("Segment index " + segmentIndex + " is outside of the " + (numSegments + 1) + " segments.");
+        }
+
+        SegmentBoundsTree tree = new SegmentBoundsTree(numSegments + 1);
+
+        System.arraycopy(bounds, firstLeaf * stride, tree.bounds, tree.firstLeaf * stride, segmentIndex * stride);
+        System.arraycopy(bounds, (firstLeaf + segmentIndex) * stride, tree.bounds, (tree.firstLeaf + segmentIndex + 1) * stride,
+                (numSegments - segmentIndex) * stride);
+
+        for (int node = tree.firstLeaf - 1; node >= 1; node--) {
+            tree.setUnion(node, node * 2, node * 2 + 1);
+        }
+
+        return tree;
+    }
+
+    /// Returns the bounds of a single segment.
+    public BoundingBox getSegmentBounds(int segmentIndex) {
+        checkSegmentIndex(segmentIndex);
+        return toBoundingBox(firstLeaf + segmentIndex);
+    }
+
+    /// Returns the bounds of every segment.
+    public BoundingBox getBounds() {
+        return toBoundingBox(1);
+    }
+
+    /// Returns the bounds of the segments from 'fromSegment' to 'toSegment' (both inclusive).
+    public BoundingBox getBounds(int fromSegment, int toSegment) {
+
+        checkSegmentIndex(fromSegment);
+        checkSegmentIndex(toSegment);
+
+        if (fromSegment > toSegment) {
+            throw new IllegalArgumentException("The range of segments is reversed: " + fromSegment + " to " + toSegment);
+        }
+
+        MinMax3D minMax = new MinMax3D();
+
+        // walk up from both ends of the range, taking every node that lies fully inside it.
+        int low = firstLeaf + fromSegment;
+        int high = firstLeaf + toSegment + 1;
+
+        while (low < high) {
+
+            if ((low & 1) == 1) {
+                addNode(minMax, low++);
+            }
+
+            if ((high & 1) == 1) {
+                addNode(minMax, --high);
+            }
+
+            low >>= 1;
+            high >>= 1;
+        }
+
+        return new BoundingBox(minMax.getMin(), minMax.getMax());
+    }
+
+    /// Adds the index of every segment whose bounds are hit by the ray to 'store', in segment order.
+    /// The ray's limit is respected. The segments themselves still need to be tested against the ray.
+    public void collectSegments(Ray ray, List<Integer> store) {
+        collectSegments(ray, 0, 0, store);
+    }
+
+    /// Adds the index of every segment whose bounds come within 'radius' + 'radiusPerDistance' * (distance along the ray) of the ray
+    /// to 'store', in segment order. This is a cone around the ray, such as the area a few pixels either side of the cursor covers
+    /// for a perspective camera. Bounds are grown by the radius at their furthest corner, so the test is conservative.
+    public void collectSegments(Ray ray, float radius, float radiusPerDistance, List<Integer> store) {
+
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+        float limit = ray.getLimit();
+
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = 1;
+
+        while (size > 0) {
+
+            int node = stack[--size];
+
+            if (!intersectsRay(node, origin, direction, limit, radius, radiusPerDistance)) {
+                continue;
+            }
+
+            if (node >= firstLeaf) {
+                store.add(node - firstLeaf);
+            }
+            else {
+                // push the right child first so that segments come out in order
+                stack[size++] = node * 2 + 1;
+                stack[size++] = node * 2;
+            }
+        }
+    }
+
+    /// Adds the index of every segment whose bounds are inside or intersect the frustum of the camera to 'store', in segment order.
+    public void collectSegments(Camera camera, List<Integer> store) {
+
+        Plane[] planes = new Plane[6];
+
+        for (int i = 0; i < planes.length; i++) {
+            planes[i] = camera.getWorldPlane(i);
+        }
+
+        collectSegments(planes, store);
+    }
+
+    /// Adds the index of every segment whose bounds are on the positive side of (or intersect) every plane to 'store', in segment order.
+    /// The planes follow the convention of the camera's frustum planes, which face into the frustum.
+    public void collectSegments(Plane[] planes, List<Integer> store) {
+
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = 1;
+
+        while (size > 0) {
+
+            int node = stack[--size];
+
+            int side = classify(node, planes);
+
+            if (side < 0) {
+                continue;
+            }
+
+            if (side > 0) {
+                // the subtree is entirely inside the planes, so take all its segments without testing them.
+                addLeaves(node, store);
+            }
+            else if (node >= firstLeaf) {
+                store.add(node - firstLeaf);
+            }
+            else {
+                stack[size++] = node * 2 + 1;
+                stack[size++] = node * 2;
+            }
+        }
+    }
+
+    private void checkSegmentIndex(int segmentIndex) {
+        if (segmentIndex < 0 || segmentIndex >= numSegments) {
+            throw new IllegalArgumentException("Segment index " + segmentIndex + " is outside of the " + numSegments + " segments.");
+        }
+    }
+
+    private boolean isEmpty(int node) {
+        return bounds[node * stride] > bounds[node * stride + 3];
+    }
+
+    private void setEmpty(int node) {
+        int offset = node * stride;
+
+        for (int i = 0; i < 3; i++) {
+            bounds[offset + i] = Float.POSITIVE_INFINITY;
+            bounds[offset + 3 + i] = Float.NEGATIVE_INFINITY;
+        }
+    }
+
+    private void setUnion(int node, int left, int right) {
+        int offset = node * stride;
+        int l = left * stride;
+        int r = right * stride;
+
+        for (int i = 0; i < 3; i++) {
+            bounds[offset + i] = Math.min(bounds[l + i], bounds[r + i]);
+            bounds[offset + 3 + i] = Math.max(bounds[l + 3 + i], bounds[r + 3 + i]);
+        }
+    }
+
+    private void addNode(MinMax3D minMax, int node) {
+        if (!isEmpty(node)) {
+            int offset = node * stride;
+            minMax.addValue(new Vector3f(bounds[offset], bounds[offset + 1], bounds[offset + 2]));
+            minMax.addValue(new Vector3f(bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]));
+        }
+    }
+
+    private BoundingBox toBoundingBox(int node) {
+
+        if (isEmpty(node)) {
+            return new BoundingBox(new Vector3f(), new Vector3f());
+        }
+
+        int offset = node * stride;
+
+        return new BoundingBox(
+                new Vector3f(bounds[offset], bounds[offset + 1], bounds[offset + 2]),
+                new Vector3f(bounds[offset + 3], bounds[offset + 4], bounds[offset + 5])
+        );
+    }
+
+    /// Adds the segments of every leaf below 'node' to 'store'.
+    private void addLeaves(int node, List<Integer> store) {
+
+        int first = node, last = node;
+
+        while (first < firstLeaf) {
+            first = first * 2;
+            last = last * 2 + 1;
+        }
+
+        for (int leaf = first; leaf <= last && leaf - firstLeaf < numSegments; leaf++) {
+            store.add(leaf - firstLeaf);
+        }
+    }
+
+    /// Slab test of the ray against the bounds of a node, grown by the radius of the cone around the ray.
+    private boolean intersectsRay(int node, Vector3f origin, Vector3f direction, float limit, float radius, float radiusPerDistance) {
+
+        if (isEmpty(node)) {
+            return false;
+        }
+
+        int offset = node * stride;
+
+        float grow = radius;
+
+        if (radiusPerDistance > 0) {
+            float sqrFurthest = 0;
+
+            for (int axis = 0; axis < 3; axis++) {
+                float o = origin.get(axis);
+                float furthest = Math.max(Math.abs(bounds[offset + axis] - o), Math.abs(bounds[offset + 3 + axis] - o));
+                sqrFurthest += furthest * furthest;
+            }
+
+            grow += radiusPerDistance * (float) Math.sqrt(sqrFurthest);
+        }
+
+        float near = 0;
+        float far = limit;
+
+        for (int axis = 0; axis < 3; axis++) {
+
+            float o = origin.get(axis);
+            float d = direction.get(axis);
+            float min = bounds[offset + axis] - grow;
+            float max = bounds[offset + 3 + axis] + grow;
+
+            if (d == 0) {
+                // parallel to the slab, so the origin has to be inside it.
+                if (o < min || o > max) {
+                    return false;
+                }
+
+                continue;
+            }
+
+            float t1 = (min - o) / d;
+            float t2 = (max - o) / d;
+
+            if (t1 > t2) {
+                float swap = t1;
+                t1 = t2;
+                t2 = swap;
+            }
+
+            near = Math.max(near, t1);
+            far = Math.min(far, t2);
+
+            if (near > far) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /// Returns -1 if the bounds of a node are entirely outside any of the planes, 1 if they are entirely inside all of them,
+    /// or 0 if they intersect at least one plane. Uses the same test as BoundingBox.whichSide.
+    private int classify(int node, Plane[] planes) {
+
+        if (isEmpty(node)) {
+            return -1;
+        }
+
+        int offset = node * stride;
+
+        float centerX = (bounds[offset] + bounds[offset + 3]) * 0.5f;
+        float centerY = (bounds[offset + 1] + bounds[offset + 4]) * 0.5f;
+        float centerZ = (bounds[offset + 2] + bounds[offset + 5]) * 0.5f;
+        float extentX = (bounds[offset + 3] - bounds[offset]) * 0.5f;
+        float extentY = (bounds[offset + 4] - bounds[offset + 1]) * 0.5f;
+        float extentZ = (bounds[offset + 5] - bounds[offset + 2]) * 0.5f;
+
+        int result = 1;
+
+        for (Plane plane : planes) {
+
+            Vector3f normal = plane.getNormal();
+
+            float radius = Math.abs(normal.x) * extentX + Math.abs(normal.y) * extentY + Math.abs(normal.z) * extentZ;
+            float distance = normal.x * centerX + normal.y * centerY + normal.z * centerZ - plane.getConstant();
+
+            if (distance < -radius) {
+                return -1;
+            }
+
+            if (distance <= radius) {
+                result = 0;
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.jayfella.pathcreator.objects;
+
+/// How a bezier path is split into the vertices of its vertex path.
+public enum TessellationMode {
+    /// Add a vertex whenever the angle of the path changes by more than the max angle error.
+    AngleError,
+    /// Add as few vertices as possible while guaranteeing the polyline never strays further than the max deviation from the curve.
+    MaxDeviation,
+    /// Use exactly the vertex budget, placing each vertex where it reduces the deviation from the curve the most.
+    VertexBudget
+}
@@ -0,0 +1,947 @@
+package com.jayfella.pathcreator.objects;
+
+/// A vertex path is a collection of points (vertices) that lie along a bezier path.
+/// This allows one to do things like move at a constant speed along the path,
+/// which is not possible with a bezier path directly due to how they're constructed mathematically.
+
+import com.jayfella.pathcreator.metrics.PathMetrics;
+import com.jayfella.pathcreator.utility.CubicBezierUtility;
+import com.jayfella.pathcreator.utility.MathUtility;
+import com.jayfella.pathcreator.utility.MeshBufferUtility;
+import com.jayfella.pathcreator.utility.PathFrameUtility;
+import com.jayfella.pathcreator.utility.UnityMath;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/// This class also provides methods for getting the position along the path at a certain distance or time
+/// (where time = 0 is the start of the path, and time = 1 is the end of the path).
+/// Other info about the path (tangents, normals, rotation) can also be retrieved in this manner.
+public class VertexPath {
+
+     // #region Fields
+
+    private PathSpace space;
+    private boolean closedLoop;
+    /// Vertex data is stored as flat xyz triplets in buffers, which either wrap heap arrays
+    /// or are views over external memory such as a memory-mapped path archive.
+    private FloatBuffer localPoints;
+    private FloatBuffer localTangents;
+    private FloatBuffer localNormals;
+    /// The rotation at each vertex, stored as flat xyzw quaternions. Paths restored from baked data calculate these on first use.
+    private FloatBuffer localRotations;
+
+    /// Percentage along the path at each vertex (0 being start of path, and 1 being the end)
+    private FloatBuffer times;
+    /// Total distance between the vertices of the polyline
+    private float length;
+    /// Total distance from the first vertex up to each vertex in the polyline
+    private FloatBuffer cumulativeLengthAtEachVertex;
+    /// Index of the vertex at each anchor point of the bezier path
+    private IntBuffer anchorVertexMap;
+    /// Bounding box of the path
+    private BoundingBox bounds;
+    /// Equal to (0,0,-1) for 2D paths, and (0,1,0) for XZ paths
+    private Vector3f up;
+
+    private VertexPathStorage storage;
+    /// Whether the vertex data is direct memory allocated by this path, which it frees when it is released.
+    private boolean ownsDirectMemory;
+    private boolean released;
+
+    // Default values and constants:
+    static final int accuracy = 10; // A scalar for how many times bezier path is divided when determining vertex positions
+    static final float minVertexSpacing = .01f;
+    static final int closestPointIterations = 8; // The most newton iterations used to refine a closest point on the bezier path
+    static final int closestPointSamples = 16; // How many evenly spaced times of a segment are checked for starting points before refining
+
+    // Transform transform;
+    Spatial spatial;
+
+    // #endregion
+
+    // #region Constructors
+
+    /// <summary> Splits bezier path into array of vertices along the path.</summary>
+    ///<param name="maxAngleError">How much can the angle of the path change before a vertex is added. This allows fewer vertices to be generated in straighter sections.</param>
+    ///<param name="minVertexDst">Vertices won't be added closer together than this distance, regardless of angle error.</param>
+    public VertexPath(BezierPath bezierPath, Spatial spatial, float maxAngleError /* = 0.3f */, float minVertexDst /* = 0 */) {
+            this (bezierPath, VertexPathUtility.SplitBezierPathByAngleError (bezierPath, maxAngleError, minVertexDst, VertexPath.accuracy), spatial);
+    }
+
+    /// <summary> Splits bezier path into array of vertices along the path.</summary>
+    ///<param name="maxAngleError">How much can the angle of the path change before a vertex is added. This allows fewer vertices to be generated in straighter sections.</param>
+    ///<param name="minVertexDst">Vertices won't be added closer together than this distance, regardless of angle error.</param>
+    ///<param name="accuracy">Higher value means the change in angle is checked more frequently.</param>
+    public VertexPath(BezierPath bezierPath, Spatial spatial, float vertexSpacing) {
+            this (bezierPath, VertexPathUtility.SplitBezierPathEvenly (bezierPath, Math.max (vertexSpacing, minVertexSpacing), VertexPath.accuracy), spatial);
+    }
+
+    /// Creates a vertex path from split data produced by any of the splitters in VertexPathUtility.
+    public VertexPath(BezierPath bezierPath, VertexPathUtility.PathSplitData pathSplitData, Spatial spatial) {
+        this(bezierPath, pathSplitData, spatial, VertexPathStorage.Heap);
+    }
+
+    /// Creates a vertex path from split data produced by any of the splitters in VertexPathUtility, keeping the vertex data in the given storage.
+    /// With direct storage the points, tangents, normals, rotations, times and lengths are copied to direct buffers once built,
+    /// so the only heap memory the path holds on to is a few objects, however many vertices it has.
+    public VertexPath(BezierPath bezierPath, VertexPathUtility.PathSplitData pathSplitData, Spatial spatial, VertexPathStorage storage) {
+        long buildStart = PathMetrics.startTimer();
+
+        this.spatial = spatial;
+        // this.transform = transform;
+        space = bezierPath.getSpace();
+        closedLoop = bezierPath.isClosed();
+        int numVerts = pathSplitData.getVertices().size();
+        length = pathSplitData.getCumulativeLength().get(numVerts - 1);
+
+        float[] localPoints = new float[numVerts * 3];
+        float[] localNormals = new float[numVerts * 3];
+        float[] localTangents = new float[numVerts * 3];
+        float[] cumulativeLengthAtEachVertex = new float[numVerts];
+        float[] times = new float[numVerts];
+
+        // bounds = new Bounds ((pathSplitData.minMax.Min + pathSplitData.minMax.Max) / 2, pathSplitData.minMax.Max - pathSplitData.minMax.Min);
+        bounds = new BoundingBox(
+          pathSplitData.getMinMax().getMin().add(pathSplitData.getMinMax().getMin()).divide(2),
+          pathSplitData.getMinMax().getMax().subtract(pathSplitData.getMinMax().getMin()));
+
+        // Figure out up direction for path
+        // up = (bounds.size.z > bounds.size.y) ? Vector3f.up : -Vector3f.forward;
+        up = (bounds.getZExtent() > bounds.getYExtent()) ? Vector3f.UNIT_Y.clone() : Vector3f.UNIT_Z.negate();
+
+        // Loop through the data and assign to arrays.
+        for (int i = 0; i < numVerts; i++) {
+            Vector3f point = pathSplitData.getVertices().get(i);
+            Vector3f tangent = pathSplitData.getTangents().get(i);
+
+            localPoints[i * 3] = point.x;
+            localPoints[i * 3 + 1] = point.y;
+            localPoints[i * 3 + 2] = point.z;
+
+            localTangents[i * 3] = tangent.x;
+            localTangents[i * 3 + 1] = tangent.y;
+            localTangents[i * 3 + 2] = tangent.z;
+
+            cumulativeLengthAtEachVertex[i] = pathSplitData.getCumulativeLength().get(i);
+            times[i] = cumulativeLengthAtEachVertex[i] / length;
+        }
+
+        float flipScale = bezierPath.getFlipNormals() ? -1 : 1;
+
+        // Calculate normals
+        if (space == PathSpace.xyz) {
+            PathFrameUtility.computeRotationMinimizingNormals(localPoints, localTangents, localNormals, numVerts, up.x, up.y, up.z);
+        } else {
+            // localNormals[i] = Vector3f.Cross (localTangents[i], up) * ((bezierPath.FlipNormals) ? 1 : -1);
+            PathFrameUtility.computeFlatNormals(localTangents, localNormals, numVerts, up.x, up.y, up.z, bezierPath.getFlipNormals());
+        }
+
+        // Apply correction for 3d normals along a closed path
+        if (space == PathSpace.xyz && closedLoop) {
+            // Get angle between first and last normal (if zero, they're already lined up, otherwise we need to correct)
+            // float normalsAngleErrorAcrossJoin = Vector3f.SignedAngle (localNormals[localNormals.Length - 1], localNormals[0], localTangents[0]);
+            float normalsAngleErrorAcrossJoin = PathFrameUtility.signedAngle(localNormals, numVerts - 1, 0, localTangents, 0);
+            // Gradually rotate the normals along the path to ensure start and end normals line up correctly
+            if (Math.abs (normalsAngleErrorAcrossJoin) > 0.1f * FastMath.DEG_TO_RAD) // don't bother correcting if very nearly correct
+            {
+                for (int i = 1; i < numVerts; i++) {
+                    float t = (i / (numVerts - 1f));
+                    float angle = normalsAngleErrorAcrossJoin * t;
+                    // Quaternion rot = Quaternion.AngleAxis (angle, localTangents[i]);
+                    // localNormals[i] = rot * localNormals[i] * ((bezierPath.FlipNormals) ? -1 : 1);
+                    PathFrameUtility.rotateNormal(localTangents, localNormals, i, angle, flipScale);
+                }
+            }
+        }
+
+        // Rotate normals to match up with user-defined anchor angles
+        if (space == PathSpace.xyz) {
+            for (int anchorIndex = 0; anchorIndex < pathSplitData.getAnchorVertexMap().size() - 1; anchorIndex++) {
+                int nextAnchorIndex = (closedLoop) ? (anchorIndex + 1) % bezierPath.getNumSegments() : anchorIndex + 1;
+
+                float startAngle = bezierPath.getAnchorNormalAngle(anchorIndex) + bezierPath.getGlobalNormalsAngle();
+                float endAngle = bezierPath.getAnchorNormalAngle(nextAnchorIndex) + bezierPath.getGlobalNormalsAngle();
+
+                // Calculates the shortest difference between two given angles given in degrees.
+                // float deltaAngle = Mathf.DeltaAngle (startAngle, endAngle);
+                float deltaAngle = UnityMath.deltaAngle (startAngle, endAngle);
+
+                // int startVertIndex = pathSplitData.anchorVertexMap[anchorIndex];
+                int startVertIndex = pathSplitData.getAnchorVertexMap().get(anchorIndex);
+                // int endVertIndex = pathSplitData.anchorVertexMap[anchorIndex + 1];
+                int endVertIndex = pathSplitData.getAnchorVertexMap().get(anchorIndex + 1);
+
+                int num = endVertIndex - startVertIndex;
+                // if (anchorIndex == pathSplitData.anchorVertexMap.Count - 2) {
+                if (anchorIndex == pathSplitData.getAnchorVertexMap().size() - 2) {
+                    num += 1;
+                }
+                for (int i = 0; i < num; i++) {
+                    int vertIndex = startVertIndex + i;
+                    float t = (num > 1) ? i / (num - 1f) : 0;
+                    float angle = startAngle + deltaAngle * t;
+                    // Quaternion rot = Quaternion.AngleAxis (angle, localTangents[vertIndex]);
+                    // localNormals[vertIndex] = (rot * localNormals[vertIndex]) * ((bezierPath.FlipNormals) ? -1 : 1);
+                    PathFrameUtility.rotateNormal(localTangents, localNormals, vertIndex, angle * FastMath.DEG_TO_RAD, flipScale);
+                }
+            }
+        }
+
+        float[] localRotations = new float[numVerts * 4];
+        PathFrameUtility.computeRotations(localTangents, localNormals, localRotations, numVerts);
+
+        this.storage = storage;
+
+        if (storage == VertexPathStorage.Direct) {
+            // the arrays are short lived, so they are collected young and never add to the heap the path keeps.
+            this.localPoints = BufferUtils.createFloatBuffer(localPoints);
+            this.localTangents = BufferUtils.createFloatBuffer(localTangents);
+            this.localNormals = BufferUtils.createFloatBuffer(localNormals);
+            this.localRotations = BufferUtils.createFloatBuffer(localRotations);
+            this.times = BufferUtils.createFloatBuffer(times);
+            this.cumulativeLengthAtEachVertex = BufferUtils.createFloatBuffer(cumulativeLengthAtEachVertex);
+            this.ownsDirectMemory = true;
+
+            PathMetrics.increment(PathMetrics.VERTEX_PATH_DIRECT_BYTES_ALLOCATED, getDirectMemorySize());
+        }
+        else {
+            this.localPoints = FloatBuffer.wrap(localPoints);
+            this.localTangents = FloatBuffer.wrap(localTangents);
+            this.localNormals = FloatBuffer.wrap(localNormals);
+            this.localRotations = FloatBuffer.wrap(localRotations);
+            this.times = FloatBuffer.wrap(times);
+            this.cumulativeLengthAtEachVertex = FloatBuffer.wrap(cumulativeLengthAtEachVertex);
+        }
+
+        int[] anchorVertexMap = new int[pathSplitData.getAnchorVertexMap().size()];
+        for (int i = 0; i < anchorVertexMap.length; i++) {
+            anchorVertexMap[i] = pathSplitData.getAnchorVertexMap().get(i);
+        }
+        this.anchorVertexMap = IntBuffer.wrap(anchorVertexMap);
+
+        PathMetrics.stopTimer(PathMetrics.VERTEX_PATH_BUILD, buildStart);
+        PathMetrics.increment(PathMetrics.VERTEX_PATH_VERTICES, numVerts);
+    }
+
+    /// Creates a vertex path from previously baked data, for example when loading a path from disk.
+    /// The buffers are used directly and are not copied. Vector data is stored as flat xyz triplets.
+    /// Values are read with absolute indices starting at zero, so buffer positions are ignored.
+    /// The path does not own the buffers, so releasing it never frees them, even if they are direct.
+    public VertexPath(PathSpace space, boolean closedLoop,
+                      FloatBuffer localPoints, FloatBuffer localTangents, FloatBuffer localNormals,
+                      FloatBuffer times, FloatBuffer cumulativeLengthAtEachVertex, IntBuffer anchorVertexMap,
+                      BoundingBox bounds, Vector3f up, Spatial spatial) {
+
+        this.space = space;
+        this.closedLoop = closedLoop;
+        this.localPoints = localPoints;
+        this.localTangents = localTangents;
+        this.localNormals = localNormals;
+        this.times = times;
+        this.cumulativeLengthAtEachVertex = cumulativeLengthAtEachVertex;
+        this.length = cumulativeLengthAtEachVertex.get(cumulativeLengthAtEachVertex.limit() - 1);
+        this.anchorVertexMap = anchorVertexMap;
+        this.bounds = bounds;
+        this.up = up;
+        this.spatial = spatial;
+        this.storage = (localPoints.isDirect()) ? VertexPathStorage.Direct : VertexPathStorage.Heap;
+    }
+
+    // #endregion
+
+    // #region Public methods and accessors
+
+
+    public boolean isClosedLoop() {
+        return closedLoop;
+    }
+
+    public PathSpace getSpace() {
+        return space;
+    }
+
+    public Vector3f getUp() {
+        return up;
+    }
+
+    public Vector3f getTangent(int index) {
+        return transformDirection (getLocalVector(localTangents, index));
+    }
+
+    public Vector3f getNormal(int index) {
+        return transformDirection (getLocalVector(localNormals, index));
+    }
+
+    /// The binormal (normal x tangent) at the vertex, which completes the frame formed by the tangent and normal.
+    public Vector3f getBinormal(int index) {
+        return getRotation(index).mult(Vector3f.UNIT_X);
+    }
+
+    /// Gets the rotation at the vertex: an object with this rotation faces along the path, with its local up along the normal.
+    public Quaternion getRotation(int index) {
+        FloatBuffer rotations = getLocalRotations();
+        Quaternion rotation = new Quaternion(rotations.get(index * 4), rotations.get(index * 4 + 1), rotations.get(index * 4 + 2), rotations.get(index * 4 + 3));
+        return transformRotation(rotation);
+    }
+
+    public void updateTransform (Transform transform) {
+        // this.transform = transform;
+    }
+
+    /*
+    public int NumPoints {
+        get {
+            return localPoints.Length;
+        }
+    }
+     */
+
+    public int getNumPoints() {
+        checkNotReleased();
+        return localPoints.limit() / 3;
+    }
+
+    /// Where the vertex data of this path is kept. Paths restored from external buffers report the storage of those buffers.
+    public VertexPathStorage getStorage() {
+        return storage;
+    }
+
+    /// The number of bytes of direct memory this path allocated, and frees when it is released.
+    public long getDirectMemorySize() {
+
+        if (!ownsDirectMemory || released) {
+            return 0;
+        }
+
+        return ((long) localPoints.capacity() + localTangents.capacity() + localNormals.capacity() + localRotations.capacity()
+                + times.capacity() + cumulativeLengthAtEachVertex.capacity()) * Float.BYTES;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /// Frees the direct memory of a path created with direct storage now, rather than whenever its buffers are garbage collected.
+    /// The path, and any buffer taken from it (including meshes sharing its buffers), must not be used afterwards.
+    /// Paths that don't own direct memory are only marked as released. Releasing a path more than once does nothing.
+    public void release() {
+
+        if (released) {
+            return;
+        }
+
+        if (ownsDirectMemory) {
+            PathMetrics.increment(PathMetrics.VERTEX_PATH_DIRECT_BYTES_RELEASED, getDirectMemorySize());
+
+            BufferUtils.destroyDirectBuffer(localPoints);
+            BufferUtils.destroyDirectBuffer(localTangents);
+            BufferUtils.destroyDirectBuffer(localNormals);
+            BufferUtils.destroyDirectBuffer(localRotations);
+            BufferUtils.destroyDirectBuffer(times);
+            BufferUtils.destroyDirectBuffer(cumulativeLengthAtEachVertex);
+        }
+
+        released = true;
+
+        localPoints = null;
+        localTangents = null;
+        localNormals = null;
+        localRotations = null;
+        times = null;
+        cumulativeLengthAtEachVertex = null;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("The vertex path has been released.");
+        }
+    }
+
+
+    public Vector3f GetTangent (int index) {
+        return transformDirection (getLocalVector(localTangents, index));
+    }
+
+    public Vector3f GetNormal (int index) {
+        return transformDirection (getLocalVector(localNormals, index));
+    }
+
+    public Vector3f getPoint(int index) {
+        return transformPoint (getLocalVector(localPoints, index));
+    }
+
+    /// Total distance between the vertices of the polyline
+    public float getLength() {
+        return length;
+    }
+
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /// Vertex positions in local space, stored as flat xyz triplets. The returned buffer is not a copy.
+    /// With direct storage it can be set on a mesh or handed to a native library as is, as long as the path outlives it.
+    public FloatBuffer getLocalPoints() {
+        checkNotReleased();
+        return localPoints;
+    }
+
+    /// Vertex tangents in local space, stored as flat xyz triplets. The returned buffer is not a copy.
+    public FloatBuffer getLocalTangents() {
+        checkNotReleased();
+        return localTangents;
+    }
+
+    /// Vertex normals in local space, stored as flat xyz triplets. The returned buffer is not a copy.
+    public FloatBuffer getLocalNormals() {
+        checkNotReleased();
+        return localNormals;
+    }
+
+    /// Vertex rotations in local space, stored as flat xyzw quaternions. The returned buffer is not a copy.
+    /// Each rotation points the local z axis along the tangent and the local y axis along the normal.
+    public FloatBuffer getLocalRotations() {
+
+        checkNotReleased();
+
+        if (localRotations == null) {
+            int numVerts = getNumPoints();
+
+            float[] tangents = new float[numVerts * 3];
+            float[] normals = new float[numVerts * 3];
+            float[] rotations = new float[numVerts * 4];
+
+            for (int i = 0; i < tangents.length; i++) {
+                tangents[i] = localTangents.get(i);
+                normals[i] = localNormals.get(i);
+            }
+
+            PathFrameUtility.computeRotations(tangents, normals, rotations, numVerts);
+            localRotations = FloatBuffer.wrap(rotations);
+        }
+
+        return localRotations;
+    }
+
+    public FloatBuffer getCumulativeLengths() {
+        checkNotReleased();
+        return cumulativeLengthAtEachVertex;
+    }
+
+    /// The index of the vertex at each anchor point of the bezier path this vertex path was created from.
+    public IntBuffer getAnchorVertexMap() {
+        return anchorVertexMap;
+    }
+
+    /// Writes the vertex positions in local space into 'store' as xyz triplets, starting at its position, and advances the position.
+    /// The data is bulk copied from the path, so writing into a direct buffer needs no intermediate objects.
+    /// Throws an IllegalArgumentException if the buffer has less than 3 * getNumPoints() floats remaining.
+    public FloatBuffer writePoints(FloatBuffer store) {
+        return writeFloats(localPoints, getNumPoints() * 3, store, "points");
+    }
+
+    /// Writes the vertex tangents in local space into 'store' as xyz triplets, in the same way as writePoints.
+    public FloatBuffer writeTangents(FloatBuffer store) {
+        return writeFloats(localTangents, getNumPoints() * 3, store, "tangents");
+    }
+
+    /// Writes the vertex normals in local space into 'store' as xyz triplets, in the same way as writePoints.
+    public FloatBuffer writeNormals(FloatBuffer store) {
+        return writeFloats(localNormals, getNumPoints() * 3, store, "normals");
+    }
+
+    /// Writes the time (0 at the start of the path, 1 at the end) of each vertex into 'store', in the same way as writePoints.
+    public FloatBuffer writeTimes(FloatBuffer store) {
+        return writeFloats(times, getNumPoints(), store, "times");
+    }
+
+    /// The number of indices writeLineIndices writes for the given mode.
+    public int getNumLineIndices(Mesh.Mode mode) {
+
+        int numPoints = getNumPoints();
+        int numEdges = (closedLoop) ? numPoints : Math.max(0, numPoints - 1);
+
+        switch (mode) {
+            case Lines: return numEdges * 2;
+            case LineStrip: return (closedLoop && numPoints > 0) ? numPoints + 1 : numPoints;
+            case LineLoop: return numPoints;
+            default: throw new IllegalArgumentException("Line indices can only be written for Lines, LineStrip or LineLoop, not " + mode);
+        }
+    }
+
+    /// Writes the indices that draw the path with the given mode into 'store', starting at its position, and advances the position.
+    /// Lines writes a pair of indices for every edge. LineStrip writes every vertex in order, and repeats the first vertex at the end
+    /// of a closed path. LineLoop writes every vertex in order and relies on the loop to close the path, so it is only suited to closed paths.
+    /// Throws an IllegalArgumentException if the buffer has fewer than getNumLineIndices(mode) indices remaining.
+    public IntBuffer writeLineIndices(IntBuffer store, Mesh.Mode mode) {
+
+        int numIndices = getNumLineIndices(mode);
+
+        if (store.remaining() < numIndices) {
+            throw new IllegalArgumentException("The buffer has room for " + store.remaining() + " indices, but " + numIndices + " are needed.");
+        }
+
+        int numPoints = getNumPoints();
+
+        if (mode == Mesh.Mode.Lines) {
+            for (int i = 0; i < numIndices / 2; i++) {
+                store.put(i);
+                store.put((i + 1) % numPoints);
+            }
+        }
+        else {
+            for (int i = 0; i < numIndices; i++) {
+                store.put(i % numPoints);
+            }
+        }
+
+        return store;
+    }
+
+    /// Fills a mesh that draws the path as a line strip, or a line loop if the path is closed, with positions, normals and tangents
+    /// in local space and the time of each vertex as a single texture coordinate. The mesh draws its vertices in order, so it has no index buffer.
+    /// Passing the mesh returned by an earlier call reuses its vertex buffers when they are large enough, so rebuilding the path every
+    /// frame doesn't allocate new direct memory. Pass null to create a new mesh.
+    public Mesh createLineMesh(Mesh store) {
+
+        Mesh mesh = (store == null) ? new Mesh() : store;
+        int numPoints = getNumPoints();
+
+        FloatBuffer positions = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.Position, 3, numPoints);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.Position, 3, writePoints(positions));
+
+        FloatBuffer normals = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.Normal, 3, numPoints);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.Normal, 3, writeNormals(normals));
+
+        FloatBuffer tangents = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.Tangent, 3, numPoints);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.Tangent, 3, writeTangents(tangents));
+
+        FloatBuffer texCoords = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.TexCoord, 1, numPoints);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.TexCoord, 1, writeTimes(texCoords));
+
+        if (mesh.getBuffer(VertexBuffer.Type.Index) != null) {
+            mesh.clearBuffer(VertexBuffer.Type.Index);
+        }
+
+        mesh.setMode((closedLoop) ? Mesh.Mode.LineLoop : Mesh.Mode.LineStrip);
+        mesh.updateCounts();
+        mesh.updateBound();
+
+        return mesh;
+    }
+
+    /// Bulk copies the first 'count' floats of 'source' into 'store' at its position.
+    private static FloatBuffer writeFloats(FloatBuffer source, int count, FloatBuffer store, String name) {
+
+        if (store.remaining() < count) {
+            throw new IllegalArgumentException("The buffer has room for " + store.remaining() + " floats, but the " + name + " need " + count + ".");
+        }
+
+        // copy from a view so the position and limit of the path's own buffer are left alone.
+        FloatBuffer view = source.duplicate();
+        view.position(0);
+        view.limit(count);
+
+        return store.put(view);
+    }
+
+    /// Gets point on path based on distance travelled.
+    public Vector3f GetPointAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        float t = dst / length;
+        return GetPointAtTime (t, endOfPathInstruction);
+    }
+
+    /// Gets forward direction on path based on distance travelled.
+    public Vector3f GetDirectionAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        float t = dst / length;
+        return GetDirection (t, endOfPathInstruction);
+    }
+
+    /// Gets normal vector on path based on distance travelled.
+    public Vector3f GetNormalAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        float t = dst / length;
+        return GetNormal (t, endOfPathInstruction);
+    }
+
+    /// Gets a rotation that will orient an object in the direction of the path at this point, with local up point along the path's normal
+    public Quaternion GetRotationAtDistance (float dst, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        float t = dst / length;
+        return GetRotation (t, endOfPathInstruction);
+    }
+
+    /// Gets point on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetPointAtTime (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        TimeOnPathData data = CalculatePercentOnPathData (t, endOfPathInstruction);
+        // return Vector3f.Lerp (GetPoint (data.previousIndex), GetPoint (data.nextIndex), data.percentBetweenIndices);
+        return new Vector3f().interpolateLocal(getPoint(data.getPreviousIndex()), getPoint(data.getNextIndex()), data.getPercentBetweenIndices());
+    }
+
+    /// Gets forward direction on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetDirection (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        TimeOnPathData data = CalculatePercentOnPathData (t, endOfPathInstruction);
+        // Vector3f dir = Vector3f.Lerp (localTangents[data.previousIndex], localTangents[data.nextIndex], data.percentBetweenIndices);
+        Vector3f dir = new Vector3f().interpolateLocal(getLocalVector(localTangents, data.previousIndex), getLocalVector(localTangents, data.nextIndex), data.percentBetweenIndices);
+        return transformDirection (dir);
+    }
+
+    /// Gets normal vector on path based on 'time' (where 0 is start, and 1 is end of path).
+    public Vector3f GetNormal (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        TimeOnPathData data = CalculatePercentOnPathData (t, endOfPathInstruction);
+        // Vector3f normal = Vector3f.Lerp (localNormals[data.previousIndex], localNormals[data.nextIndex], data.percentBetweenIndices);
+        Vector3f normal = new Vector3f().interpolateLocal(getLocalVector(localNormals, data.previousIndex), getLocalVector(localNormals, data.nextIndex), data.percentBetweenIndices);
+        return transformDirection (normal);
+    }
+
+    /// Gets a rotation that will orient an object in the direction of the path at this point, with local up point along the path's normal
+    public Quaternion GetRotation (float t, EndOfPathInstruction endOfPathInstruction /* = EndOfPathInstruction.Loop */) {
+        TimeOnPathData data = CalculatePercentOnPathData (t, endOfPathInstruction);
+
+        // The frames at neighbouring vertices are close together, so normalized lerp of the precomputed rotations
+        // is indistinguishable from slerp, and much cheaper than building a rotation from the tangent and normal.
+        FloatBuffer rotations = getLocalRotations();
+        int a = data.previousIndex * 4;
+        int b = data.nextIndex * 4;
+        float blend = data.percentBetweenIndices;
+
+        float dot = rotations.get(a) * rotations.get(b) + rotations.get(a + 1) * rotations.get(b + 1)
+                + rotations.get(a + 2) * rotations.get(b + 2) + rotations.get(a + 3) * rotations.get(b + 3);
+
+        // take the shortest path between the two rotations
+        float blendA = 1 - blend;
+        float blendB = (dot < 0) ? -blend : blend;
+
+        Quaternion rotation = new Quaternion(
+                rotations.get(a) * blendA + rotations.get(b) * blendB,
+                rotations.get(a + 1) * blendA + rotations.get(b + 1) * blendB,
+                rotations.get(a + 2) * blendA + rotations.get(b + 2) * blendB,
+                rotations.get(a + 3) * blendA + rotations.get(b + 3) * blendB);
+
+        rotation.normalizeLocal();
+        return transformRotation(rotation);
+    }
+
+    /// Finds the closest point on the path from any point in the world
+    public Vector3f GetClosestPointOnPath (Vector3f worldPoint) {
+        TimeOnPathData data = CalculateClosestPointOnPathData (worldPoint);
+        // return Vector3f.Lerp (GetPoint (data.previousIndex), GetPoint (data.nextIndex), data.percentBetweenIndices);
+        return new Vector3f().interpolateLocal(getPoint(data.previousIndex), getPoint(data.nextIndex), data.percentBetweenIndices);
+    }
+
+    /// Finds the closest point on the bezier path this vertex path was created from.
+    /// The closest polyline edge of this vertex path picks the bezier segment, and the point is then found on the true curve
+    /// of that segment and its neighbours, so the result is accurate however coarsely the path was split. Only a part of the path that
+    /// comes back within the polyline's deviation of the query point, more than one segment away, can be missed.
+    public ClosestPointData GetClosestPointOnBezierPath (BezierPath bezierPath, Vector3f worldPoint) {
+
+        TimeOnPathData data = CalculateClosestPointOnPathData (worldPoint);
+
+        int numSegments = bezierPath.getNumSegments();
+        int closestSegment = getSegmentIndex(data.previousIndex, numSegments);
+        Vector3f localPoint = inverseTransformPoint(worldPoint);
+
+        int segmentIndex = closestSegment;
+        float t = 0;
+        float minSqrDst = Float.MAX_VALUE;
+
+        // near an anchor, or where the polyline strays from the curve, the closest edge can belong to a neighbouring segment.
+        for (int offset = -1; offset <= 1; offset++) {
+
+            int candidate = closestSegment + offset;
+
+            if (closedLoop) {
+                candidate = (candidate + numSegments) % numSegments;
+            }
+            else if (candidate < 0 || candidate >= numSegments) {
+                continue;
+            }
+
+            Vector3f[] segmentPoints = bezierPath.getPointsInSegment(candidate);
+            float candidateTime = CubicBezierUtility.closestTime(segmentPoints, localPoint, closestPointSamples, closestPointIterations);
+            float sqrDst = CubicBezierUtility.evaluateCurve(segmentPoints, candidateTime).distanceSquared(localPoint);
+
+            if (sqrDst < minSqrDst) {
+                minSqrDst = sqrDst;
+                segmentIndex = candidate;
+                t = candidateTime;
+            }
+        }
+
+        Vector3f pointOnCurve = transformPoint(CubicBezierUtility.evaluateCurve(bezierPath.getPointsInSegment(segmentIndex), t));
+
+        // the distance along the path is measured on the polyline edges of the segment, so it can be used with GetPointAtDistance.
+        float distanceAlongPath = 0;
+        float minEdgeSqrDst = Float.MAX_VALUE;
+
+        for (int i = anchorVertexMap.get(segmentIndex); i < anchorVertexMap.get(segmentIndex + 1); i++) {
+            Vector3f edgeStart = getPoint(i);
+            Vector3f edgeEnd = getPoint(i + 1);
+            Vector3f pointOnEdge = MathUtility.ClosestPointOnLineSegment(pointOnCurve, edgeStart, edgeEnd);
+            float sqrDst = pointOnEdge.distanceSquared(pointOnCurve);
+
+            if (sqrDst < minEdgeSqrDst) {
+                minEdgeSqrDst = sqrDst;
+                distanceAlongPath = cumulativeLengthAtEachVertex.get(i) + edgeStart.distance(pointOnEdge);
+            }
+        }
+
+        return new ClosestPointData(segmentIndex, t, pointOnCurve, worldPoint.distance(pointOnCurve), distanceAlongPath);
+    }
+
+    /// Returns the index of the bezier segment that the edge starting at the given vertex belongs to.
+    private int getSegmentIndex(int vertexIndex, int numSegments) {
+
+        // the last anchor vertex not after the vertex
+        int low = 0, high = numSegments - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (anchorVertexMap.get(mid) <= vertexIndex) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /// Finds the 'time' (0=start of path, 1=end of path) along the path that is closest to the given point
+    public float GetClosestTimeOnPath (Vector3f worldPoint) {
+        TimeOnPathData data = CalculateClosestPointOnPathData (worldPoint);
+        // return Mathf.Lerp (times.get(data.previousIndex), times.get(data.nextIndex), data.percentBetweenIndices);
+        return FastMath.interpolateLinear(times.get(data.previousIndex), times.get(data.nextIndex), data.percentBetweenIndices);
+    }
+
+    /// Finds the distance along the path that is closest to the given point
+    public float GetClosestDistanceAlongPath (Vector3f worldPoint) {
+        TimeOnPathData data = CalculateClosestPointOnPathData (worldPoint);
+        // return Mathf.Lerp (cumulativeLengthAtEachVertex.get(data.previousIndex), cumulativeLengthAtEachVertex.get(data.nextIndex), data.percentBetweenIndices);
+        return FastMath.interpolateLinear(cumulativeLengthAtEachVertex.get(data.previousIndex), cumulativeLengthAtEachVertex.get(data.nextIndex), data.percentBetweenIndices);
+    }
+
+    // #endregion
+
+    // #region Internal methods
+
+    /// For a given value 't' between 0 and 1, calculate the indices of the two vertices before and after t.
+    /// Also calculate how far t is between those two vertices as a percentage between 0 and 1.
+    private TimeOnPathData CalculatePercentOnPathData (float t, EndOfPathInstruction endOfPathInstruction) {
+        // Constrain t based on the end of path instruction
+        switch (endOfPathInstruction) {
+            case Loop:
+                // If t is negative, make it the equivalent value between 0 and 1
+                if (t < 0) {
+                    // t += Mathf.CeilToInt (Mathf.Abs (t));
+                    t += (int)Math.ceil(Math.abs(t));
+                }
+                t %= 1;
+                break;
+            case Reverse:
+                // @todo PingPong
+                // PingPongs the value t, so that it is never larger than length and never smaller than 0.
+                // t = Mathf.PingPong (t, 1);
+                t = UnityMath.pingPong (t, 1);
+                break;
+            case Stop:
+                // t = Mathf.Clamp01 (t);
+                t = FastMath.clamp(t, 0, 1);
+                break;
+        }
+
+        int prevIndex = 0;
+        int nextIndex = getNumPoints() - 1;
+        // int i = Mathf.RoundToInt (t * (NumPoints - 1)); // starting guess
+        int i = Math.round(t * (getNumPoints() - 1));
+
+        // Starts by looking at middle vertex and determines if t lies to the left or to the right of that vertex.
+        // Continues dividing in half until closest surrounding vertices have been found.
+        while (true) {
+            // t lies to left
+            if (t <= times.get(i)) {
+                nextIndex = i;
+            }
+            // t lies to right
+            else {
+                prevIndex = i;
+            }
+            i = (nextIndex + prevIndex) / 2;
+
+            if (nextIndex - prevIndex <= 1) {
+                break;
+            }
+        }
+
+        /*
+        Calculates the linear parameter t that produces the interpolant value within the range [a, b].
+
+        The a and b values define the start and end of the line. Value is a location between a and b. Subtract a from
+        both a and b and value to make a', b' and value'. This makes a' to be zero and b' and value' to be reduced.
+        Finally divide value' by b'. This gives the InverseLerp amount.
+         */
+        // @todo: inverseLerp
+        // float abPercent = Mathf.InverseLerp (times[prevIndex], times[nextIndex], t);
+        float abPercent = UnityMath.inverseLerp (times.get(prevIndex), times.get(nextIndex), t);
+
+        return new TimeOnPathData(prevIndex, nextIndex, abPercent);
+    }
+
+    /// Calculate time data for closest point on the path from given world point
+    TimeOnPathData CalculateClosestPointOnPathData (Vector3f worldPoint) {
+        long queryStart = PathMetrics.startTimer();
+
+        // float minSqrDst = float.MaxValue;
+        float minSqrDst = Float.MAX_VALUE;
+        // Vector3f closestPoint = Vector3f.zero;
+        Vector3f closestPoint = new Vector3f();
+        int closestSegmentIndexA = 0;
+        int closestSegmentIndexB = 0;
+
+        for (int i = 0; i < getNumPoints(); i++) {
+            int nextI = i + 1;
+            if (nextI >= getNumPoints()) {
+                if (closedLoop) {
+                    nextI %= getNumPoints();
+                } else {
+                    break;
+                }
+            }
+
+            Vector3f closestPointOnSegment = MathUtility.ClosestPointOnLineSegment (worldPoint, getPoint(i), getPoint(nextI));
+
+            // float sqrDst = (worldPoint - closestPointOnSegment).sqrMagnitude;
+            float sqrDst = worldPoint.subtract(closestPointOnSegment).lengthSquared();
+
+            if (sqrDst < minSqrDst) {
+                minSqrDst = sqrDst;
+                closestPoint = closestPointOnSegment;
+                closestSegmentIndexA = i;
+                closestSegmentIndexB = nextI;
+            }
+
+        }
+        // float closestSegmentLength = (GetPoint (closestSegmentIndexA) - GetPoint (closestSegmentIndexB)).magnitude;
+        float closestSegmentLength = getPoint(closestSegmentIndexA).subtract(getPoint(closestSegmentIndexB)).length();
+        // float t = (closestPoint - GetPoint (closestSegmentIndexA)).magnitude / closestSegmentLength;
+        float t = closestPoint.subtract(getPoint(closestSegmentIndexA)).length() / closestSegmentLength;
+
+        PathMetrics.stopTimer(PathMetrics.CLOSEST_POINT_QUERY, queryStart);
+        return new TimeOnPathData(closestSegmentIndexA, closestSegmentIndexB, t);
+    }
+
+    /// Reads a vertex from one of the path's own buffers, so every per-vertex accessor fails the same way once the path is released.
+    private Vector3f getLocalVector(FloatBuffer data, int index) {
+        checkNotReleased();
+        return new Vector3f(data.get(index * 3), data.get(index * 3 + 1), data.get(index * 3 + 2));
+    }
+
+    // A path without a spatial (for example one loaded on a headless server) is treated as being in world space.
+    private Vector3f transformPoint(Vector3f p) {
+        return (spatial == null) ? p : MathUtility.TransformPoint(p, spatial, space);
+    }
+
+    private Vector3f inverseTransformPoint(Vector3f p) {
+        return (spatial == null) ? p : p.subtract(spatial.getLocalTranslation()).divideLocal(spatial.getLocalScale());
+    }
+
+    private Vector3f transformDirection(Vector3f p) {
+        return (spatial == null) ? p : MathUtility.TransformDirection(p, spatial, space);
+    }
+
+    private Quaternion transformRotation(Quaternion rotation) {
+        return (spatial == null) ? rotation : spatial.getWorldRotation().mult(rotation, rotation);
+    }
+
+    public float getTime(int index) {
+        checkNotReleased();
+        return times.get(index);
+    }
+
+    public FloatBuffer getTimes() {
+        checkNotReleased();
+        return times;
+    }
+
+    /// The closest point on a bezier path to a query point.
+    public static class ClosestPointData {
+
+        private final int segmentIndex;
+        private final float time;
+        private final Vector3f point;
+        private final float distance;
+        private final float distanceAlongPath;
+
+        ClosestPointData(int segmentIndex, float time, Vector3f point, float distance, float distanceAlongPath) {
+            this.segmentIndex = segmentIndex;
+            this.time = time;
+            this.point = point;
+            this.distance = distance;
+            this.distanceAlongPath = distanceAlongPath;
+        }
+
+        /// The index of the bezier segment the point lies on.
+        public int getSegmentIndex() {
+            return segmentIndex;
+        }
+
+        /// The time (between 0 and 1) of the point within its bezier segment.
+        public float getTime() {
+            return time;
+        }
+
+        /// The closest point, in world space.
+        public Vector3f getPoint() {
+            return point;
+        }
+
+        /// The distance from the query point to the closest point.
+        public float getDistance() {
+            return distance;
+        }
+
+        /// The distance along the vertex path to the closest point, as used by GetPointAtDistance.
+        public float getDistanceAlongPath() {
+            return distanceAlongPath;
+        }
+    }
+
+    public static class TimeOnPathData {
+
+        private final int previousIndex;
+        private final int nextIndex;
+        private final float percentBetweenIndices;
+
+            TimeOnPathData(int prev, int next, float percentBetweenIndices) {
+            this.previousIndex = prev;
+            this.nextIndex = next;
+            this.percentBetweenIndices = percentBetweenIndices;
+        }
+
+        int getPreviousIndex() {
+            return previousIndex;
+        }
+
+        int getNextIndex() {
+            return nextIndex;
+        }
+
+        float getPercentBetweenIndices() {
+            return percentBetweenIndices;
+        }
+    }
+    
+    // #endregion
+    
+}
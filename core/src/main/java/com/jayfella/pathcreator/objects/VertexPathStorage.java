@@ -0,0 +1,10 @@
+package com.jayfella.pathcreator.objects;
+
+/// Where the vertex data of a vertex path is kept.
+public enum VertexPathStorage {
+    /// Buffers wrapping arrays on the java heap. Released by the garbage collector like any other object.
+    Heap,
+    /// Direct buffers outside of the java heap, which can be handed to renderers and native libraries without copying.
+    /// The memory is freed when the path is released, or eventually once the buffers are garbage collected.
+    Direct
+}
@@ -0,0 +1,190 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jme3.math.Vector3f;
+
+/// A table of the arc length of a single bezier segment, sampled at evenly spaced times.
+/// The length of each interval is integrated with Gauss-Legendre quadrature over the speed of the curve, so the table is
+/// accurate to floating point precision for any sensible number of intervals. Arc length is mapped back to time by looking up
+/// the interval in the table and refining with Newton's method.
+public class ArcLengthTable {
+
+    // 5 point Gauss-Legendre abscissae and weights on [-1, 1]
+    private static final float[] gaussAbscissae = {
+            0, -0.5384693101056831f, 0.5384693101056831f, -0.9061798459386640f, 0.9061798459386640f
+    };
+    private static final float[] gaussWeights = {
+            0.5688888888888889f, 0.4786286704993665f, 0.4786286704993665f, 0.2369268850561891f, 0.2369268850561891f
+    };
+
+    private static final int maxNewtonIterations = 8;
+
+    // coefficients of the derivative: B'(t) = da + t * (db + t * dc), stored as xyz triplets.
+    private final float[] derivative = new float[9];
+
+    // lengths[i] is the arc length from time 0 to time i / numIntervals.
+    private final float[] lengths;
+    private final int numIntervals;
+
+    /// Creates a length table for the bezier segment defined by 4 points (anchor_1, control_1, control_2, anchor_2)
+    public ArcLengthTable(Vector3f[] points, int numIntervals) {
+
+        if (numIntervals < 1) {
+            throw new IllegalArgumentException("An arc length table needs at least one interval.");
+        }
+
+        Vector3f a1 = points[0], c1 = points[1], c2 = points[2], a2 = points[3];
+
+        // B'(t) = 3(c1 - a1) + 6t(c2 - 2c1 + a1) + 3t^2(a2 - 3c2 + 3c1 - a1)
+        setTriplet(derivative, 0, 3 * (c1.x - a1.x), 3 * (c1.y - a1.y), 3 * (c1.z - a1.z));
+        setTriplet(derivative, 1, 6 * (c2.x - 2 * c1.x + a1.x), 6 * (c2.y - 2 * c1.y + a1.y), 6 * (c2.z - 2 * c1.z + a1.z));
+        setTriplet(derivative, 2,
+                3 * (a2.x - 3 * c2.x + 3 * c1.x - a1.x),
+                3 * (a2.y - 3 * c2.y + 3 * c1.y - a1.y),
+                3 * (a2.z - 3 * c2.z + 3 * c1.z - a1.z));
+
+        this.numIntervals = numIntervals;
+        this.lengths = new float[numIntervals + 1];
+
+        for (int i = 0; i < numIntervals; i++) {
+            lengths[i + 1] = lengths[i] + integrateSpeed((float) i / numIntervals, (float) (i + 1) / numIntervals);
+        }
+    }
+
+    private static void setTriplet(float[] array, int index, float x, float y, float z) {
+        array[index * 3] = x;
+        array[index * 3 + 1] = y;
+        array[index * 3 + 2] = z;
+    }
+
+    /// The total arc length of the segment.
+    public float getLength() {
+        return lengths[numIntervals];
+    }
+
+    /// Returns the arc length from the start of the segment to time 't'.
+    public float getLength(float t) {
+
+        if (t <= 0) {
+            return 0;
+        }
+
+        if (t >= 1) {
+            return getLength();
+        }
+
+        int interval = Math.min((int) (t * numIntervals), numIntervals - 1);
+        return lengths[interval] + integrateSpeed((float) interval / numIntervals, t);
+    }
+
+    /// Returns the speed of the curve (the length of its derivative) at time 't'.
+    public float getSpeed(float t) {
+        float x = derivative[0] + t * (derivative[3] + t * derivative[6]);
+        float y = derivative[1] + t * (derivative[4] + t * derivative[7]);
+        float z = derivative[2] + t * (derivative[5] + t * derivative[8]);
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /// Returns the time at which the arc length from the start of the segment equals 'distance'.
+    public float getTime(float distance) {
+
+        // binary search for the last table entry that is not past the distance
+        int low = 0, high = numIntervals - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (lengths[mid] <= distance) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        return getTimeInInterval(distance, low);
+    }
+
+    /// Returns the time at which the arc length from the start of the segment equals 'distance', which must lie in the table
+    /// interval 'interval', for callers that have already found it with findInterval.
+    float getTimeInInterval(float distance, int interval) {
+
+        if (distance <= 0) {
+            return 0;
+        }
+
+        if (distance >= getLength()) {
+            return 1;
+        }
+
+        float intervalStart = (float) interval / numIntervals;
+        float intervalLength = lengths[interval + 1] - lengths[interval];
+
+        // the answer is always bracketed by [tMin, tMax]
+        float tMin = intervalStart;
+        float tMax = (float) (interval + 1) / numIntervals;
+
+        // start from a linear guess inside the interval
+        float t = (intervalLength > 0)
+                ? tMin + (tMax - tMin) * (distance - lengths[interval]) / intervalLength
+                : tMin;
+
+        for (int i = 0; i < maxNewtonIterations; i++) {
+
+            float error = lengths[interval] + integrateSpeed(intervalStart, t) - distance;
+
+            if (Math.abs(error) <= 1e-6f * Math.max(1, distance)) {
+                break;
+            }
+
+            if (error > 0) {
+                tMax = t;
+            }
+            else {
+                tMin = t;
+            }
+
+            float speed = getSpeed(t);
+            float next = t - error / speed;
+
+            // a cusp has no speed, and a bad step leaves the bracket, so bisect instead.
+            if (speed == 0 || !(next > tMin && next < tMax)) {
+                next = (tMin + tMax) * 0.5f;
+            }
+
+            t = next;
+        }
+
+        return t;
+    }
+
+    /// Returns the table interval containing 'distance', walking the table from 'fromInterval'.
+    int findInterval(float distance, int fromInterval) {
+
+        int interval = Math.max(0, Math.min(fromInterval, numIntervals - 1));
+
+        while (interval > 0 && lengths[interval] > distance) {
+            interval--;
+        }
+
+        while (interval < numIntervals - 1 && lengths[interval + 1] < distance) {
+            interval++;
+        }
+
+        return interval;
+    }
+
+    private float integrateSpeed(float from, float to) {
+
+        float halfRange = (to - from) * 0.5f;
+        float midPoint = (to + from) * 0.5f;
+
+        float sum = 0;
+
+        for (int i = 0; i < gaussAbscissae.length; i++) {
+            sum += gaussWeights[i] * getSpeed(midPoint + halfRange * gaussAbscissae[i]);
+        }
+
+        return sum * halfRange;
+    }
+
+}
@@ -13,6 +13,9 @@ import java.util.List;
 /// (a curve with a start and end 'anchor' point, and two 'control' points to define the shape of the curve between the anchors)
 public class CubicBezierUtility {
 
+    // The largest change in time a single refineClosestTime iteration may make.
+    private static final float maxClosestTimeStep = 0.25f;
+
     /// Returns point at time 't' (between 0 and 1) along bezier curve defined by 4 points (anchor_1, control_1, control_2, anchor_2)
     public static Vector3f evaluateCurve (Vector3f[] points, float t) {
         return evaluateCurve (points[0], points[1], points[2], points[3], t);
@@ -125,8 +128,8 @@ public class CubicBezierUtility {
         Vector3f a = new Vector3f(6, 6, 6);
         Vector3f b = new Vector3f(6, 6, 6);
 
-        a.multLocal(1 - t).multLocal(c2.subtract(c1.mult(2).addLocal(a1)));
-        b.multLocal(t).multLocal(a2.subtract(c2.mult(2).add(c1)));
+        a.multLocal(1 - t).multLocal(c2.subtract(c1.mult(2)).addLocal(a1));
+        b.multLocal(t).multLocal(a2.subtract(c2.mult(2)).addLocal(c1));
 
         Vector3f result = a.add(b);
         return result;
@@ -147,6 +150,175 @@ public class CubicBezierUtility {
         return c.cross(tangent).normalizeLocal();
     }
 
+    /// Refines 't' towards the time of the point on the curve closest to 'point', using Newton's method to find where
+    /// the derivative of the squared distance, (B(t) - point) . B'(t), is zero. Steps are limited and only taken if they
+    /// bring the point closer, so the result is never worse than the starting guess. Starting from a good guess a few
+    /// iterations are enough to reach floating point precision.
+    public static float refineClosestTime (Vector3f[] points, Vector3f point, float t, int maxIterations) {
+
+        t = FastMath.clamp(t, 0, 1);
+        float sqrDst = evaluateCurve(points, t).distanceSquared(point);
+
+        for (int i = 0; i < maxIterations; i++) {
+
+            Vector3f offset = evaluateCurve(points, t).subtractLocal(point);
+            Vector3f derivative = evaluateCurveDerivative(points, t);
+            Vector3f secondDerivative = evaluateCurveSecondDerivative(points, t);
+
+            float f = offset.dot(derivative);
+            float fPrime = derivative.dot(derivative) + offset.dot(secondDerivative);
+
+            // where the distance curves the wrong way newton heads for a maximum, so just move downhill instead.
+            float step = (fPrime > 0) ? -f / fPrime : -Math.signum(f) * maxClosestTimeStep;
+            step = FastMath.clamp(step, -maxClosestTimeStep, maxClosestTimeStep);
+
+            float next = FastMath.clamp(t + step, 0, 1);
+            float nextSqrDst = evaluateCurve(points, next).distanceSquared(point);
+
+            // back off until the step brings the point closer
+            while (nextSqrDst > sqrDst && Math.abs(next - t) > 1e-6f) {
+                step *= 0.5f;
+                next = FastMath.clamp(t + step, 0, 1);
+                nextSqrDst = evaluateCurve(points, next).distanceSquared(point);
+            }
+
+            if (nextSqrDst > sqrDst) {
+                break;
+            }
+
+            boolean converged = Math.abs(next - t) < 1e-6f;
+
+            t = next;
+            sqrDst = nextSqrDst;
+
+            if (converged) {
+                break;
+            }
+        }
+
+        return t;
+    }
+
+    /// Returns the time of the point on the curve closest to 'point'. The curve is sampled at 'numSamples' + 1 evenly spaced times,
+    /// and every sample that is closer than its neighbours is refined with refineClosestTime, as the curve may pass near the point more than once.
+    public static float closestTime (Vector3f[] points, Vector3f point, int numSamples, int maxIterations) {
+
+        float[] sqrDsts = new float[numSamples + 1];
+
+        for (int i = 0; i <= numSamples; i++) {
+            sqrDsts[i] = evaluateCurve(points, (float) i / numSamples).distanceSquared(point);
+        }
+
+        float bestTime = 0;
+        float bestSqrDst = Float.MAX_VALUE;
+
+        for (int i = 0; i <= numSamples; i++) {
+
+            boolean isLocalMinimum = (i == 0 || sqrDsts[i] <= sqrDsts[i - 1]) && (i == numSamples || sqrDsts[i] <= sqrDsts[i + 1]);
+
+            if (isLocalMinimum) {
+                float t = refineClosestTime(points, point, (float) i / numSamples, maxIterations);
+                float sqrDst = evaluateCurve(points, t).distanceSquared(point);
+
+                if (sqrDst < bestSqrDst) {
+                    bestSqrDst = sqrDst;
+                    bestTime = t;
+                }
+            }
+        }
+
+        return bestTime;
+    }
+
+    /// Returns the squared distance from 'point' to the ray starting at 'origin' in the (normalized) 'direction'.
+    /// Points behind the ray are measured from its origin.
+    public static float sqrDistanceToRay (Vector3f point, Vector3f origin, Vector3f direction) {
+        Vector3f offset = point.subtract(origin);
+        float along = Math.max(0, offset.dot(direction));
+        return offset.subtractLocal(direction.mult(along)).lengthSquared();
+    }
+
+    /// Refines 't' towards the time of the point on the curve closest to the ray starting at 'origin' in the (normalized) 'direction'.
+    /// Works the same way as refineClosestTime, with the offset from the ray taken perpendicular to it.
+    public static float refineClosestTimeToRay (Vector3f[] points, Vector3f origin, Vector3f direction, float t, int maxIterations) {
+
+        t = FastMath.clamp(t, 0, 1);
+        float sqrDst = sqrDistanceToRay(evaluateCurve(points, t), origin, direction);
+
+        for (int i = 0; i < maxIterations; i++) {
+
+            Vector3f offset = evaluateCurve(points, t).subtractLocal(origin);
+            offset.subtractLocal(direction.mult(Math.max(0, offset.dot(direction))));
+
+            Vector3f derivative = evaluateCurveDerivative(points, t);
+            Vector3f secondDerivative = evaluateCurveSecondDerivative(points, t);
+
+            // only the part of the derivative across the ray changes the distance to it
+            float along = derivative.dot(direction);
+            float f = offset.dot(derivative);
+            float fPrime = derivative.dot(derivative) - along * along + offset.dot(secondDerivative);
+
+            float step = (fPrime > 0) ? -f / fPrime : -Math.signum(f) * maxClosestTimeStep;
+            step = FastMath.clamp(step, -maxClosestTimeStep, maxClosestTimeStep);
+
+            float next = FastMath.clamp(t + step, 0, 1);
+            float nextSqrDst = sqrDistanceToRay(evaluateCurve(points, next), origin, direction);
+
+            // back off until the step brings the curve closer to the ray
+            while (nextSqrDst > sqrDst && Math.abs(next - t) > 1e-6f) {
+                step *= 0.5f;
+                next = FastMath.clamp(t + step, 0, 1);
+                nextSqrDst = sqrDistanceToRay(evaluateCurve(points, next), origin, direction);
+            }
+
+            if (nextSqrDst > sqrDst) {
+                break;
+            }
+
+            boolean converged = Math.abs(next - t) < 1e-6f;
+
+            t = next;
+            sqrDst = nextSqrDst;
+
+            if (converged) {
+                break;
+            }
+        }
+
+        return t;
+    }
+
+    /// Returns the time of the point on the curve closest to the ray starting at 'origin' in the (normalized) 'direction'.
+    /// Like closestTime, every sample that is closer than its neighbours is refined, as the curve may pass near the ray more than once.
+    public static float closestTimeToRay (Vector3f[] points, Vector3f origin, Vector3f direction, int numSamples, int maxIterations) {
+
+        float[] sqrDsts = new float[numSamples + 1];
+
+        for (int i = 0; i <= numSamples; i++) {
+            sqrDsts[i] = sqrDistanceToRay(evaluateCurve(points, (float) i / numSamples), origin, direction);
+        }
+
+        float bestTime = 0;
+        float bestSqrDst = Float.MAX_VALUE;
+
+        for (int i = 0; i <= numSamples; i++) {
+
+            boolean isLocalMinimum = (i == 0 || sqrDsts[i] <= sqrDsts[i - 1]) && (i == numSamples || sqrDsts[i] <= sqrDsts[i + 1]);
+
+            if (isLocalMinimum) {
+                float t = refineClosestTimeToRay(points, origin, direction, (float) i / numSamples, maxIterations);
+                float sqrDst = sqrDistanceToRay(evaluateCurve(points, t), origin, direction);
+
+                if (sqrDst < bestSqrDst) {
+                    bestSqrDst = sqrDst;
+                    bestTime = t;
+                }
+            }
+        }
+
+        return bestTime;
+    }
+
     public static BoundingBox calculateSegmentBounds (Vector3f p0, Vector3f p1, Vector3f p2, Vector3f p3) {
         MinMax3D minMax = new MinMax3D ();
         minMax.addValue(p0);
@@ -201,29 +373,10 @@ public class CubicBezierUtility {
     public static List<Float> extremePointTimes (Vector3f p0, Vector3f p1, Vector3f p2, Vector3f p3) {
         // coefficients of derivative function
         // Vector3f a = 3 * (-p0 + 3 * p1 - 3 * p2 + p3);
-
-        Vector3f a1 = new Vector3f(3,3,3).mult(p1);
-        Vector3f a2 = new Vector3f(3,3,3).mult(p2);
-
-        Vector3f a = new Vector3f(3,3,3);
-        a.multLocal(p0.negate()).addLocal(a1).subtractLocal(a2).addLocal(p3);
-
-
-        /*
-        Vector3f a = new Vector3f(3,3,3).mult(
-                p0.negate()
-                .add(3,3,3)
-                .mult(p1.subtract(3,3,3))
-                .mult(p2.add(p3))
-        );
-
-         */
+        Vector3f a = p1.subtract(p2).multLocal(3).addLocal(p3).subtractLocal(p0).multLocal(3);
 
         // Vector3f b = 6 * (p0 - 2 * p1 + p2);
-        Vector3f b = new Vector3f(6,6,6)
-                .multLocal(
-                        p0.subtract(new Vector3f(2,2,2).mult(p1.add(p2)))
-                );
+        Vector3f b = p0.add(p2).subtractLocal(p1.mult(2)).multLocal(6);
 
         // Vector3f c = 3 * (p1 - p0);
         Vector3f c = new Vector3f(3,3,3).mult(p1.subtract(p0));
@@ -260,6 +413,14 @@ public class CubicBezierUtility {
                 }
             }
         }
+        // the derivative is linear: y = bx + c
+        else if (b != 0) {
+            float t = -c / b;
+
+            if (t >= 0 && t <= 1) {
+                times.add (t);
+            }
+        }
         return times;
     }
 
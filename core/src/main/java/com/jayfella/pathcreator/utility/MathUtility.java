@@ -186,7 +186,7 @@ public class MathUtility {
         // float t = Mathf.Clamp01 (Vector2.Dot (aP, aB) / sqrLenAB);
         float t = FastMath.clamp(aP.dot(aB) / sqrLenAB, 0, 1);
         // return a + aB * t;
-        return  a.add(aB).mult(t);
+        return a.add(aB.mult(t));
     }
 
     public static Vector3f ClosestPointOnLineSegment (Vector3f p, Vector3f a, Vector3f b) {
@@ -203,7 +203,7 @@ public class MathUtility {
         // float t = Mathf.Clamp01 (Vector3f.Dot (aP, aB) / sqrLenAB);
         float t = FastMath.clamp(aP.dot(aB) / sqrLenAB, 0, 1);
         // return a + aB * t;
-        return  a.add(aB).mult(t);
+        return a.add(aB.mult(t));
     }
 
     public static int SideOfLine (Vector2f a, Vector2f b, Vector2f c) {
@@ -0,0 +1,88 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/// Hands out the buffers of a mesh so they can be filled in place, reusing the buffer a mesh already has when it is big enough
+/// instead of allocating a new direct buffer every time the mesh is rebuilt.
+///
+/// Each method returns a buffer positioned at zero with room for the requested number of values. Once it has been filled,
+/// pass it to commitBuffer, which flips it and hands it back to the mesh.
+public class MeshBufferUtility {
+
+    /// Returns a float buffer for 'numElements' elements of 'numComponents' floats each.
+    /// The buffer the mesh already has for the type is reused if it holds floats with the same number of components and is large enough.
+    public static FloatBuffer getFloatBuffer(Mesh mesh, VertexBuffer.Type type, int numComponents, int numElements) {
+
+        VertexBuffer vertexBuffer = mesh.getBuffer(type);
+        int size = numComponents * numElements;
+
+        if (vertexBuffer != null
+                && vertexBuffer.getNumComponents() == numComponents
+                && vertexBuffer.getData() instanceof FloatBuffer
+                && vertexBuffer.getData().capacity() >= size) {
+
+            FloatBuffer data = (FloatBuffer) vertexBuffer.getData();
+            data.clear();
+            data.limit(size);
+            return data;
+        }
+
+        return BufferUtils.createFloatBuffer(size);
+    }
+
+    /// Returns an int buffer for 'numIndices' indices, reusing the index buffer of the mesh if it holds ints and is large enough.
+    public static IntBuffer getIndexBuffer(Mesh mesh, int numIndices) {
+
+        VertexBuffer vertexBuffer = mesh.getBuffer(VertexBuffer.Type.Index);
+
+        if (vertexBuffer != null
+                && vertexBuffer.getData() instanceof IntBuffer
+                && vertexBuffer.getData().capacity() >= numIndices) {
+
+            IntBuffer data = (IntBuffer) vertexBuffer.getData();
+            data.clear();
+            data.limit(numIndices);
+            return data;
+        }
+
+        return BufferUtils.createIntBuffer(numIndices);
+    }
+
+    /// Flips a buffer returned by getFloatBuffer once it has been filled and sets it on the mesh.
+    /// A reused buffer is marked as changed so it is uploaded again, otherwise a new vertex buffer is set.
+    public static void commitBuffer(Mesh mesh, VertexBuffer.Type type, int numComponents, FloatBuffer data) {
+
+        data.flip();
+
+        VertexBuffer vertexBuffer = mesh.getBuffer(type);
+
+        if (vertexBuffer != null && vertexBuffer.getData() == data) {
+            vertexBuffer.updateData(data);
+        }
+        else {
+            mesh.setBuffer(type, numComponents, data);
+        }
+    }
+
+    /// Flips a buffer returned by getIndexBuffer once it has been filled and sets it on the mesh,
+    /// with 'numComponents' indices per element (3 for triangles, 2 for lines, 1 for strips and loops).
+    public static void commitIndexBuffer(Mesh mesh, int numComponents, IntBuffer data) {
+
+        data.flip();
+
+        VertexBuffer vertexBuffer = mesh.getBuffer(VertexBuffer.Type.Index);
+
+        if (vertexBuffer != null && vertexBuffer.getData() == data && vertexBuffer.getNumComponents() == numComponents) {
+            vertexBuffer.updateData(data);
+        }
+        else {
+            mesh.setBuffer(VertexBuffer.Type.Index, numComponents, data);
+        }
+    }
+
+}
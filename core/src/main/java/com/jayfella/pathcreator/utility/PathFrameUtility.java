@@ -0,0 +1,215 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jme3.math.FastMath;
+
+/// Computes the frame (tangent, normal and binormal) at each vertex of a path, and the rotation that orients an object to that frame.
+/// Everything works in place over flat xyz arrays (xyzw for rotations), so a whole path is processed without allocating.
+///
+/// Frames follow the convention of Quaternion.lookAt(tangent, normal): the local z axis points along the tangent,
+/// the local y axis along the normal, and the binormal (the local x axis) is normal x tangent.
+public class PathFrameUtility {
+
+    /// Calculates rotation minimizing normals for a path in 3D space using the double reflection method
+    /// (Wang, Juttler, Zheng and Liu - "Computation of Rotation Minimizing Frames", 2008).
+    ///
+    /// A reference axis starts at 'up' and is carried from vertex to vertex by two reflections: one across the plane between the two vertices,
+    /// and one that lines the reflected tangent up with the next tangent. The normal at each vertex is the reference axis x the tangent.
+    /// Tangents must be normalized.
+    public static void computeRotationMinimizingNormals(float[] points, float[] tangents, float[] normals, int numVertices,
+                                                        float upX, float upY, float upZ) {
+
+        float rX = upX, rY = upY, rZ = upZ;
+
+        for (int i = 0; i < numVertices; i++) {
+
+            int index = i * 3;
+
+            if (i > 0) {
+
+                int prev = index - 3;
+
+                // First reflection, across the plane halfway between the two vertices
+                float v1X = points[index] - points[prev];
+                float v1Y = points[index + 1] - points[prev + 1];
+                float v1Z = points[index + 2] - points[prev + 2];
+                float c1 = v1X * v1X + v1Y * v1Y + v1Z * v1Z;
+
+                float tLX = tangents[prev], tLY = tangents[prev + 1], tLZ = tangents[prev + 2];
+
+                if (c1 > 0) {
+                    float rScale = 2 / c1 * (v1X * rX + v1Y * rY + v1Z * rZ);
+                    rX -= v1X * rScale;
+                    rY -= v1Y * rScale;
+                    rZ -= v1Z * rScale;
+
+                    float tScale = 2 / c1 * (v1X * tLX + v1Y * tLY + v1Z * tLZ);
+                    tLX -= v1X * tScale;
+                    tLY -= v1Y * tScale;
+                    tLZ -= v1Z * tScale;
+                }
+
+                // Second reflection, lining the reflected tangent up with the tangent at this vertex
+                float v2X = tangents[index] - tLX;
+                float v2Y = tangents[index + 1] - tLY;
+                float v2Z = tangents[index + 2] - tLZ;
+                float c2 = v2X * v2X + v2Y * v2Y + v2Z * v2Z;
+
+                if (c2 > 0) {
+                    float rScale = 2 / c2 * (v2X * rX + v2Y * rY + v2Z * rZ);
+                    rX -= v2X * rScale;
+                    rY -= v2Y * rScale;
+                    rZ -= v2Z * rScale;
+                }
+            }
+
+            // normal = reference axis x tangent
+            float tX = tangents[index], tY = tangents[index + 1], tZ = tangents[index + 2];
+            setNormalized(normals, index, rY * tZ - rZ * tY, rZ * tX - rX * tZ, rX * tY - rY * tX);
+        }
+    }
+
+    /// Calculates normals for a path in 2D space, which all lie in the plane of the path: tangent x up, negated unless 'flipNormals' is set.
+    public static void computeFlatNormals(float[] tangents, float[] normals, int numVertices,
+                                          float upX, float upY, float upZ, boolean flipNormals) {
+
+        float sign = flipNormals ? 1 : -1;
+
+        for (int i = 0; i < numVertices; i++) {
+            int index = i * 3;
+            float tX = tangents[index], tY = tangents[index + 1], tZ = tangents[index + 2];
+
+            normals[index] = (tY * upZ - tZ * upY) * sign;
+            normals[index + 1] = (tZ * upX - tX * upZ) * sign;
+            normals[index + 2] = (tX * upY - tY * upX) * sign;
+        }
+    }
+
+    /// Rotates the normal at 'vertexIndex' about the tangent at the same vertex by 'angle' radians, then multiplies it by 'scale'.
+    /// The normal is assumed to be perpendicular to the (normalized) tangent.
+    public static void rotateNormal(float[] tangents, float[] normals, int vertexIndex, float angle, float scale) {
+
+        int index = vertexIndex * 3;
+
+        float tX = tangents[index], tY = tangents[index + 1], tZ = tangents[index + 2];
+        float nX = normals[index], nY = normals[index + 1], nZ = normals[index + 2];
+
+        // Rodrigues' rotation, without the (t . n) term as the normal is perpendicular to the tangent
+        float cos = FastMath.cos(angle) * scale;
+        float sin = FastMath.sin(angle) * scale;
+
+        normals[index] = nX * cos + (tY * nZ - tZ * nY) * sin;
+        normals[index + 1] = nY * cos + (tZ * nX - tX * nZ) * sin;
+        normals[index + 2] = nZ * cos + (tX * nY - tY * nX) * sin;
+    }
+
+    /// Returns the angle in radians (between -PI and PI) that rotates vector 'from' onto vector 'to' about 'axis', for vectors stored at the given vertex indices.
+    public static float signedAngle(float[] vectors, int fromIndex, int toIndex, float[] axes, int axisIndex) {
+
+        int f = fromIndex * 3, t = toIndex * 3, a = axisIndex * 3;
+
+        float crossX = vectors[f + 1] * vectors[t + 2] - vectors[f + 2] * vectors[t + 1];
+        float crossY = vectors[f + 2] * vectors[t] - vectors[f] * vectors[t + 2];
+        float crossZ = vectors[f] * vectors[t + 1] - vectors[f + 1] * vectors[t];
+
+        float dot = vectors[f] * vectors[t] + vectors[f + 1] * vectors[t + 1] + vectors[f + 2] * vectors[t + 2];
+        float crossLength = (float) Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+
+        float angle = FastMath.atan2(crossLength, dot);
+        float side = crossX * axes[a] + crossY * axes[a + 1] + crossZ * axes[a + 2];
+
+        return (side < 0) ? -angle : angle;
+    }
+
+    /// Calculates the rotation at every vertex from its tangent and normal, as xyzw quaternions.
+    /// The normal is made perpendicular to the tangent first, so each rotation is the same as Quaternion.lookAt(tangent, normal).
+    public static void computeRotations(float[] tangents, float[] normals, float[] rotations, int numVertices) {
+
+        for (int i = 0; i < numVertices; i++) {
+
+            int index = i * 3;
+
+            // z axis: the tangent
+            float zX = tangents[index], zY = tangents[index + 1], zZ = tangents[index + 2];
+            float zLength = (float) Math.sqrt(zX * zX + zY * zY + zZ * zZ);
+            zX /= zLength; zY /= zLength; zZ /= zLength;
+
+            // x axis (binormal): normal x tangent
+            float nX = normals[index], nY = normals[index + 1], nZ = normals[index + 2];
+            float xX = nY * zZ - nZ * zY;
+            float xY = nZ * zX - nX * zZ;
+            float xZ = nX * zY - nY * zX;
+            float xLength = (float) Math.sqrt(xX * xX + xY * xY + xZ * xZ);
+            xX /= xLength; xY /= xLength; xZ /= xLength;
+
+            // y axis: tangent x binormal
+            float yX = zY * xZ - zZ * xY;
+            float yY = zZ * xX - zX * xZ;
+            float yZ = zX * xY - zY * xX;
+
+            setRotationFromAxes(rotations, i * 4, xX, xY, xZ, yX, yY, yZ, zX, zY, zZ);
+        }
+    }
+
+    /// Writes the quaternion of the rotation matrix with columns x, y and z, using the same method as Quaternion.fromRotationMatrix.
+    private static void setRotationFromAxes(float[] rotations, int offset,
+                                            float m00, float m10, float m20,
+                                            float m01, float m11, float m21,
+                                            float m02, float m12, float m22) {
+
+        float qX, qY, qZ, qW;
+        float trace = m00 + m11 + m22;
+
+        if (trace >= 0) {
+            float s = (float) Math.sqrt(trace + 1);
+            qW = 0.5f * s;
+            s = 0.5f / s;
+            qX = (m21 - m12) * s;
+            qY = (m02 - m20) * s;
+            qZ = (m10 - m01) * s;
+        }
+        else if ((m00 > m11) && (m00 > m22)) {
+            float s = (float) Math.sqrt(1 + m00 - m11 - m22);
+            qX = s * 0.5f;
+            s = 0.5f / s;
+            qY = (m10 + m01) * s;
+            qZ = (m02 + m20) * s;
+            qW = (m21 - m12) * s;
+        }
+        else if (m11 > m22) {
+            float s = (float) Math.sqrt(1 + m11 - m00 - m22);
+            qY = s * 0.5f;
+            s = 0.5f / s;
+            qX = (m10 + m01) * s;
+            qZ = (m21 + m12) * s;
+            qW = (m02 - m20) * s;
+        }
+        else {
+            float s = (float) Math.sqrt(1 + m22 - m00 - m11);
+            qZ = s * 0.5f;
+            s = 0.5f / s;
+            qX = (m02 + m20) * s;
+            qY = (m21 + m12) * s;
+            qW = (m10 - m01) * s;
+        }
+
+        rotations[offset] = qX;
+        rotations[offset + 1] = qY;
+        rotations[offset + 2] = qZ;
+        rotations[offset + 3] = qW;
+    }
+
+    private static void setNormalized(float[] array, int index, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+
+        if (length > 0) {
+            x /= length;
+            y /= length;
+            z /= length;
+        }
+
+        array[index] = x;
+        array[index + 1] = y;
+        array[index + 2] = z;
+    }
+
+}
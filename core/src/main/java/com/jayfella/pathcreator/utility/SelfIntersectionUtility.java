@@ -0,0 +1,389 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.math.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/// Finds the places where the polyline of a 2D vertex path crosses itself, for example to reject a race track or region boundary
+/// that loops over itself before it is baked. Paths in the xy space are tested on the xy plane, and xz paths on the xz plane.
+///
+/// Testing every edge against every other edge is quadratic, so the edges are first dropped into a uniform grid, sized so a cell
+/// holds a couple of edges. Long edges are added to every cell they pass through, not every cell of their bounds. The (cell, edge)
+/// entries are sorted by cell, and only edges that share a cell are tested against each other, so the cost grows with the number
+/// of vertices and crossings rather than with its square. A million vertices take a few hundred milliseconds.
+/// The cost only degrades where a lot of edges pile into the same few cells, such as a path that winds round the same point many times.
+///
+/// Edges that touch count as crossing, as do collinear edges that overlap. Edges that follow each other along the path share a vertex
+/// and are never reported, and neither are zero length edges, such as the duplicated last vertex of a closed path.
+public class SelfIntersectionUtility {
+
+    // the size of a cell, relative to the average length of an edge.
+    private static final float cellScale = 2;
+
+    /// Finds every place the path crosses itself, ordered by the first segment of each crossing.
+    /// Throws an IllegalArgumentException if the path is in the xyz space.
+    public static List<SelfIntersection> findSelfIntersections(VertexPath path) {
+        List<SelfIntersection> store = new ArrayList<>();
+        collectSelfIntersections(path, Integer.MAX_VALUE, store);
+        return store;
+    }
+
+    /// Whether the path crosses itself anywhere. This stops at the first crossing it finds.
+    /// Throws an IllegalArgumentException if the path is in the xyz space.
+    public static boolean isSelfIntersecting(VertexPath path) {
+        List<SelfIntersection> store = new ArrayList<>(1);
+        collectSelfIntersections(path, 1, store);
+        return !store.isEmpty();
+    }
+
+    /// Adds the places the path crosses itself to 'store', stopping once 'maxIntersections' have been found.
+    /// Without a limit they are ordered by the first segment of each crossing, otherwise the ones that are found first are returned.
+    /// Throws an IllegalArgumentException if the path is in the xyz space.
+    public static void collectSelfIntersections(VertexPath path, int maxIntersections, List<SelfIntersection> store) {
+
+        if (path.getSpace() == PathSpace.xyz) {
+            throw new IllegalArgumentException("Self intersections can only be found for paths in the xy or xz space.");
+        }
+
+        if (maxIntersections < 1) {
+            throw new IllegalArgumentException("The maximum number of intersections must be at least one, not " + maxIntersections);
+        }
+
+        FloatBuffer points = path.getLocalPoints();
+        int numPoints = path.getNumPoints();
+        int planeAxis = (path.getSpace() == PathSpace.xy) ? 1 : 2;
+
+        float[] xs = new float[numPoints];
+        float[] ys = new float[numPoints];
+
+        for (int i = 0; i < numPoints; i++) {
+            xs[i] = points.get(i * 3);
+            ys[i] = points.get(i * 3 + planeAxis);
+        }
+
+        int start = store.size();
+        new EdgeGrid(xs, ys, path.isClosedLoop()).collect(points, maxIntersections, store);
+
+        if (maxIntersections == Integer.MAX_VALUE) {
+            store.subList(start, store.size()).sort((a, b) -> (a.segmentIndexA != b.segmentIndexA)
+                    ? Integer.compare(a.segmentIndexA, b.segmentIndexA)
+                    : Integer.compare(a.segmentIndexB, b.segmentIndexB));
+        }
+    }
+
+    /// The edges of a polyline sorted into the cells of a grid.
+    private static class EdgeGrid {
+
+        private final float[] xs;
+        private final float[] ys;
+        private final int numPoints;
+        private final boolean closedLoop;
+
+        // the vertex each edge starts at. Zero length edges are left out, so edges next to each other here are joined on the path.
+        private final int[] edgeStarts;
+        private final int numEdges;
+
+        private float minX, minY;
+        private float cellSize;
+        private long numCellsX;
+        private int edgeBits;
+
+        // sorted entries, each a cell index in the high bits and an edge in the low 'edgeBits' bits.
+        private long[] entries = new long[0];
+        private int numEntries;
+
+        EdgeGrid(float[] xs, float[] ys, boolean closedLoop) {
+
+            this.xs = xs;
+            this.ys = ys;
+            this.numPoints = xs.length;
+            this.closedLoop = closedLoop;
+
+            int numPathEdges = (closedLoop) ? numPoints : Math.max(0, numPoints - 1);
+
+            edgeStarts = new int[numPathEdges];
+            int count = 0;
+
+            double totalLength = 0;
+
+            for (int i = 0; i < numPathEdges; i++) {
+
+                int next = (i + 1) % numPoints;
+                float dx = xs[next] - xs[i];
+                float dy = ys[next] - ys[i];
+
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+
+                edgeStarts[count++] = i;
+                totalLength += Math.sqrt(dx * dx + dy * dy);
+            }
+
+            numEdges = count;
+
+            if (numEdges < 2) {
+                return;
+            }
+
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            minX = Float.POSITIVE_INFINITY;
+            minY = Float.POSITIVE_INFINITY;
+
+            for (int i = 0; i < numPoints; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+
+            edgeBits = 32 - Integer.numberOfLeadingZeros(numEdges - 1);
+            double maxCells = Math.pow(2, 63 - edgeBits);
+
+            cellSize = (float) (totalLength / numEdges * cellScale);
+
+            double width = (double) maxX - minX;
+            double height = (double) maxY - minY;
+
+            // a path with a few very long edges could need more cells than the keys have room for, so those use bigger cells.
+            while ((Math.floor(width / cellSize) + 1) * (Math.floor(height / cellSize) + 1) >= maxCells) {
+                cellSize *= 2;
+            }
+
+            numCellsX = (long) Math.floor(width / cellSize) + 1;
+            long numCellsY = (long) Math.floor(height / cellSize) + 1;
+
+            entries = new long[numEdges * 3];
+
+            for (int edge = 0; edge < numEdges; edge++) {
+                addEdge(edge, numCellsY);
+            }
+
+            Arrays.sort(entries, 0, numEntries);
+        }
+
+        /// Adds the edge to the cells it passes through, a row at a time. Cells are found in double precision, and the part of the edge
+        /// in each row is widened slightly, so two edges that meet on the border of a cell are always in at least one cell together.
+        private void addEdge(int edge, long numCellsY) {
+
+            int a = edgeStarts[edge];
+            int b = (a + 1) % numPoints;
+
+            double x0 = (double) xs[a] - minX, y0 = (double) ys[a] - minY;
+            double x1 = (double) xs[b] - minX, y1 = (double) ys[b] - minY;
+
+            double edgeMinX = Math.min(x0, x1), edgeMaxX = Math.max(x0, x1);
+            double edgeMinY = Math.min(y0, y1), edgeMaxY = Math.max(y0, y1);
+
+            double margin = cellSize * 1e-3;
+
+            long firstRow = cell(edgeMinY - margin, numCellsY);
+            long lastRow = cell(edgeMaxY + margin, numCellsY);
+
+            for (long row = firstRow; row <= lastRow; row++) {
+
+                double spanMinX = edgeMinX;
+                double spanMaxX = edgeMaxX;
+
+                if (firstRow != lastRow) {
+                    // clip the edge to the y range of the row and take the x range of what's left.
+                    double slope = (x1 - x0) / (y1 - y0);
+                    double xAtRowMin = x0 + (row * (double) cellSize - margin - y0) * slope;
+                    double xAtRowMax = x0 + ((row + 1) * (double) cellSize + margin - y0) * slope;
+                    spanMinX = Math.max(spanMinX, Math.min(xAtRowMin, xAtRowMax));
+                    spanMaxX = Math.min(spanMaxX, Math.max(xAtRowMin, xAtRowMax));
+                }
+
+                long firstColumn = cell(spanMinX - margin, numCellsX);
+                long lastColumn = cell(spanMaxX + margin, numCellsX);
+
+                for (long column = firstColumn; column <= lastColumn; column++) {
+
+                    if (numEntries == entries.length) {
+                        entries = Arrays.copyOf(entries, entries.length * 2);
+                    }
+
+                    entries[numEntries++] = ((row * numCellsX + column) << edgeBits) | edge;
+                }
+            }
+        }
+
+        private long cell(double offset, long numCells) {
+            long cell = (long) Math.floor(offset / cellSize);
+            return Math.max(0, Math.min(numCells - 1, cell));
+        }
+
+        /// Tests the edges in each cell against each other. A pair that crosses is usually in more than one cell together,
+        /// so the pairs that have been reported are remembered.
+        void collect(FloatBuffer points, int maxIntersections, List<SelfIntersection> store) {
+
+            long edgeMask = (1L << edgeBits) - 1;
+            Set<Long> reported = null;
+            int found = 0;
+
+            int runStart = 0;
+
+            while (runStart < numEntries) {
+
+                long cell = entries[runStart] >>> edgeBits;
+                int runEnd = runStart + 1;
+
+                while (runEnd < numEntries && (entries[runEnd] >>> edgeBits) == cell) {
+                    runEnd++;
+                }
+
+                for (int i = runStart; i < runEnd - 1; i++) {
+
+                    int edgeA = (int) (entries[i] & edgeMask);
+
+                    for (int j = i + 1; j < runEnd; j++) {
+
+                        int edgeB = (int) (entries[j] & edgeMask);
+
+                        if (areJoined(edgeA, edgeB)) {
+                            continue;
+                        }
+
+                        SelfIntersection intersection = intersect(points, edgeA, edgeB);
+
+                        if (intersection == null) {
+                            continue;
+                        }
+
+                        if (reported == null) {
+                            reported = new HashSet<>();
+                        }
+
+                        if (reported.add((long) edgeA * numEdges + edgeB)) {
+
+                            store.add(intersection);
+
+                            if (++found == maxIntersections) {
+                                return;
+                            }
+                        }
+                    }
+                }
+
+                runStart = runEnd;
+            }
+        }
+
+        // edges are sorted within a cell, so 'edgeA' is always the lower one.
+        private boolean areJoined(int edgeA, int edgeB) {
+            return edgeB == edgeA + 1 || (closedLoop && edgeA == 0 && edgeB == numEdges - 1 && numEdges > 2);
+        }
+
+        /// Tests two edges for a crossing with orientation tests in double precision, or returns null if they don't touch.
+        private SelfIntersection intersect(FloatBuffer points, int edgeA, int edgeB) {
+
+            int a0 = edgeStarts[edgeA], a1 = (a0 + 1) % numPoints;
+            int b0 = edgeStarts[edgeB], b1 = (b0 + 1) % numPoints;
+
+            // the bounds of most pairs in a cell don't overlap.
+            if (Math.max(xs[a0], xs[a1]) < Math.min(xs[b0], xs[b1]) || Math.max(xs[b0], xs[b1]) < Math.min(xs[a0], xs[a1])
+                    || Math.max(ys[a0], ys[a1]) < Math.min(ys[b0], ys[b1]) || Math.max(ys[b0], ys[b1]) < Math.min(ys[a0], ys[a1])) {
+                return null;
+            }
+
+            double sideA0 = orientation(b0, b1, a0);
+            double sideA1 = orientation(b0, b1, a1);
+            double sideB0 = orientation(a0, a1, b0);
+            double sideB1 = orientation(a0, a1, b1);
+
+            if ((sideA0 > 0 && sideA1 > 0) || (sideA0 < 0 && sideA1 < 0) || (sideB0 > 0 && sideB1 > 0) || (sideB0 < 0 && sideB1 < 0)) {
+                return null;
+            }
+
+            float timeA, timeB;
+
+            if (sideA0 == 0 && sideA1 == 0) {
+
+                // the edges lie on the same line. Report where their overlap starts along the first edge.
+                double dx = (double) xs[a1] - xs[a0];
+                double dy = (double) ys[a1] - ys[a0];
+                double sqrLength = dx * dx + dy * dy;
+                double timeB0 = (((double) xs[b0] - xs[a0]) * dx + ((double) ys[b0] - ys[a0]) * dy) / sqrLength;
+                double timeB1 = (((double) xs[b1] - xs[a0]) * dx + ((double) ys[b1] - ys[a0]) * dy) / sqrLength;
+
+                double overlapStart = Math.max(0, Math.min(timeB0, timeB1));
+                double overlapEnd = Math.min(1, Math.max(timeB0, timeB1));
+
+                if (overlapStart > overlapEnd) {
+                    return null;
+                }
+
+                timeA = (float) overlapStart;
+                timeB = (float) ((overlapStart - timeB0) / (timeB1 - timeB0));
+            }
+            else {
+                timeA = (float) (sideA0 / (sideA0 - sideA1));
+                timeB = (float) (sideB0 / (sideB0 - sideB1));
+            }
+
+            Vector3f point = new Vector3f(points.get(a0 * 3), points.get(a0 * 3 + 1), points.get(a0 * 3 + 2))
+                    .interpolateLocal(new Vector3f(points.get(a1 * 3), points.get(a1 * 3 + 1), points.get(a1 * 3 + 2)), timeA);
+
+            return new SelfIntersection(a0, timeA, b0, timeB, point);
+        }
+
+        /// Twice the signed area of the triangle (p, q, r): positive if r is to the left of the line from p to q, and zero if it's on it.
+        private double orientation(int p, int q, int r) {
+            return ((double) xs[q] - xs[p]) * ((double) ys[r] - ys[p]) - ((double) ys[q] - ys[p]) * ((double) xs[r] - xs[p]);
+        }
+    }
+
+    /// A place where a vertex path crosses itself. Each segment is the edge from the vertex with its index to the next vertex,
+    /// and the time is how far along that edge the crossing is, from 0 to 1.
+    public static class SelfIntersection {
+
+        private final int segmentIndexA;
+        private final float timeA;
+        private final int segmentIndexB;
+        private final float timeB;
+        private final Vector3f point;
+
+        SelfIntersection(int segmentIndexA, float timeA, int segmentIndexB, float timeB, Vector3f point) {
+            this.segmentIndexA = segmentIndexA;
+            this.timeA = timeA;
+            this.segmentIndexB = segmentIndexB;
+            this.timeB = timeB;
+            this.point = point;
+        }
+
+        /// The earlier of the two segments along the path.
+        public int getSegmentIndexA() {
+            return segmentIndexA;
+        }
+
+        public float getTimeA() {
+            return timeA;
+        }
+
+        public int getSegmentIndexB() {
+            return segmentIndexB;
+        }
+
+        public float getTimeB() {
+            return timeB;
+        }
+
+        /// The crossing in the local space of the path, on the first segment.
+        public Vector3f getPoint() {
+            return point;
+        }
+
+        @Override
+        public String toString() {
+            return "SelfIntersection[" + segmentIndexA + "@" + timeA + ", " + segmentIndexB + "@" + timeB + ", point=" + point + "]";
+        }
+    }
+
+}
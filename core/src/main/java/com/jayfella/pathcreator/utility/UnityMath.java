@@ -18,8 +18,10 @@ public class UnityMath {
         Finally divide value' by b'. This gives the InverseLerp amount.
      */
     public static float inverseLerp(float a, float b, float t) {
-        b = b - a;
-        return t / b;
+        if (a == b) {
+            return 0;
+        }
+        return FastMath.clamp((t - a) / (b - a), 0, 1);
     }
 
     // PingPongs the value t, so that it is never larger than length and never smaller than 0.
@@ -0,0 +1,793 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jayfella.pathcreator.metrics.PathMetrics;
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.MinMax3D;
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+public class VertexPathUtility {
+
+    // The deepest a single segment is ever subdivided by the adaptive splitters (at most 2^20 vertices per segment).
+    // Each segment is only subdivided as deep as its tolerance needs (see subdivisionDepth), so this is only reached by a tolerance
+    // below a millionth of a millionth of the size of the segment, far below float precision. Hitting it is counted in PathMetrics.
+    static final int maxSubdivisionDepth = 20;
+
+    // Paths with at least this many segments are split on multiple threads by the splitters that support it.
+    // Volatile, as it is set on one thread and read by splits running on others.
+    private static volatile int parallelSegmentThreshold = 64;
+
+    /// Returns the number of segments at which the angle error, flatness and max deviation splitters start splitting segments in parallel.
+    public static int getParallelSegmentThreshold() {
+        return parallelSegmentThreshold;
+    }
+
+    /// Sets the number of segments at which the angle error, flatness and max deviation splitters start splitting segments in parallel.
+    /// Their output is identical either way, so this only affects speed. Use Integer.MAX_VALUE to always split serially.
+    public static void setParallelSegmentThreshold(int parallelSegmentThreshold) {
+        if (parallelSegmentThreshold < 1) {
+            throw new IllegalArgumentException("The parallel segment threshold must be at least 1.");
+        }
+
+        VertexPathUtility.parallelSegmentThreshold = parallelSegmentThreshold;
+    }
+
+    /// Splits the bezier path by walking along each segment in small steps, and adding a vertex wherever the angle of the path
+    /// changes by more than 'maxAngleError', as long as the last vertex is at least 'minVertexDst' behind.
+    ///
+    /// Each segment carries the last vertex and the distance walked since it over into the next, so segments aren't independent.
+    /// Paths with at least parallelSegmentThreshold segments are still split on multiple threads: every segment is first split
+    /// speculatively, as if a vertex had just been added on its first anchor. While stitching, each segment is walked again with
+    /// the real carry-over only until both walks add a vertex at the same step. From there on they are the same, so the rest of
+    /// the speculative split is kept. The output is identical to splitting serially.
+    public static PathSplitData SplitBezierPathByAngleError(BezierPath bezierPath, float maxAngleError, float minVertexDst, float accuracy)
+    {
+        int numSegments = bezierPath.getNumSegments();
+
+        AngleErrorChunk[] speculativeChunks = null;
+
+        if (numSegments >= parallelSegmentThreshold) {
+            speculativeChunks = IntStream.range(0, numSegments).parallel()
+                    .mapToObj(segmentIndex -> {
+                        Vector3f firstAnchor = bezierPath.getPointsInSegment(segmentIndex)[0];
+                        Vector3f previousStep = getLastAngleErrorStep(bezierPath, segmentIndex - 1, accuracy);
+                        return SplitSegmentByAngleError(bezierPath, segmentIndex, previousStep, firstAnchor, 0,
+                                maxAngleError, minVertexDst, accuracy, null);
+                    })
+                    .toArray(AngleErrorChunk[]::new);
+        }
+
+        PathSplitData splitData = new PathSplitData();
+
+        splitData.vertices.add(bezierPath.getPoint(0));
+        splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(bezierPath.getPointsInSegment(0), 0).normalize());
+        splitData.cumulativeLength.add(0f);
+        splitData.anchorVertexMap.add(0);
+        splitData.minMax.addValue(bezierPath.getPoint(0));
+
+        Vector3f prevPointOnPath = bezierPath.getPoint(0);
+        Vector3f lastAddedPoint = bezierPath.getPoint(0);
+
+        float currentPathLength = 0;
+        float dstSinceLastVertex = 0;
+
+        for (int segmentIndex = 0; segmentIndex < numSegments; segmentIndex++)
+        {
+            AngleErrorChunk chunk;
+
+            if (speculativeChunks == null) {
+                chunk = SplitSegmentByAngleError(bezierPath, segmentIndex, prevPointOnPath, lastAddedPoint, dstSinceLastVertex,
+                        maxAngleError, minVertexDst, accuracy, null);
+            }
+            else if (speculativeChunks[segmentIndex].startsFrom(prevPointOnPath, lastAddedPoint, dstSinceLastVertex)) {
+                chunk = speculativeChunks[segmentIndex];
+            }
+            else {
+                chunk = SplitSegmentByAngleError(bezierPath, segmentIndex, prevPointOnPath, lastAddedPoint, dstSinceLastVertex,
+                        maxAngleError, minVertexDst, accuracy, speculativeChunks[segmentIndex]);
+            }
+
+            for (int i = 0; i < chunk.vertices.size(); i++) {
+
+                Vector3f pointOnPath = chunk.vertices.get(i);
+
+                currentPathLength += lastAddedPoint.subtract(pointOnPath).length();
+                splitData.cumulativeLength.add(currentPathLength);
+                splitData.vertices.add(pointOnPath);
+                splitData.tangents.add(chunk.tangents.get(i));
+                splitData.minMax.addValue(pointOnPath);
+                lastAddedPoint = pointOnPath;
+            }
+
+            splitData.anchorVertexMap.add(splitData.vertices.size() - 1);
+
+            prevPointOnPath = chunk.endPrevPointOnPath;
+            lastAddedPoint = chunk.endLastAddedPoint;
+            dstSinceLastVertex = chunk.endDstSinceLastVertex;
+        }
+
+        return splitData;
+    }
+
+    /// Walks a single segment for SplitBezierPathByAngleError, starting from the state carried over from the previous segment.
+    /// Given a speculative split of the same segment, the walk stops as soon as it adds a vertex at a step the speculative split also
+    /// added one at, and the rest of the speculative split is kept.
+    private static AngleErrorChunk SplitSegmentByAngleError(BezierPath bezierPath, int segmentIndex,
+                                                            Vector3f prevPointOnPath, Vector3f lastAddedPoint, float dstSinceLastVertex,
+                                                            float maxAngleError, float minVertexDst, float accuracy,
+                                                            AngleErrorChunk speculative)
+    {
+        long segmentStart = PathMetrics.startTimer();
+
+        AngleErrorChunk chunk = new AngleErrorChunk(prevPointOnPath, lastAddedPoint, dstSinceLastVertex);
+
+        Vector3f[] segmentPoints = bezierPath.getPointsInSegment(segmentIndex);
+        float estimatedSegmentLength = CubicBezierUtility.estimateCurveLength(segmentPoints[0], segmentPoints[1], segmentPoints[2], segmentPoints[3]);
+        // int divisions = Math.ceilToInt(estimatedSegmentLength * accuracy);
+        int divisions = (int) Math.ceil(estimatedSegmentLength * accuracy);
+        float increment = 1f / divisions;
+
+        int step = 0;
+        // the next vertex of the speculative split that hasn't been passed yet.
+        int speculativeVertex = 0;
+
+        for (float t = increment; t <= 1; t += increment, step++)
+        {
+            boolean isLastPointOnPath = (t + increment > 1 && segmentIndex == bezierPath.getNumSegments() - 1);
+            if (isLastPointOnPath) {
+                t = 1;
+            }
+
+            Vector3f pointOnPath = CubicBezierUtility.evaluateCurve(segmentPoints, t);
+            Vector3f nextPointOnPath = CubicBezierUtility.evaluateCurve(segmentPoints, t + increment);
+
+            // angle at current point on path
+            float localAngle = 180 - MathUtility.MinAngle(prevPointOnPath, pointOnPath, nextPointOnPath);
+            // angle between the last added vertex, the current point on the path, and the next point on the path
+            float angleFromPrevVertex = 180 - MathUtility.MinAngle(lastAddedPoint, pointOnPath, nextPointOnPath);
+            float angleError = Math.max(localAngle, angleFromPrevVertex);
+
+            if (speculative != null) {
+                while (speculativeVertex < speculative.steps.size() && speculative.steps.get(speculativeVertex) < step) {
+                    speculativeVertex++;
+                }
+            }
+
+            if ((angleError > maxAngleError && dstSinceLastVertex >= minVertexDst) || isLastPointOnPath) {
+
+                if (speculative != null && speculativeVertex < speculative.steps.size() && speculative.steps.get(speculativeVertex) == step) {
+                    chunk.join(speculative, speculativeVertex);
+                    PathMetrics.stopTimer(PathMetrics.SPLIT_SEGMENT, segmentStart);
+                    return chunk;
+                }
+
+                chunk.vertices.add(pointOnPath);
+                chunk.tangents.add(CubicBezierUtility.evaluateCurveDerivative(segmentPoints, t).normalize());
+                chunk.steps.add(step);
+                dstSinceLastVertex = 0;
+                lastAddedPoint = pointOnPath;
+            }
+            else
+            {
+                // dstSinceLastVertex += (pointOnPath - prevPointOnPath).magnitude;
+                dstSinceLastVertex += pointOnPath.subtract(prevPointOnPath).length();
+            }
+            prevPointOnPath = pointOnPath;
+        }
+
+        chunk.endPrevPointOnPath = prevPointOnPath;
+        chunk.endLastAddedPoint = lastAddedPoint;
+        chunk.endDstSinceLastVertex = dstSinceLastVertex;
+
+        PathMetrics.stopTimer(PathMetrics.SPLIT_SEGMENT, segmentStart);
+        return chunk;
+    }
+
+    /// Returns the point of the last step SplitSegmentByAngleError takes along the segment, which is the previous point on the path
+    /// when the next segment starts. Segments too short to take a step are skipped, and the start of the path is returned before the first segment.
+    private static Vector3f getLastAngleErrorStep(BezierPath bezierPath, int segmentIndex, float accuracy)
+    {
+        for (; segmentIndex >= 0; segmentIndex--) {
+
+            Vector3f[] segmentPoints = bezierPath.getPointsInSegment(segmentIndex);
+            float estimatedSegmentLength = CubicBezierUtility.estimateCurveLength(segmentPoints[0], segmentPoints[1], segmentPoints[2], segmentPoints[3]);
+            int divisions = (int) Math.ceil(estimatedSegmentLength * accuracy);
+            float increment = 1f / divisions;
+
+            // repeat the same float steps, so the last one lands on exactly the same time.
+            float lastT = -1;
+
+            for (float t = increment; t <= 1; t += increment) {
+                lastT = t;
+            }
+
+            if (lastT >= 0) {
+                return CubicBezierUtility.evaluateCurve(segmentPoints, lastT);
+            }
+        }
+
+        return bezierPath.getPoint(0);
+    }
+
+    /// Splits the bezier path into vertices spaced exactly 'spacing' apart along the curve.
+    /// Each segment gets an ArcLengthTable with 'accuracy' intervals per unit of estimated length, and the time of each vertex
+    /// is found by inverting the arc length, so every vertex is placed in a single forward pass with no stepping back.
+    /// The final vertex is always the end of the path, so the last gap may be shorter than 'spacing'.
+    public static PathSplitData SplitBezierPathEvenly(BezierPath bezierPath, float spacing, float accuracy)
+    {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("The spacing between vertices must be greater than zero.");
+        }
+
+        PathSplitData splitData = new PathSplitData();
+
+        splitData.vertices.add(bezierPath.getPoint(0));
+        splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(bezierPath.getPointsInSegment(0), 0).normalize());
+        splitData.cumulativeLength.add(0f);
+        splitData.anchorVertexMap.add(0);
+        splitData.minMax.addValue(bezierPath.getPoint(0));
+
+        Vector3f lastAddedPoint = bezierPath.getPoint(0);
+
+        float currentPathLength = 0;
+        // distance along the curve from the last vertex to the start of the current segment
+        float dstSinceLastVertex = 0;
+
+        // Go through all segments and split up into vertices
+        for (int segmentIndex = 0; segmentIndex < bezierPath.getNumSegments(); segmentIndex++)
+        {
+            long segmentStart = PathMetrics.startTimer();
+            Vector3f[] segmentPoints = bezierPath.getPointsInSegment(segmentIndex);
+            float estimatedSegmentLength = CubicBezierUtility.estimateCurveLength(segmentPoints[0], segmentPoints[1], segmentPoints[2], segmentPoints[3]);
+            int divisions = Math.max(1, (int) Math.ceil(estimatedSegmentLength * accuracy));
+
+            ArcLengthTable lengthTable = new ArcLengthTable(segmentPoints, divisions);
+            float segmentLength = lengthTable.getLength();
+
+            boolean isLastSegment = segmentIndex == bezierPath.getNumSegments() - 1;
+            // the end of the path is always added, so don't also add a vertex right on top of it.
+            float endTolerance = isLastSegment ? spacing * 0.001f : 0;
+
+            // the distance along this segment of the next vertex
+            float distance = spacing - dstSinceLastVertex;
+            int interval = 0;
+
+            while (distance < segmentLength - endTolerance)
+            {
+                interval = lengthTable.findInterval(distance, interval);
+                float t = lengthTable.getTimeInInterval(distance, interval);
+
+                Vector3f pointOnPath = CubicBezierUtility.evaluateCurve(segmentPoints, t);
+
+                currentPathLength += lastAddedPoint.distance(pointOnPath);
+                splitData.cumulativeLength.add(currentPathLength);
+                splitData.vertices.add(pointOnPath);
+                splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(segmentPoints, t).normalize());
+                splitData.minMax.addValue(pointOnPath);
+                lastAddedPoint = pointOnPath;
+
+                distance += spacing;
+            }
+
+            dstSinceLastVertex = segmentLength - (distance - spacing);
+
+            if (isLastSegment)
+            {
+                Vector3f pointOnPath = segmentPoints[3];
+
+                currentPathLength += lastAddedPoint.distance(pointOnPath);
+                splitData.cumulativeLength.add(currentPathLength);
+                splitData.vertices.add(pointOnPath);
+                splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(segmentPoints, 1).normalize());
+                splitData.minMax.addValue(pointOnPath);
+            }
+
+            splitData.anchorVertexMap.add(splitData.vertices.size() - 1);
+            PathMetrics.stopTimer(PathMetrics.SPLIT_SEGMENT, segmentStart);
+        }
+        return splitData;
+    }
+
+
+    /// Splits the bezier path by recursively subdividing each segment (using de Casteljau's algorithm) until the control
+    /// polygon of every piece is flat, meaning both of its control points lie within 'flatness' of the chord between its anchors.
+    /// Straight runs produce very few vertices, while tight turns are subdivided as far as they need to be.
+    public static PathSplitData SplitBezierPathByFlatness(BezierPath bezierPath, float flatness)
+    {
+        float sqrFlatness = flatness * flatness;
+
+        return SplitBezierPathAdaptively(bezierPath, flatness, p ->
+                sqrDistanceToSegment(p[1], p[0], p[3]) <= sqrFlatness
+                && sqrDistanceToSegment(p[2], p[0], p[3]) <= sqrFlatness);
+    }
+
+    /// Splits the bezier path so that no point on the resulting polyline is further than 'maxDeviation' from the curve,
+    /// and no point on the curve is further than 'maxDeviation' from the polyline (up to floating point precision).
+    ///
+    /// Pieces are subdivided until sqrDeviationBound is within tolerance, so nearly straight sections end up with very few
+    /// vertices however long they are.
+    /// Each segment is subdivided at most as deep as subdivisionDepth allows, which is always deep enough to meet the tolerance.
+    public static PathSplitData SplitBezierPathByMaxDeviation(BezierPath bezierPath, float maxDeviation)
+    {
+        float sqrMaxDeviation = maxDeviation * maxDeviation;
+
+        return SplitBezierPathAdaptively(bezierPath, maxDeviation, p -> sqrDeviationBound(p) <= sqrMaxDeviation);
+    }
+
+    /// Splits the bezier path the same way as SplitBezierPathByMaxDeviation, but only splits the segments that have changed since
+    /// the last split with the same cache. Every other segment reuses its vertices from the cache, so moving a single point of a
+    /// long path only splits the segments around it. A segment has changed if any of its 4 points, or the max deviation, has.
+    public static PathSplitData SplitBezierPathByMaxDeviation(BezierPath bezierPath, float maxDeviation, SegmentCache cache)
+    {
+        float sqrMaxDeviation = maxDeviation * maxDeviation;
+        FlatnessTest flatnessTest = p -> sqrDeviationBound(p) <= sqrMaxDeviation;
+
+        int numSegments = bezierPath.getNumSegments();
+        cache.resize(numSegments, maxDeviation);
+
+        SegmentChunk[] chunks = new SegmentChunk[numSegments];
+
+        for (int i = 0; i < numSegments; i++) {
+
+            Vector3f[] segmentPoints = bezierPath.getPointsInSegment(i);
+
+            if (!cache.matches(i, segmentPoints)) {
+                cache.store(i, segmentPoints, SplitSegmentAdaptively(bezierPath, i, maxDeviation, flatnessTest));
+            }
+
+            chunks[i] = cache.chunks[i];
+        }
+
+        return StitchChunks(bezierPath, chunks);
+    }
+
+    /// Subdivides every segment of the bezier path until each piece passes the flatness test, and adds a vertex at the end of each piece.
+    ///
+    /// Pieces never depend on other segments, so each segment is split into its own chunk, on multiple threads for paths with at least
+    /// parallelSegmentThreshold segments. The chunks are then stitched together in order: a prefix sum over the chunk sizes gives the
+    /// anchor vertex map, and the per-chunk bounds are merged. The cumulative length is summed in path order so it matches serial splitting exactly.
+    private static PathSplitData SplitBezierPathAdaptively(BezierPath bezierPath, float tolerance, FlatnessTest flatnessTest)
+    {
+        int numSegments = bezierPath.getNumSegments();
+
+        IntStream segmentIndices = IntStream.range(0, numSegments);
+
+        if (numSegments >= parallelSegmentThreshold) {
+            segmentIndices = segmentIndices.parallel();
+        }
+
+        SegmentChunk[] chunks = segmentIndices
+                .mapToObj(segmentIndex -> SplitSegmentAdaptively(bezierPath, segmentIndex, tolerance, flatnessTest))
+                .toArray(SegmentChunk[]::new);
+
+        return StitchChunks(bezierPath, chunks);
+    }
+
+    /// Joins the chunks of every segment, in order, into the split data of the whole path.
+    private static PathSplitData StitchChunks(BezierPath bezierPath, SegmentChunk[] chunks)
+    {
+        PathSplitData splitData = new PathSplitData();
+
+        splitData.vertices.add(bezierPath.getPoint(0));
+        splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(bezierPath.getPointsInSegment(0), 0).normalize());
+        splitData.cumulativeLength.add(0f);
+        splitData.anchorVertexMap.add(0);
+        splitData.minMax.addValue(bezierPath.getPoint(0));
+
+        float currentPathLength = 0;
+
+        for (SegmentChunk chunk : chunks) {
+
+            splitData.vertices.addAll(chunk.vertices);
+            splitData.tangents.addAll(chunk.tangents);
+            splitData.minMax.addValues(chunk.minMax);
+
+            for (int i = 0; i < chunk.edgeLengths.length; i++) {
+                currentPathLength += chunk.edgeLengths[i];
+                splitData.cumulativeLength.add(currentPathLength);
+            }
+
+            splitData.anchorVertexMap.add(splitData.vertices.size() - 1);
+        }
+
+        return splitData;
+    }
+
+    /// Splits a single segment of the bezier path into a chunk. An explicit work stack is used rather than recursion.
+    /// Pieces at the depth from subdivisionDepth are within the tolerance whatever the flatness test says, so rounding in the test
+    /// can never keep a piece subdividing forever.
+    private static SegmentChunk SplitSegmentAdaptively(BezierPath bezierPath, int segmentIndex, float tolerance, FlatnessTest flatnessTest)
+    {
+        long segmentStart = PathMetrics.startTimer();
+        Vector3f[] segmentPoints = bezierPath.getPointsInSegment(segmentIndex);
+
+        int maxDepth = subdivisionDepth(segmentPoints, tolerance);
+
+        if (maxDepth > maxSubdivisionDepth) {
+            PathMetrics.increment(PathMetrics.SPLIT_DEPTH_CAPPED, 1);
+            maxDepth = maxSubdivisionDepth;
+        }
+
+        SegmentChunk chunk = new SegmentChunk();
+        List<Float> edgeLengths = new ArrayList<>();
+
+        // the previous segment always ends exactly on this segment's first anchor.
+        Vector3f lastAddedPoint = segmentPoints[0];
+
+        Deque<SubCurve> stack = new ArrayDeque<>();
+        stack.push(new SubCurve(segmentPoints, 0, 1, 0));
+
+        // pieces are pushed right then left, so they are popped (and their end points added) in path order.
+        while (!stack.isEmpty()) {
+
+            SubCurve curve = stack.pop();
+
+            if (curve.depth >= maxDepth || flatnessTest.isFlat(curve.points)) {
+
+                Vector3f pointOnPath = curve.points[3];
+
+                edgeLengths.add(lastAddedPoint.distance(pointOnPath));
+                chunk.vertices.add(pointOnPath);
+                chunk.tangents.add(CubicBezierUtility.evaluateCurveDerivative(segmentPoints, curve.t1).normalize());
+                chunk.minMax.addValue(pointOnPath);
+                lastAddedPoint = pointOnPath;
+            }
+            else {
+                Vector3f[][] halves = CubicBezierUtility.splitCurve(curve.points, 0.5f);
+                float tMid = (curve.t0 + curve.t1) * 0.5f;
+
+                stack.push(new SubCurve(halves[1], tMid, curve.t1, curve.depth + 1));
+                stack.push(new SubCurve(halves[0], curve.t0, tMid, curve.depth + 1));
+            }
+        }
+
+        chunk.edgeLengths = new float[edgeLengths.size()];
+
+        for (int i = 0; i < chunk.edgeLengths.length; i++) {
+            chunk.edgeLengths[i] = edgeLengths.get(i);
+        }
+
+        PathMetrics.stopTimer(PathMetrics.SPLIT_SEGMENT, segmentStart);
+        return chunk;
+    }
+
+    /// Splits the bezier path into exactly 'numVertices' vertices, placed to keep the maximum deviation from the curve as small as possible.
+    /// Every segment starts as a single piece, then the piece with the largest deviation bound (see sqrDeviationBound)
+    /// is repeatedly halved until the budget is spent. Each anchor is always a vertex, so the budget must be at least the number of segments + 1.
+    public static PathSplitData SplitBezierPathByVertexBudget(BezierPath bezierPath, int numVertices)
+    {
+        int numSegments = bezierPath.getNumSegments();
+
+        if (numVertices < numSegments + 1) {
+            throw new IllegalArgumentException("A vertex budget of " + numVertices + " is too small for a path with "
+                    + numSegments + " segments. At least " + (numSegments + 1) + " vertices are required.");
+        }
+
+        // the worst piece is always at the head of the queue.
+        PriorityQueue<BudgetPiece> queue = new PriorityQueue<>(numVertices, (a, b) -> Float.compare(b.sqrError, a.sqrError));
+
+        for (int segmentIndex = 0; segmentIndex < numSegments; segmentIndex++) {
+            queue.add(new BudgetPiece(segmentIndex, bezierPath.getPointsInSegment(segmentIndex), 0, 1));
+        }
+
+        // the first vertex is the start of the path, and every piece adds the vertex at its end.
+        while (queue.size() < numVertices - 1) {
+
+            BudgetPiece piece = queue.poll();
+
+            Vector3f[][] halves = CubicBezierUtility.splitCurve(piece.points, 0.5f);
+            float tMid = (piece.t0 + piece.t1) * 0.5f;
+
+            queue.add(new BudgetPiece(piece.segmentIndex, halves[0], piece.t0, tMid));
+            queue.add(new BudgetPiece(piece.segmentIndex, halves[1], tMid, piece.t1));
+        }
+
+        List<BudgetPiece> pieces = new ArrayList<>(queue);
+        pieces.sort((a, b) -> (a.segmentIndex != b.segmentIndex)
+                ? Integer.compare(a.segmentIndex, b.segmentIndex)
+                : Float.compare(a.t0, b.t0));
+
+        PathSplitData splitData = new PathSplitData();
+
+        splitData.vertices.add(bezierPath.getPoint(0));
+        splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(bezierPath.getPointsInSegment(0), 0).normalize());
+        splitData.cumulativeLength.add(0f);
+        splitData.anchorVertexMap.add(0);
+        splitData.minMax.addValue(bezierPath.getPoint(0));
+
+        Vector3f lastAddedPoint = bezierPath.getPoint(0);
+        float currentPathLength = 0;
+
+        for (int i = 0; i < pieces.size(); i++) {
+
+            BudgetPiece piece = pieces.get(i);
+            Vector3f pointOnPath = piece.points[3];
+
+            currentPathLength += lastAddedPoint.distance(pointOnPath);
+            splitData.cumulativeLength.add(currentPathLength);
+            splitData.vertices.add(pointOnPath);
+            splitData.tangents.add(CubicBezierUtility.evaluateCurveDerivative(bezierPath.getPointsInSegment(piece.segmentIndex), piece.t1).normalize());
+            splitData.minMax.addValue(pointOnPath);
+            lastAddedPoint = pointOnPath;
+
+            boolean isLastPieceInSegment = (i == pieces.size() - 1 || pieces.get(i + 1).segmentIndex != piece.segmentIndex);
+            if (isLastPieceInSegment) {
+                splitData.anchorVertexMap.add(splitData.vertices.size() - 1);
+            }
+        }
+
+        return splitData;
+    }
+
+    /// Returns how many times the segment has to be halved before every piece is within 'tolerance' of its chord, by both
+    /// sqrDeviationBound and the distance of its control points from the chord.
+    ///
+    /// Both are bounded by the larger second difference of the points, M = max(|p0 - 2p1 + p2|, |p1 - 2p2 + p3|): the control point c1 is
+    /// (2 * d1 + d2) / 3 away from the third of the chord q1, which is at most M, and the chord is closer still. Halving a piece with
+    /// de Casteljau's algorithm gives halves with second differences of d1 / 4 and (d1 + d2) / 8, so M shrinks by at least 4 with every
+    /// level, and a piece is within the tolerance once M / 4^depth is.
+    static int subdivisionDepth(Vector3f[] p, float tolerance) {
+
+        float sqrSecondDifference = Math.max(
+                sqrSecondDifference(p[0], p[1], p[2]),
+                sqrSecondDifference(p[1], p[2], p[3]));
+
+        int depth = 0;
+
+        // M / 4^depth <= tolerance, squared.
+        while (depth <= maxSubdivisionDepth && sqrSecondDifference > tolerance * tolerance) {
+            sqrSecondDifference /= 16;
+            depth++;
+        }
+
+        return depth;
+    }
+
+    private static float sqrSecondDifference(Vector3f a, Vector3f b, Vector3f c) {
+        float dX = a.x - 2 * b.x + c.x;
+        float dY = a.y - 2 * b.y + c.y;
+        float dZ = a.z - 2 * b.z + c.z;
+        return dX * dX + dY * dY + dZ * dZ;
+    }
+
+    /// Returns the square of an upper bound on the distance between a bezier curve and the chord between its anchors. Two bounds are used:
+    ///
+    /// The curve lies inside the convex hull of its points, and distance to the chord is convex, so the curve is never further from the
+    /// chord than the furthest control point.
+    ///
+    /// Writing the chord as a cubic with control points q1 = (2a1 + a2) / 3 and q2 = (a1 + 2a2) / 3, the curve and the chord differ by
+    /// 3t(1-t)^2 (c1 - q1) + 3t^2(1-t) (c2 - q2), whose length never exceeds 3/4 * max(|c1 - q1|, |c2 - q2|). This one also bounds the
+    /// distance between matching points, so it is tighter when the control points sit close to the thirds of the chord.
+    static float sqrDeviationBound(Vector3f[] p) {
+
+        float sqrHullBound = Math.max(
+                sqrDistanceToSegment(p[1], p[0], p[3]),
+                sqrDistanceToSegment(p[2], p[0], p[3]));
+
+        // (3/4 * d)^2 = d^2 * 9 / 16
+        float sqrOffsetBound = 9f / 16f * Math.max(
+                sqrChordControlOffset(p[1], p[0], p[3]),
+                sqrChordControlOffset(p[2], p[3], p[0]));
+
+        return Math.min(sqrHullBound, sqrOffsetBound);
+    }
+
+    /// Squared distance from control point 'c' to the point one third of the way along the chord from its own anchor 'a' to the opposite anchor 'b'.
+    static float sqrChordControlOffset(Vector3f c, Vector3f a, Vector3f b) {
+        float dX = c.x - (2 * a.x + b.x) / 3f;
+        float dY = c.y - (2 * a.y + b.y) / 3f;
+        float dZ = c.z - (2 * a.z + b.z) / 3f;
+        return dX * dX + dY * dY + dZ * dZ;
+    }
+
+    /// Squared distance from point 'p' to the line segment between 'a' and 'b'.
+    static float sqrDistanceToSegment(Vector3f p, Vector3f a, Vector3f b) {
+        float abX = b.x - a.x, abY = b.y - a.y, abZ = b.z - a.z;
+        float apX = p.x - a.x, apY = p.y - a.y, apZ = p.z - a.z;
+
+        float sqrLenAB = abX * abX + abY * abY + abZ * abZ;
+        float t = (sqrLenAB == 0) ? 0 : Math.max(0, Math.min(1, (apX * abX + apY * abY + apZ * abZ) / sqrLenAB));
+
+        float dX = apX - abX * t, dY = apY - abY * t, dZ = apZ - abZ * t;
+        return dX * dX + dY * dY + dZ * dZ;
+    }
+
+    /// Decides whether a piece of a bezier segment is close enough to its chord to stop subdividing.
+    private interface FlatnessTest {
+        boolean isFlat(Vector3f[] points);
+    }
+
+    /// A piece of a bezier segment waiting to be subdivided, covering times t0 to t1 of the segment.
+    private static class SubCurve {
+
+        private final Vector3f[] points;
+        private final float t0;
+        private final float t1;
+        private final int depth;
+
+        SubCurve(Vector3f[] points, float t0, float t1, int depth) {
+            this.points = points;
+            this.t0 = t0;
+            this.t1 = t1;
+            this.depth = depth;
+        }
+    }
+
+    /// The vertices of a single segment, along with the length of the edge leading to each vertex and the bounds of the vertices.
+    private static class SegmentChunk {
+
+        private final List<Vector3f> vertices = new ArrayList<>();
+        private final List<Vector3f> tangents = new ArrayList<>();
+        private final MinMax3D minMax = new MinMax3D();
+        private float[] edgeLengths;
+    }
+
+    /// The vertices a single segment adds in SplitBezierPathByAngleError, the step each was added at, and the state the walk along
+    /// the segment started and ended with.
+    private static class AngleErrorChunk {
+
+        private final List<Vector3f> vertices = new ArrayList<>();
+        private final List<Vector3f> tangents = new ArrayList<>();
+        private final List<Integer> steps = new ArrayList<>();
+
+        private final Vector3f startPrevPointOnPath;
+        private final Vector3f startLastAddedPoint;
+        private final float startDstSinceLastVertex;
+
+        private Vector3f endPrevPointOnPath;
+        private Vector3f endLastAddedPoint;
+        private float endDstSinceLastVertex;
+
+        AngleErrorChunk(Vector3f prevPointOnPath, Vector3f lastAddedPoint, float dstSinceLastVertex) {
+            this.startPrevPointOnPath = prevPointOnPath;
+            this.startLastAddedPoint = lastAddedPoint;
+            this.startDstSinceLastVertex = dstSinceLastVertex;
+        }
+
+        private boolean startsFrom(Vector3f prevPointOnPath, Vector3f lastAddedPoint, float dstSinceLastVertex) {
+            return startPrevPointOnPath.equals(prevPointOnPath)
+                    && startLastAddedPoint.equals(lastAddedPoint)
+                    && startDstSinceLastVertex == dstSinceLastVertex;
+        }
+
+        /// Appends the vertices of 'other' from 'fromVertex' on, and ends in the same state.
+        private void join(AngleErrorChunk other, int fromVertex) {
+            vertices.addAll(other.vertices.subList(fromVertex, other.vertices.size()));
+            tangents.addAll(other.tangents.subList(fromVertex, other.tangents.size()));
+            steps.addAll(other.steps.subList(fromVertex, other.steps.size()));
+            endPrevPointOnPath = other.endPrevPointOnPath;
+            endLastAddedPoint = other.endLastAddedPoint;
+            endDstSinceLastVertex = other.endDstSinceLastVertex;
+        }
+    }
+
+    /// The vertices of each segment from a previous split, and copies of the points each segment was split from.
+    /// A cache belongs to a single bezier path, and is emptied whenever the number of segments or the tolerance changes.
+    public static class SegmentCache {
+
+        private SegmentChunk[] chunks = new SegmentChunk[0];
+        private float[] segmentPoints = new float[0];
+        private float tolerance = Float.NaN;
+
+        /// Empties the cache.
+        public void clear() {
+            chunks = new SegmentChunk[0];
+            segmentPoints = new float[0];
+            tolerance = Float.NaN;
+        }
+
+        private void resize(int numSegments, float tolerance) {
+            if (chunks.length != numSegments || this.tolerance != tolerance) {
+                chunks = new SegmentChunk[numSegments];
+                segmentPoints = new float[numSegments * 12];
+                this.tolerance = tolerance;
+            }
+        }
+
+        private boolean matches(int segmentIndex, Vector3f[] points) {
+
+            if (chunks[segmentIndex] == null) {
+                return false;
+            }
+
+            int offset = segmentIndex * 12;
+
+            for (int i = 0; i < 4; i++) {
+                if (segmentPoints[offset + i * 3] != points[i].x
+                        || segmentPoints[offset + i * 3 + 1] != points[i].y
+                        || segmentPoints[offset + i * 3 + 2] != points[i].z) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void store(int segmentIndex, Vector3f[] points, SegmentChunk chunk) {
+
+            int offset = segmentIndex * 12;
+
+            for (int i = 0; i < 4; i++) {
+                segmentPoints[offset + i * 3] = points[i].x;
+                segmentPoints[offset + i * 3 + 1] = points[i].y;
+                segmentPoints[offset + i * 3 + 2] = points[i].z;
+            }
+
+            chunks[segmentIndex] = chunk;
+        }
+    }
+
+    /// A piece of a bezier segment waiting in the vertex budget queue, along with the squared bound of its deviation from its chord.
+    private static class BudgetPiece {
+
+        private final int segmentIndex;
+        private final Vector3f[] points;
+        private final float t0;
+        private final float t1;
+        private final float sqrError;
+
+        BudgetPiece(int segmentIndex, Vector3f[] points, float t0, float t1) {
+            this.segmentIndex = segmentIndex;
+            this.points = points;
+            this.t0 = t0;
+            this.t1 = t1;
+            this.sqrError = sqrDeviationBound(points);
+        }
+    }
+
+    public static class PathSplitData {
+
+        private List<Vector3f> vertices = new ArrayList<>();
+        private List<Vector3f> tangents = new ArrayList<>();
+        private List<Float> cumulativeLength = new ArrayList<>();
+        private List<Integer> anchorVertexMap = new ArrayList<>();
+        private MinMax3D minMax = new MinMax3D();
+
+        public List<Vector3f> getVertices() {
+            return vertices;
+        }
+
+        public void setVertices(List<Vector3f> vertices) {
+            this.vertices = vertices;
+        }
+
+        public List<Vector3f> getTangents() {
+            return tangents;
+        }
+
+        public void setTangents(List<Vector3f> tangents) {
+            this.tangents = tangents;
+        }
+
+        public List<Float> getCumulativeLength() {
+            return cumulativeLength;
+        }
+
+        public void setCumulativeLength(List<Float> cumulativeLength) {
+            this.cumulativeLength = cumulativeLength;
+        }
+
+        public List<Integer> getAnchorVertexMap() {
+            return anchorVertexMap;
+        }
+
+        public void setAnchorVertexMap(List<Integer> anchorVertexMap) {
+            this.anchorVertexMap = anchorVertexMap;
+        }
+
+        public MinMax3D getMinMax() {
+            return minMax;
+        }
+
+        public void setMinMax(MinMax3D minMax) {
+            this.minMax = minMax;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.Vector3f;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class PathArchiveTest {
+
+    // the layout of the header and each index entry, as documented on PathArchive.
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private Path file;
+    private byte[] bytes;
+
+    @Before
+    public void writeArchive() throws IOException {
+
+        Map<Long, VertexPath> paths = new TreeMap<>();
+
+        for (long id = 1; id <= 3; id++) {
+            BezierPath bezierPath = new BezierPath(new Vector3f(id, 0, 0), false, PathSpace.xz);
+            bezierPath.addSegmentToEnd(new Vector3f(id * 4, 0, 3));
+            paths.put(id * 10, new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.01f), null));
+        }
+
+        file = Files.createTempFile("paths", ".pcpa");
+        PathArchive.write(file, paths);
+        bytes = Files.readAllBytes(file);
+
+        try (PathArchive archive = PathArchive.open(file)) {
+            assertEquals(3, archive.getNumPaths());
+
+            for (Map.Entry<Long, VertexPath> entry : paths.entrySet()) {
+                assertEquals(entry.getValue().getNumPoints(), archive.getVertexPath(entry.getKey(), null).getNumPoints());
+            }
+
+            assertNull(archive.getVertexPath(15, null));
+        }
+    }
+
+    @Test
+    public void rejectsFilesTooShortForTheHeader() throws IOException {
+        for (int length = 0; length < HEADER_SIZE; length++) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IllegalArgumentException.class, () -> PathArchive.open(file));
+        }
+    }
+
+    @Test
+    public void rejectsFilesTooShortForTheIndex() throws IOException {
+
+        for (int length = HEADER_SIZE; length < HEADER_SIZE + 3 * INDEX_ENTRY_SIZE; length++) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IllegalArgumentException.class, () -> PathArchive.open(file));
+        }
+
+        // one more index entry than the file has room for.
+        int tooMany = (bytes.length - HEADER_SIZE) / INDEX_ENTRY_SIZE + 1;
+
+        for (int numPaths : new int[] { -1, tooMany, Integer.MAX_VALUE }) {
+            Files.write(file, corrupt(buffer -> buffer.putInt(8, numPaths)));
+            assertThrows(IllegalArgumentException.class, () -> PathArchive.open(file));
+        }
+    }
+
+    @Test
+    public void rejectsIndexEntriesOutsideOfTheFile() throws IOException {
+
+        int entryOffset = HEADER_SIZE + INDEX_ENTRY_SIZE;
+        long dataOffset = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong(entryOffset + 8);
+
+        long[] offsets = { -1, 0, HEADER_SIZE, bytes.length, bytes.length - 4, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for (long offset : offsets) {
+            Files.write(file, corrupt(buffer -> buffer.putLong(entryOffset + 8, offset)));
+            assertCorrupt(20);
+        }
+
+        for (int length : new int[] { -1, bytes.length, Integer.MAX_VALUE, (int) (bytes.length - dataOffset + 1) }) {
+            Files.write(file, corrupt(buffer -> buffer.putInt(entryOffset + 16, length)));
+            assertCorrupt(20);
+        }
+    }
+
+    private void assertCorrupt(long pathId) throws IOException {
+        try (PathArchive archive = PathArchive.open(file)) {
+            assertNotNull(archive.getVertexPath(10, null));
+            assertThrows(IllegalArgumentException.class, () -> archive.getVertexPath(pathId, null));
+        }
+    }
+
+    private byte[] corrupt(Consumer<ByteBuffer> change) {
+        byte[] copy = bytes.clone();
+        change.accept(ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN));
+        return copy;
+    }
+
+}
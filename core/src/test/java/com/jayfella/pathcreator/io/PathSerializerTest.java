@@ -0,0 +1,270 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.objects.VertexPathStorage;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.Vector3f;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PathSerializerTest {
+
+    @Test
+    public void roundTripsOpenBezierPathsInEverySpace() {
+        for (PathSpace space : PathSpace.values()) {
+            assertBezierPathsEqual(createBezierPath(false, space), roundTrip(createBezierPath(false, space), null).getBezierPath());
+        }
+    }
+
+    @Test
+    public void roundTripsClosedBezierPathsInEverySpace() {
+        for (PathSpace space : PathSpace.values()) {
+            assertBezierPathsEqual(createBezierPath(true, space), roundTrip(createBezierPath(true, space), null).getBezierPath());
+        }
+    }
+
+    @Test
+    public void roundTripsBezierPathSettings() {
+
+        BezierPath bezierPath = createBezierPath(false, PathSpace.xz);
+        bezierPath.setFlipNormals(true);
+        bezierPath.setGlobalNormalsAngle(33);
+
+        BezierPath read = roundTrip(bezierPath, null).getBezierPath();
+
+        assertTrue(read.getFlipNormals());
+        assertEquals(33, read.getGlobalNormalsAngle(), 0);
+        assertEquals(bezierPath.getControlMode(), read.getControlMode());
+        assertEquals(bezierPath.getAutoControlLength(), read.getAutoControlLength(), 0);
+    }
+
+    @Test
+    public void omitsTheVertexPathWhenNoneIsWritten() {
+        assertNull(roundTrip(createBezierPath(false, PathSpace.xyz), null).getVertexPath());
+    }
+
+    @Test
+    public void roundTripsHeapVertexPaths() {
+        for (boolean closed : new boolean[] { false, true }) {
+
+            BezierPath bezierPath = createBezierPath(closed, PathSpace.xz);
+            VertexPath vertexPath = createVertexPath(bezierPath, VertexPathStorage.Heap);
+
+            assertVertexPathsEqual(vertexPath, roundTrip(bezierPath, vertexPath).getVertexPath());
+        }
+    }
+
+    @Test
+    public void roundTripsDirectVertexPaths() {
+
+        BezierPath bezierPath = createBezierPath(true, PathSpace.xy);
+        VertexPath vertexPath = createVertexPath(bezierPath, VertexPathStorage.Direct);
+
+        assertEquals(VertexPathStorage.Direct, vertexPath.getStorage());
+        assertVertexPathsEqual(vertexPath, roundTrip(bezierPath, vertexPath).getVertexPath());
+
+        vertexPath.release();
+    }
+
+    @Test
+    public void readsVertexPathViewsOverDirectBuffers() {
+
+        BezierPath bezierPath = createBezierPath(false, PathSpace.xyz);
+        VertexPath vertexPath = createVertexPath(bezierPath, VertexPathStorage.Heap);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(PathSerializer.getSerializedSize(vertexPath)).order(ByteOrder.LITTLE_ENDIAN);
+        PathSerializer.writeVertexPath(vertexPath, buffer);
+        buffer.flip();
+
+        VertexPath view = PathSerializer.readVertexPathView(buffer, null);
+
+        assertEquals(VertexPathStorage.Direct, view.getStorage());
+        assertVertexPathsEqual(vertexPath, view);
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void rejectsABadMagicNumber() {
+
+        ByteBuffer buffer = writeWithVertexPath();
+        buffer.put(0, (byte) (buffer.get(0) + 1));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PathSerializer.read(buffer, null));
+        assertTrue(e.getMessage().contains("serialized path"));
+    }
+
+    @Test
+    public void rejectsAnUnsupportedVersion() {
+
+        ByteBuffer buffer = writeWithVertexPath();
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putShort(4, (short) (PathSerializer.VERSION + 1));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PathSerializer.read(buffer, null));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    public void rejectsTruncatedInputAtEveryLength() {
+
+        ByteBuffer full = writeWithVertexPath();
+
+        for (int length = 0; length < full.limit(); length++) {
+
+            ByteBuffer truncated = full.duplicate();
+            truncated.limit(length);
+
+            try {
+                PathSerializer.read(truncated, null);
+                fail("A buffer truncated to " + length + " of " + full.limit() + " bytes was read.");
+            }
+            catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsCorruptEnumOrdinals() {
+
+        ByteBuffer buffer = writeWithVertexPath();
+        int bezierSize = PathSerializer.getSerializedSize(createBezierPath(true, PathSpace.xz));
+
+        // the path space and control mode of the bezier path, and the path space of the vertex path.
+        int[] offsets = { PathSerializer.HEADER_SIZE, PathSerializer.HEADER_SIZE + 1, PathSerializer.HEADER_SIZE + bezierSize };
+
+        for (int offset : offsets) {
+            for (byte value : new byte[] { -1, 42, Byte.MIN_VALUE }) {
+
+                ByteBuffer corrupt = buffer.duplicate();
+                corrupt.put(offset, value);
+
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PathSerializer.read(corrupt, null));
+                assertTrue(e.getMessage().contains("corrupt"));
+            }
+        }
+    }
+
+    @Test
+    public void leavesTheBufferAfterThePaths() {
+
+        BezierPath bezierPath = createBezierPath(false, PathSpace.xz);
+        VertexPath vertexPath = createVertexPath(bezierPath, VertexPathStorage.Heap);
+        int size = PathSerializer.getSerializedSize(bezierPath, vertexPath);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size + 4).order(ByteOrder.BIG_ENDIAN);
+        PathSerializer.write(bezierPath, vertexPath, buffer);
+        buffer.putInt(42);
+        buffer.flip();
+
+        assertEquals(size, PathSerializer.write(bezierPath, vertexPath).limit());
+
+        PathSerializer.read(buffer, null);
+
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        assertEquals(42, buffer.getInt());
+    }
+
+    private static PathSerializer.PathData roundTrip(BezierPath bezierPath, VertexPath vertexPath) {
+
+        ByteBuffer buffer = PathSerializer.write(bezierPath, vertexPath);
+        PathSerializer.PathData data = PathSerializer.read(buffer, null);
+
+        assertEquals(0, buffer.remaining());
+        return data;
+    }
+
+    private static ByteBuffer writeWithVertexPath() {
+        BezierPath bezierPath = createBezierPath(true, PathSpace.xz);
+        return PathSerializer.write(bezierPath, createVertexPath(bezierPath, VertexPathStorage.Heap));
+    }
+
+    /**
+     * Creates a path with a few segments and a different normal angle at each anchor.
+     */
+    private static BezierPath createBezierPath(boolean closed, PathSpace space) {
+
+        BezierPath path = new BezierPath(new Vector3f(1, 2, 3), closed, space);
+        path.addSegmentToEnd(new Vector3f(6, space == PathSpace.xz ? 0 : 4, space == PathSpace.xy ? 0 : -2));
+        path.addSegmentToEnd(new Vector3f(9, space == PathSpace.xz ? 0 : -1, space == PathSpace.xy ? 0 : 5));
+
+        List<Vector3f> points = new ArrayList<>();
+
+        for (int i = 0; i < path.getNumPoints(); i++) {
+            points.add(path.getPoint(i));
+        }
+
+        List<Float> anchorAngles = new ArrayList<>();
+
+        for (int i = 0; i < path.getAnchorNormalsAngles().size(); i++) {
+            anchorAngles.add(15f * i + 10);
+        }
+
+        return new BezierPath(points, anchorAngles, closed, space, BezierPath.ControlMode.Automatic, 0.4f);
+    }
+
+    private static VertexPath createVertexPath(BezierPath bezierPath, VertexPathStorage storage) {
+        return new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.01f), null, storage);
+    }
+
+    private static void assertBezierPathsEqual(BezierPath expected, BezierPath actual) {
+
+        assertEquals(expected.getSpace(), actual.getSpace());
+        assertEquals(expected.isClosed(), actual.isClosed());
+        assertEquals(expected.getControlMode(), actual.getControlMode());
+        assertEquals(expected.getNumPoints(), actual.getNumPoints());
+        assertEquals(expected.getAnchorNormalsAngles(), actual.getAnchorNormalsAngles());
+
+        for (int i = 0; i < expected.getNumPoints(); i++) {
+            assertEquals(expected.getPoint(i), actual.getPoint(i));
+        }
+    }
+
+    private static void assertVertexPathsEqual(VertexPath expected, VertexPath actual) {
+
+        assertEquals(expected.getSpace(), actual.getSpace());
+        assertEquals(expected.isClosedLoop(), actual.isClosedLoop());
+        assertEquals(expected.getNumPoints(), actual.getNumPoints());
+        assertEquals(expected.getLength(), actual.getLength(), 0);
+        assertEquals(expected.getUp(), actual.getUp());
+        assertEquals(expected.getBounds().getCenter(), actual.getBounds().getCenter());
+        assertEquals(expected.getBounds().getExtent(null), actual.getBounds().getExtent(null));
+
+        assertArrayEquals(toArray(expected.getLocalPoints()), toArray(actual.getLocalPoints()), 0);
+        assertArrayEquals(toArray(expected.getLocalTangents()), toArray(actual.getLocalTangents()), 0);
+        assertArrayEquals(toArray(expected.getLocalNormals()), toArray(actual.getLocalNormals()), 0);
+        assertArrayEquals(toArray(expected.getTimes()), toArray(actual.getTimes()), 0);
+        assertArrayEquals(toArray(expected.getCumulativeLengths()), toArray(actual.getCumulativeLengths()), 0);
+        assertArrayEquals(toArray(expected.getAnchorVertexMap()), toArray(actual.getAnchorVertexMap()));
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] values = new float[buffer.limit()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.get(i);
+        }
+
+        return values;
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] values = new int[buffer.limit()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.get(i);
+        }
+
+        return values;
+    }
+
+}
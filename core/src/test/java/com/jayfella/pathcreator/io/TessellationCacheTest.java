@@ -0,0 +1,116 @@
+package com.jayfella.pathcreator.io;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.objects.VertexPathStorage;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.math.Vector3f;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.*;
+
+public class TessellationCacheTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("tessellation-cache");
+    }
+
+    @Test
+    public void loadsStoredVertexPaths() throws IOException {
+
+        BezierPath bezierPath = createBezierPath(5);
+        byte[] key = TessellationCache.computeContentKey(bezierPath, 0, 0.01f);
+
+        TessellationCache cache = new TessellationCache(directory, Long.MAX_VALUE);
+        assertNull(cache.load(key, null));
+
+        VertexPath vertexPath = createVertexPath(bezierPath);
+        cache.store(key, bezierPath, vertexPath);
+
+        for (VertexPathStorage storage : VertexPathStorage.values()) {
+            VertexPath loaded = new TessellationCache(directory, Long.MAX_VALUE).load(key, null, storage);
+
+            assertNotNull(loaded);
+            assertEquals(storage, loaded.getStorage());
+            assertEquals(vertexPath.getNumPoints(), loaded.getNumPoints());
+            assertEquals(vertexPath.getLength(), loaded.getLength(), 0);
+        }
+    }
+
+    @Test
+    public void treatsAnEntryWithAnotherKeyAsAMiss() throws IOException {
+
+        BezierPath stored = createBezierPath(5);
+        BezierPath requested = createBezierPath(7);
+
+        byte[] storedKey = TessellationCache.computeContentKey(stored, 0, 0.01f);
+        byte[] requestedKey = TessellationCache.computeContentKey(requested, 0, 0.01f);
+
+        new TessellationCache(directory, Long.MAX_VALUE).store(storedKey, stored, createVertexPath(stored));
+
+        // give the entry the name of the requested key, as a hash collision would.
+        Files.move(getFile(storedKey), getFile(requestedKey), StandardCopyOption.REPLACE_EXISTING);
+
+        TessellationCache cache = new TessellationCache(directory, Long.MAX_VALUE);
+
+        for (VertexPathStorage storage : VertexPathStorage.values()) {
+            assertNull(cache.load(requestedKey, null, storage));
+        }
+
+        assertEquals(0, cache.getHits());
+        assertTrue(Files.exists(getFile(requestedKey)));
+
+        // storing the requested path replaces the entry.
+        cache.store(requestedKey, requested, createVertexPath(requested));
+        assertNotNull(cache.load(requestedKey, null));
+    }
+
+    @Test
+    public void leavesNoTemporaryFiles() throws IOException {
+
+        TessellationCache cache = new TessellationCache(directory, Long.MAX_VALUE);
+
+        for (int i = 0; i < 3; i++) {
+            BezierPath bezierPath = createBezierPath(5 + i);
+            cache.store(TessellationCache.computeContentKey(bezierPath, 0, 0.01f), bezierPath, createVertexPath(bezierPath));
+        }
+
+        int files = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                assertTrue(file.toString(), file.toString().endsWith(".pcv"));
+                files++;
+            }
+        }
+
+        assertEquals(3, files);
+    }
+
+    private Path getFile(byte[] contentKey) {
+        return directory.resolve(String.format("%016x.pcv", TessellationCache.hash(contentKey)));
+    }
+
+    private static BezierPath createBezierPath(float x) {
+        BezierPath path = new BezierPath(new Vector3f(1, 0, 3), false, PathSpace.xz);
+        path.addSegmentToEnd(new Vector3f(x, 0, -2));
+        path.addSegmentToEnd(new Vector3f(9, 0, 5));
+        return path;
+    }
+
+    private static VertexPath createVertexPath(BezierPath bezierPath) {
+        return new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.01f), null, VertexPathStorage.Heap);
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.VertexPathUtility;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JunctionGraphTest {
+
+    @Test
+    public void findsTheCheapestRouteOnRandomGraphs() {
+
+        Random random = new Random(1);
+        int numRoutes = 0;
+
+        for (int trial = 0; trial < 200; trial++) {
+
+            JunctionGraph graph = new JunctionGraph();
+            int numJunctions = 5 + random.nextInt(40);
+            Vector3f[] positions = new Vector3f[numJunctions];
+
+            for (int junction = 0; junction < numJunctions; junction++) {
+                graph.addJunction();
+                positions[junction] = new Vector3f(random.nextFloat() * 100, 0, random.nextFloat() * 100);
+            }
+
+            // anchors up to 'gap' from their junctions, so edges cost more than their length.
+            float gap = random.nextFloat() * 5;
+
+            for (int pathId = 0; pathId < numJunctions * 2; pathId++) {
+
+                int from = random.nextInt(numJunctions), to = random.nextInt(numJunctions);
+
+                if (from == to) {
+                    continue;
+                }
+
+                Vector3f start = positions[from].add(offset(random, gap));
+                Vector3f end = positions[to].add(offset(random, gap));
+                Vector3f middle = start.add(end).multLocal(0.5f).addLocal(0, random.nextFloat() * 3, 0);
+
+                graph.setPath(pathId, createLine(start, middle, end));
+                graph.connect(from, pathId, 0);
+                graph.connect(to, pathId, 1);
+                graph.setOneWay(pathId, random.nextInt(6) == 0);
+            }
+
+            for (int query = 0; query < 20; query++) {
+                assertCheapestRoute(graph, random.nextInt(numJunctions), random.nextInt(numJunctions));
+                numRoutes++;
+            }
+        }
+
+        assertEquals(4000, numRoutes);
+    }
+
+    @Test
+    public void onlyTravelsOneWayPathsForwards() {
+
+        JunctionGraph graph = new JunctionGraph();
+        graph.addJunction();
+        graph.addJunction();
+        graph.addJunction();
+
+        // a short one way path from 0 to 1, and a long way back through 2.
+        graph.setPath(0, createLine(new Vector3f(0, 0, 0), new Vector3f(5, 0, 0), new Vector3f(10, 0, 0)));
+        graph.connect(0, 0, 0);
+        graph.connect(1, 0, 1);
+        graph.setOneWay(0, true);
+
+        graph.setPath(1, createLine(new Vector3f(10, 0, 0), new Vector3f(10, 0, 10), new Vector3f(5, 0, 10)));
+        graph.connect(1, 1, 0);
+        graph.connect(2, 1, 1);
+
+        graph.setPath(2, createLine(new Vector3f(5, 0, 10), new Vector3f(0, 0, 10), new Vector3f(0, 0, 0)));
+        graph.connect(2, 2, 0);
+        graph.connect(0, 2, 1);
+
+        Route forwards = graph.findRoute(0, 1);
+        assertEquals(1, forwards.getNumLegs());
+        assertFalse(forwards.getLeg(0).isReversed());
+
+        Route backwards = graph.findRoute(1, 0);
+        assertArrayEquals(new int[] { 1, 2, 0 }, backwards.getJunctions());
+
+        graph.removePath(2);
+        assertNull(graph.findRoute(1, 0));
+
+        for (int from = 0; from < 3; from++) {
+            for (int to = 0; to < 3; to++) {
+                assertCheapestRoute(graph, from, to);
+            }
+        }
+    }
+
+    @Test
+    public void routesThroughTheStartOfClosedPaths() {
+
+        BezierPath bezierPath = new BezierPath(new Vector3f(0, 0, 0), false, PathSpace.xz);
+        bezierPath.addSegmentToEnd(new Vector3f(10, 0, 6));
+        bezierPath.addSegmentToEnd(new Vector3f(-4, 0, 12));
+        bezierPath.setClosed(true);
+
+        VertexPath loop = new VertexPath(bezierPath, VertexPathUtility.SplitBezierPathByMaxDeviation(bezierPath, 0.01f), null);
+        int numAnchors = loop.getAnchorVertexMap().limit() - 1;
+
+        JunctionGraph graph = new JunctionGraph();
+        graph.setPath(0, loop);
+
+        for (int anchor = 0; anchor < numAnchors; anchor++) {
+            graph.connect(graph.addJunction(), 0, anchor);
+        }
+
+        // one edge between each pair of neighbouring anchors, including the one through the start of the loop.
+        assertEquals(numAnchors, graph.getNumEdges());
+
+        float totalLength = 0;
+
+        for (int edge = 0; edge < graph.getNumEdges(); edge++) {
+            totalLength += graph.getEdgeLength(edge);
+        }
+
+        assertEquals(loop.getLength(), totalLength, 1e-3f);
+
+        for (int from = 0; from < numAnchors; from++) {
+            for (int to = 0; to < numAnchors; to++) {
+                assertCheapestRoute(graph, from, to);
+            }
+        }
+
+        // the last anchor and the first are joined through the start of the loop.
+        Route closing = graph.findRoute(numAnchors - 1, 0);
+        assertEquals(1, closing.getNumLegs());
+
+        // a one way loop can only be travelled around in its own direction.
+        graph.setOneWay(0, true);
+        assertEquals(numAnchors - 1, graph.findRoute(1, 0).getNumLegs());
+
+        for (int from = 0; from < numAnchors; from++) {
+            for (int to = 0; to < numAnchors; to++) {
+                assertCheapestRoute(graph, from, to);
+            }
+        }
+    }
+
+    /// Checks the route A* finds against Dijkstra's algorithm over the edges of the graph: that a route exists exactly when
+    /// Dijkstra reaches the goal, that the route is connected and only travels one way edges forwards, and that it costs the same.
+    private static void assertCheapestRoute(JunctionGraph graph, int from, int to) {
+
+        float expected = dijkstra(graph, from)[to];
+        Route route = graph.findRoute(from, to);
+
+        if (route == null) {
+            assertEquals("route from " + from + " to " + to, Float.POSITIVE_INFINITY, expected, 0);
+            return;
+        }
+
+        int[] junctions = route.getJunctions();
+        assertEquals(from, junctions[0]);
+        assertEquals(to, junctions[junctions.length - 1]);
+
+        float cost = 0;
+
+        for (int i = 0; i < route.getNumLegs(); i++) {
+
+            Route.Leg leg = route.getLeg(i);
+            float legCost = Float.POSITIVE_INFINITY;
+
+            for (int edge = 0; edge < graph.getNumEdges(); edge++) {
+
+                int start = leg.isReversed() ? graph.getEdgeTo(edge) : graph.getEdgeFrom(edge);
+                int end = leg.isReversed() ? graph.getEdgeFrom(edge) : graph.getEdgeTo(edge);
+
+                if (graph.getEdgePathId(edge) == leg.getPathId() && start == junctions[i] && end == junctions[i + 1]
+                        && graph.getEdgeLength(edge) == leg.getLength()) {
+
+                    assertFalse("a one way edge is travelled backwards", leg.isReversed() && graph.isEdgeOneWay(edge));
+                    legCost = Math.min(legCost, graph.getEdgeCost(edge));
+                }
+            }
+
+            assertTrue("leg " + i + " doesn't follow an edge", legCost < Float.POSITIVE_INFINITY);
+            cost += legCost;
+        }
+
+        assertEquals("route from " + from + " to " + to, expected, cost, expected * 1e-4f + 1e-3f);
+    }
+
+    /// The cheapest cost from one junction to every other, from the edges of the graph alone.
+    private static float[] dijkstra(JunctionGraph graph, int from) {
+
+        int numJunctions = graph.getNumJunctions();
+        float[] costs = new float[numJunctions];
+        boolean[] done = new boolean[numJunctions];
+
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        costs[from] = 0;
+
+        while (true) {
+
+            int junction = -1;
+
+            for (int i = 0; i < numJunctions; i++) {
+                if (!done[i] && costs[i] < Float.POSITIVE_INFINITY && (junction < 0 || costs[i] < costs[junction])) {
+                    junction = i;
+                }
+            }
+
+            if (junction < 0) {
+                return costs;
+            }
+
+            done[junction] = true;
+
+            for (int edge = 0; edge < graph.getNumEdges(); edge++) {
+
+                float cost = costs[junction] + graph.getEdgeCost(edge);
+
+                if (graph.getEdgeFrom(edge) == junction) {
+                    costs[graph.getEdgeTo(edge)] = Math.min(costs[graph.getEdgeTo(edge)], cost);
+                }
+
+                if (!graph.isEdgeOneWay(edge) && graph.getEdgeTo(edge) == junction) {
+                    costs[graph.getEdgeFrom(edge)] = Math.min(costs[graph.getEdgeFrom(edge)], cost);
+                }
+            }
+        }
+    }
+
+    private static Vector3f offset(Random random, float gap) {
+        return new Vector3f((random.nextFloat() - 0.5f) * gap, 0, (random.nextFloat() - 0.5f) * gap);
+    }
+
+    /// An open vertex path of two straight lines, with an anchor at each end.
+    private static VertexPath createLine(Vector3f start, Vector3f middle, Vector3f end) {
+
+        float[] points = { start.x, start.y, start.z, middle.x, middle.y, middle.z, end.x, end.y, end.z };
+        float middleLength = start.distance(middle);
+        float length = middleLength + middle.distance(end);
+
+        return new VertexPath(PathSpace.xyz, false, FloatBuffer.wrap(points), FloatBuffer.allocate(9), FloatBuffer.allocate(9),
+                FloatBuffer.wrap(new float[] { 0, 0.5f, 1 }), FloatBuffer.wrap(new float[] { 0, middleLength, length }),
+                IntBuffer.wrap(new int[] { 0, 2 }), new BoundingBox(), new Vector3f(0, 1, 0), null);
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jme3.math.Vector3f;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PathIntersectorTest {
+
+    private static final float tolerance = 0.01f;
+
+    @Test
+    public void findsBothCrossingsOfABowedSegmentAndALine() {
+
+        Vector3f[] bowed = { new Vector3f(0, 0, 0), new Vector3f(33, 0.9f, 0), new Vector3f(67, 0.9f, 0), new Vector3f(100, 0, 0) };
+        Vector3f[] line = { new Vector3f(0, 0.3f, 0), new Vector3f(33, 0.3f, 0), new Vector3f(67, 0.3f, 0), new Vector3f(100, 0.3f, 0) };
+
+        List<PathCrossing> crossings = new ArrayList<>();
+        PathIntersector.collectCrossings(bowed, line, tolerance, crossings);
+
+        assertEquals(2, crossings.size());
+
+        // the bow is symmetric, so the crossings are either side of the middle.
+        float x0 = crossings.get(0).getPoint().x, x1 = crossings.get(1).getPoint().x;
+        assertEquals(100, x0 + x1, 0.01f);
+        assertTrue(Math.abs(x0 - x1) > 50);
+
+        for (PathCrossing crossing : crossings) {
+            assertEquals(0.3f, crossing.getPoint().y, tolerance);
+            assertTrue(crossing.getDistance() <= tolerance);
+        }
+    }
+
+    @Test
+    public void pairSearchMatchesEveryPairOfSegments() {
+
+        Random random = new Random(7);
+
+        for (int run = 0; run < 100; run++) {
+
+            BezierPath pathA = createPath(random, 40, 2 + random.nextInt(12));
+            BezierPath pathB = createPath(random, 40, 2 + random.nextInt(12));
+
+            List<PathCrossing> found = new ArrayList<>();
+            PathIntersector.collectCrossings(pathA, pathB, tolerance, found);
+
+            PathIntersector.CrossingMerger merger = new PathIntersector.CrossingMerger(new ArrayList<>(), tolerance);
+
+            for (int segmentA = 0; segmentA < pathA.getNumSegments(); segmentA++) {
+                for (int segmentB = 0; segmentB < pathB.getNumSegments(); segmentB++) {
+                    PathIntersector.collectCrossings(pathA.getPointsInSegment(segmentA), -1, segmentA,
+                            pathB.getPointsInSegment(segmentB), -1, segmentB, tolerance, merger);
+                }
+            }
+
+            assertSameCrossings("run " + run, merger.getCrossings(), found);
+        }
+    }
+
+    @Test
+    public void networkMatchesEveryPairOfPaths() {
+
+        Random random = new Random(11);
+        PathNetwork network = new PathNetwork(5);
+        List<BezierPath> paths = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            BezierPath path = createPath(random, 80, 2 + random.nextInt(8));
+            paths.add(path);
+            network.addPath(path);
+        }
+
+        List<PathCrossing> found = new ArrayList<>();
+        network.collectCrossings(tolerance, found);
+
+        for (int i = 0; i < paths.size(); i++) {
+            for (int j = i + 1; j < paths.size(); j++) {
+
+                int idA = network.getPathId(paths.get(i)), idB = network.getPathId(paths.get(j));
+
+                List<PathCrossing> expected = new ArrayList<>();
+                PathIntersector.collectCrossings(paths.get(i), paths.get(j), tolerance, expected);
+
+                List<PathCrossing> actual = new ArrayList<>();
+
+                for (PathCrossing crossing : found) {
+                    if (crossing.getPathIdA() == idA && crossing.getPathIdB() == idB) {
+                        actual.add(crossing);
+                    }
+                }
+
+                assertSameCrossings("paths " + idA + " and " + idB, expected, actual);
+            }
+        }
+    }
+
+    /// Every crossing in one list has a crossing in the other on the same segments and within the tolerance of it.
+    /// Crossings found in a different order can be merged into a different one of two neighbours, so they are matched by distance.
+    private static void assertSameCrossings(String message, List<PathCrossing> expected, List<PathCrossing> actual) {
+        assertEquals(message, expected.size(), actual.size());
+        assertCovered(message, expected, actual);
+        assertCovered(message, actual, expected);
+    }
+
+    private static void assertCovered(String message, List<PathCrossing> crossings, List<PathCrossing> others) {
+
+        for (PathCrossing crossing : crossings) {
+
+            boolean covered = false;
+
+            for (PathCrossing other : others) {
+                if (other.getPoint().distance(crossing.getPoint()) <= tolerance * 2) {
+                    covered = true;
+                    break;
+                }
+            }
+
+            assertTrue(message + ": no crossing near " + crossing.getPoint(), covered);
+        }
+    }
+
+    /// A random path with automatic control points, its anchors up to 10 units apart, starting somewhere in a square of 'span'.
+    private static BezierPath createPath(Random random, float span, int numSegments) {
+
+        Vector3f start = new Vector3f(random.nextFloat() * span, 0, random.nextFloat() * span);
+
+        BezierPath path = new BezierPath(start, false, PathSpace.xz);
+        path.setControlMode(BezierPath.ControlMode.Automatic);
+        path.movePoint(0, start.clone(), false);
+
+        Vector3f anchor = start.add(random.nextFloat() * 20 - 10, 0, random.nextFloat() * 20 - 10);
+        path.movePoint(3, anchor, false);
+
+        while (path.getNumSegments() < numSegments) {
+            anchor = anchor.add(random.nextFloat() * 20 - 10, 0, random.nextFloat() * 20 - 10);
+            path.addSegmentToEnd(anchor);
+        }
+
+        return path;
+    }
+
+}
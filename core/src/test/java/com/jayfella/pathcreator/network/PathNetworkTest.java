@@ -0,0 +1,68 @@
+package com.jayfella.pathcreator.network;
+
+import com.jayfella.pathcreator.objects.BezierPath;
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PathNetworkTest {
+
+    @Test
+    public void keepsCellsApartFarFromTheOrigin() {
+
+        PathNetwork network = new PathNetwork(1);
+
+        // cells 2^21 apart share a coordinate packed into 21 bits.
+        float[] offsets = { 0, 1 << 21, -(1 << 21), 1 << 30 };
+        int[] ids = new int[offsets.length];
+
+        for (int i = 0; i < offsets.length; i++) {
+            ids[i] = network.addPath(createPath(offsets[i]));
+        }
+
+        network.update();
+        int cellsPerPath = network.getNumCells() / offsets.length;
+
+        for (int i = 0; i < offsets.length; i++) {
+
+            Vector3f center = new Vector3f(offsets[i], 0, 0);
+
+            List<Integer> found = new ArrayList<>();
+            network.collectPaths(new BoundingBox(center, 2, 1, 1), found);
+            assertEquals("offset " + offsets[i], Collections.singletonList(ids[i]), found);
+
+            // a huge box covers more cells than are occupied, so the occupied cells are filtered by their coordinate.
+            found.clear();
+            network.collectPaths(new BoundingBox(center, 1e3f, 1e3f, 1e3f), found);
+            assertEquals("offset " + offsets[i], Collections.singletonList(ids[i]), found);
+
+            assertEquals(ids[i], network.getNearestPath(new Vector3f(offsets[i], 0, 0.25f)).getPathId());
+        }
+
+        assertTrue(cellsPerPath > 0);
+        assertEquals(cellsPerPath * offsets.length, network.getNumCells());
+    }
+
+    @Test
+    public void rejectsPathsPastTheLastCell() {
+
+        PathNetwork network = new PathNetwork(1);
+
+        assertThrows(IllegalArgumentException.class, () -> network.addPath(createPath(1e12f)));
+        assertEquals(0, network.getNumPaths());
+        assertEquals(0, network.getNumCells());
+    }
+
+    /// The default path, a single segment along x, centred on 'x'.
+    private static BezierPath createPath(float x) {
+        return new BezierPath(new Vector3f(x, 0, 0), false, PathSpace.xz);
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.jayfella.pathcreator.utility;
+
+import com.jayfella.pathcreator.objects.PathSpace;
+import com.jayfella.pathcreator.objects.VertexPath;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SelfIntersectionUtilityTest {
+
+    @Test
+    public void matchesEveryPairOfEdgesOnRandomPolylines() {
+
+        Random random = new Random(3);
+        int numIntersections = 0;
+
+        for (int run = 0; run < 300; run++) {
+
+            // vertices on a small grid of whole numbers, so edges often overlap along the same line or meet at a vertex.
+            int numPoints = 3 + random.nextInt(60);
+            int gridSize = 3 + random.nextInt(20);
+            List<float[]> points = new ArrayList<>();
+
+            while (points.size() < numPoints) {
+                if (!points.isEmpty() && random.nextInt(8) == 0) {
+                    points.add(points.get(points.size() - 1));
+                }
+                else {
+                    points.add(new float[] { random.nextInt(gridSize), random.nextInt(gridSize) });
+                }
+            }
+
+            boolean closed = random.nextBoolean();
+
+            if (closed && random.nextBoolean()) {
+                // closed vertex paths usually end on a copy of their first vertex.
+                points.add(points.get(0));
+            }
+
+            PathSpace space = random.nextBoolean() ? PathSpace.xy : PathSpace.xz;
+            VertexPath path = createPath(points, closed, space);
+
+            List<int[]> expected = findAllPairs(points, closed);
+            List<SelfIntersectionUtility.SelfIntersection> actual = SelfIntersectionUtility.findSelfIntersections(path);
+
+            String message = "run " + run + ", " + points.size() + " points, " + (closed ? "closed" : "open");
+            assertEquals(message, expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+
+                SelfIntersectionUtility.SelfIntersection intersection = actual.get(i);
+                assertEquals(message, expected.get(i)[0], intersection.getSegmentIndexA());
+                assertEquals(message, expected.get(i)[1], intersection.getSegmentIndexB());
+
+                assertOnEdge(message, points, intersection.getSegmentIndexA(), intersection.getPoint(), space);
+                assertOnEdge(message, points, intersection.getSegmentIndexB(), intersection.getPoint(), space);
+            }
+
+            assertEquals(message, !expected.isEmpty(), SelfIntersectionUtility.isSelfIntersecting(path));
+            numIntersections += expected.size();
+        }
+
+        assertTrue(numIntersections > 1000);
+    }
+
+    @Test
+    public void reportsCollinearOverlaps() {
+
+        // comes back to the x axis at (1, 0), then runs back along it past the start.
+        List<float[]> points = toPoints(0, 0, 4, 0, 4, 1, 1, 0, -2, 0);
+        List<SelfIntersectionUtility.SelfIntersection> intersections = SelfIntersectionUtility.findSelfIntersections(createPath(points, false, PathSpace.xz));
+
+        assertEquals(2, intersections.size());
+        assertEquals(2, intersections.get(0).getSegmentIndexB());
+        assertEquals(new Vector3f(1, 0, 0), intersections.get(0).getPoint());
+
+        // the overlap is reported where it starts along the first edge.
+        assertEquals(0, intersections.get(1).getSegmentIndexA());
+        assertEquals(3, intersections.get(1).getSegmentIndexB());
+        assertEquals(0, intersections.get(1).getTimeA(), 0);
+        assertEquals(new Vector3f(0, 0, 0), intersections.get(1).getPoint());
+    }
+
+    @Test
+    public void testsTheClosingEdgeOfClosedPaths() {
+
+        // a bow tie, which only crosses itself once it is closed.
+        List<float[]> points = toPoints(0, 0, 2, 0, 0, 2, 2, 2);
+
+        assertFalse(SelfIntersectionUtility.isSelfIntersecting(createPath(points, false, PathSpace.xy)));
+
+        List<SelfIntersectionUtility.SelfIntersection> intersections = SelfIntersectionUtility.findSelfIntersections(createPath(points, true, PathSpace.xy));
+        assertEquals(1, intersections.size());
+        assertEquals(1, intersections.get(0).getSegmentIndexA());
+        assertEquals(3, intersections.get(0).getSegmentIndexB());
+        assertEquals(new Vector3f(1, 1, 0), intersections.get(0).getPoint());
+
+        // a closed square doesn't cross itself, with or without a copy of its first vertex at the end, or duplicated corners.
+        assertFalse(SelfIntersectionUtility.isSelfIntersecting(createPath(toPoints(0, 0, 1, 0, 1, 1, 0, 1), true, PathSpace.xy)));
+        assertFalse(SelfIntersectionUtility.isSelfIntersecting(createPath(toPoints(0, 0, 1, 0, 1, 1, 0, 1, 0, 0), true, PathSpace.xy)));
+        assertFalse(SelfIntersectionUtility.isSelfIntersecting(createPath(toPoints(0, 0, 0, 0, 1, 0, 1, 1, 1, 1, 0, 1, 0, 0), true, PathSpace.xy)));
+    }
+
+    /// Tests every pair of edges, skipping zero length edges, and edges that follow each other once those are left out.
+    /// Returns the vertex each edge of a crossing pair starts at, ordered by the first edge and then the second.
+    private static List<int[]> findAllPairs(List<float[]> points, boolean closed) {
+
+        int numPoints = points.size();
+        int numPathEdges = closed ? numPoints : numPoints - 1;
+        List<Integer> edges = new ArrayList<>();
+
+        for (int i = 0; i < numPathEdges; i++) {
+            float[] a = points.get(i), b = points.get((i + 1) % numPoints);
+
+            if (a[0] != b[0] || a[1] != b[1]) {
+                edges.add(i);
+            }
+        }
+
+        int numEdges = edges.size();
+        List<int[]> pairs = new ArrayList<>();
+
+        for (int i = 0; i < numEdges; i++) {
+            for (int j = i + 1; j < numEdges; j++) {
+
+                boolean joined = j == i + 1 || (closed && i == 0 && j == numEdges - 1 && numEdges > 2);
+
+                if (joined) {
+                    continue;
+                }
+
+                int a = edges.get(i), b = edges.get(j);
+
+                if (segmentsTouch(points.get(a), points.get((a + 1) % numPoints), points.get(b), points.get((b + 1) % numPoints))) {
+                    pairs.add(new int[] { a, b });
+                }
+            }
+        }
+
+        return pairs;
+    }
+
+    /// Whether two segments share a point: neither has both ends strictly on one side of the other, and their bounds overlap,
+    /// which also covers collinear segments.
+    private static boolean segmentsTouch(float[] a0, float[] a1, float[] b0, float[] b1) {
+
+        if (Math.max(a0[0], a1[0]) < Math.min(b0[0], b1[0]) || Math.max(b0[0], b1[0]) < Math.min(a0[0], a1[0])
+                || Math.max(a0[1], a1[1]) < Math.min(b0[1], b1[1]) || Math.max(b0[1], b1[1]) < Math.min(a0[1], a1[1])) {
+            return false;
+        }
+
+        double sideA0 = Math.signum(cross(b0, b1, a0)), sideA1 = Math.signum(cross(b0, b1, a1));
+        double sideB0 = Math.signum(cross(a0, a1, b0)), sideB1 = Math.signum(cross(a0, a1, b1));
+
+        return !(sideA0 != 0 && sideA0 == sideA1) && !(sideB0 != 0 && sideB0 == sideB1);
+    }
+
+    private static double cross(float[] p, float[] q, float[] r) {
+        return ((double) q[0] - p[0]) * ((double) r[1] - p[1]) - ((double) q[1] - p[1]) * ((double) r[0] - p[0]);
+    }
+
+    private static void assertOnEdge(String message, List<float[]> points, int edge, Vector3f point, PathSpace space) {
+
+        float[] a = points.get(edge), b = points.get((edge + 1) % points.size());
+        float[] p = { point.x, (space == PathSpace.xy) ? point.y : point.z };
+
+        assertEquals(message, 0, cross(a, b, p), 1e-3);
+        assertTrue(message, p[0] >= Math.min(a[0], b[0]) - 1e-4f && p[0] <= Math.max(a[0], b[0]) + 1e-4f);
+        assertTrue(message, p[1] >= Math.min(a[1], b[1]) - 1e-4f && p[1] <= Math.max(a[1], b[1]) + 1e-4f);
+    }
+
+    private static List<float[]> toPoints(float... coordinates) {
+
+        List<float[]> points = new ArrayList<>();
+
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new float[] { coordinates[i], coordinates[i + 1] });
+        }
+
+        return points;
+    }
+
+    /// A vertex path through the points, on the plane of its space.
+    private static VertexPath createPath(List<float[]> points, boolean closed, PathSpace space) {
+
+        int numPoints = points.size();
+        float[] localPoints = new float[numPoints * 3];
+        float[] times = new float[numPoints];
+        float[] lengths = new float[numPoints];
+
+        for (int i = 0; i < numPoints; i++) {
+
+            float[] point = points.get(i);
+            localPoints[i * 3] = point[0];
+            localPoints[i * 3 + ((space == PathSpace.xy) ? 1 : 2)] = point[1];
+            times[i] = i / (float) (numPoints - 1);
+
+            if (i > 0) {
+                float[] previous = points.get(i - 1);
+                lengths[i] = lengths[i - 1] + (float) Math.hypot(point[0] - previous[0], point[1] - previous[1]);
+            }
+        }
+
+        return new VertexPath(space, closed, FloatBuffer.wrap(localPoints), FloatBuffer.allocate(numPoints * 3), FloatBuffer.allocate(numPoints * 3),
+                FloatBuffer.wrap(times), FloatBuffer.wrap(lengths), IntBuffer.wrap(new int[] { 0, numPoints - 1 }), new BoundingBox(),
+                (space == PathSpace.xy) ? new Vector3f(0, 0, 1) : new Vector3f(0, 1, 0), null);
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.jayfella.pathcreator;
 
+import com.jayfella.pathcreator.jobs.PathJobScheduler;
 import com.jme3.app.SimpleApplication;
 import com.jme3.light.DirectionalLight;
 import com.jme3.material.Material;
@@ -57,6 +58,9 @@ public class Main extends SimpleApplication {
         box.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
         rootNode.attachChild(box);
 
+        // rebuild road meshes within a frame budget rather than on every edit.
+        stateManager.attach(new PathJobScheduler(4));
+
         PathCreator pathCreator = new PathCreator();
 
         rootNode.attachChild(pathCreator.getNode());
@@ -1,22 +1,23 @@
 package com.jayfella.pathcreator;
 
 import com.jayfella.pathcreator.editor.EditorGui;
+import com.jayfella.pathcreator.editor.HandlePickGrid;
+import com.jayfella.pathcreator.metrics.PathMetrics;
 import com.jayfella.pathcreator.objects.BezierPath;
 import com.jayfella.pathcreator.objects.VertexPath;
-import com.jayfella.pathcreator.utility.CubicBezierUtility;
 import com.jayfella.pathcreator.utility.MathUtility;
 import com.jme3.app.Application;
 import com.jme3.app.SimpleApplication;
 import com.jme3.app.state.BaseAppState;
 import com.jme3.bounding.BoundingBox;
-import com.jme3.collision.CollisionResult;
-import com.jme3.collision.CollisionResults;
 import com.jme3.input.KeyInput;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
+import com.jme3.math.Matrix4f;
 import com.jme3.math.Ray;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
@@ -37,6 +38,7 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
     private static final FunctionId F_ADD_SEGMENT_START = new FunctionId(G_PATH_EDITOR, "Add Segment To Start");
     private static final FunctionId F_ADD_SEGMENT_END = new FunctionId(G_PATH_EDITOR, "Add Segment To End");
     private static final FunctionId F_MOVE_SEGMENT = new FunctionId(G_PATH_EDITOR, "Move Segment");
+    private static final FunctionId F_INSERT_ANCHOR = new FunctionId(G_PATH_EDITOR, "Insert Anchor");
 
     private final PathCreator pathCreator;
 
@@ -64,11 +66,21 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
     private static final float controlPointSize = 0.05f;
     private static final float bezierHandleScale = 1.0f;
 
+    // how far from the curve (in pixels) a click still inserts an anchor.
+    private static final float curvePickPixels = 8;
+
     // used to find and store the ID's of anchors and control points that are being hovered over.
-    private CollisionResult handleCollision;
+    // the handles are projected into a screen space grid, which is only rebuilt when the handles or the camera change.
+    private final HandlePickGrid handlePickGrid = new HandlePickGrid(32);
+    private final Matrix4f handlePickViewProjection = new Matrix4f();
+    private final Vector2f handlePickCursor = new Vector2f(Float.NaN, Float.NaN);
+    private boolean handlePickGridOutOfDate = true;
     private int mouseOverHandleIndex = -1;
     private boolean draggingHandle = false;
 
+    // repaints are requested by path events (often several per edit) and drawn once per frame.
+    private boolean repaintRequested = true;
+
     public PathEditorState(PathCreator pathCreator) {
 
         node_handles.attachChild(node_anchors);
@@ -94,7 +106,6 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
 
         // a geom/mesh to draw the bezier curve as one complete mesh.
         bezierGeom = new Geometry("Bezier Geometry", new Mesh());
-        bezierGeom.getMesh().setMode(Mesh.Mode.Lines);
         bezierGeom.setMaterial(bezierMaterial);
 
         // anchor points
@@ -137,13 +148,26 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
         unbindInput();
     }
 
+    /**
+     * Requests a repaint, which is drawn in the next update.
+     */
     public void repaint() {
+        repaintRequested = true;
+    }
+
+    private void repaintNow() {
+        long repaintStart = PathMetrics.startTimer();
+
         drawVertexPath();
         drawBezierAnchors();
         drawBezierControlPoints();
         drawBezierControlPointLines();
         drawPathBounds();
         drawSegmentBounds();
+
+        handlePickGridOutOfDate = true;
+
+        PathMetrics.stopTimer(PathMetrics.EDITOR_REPAINT, repaintStart);
     }
 
     public boolean isShowAnchorPoints() {
@@ -200,38 +224,12 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
 
             path.updateTransform(pathCreator.getNode().getLocalTransform());
 
-            List<Vector3f> verts = new ArrayList<>();
-
-            for (int i = 0; i < path.getNumPoints(); i++) {
-
-                int nextI = i + 1;
-
-                if (nextI >= path.getNumPoints()) {
-
-                    if (path.isClosedLoop()) {
-
-                        nextI %= path.getNumPoints();
-
-                    }
-                    else {
-                        break;
-                    }
-
-                }
-
-                verts.add(path.getPoint(i));
-                verts.add(path.getPoint(nextI));
-            }
-
-            if (verts.size() > 0) {
-
-                Vector3f[] vertArray = verts.toArray(new Vector3f[0]);
-
-                FloatBuffer pb = BufferUtils.createFloatBuffer(vertArray);
-                bezierGeom.getMesh().setBuffer(VertexBuffer.Type.Position, 3, pb);
-
-                bezierGeom.updateModelBound();
-            }
+            // the mesh is built from the local points of the path, so it takes the same translation and scale
+            // that the path applies to its points.
+            path.createLineMesh(bezierGeom.getMesh());
+            bezierGeom.setLocalTranslation(pathCreator.getNode().getLocalTranslation());
+            bezierGeom.setLocalScale(pathCreator.getNode().getLocalScale());
+            bezierGeom.updateModelBound();
 
             if (bezierGeom.getMesh().getVertexCount() > 0) {
                 node.attachChild(bezierGeom);
@@ -368,16 +366,15 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
 
             BezierPath path = pathCreator.getBezierPath();
 
-            for (int i = 0; i < path.getNumSegments(); i++) {
+            // the path caches the bounds of each segment, so only transform them here.
+            Vector3f scale = pathCreator.getNode().getLocalScale();
 
-                Vector3f[] points = path.getPointsInSegment(i);
-                for (int j = 0; j < points.length; j++) {
-                    points[j] = MathUtility.TransformPoint (points[j], pathCreator.getNode(), path.getSpace());
-                }
+            for (int i = 0; i < path.getNumSegments(); i++) {
 
-                BoundingBox segmentBounds = CubicBezierUtility.calculateSegmentBounds(points[0], points[1], points[2], points[3]);
-                Vector3f center = segmentBounds.getCenter();
+                BoundingBox segmentBounds = path.getSegmentBounds(i);
+                Vector3f center = MathUtility.TransformPoint (segmentBounds.getCenter(), pathCreator.getNode(), path.getSpace());
                 Vector3f extent = segmentBounds.getExtent(null);
+                extent.set(extent.x * Math.abs(scale.x), extent.y * Math.abs(scale.y), extent.z * Math.abs(scale.z));
                 WireBox box = new WireBox(extent.x, extent.y, extent.z);
 
                 if (boundsMaterial == null) {
@@ -398,7 +395,8 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
     }
 
     /**
-     * Uses a ray to find the ID of the handle being hovered over.
+     * Uses the handle pick grid to find the ID of the handle being hovered over.
+     * The grid is rebuilt when the handles have been repainted or the camera has changed, and looked up when the cursor moves.
      */
     private void findHoveredHandle() {
 
@@ -407,19 +405,31 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
             return;
         }
 
-        // our scene is organized in such a way that we don't collide with the bezier curve or control point lines.
-        handleCollision = findMouseCollision(node_handles);
+        Camera cam = getApplication().getCamera();
+        boolean rebuild = handlePickGridOutOfDate || !cam.getViewProjectionMatrix().equals(handlePickViewProjection);
 
-        // even though we should never collide with anything other than a handle, we should still do some error-control.
-        if (handleCollision != null) {
+        if (rebuild) {
+            long buildStart = PathMetrics.startTimer();
+
+            List<Geometry> handles = new ArrayList<>();
+            node_handles.depthFirstTraversal(spatial -> {
+                if (spatial instanceof Geometry) {
+                    handles.add((Geometry) spatial);
+                }
+            });
 
-            Integer index = handleCollision.getGeometry().getUserData("ID");
-            mouseOverHandleIndex = (index == null) ? -1 : index;
+            handlePickGrid.rebuild(cam, handles);
+            handlePickViewProjection.set(cam.getViewProjectionMatrix());
+            handlePickGridOutOfDate = false;
 
-            // System.out.println("Hover Index: " + mouseOverHandleIndex);
+            PathMetrics.stopTimer(PathMetrics.EDITOR_HANDLE_PICK_BUILD, buildStart);
         }
-        else {
-            mouseOverHandleIndex = -1;
+
+        Vector2f cursor = getApplication().getInputManager().getCursorPosition();
+
+        if (rebuild || !cursor.equals(handlePickCursor)) {
+            handlePickCursor.set(cursor);
+            mouseOverHandleIndex = handlePickGrid.pick(cursor.x, cursor.y);
         }
 
     }
@@ -453,31 +463,11 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
             }
         }
 
-    }
-
-    private final CollisionResults collisionResults = new CollisionResults();
-    private final Ray mouseCollisionRay = new Ray();
-
-    private CollisionResult findMouseCollision(Node collisionNode) {
-
-        Vector2f mouseScreenCoords = getApplication().getInputManager().getCursorPosition();
-        Vector3f mouseWorldCoords = getApplication().getCamera().getWorldCoordinates(mouseScreenCoords, 0);
-        Vector3f mouseWorldCoords2 = getApplication().getCamera().getWorldCoordinates(mouseScreenCoords, 1);
-        Vector3f mouseWorldDirection = mouseWorldCoords2.subtractLocal(mouseWorldCoords).normalizeLocal();
-
-        // Ray ray = new Ray(mouseWorldCoords, mouseWorldDirection);
-        mouseCollisionRay.setOrigin(mouseWorldCoords);
-        mouseCollisionRay.setDirection(mouseWorldDirection);
-
-        collisionNode.collideWith(mouseCollisionRay, collisionResults);
-
-        if (collisionResults.size() > 0) {
-            CollisionResult result = collisionResults.getClosestCollision();
-            collisionResults.clear();
-            return result;
+        if (repaintRequested) {
+            repaintRequested = false;
+            repaintNow();
         }
 
-        return null;
     }
 
     private void bindInput() {
@@ -487,8 +477,9 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
         inputMapper.map(F_ADD_SEGMENT_START, KeyInput.KEY_LSHIFT, KeyInput.KEY_LCONTROL, Button.MOUSE_BUTTON2);
         inputMapper.map(F_ADD_SEGMENT_END, KeyInput.KEY_LSHIFT, Button.MOUSE_BUTTON2);
         inputMapper.map(F_MOVE_SEGMENT, Button.MOUSE_BUTTON2);
+        inputMapper.map(F_INSERT_ANCHOR, KeyInput.KEY_LCONTROL, Button.MOUSE_BUTTON2);
 
-        inputMapper.addStateListener(this, F_ADD_SEGMENT_START, F_ADD_SEGMENT_END, F_MOVE_SEGMENT);
+        inputMapper.addStateListener(this, F_ADD_SEGMENT_START, F_ADD_SEGMENT_END, F_MOVE_SEGMENT, F_INSERT_ANCHOR);
         inputMapper.activateGroup(G_PATH_EDITOR);
     }
 
@@ -498,8 +489,9 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
         inputMapper.removeMapping(F_ADD_SEGMENT_START, KeyInput.KEY_LSHIFT, KeyInput.KEY_LCONTROL, Button.MOUSE_BUTTON2);
         inputMapper.removeMapping(F_ADD_SEGMENT_END, KeyInput.KEY_LSHIFT, Button.MOUSE_BUTTON2);
         inputMapper.removeMapping(F_MOVE_SEGMENT, Button.MOUSE_BUTTON2);
+        inputMapper.removeMapping(F_INSERT_ANCHOR, KeyInput.KEY_LCONTROL, Button.MOUSE_BUTTON2);
 
-        inputMapper.removeStateListener(this, F_ADD_SEGMENT_START, F_ADD_SEGMENT_END, F_MOVE_SEGMENT);
+        inputMapper.removeStateListener(this, F_ADD_SEGMENT_START, F_ADD_SEGMENT_END, F_MOVE_SEGMENT, F_INSERT_ANCHOR);
         inputMapper.deactivateGroup(G_PATH_EDITOR);
     }
 
@@ -525,6 +517,46 @@ public class PathEditorState extends BaseAppState implements StateFunctionListen
         else if (func == F_MOVE_SEGMENT) {
 
             draggingHandle = value != InputState.Off;
+
+            // preview the path at reduced accuracy while a handle is dragged, and rebuild it at full quality on release.
+            pathCreator.getEditorData().setPreviewMode(draggingHandle && mouseOverHandleIndex != -1);
+        }
+        else if (func == F_INSERT_ANCHOR) {
+            if (value == InputState.Off) {
+                insertAnchorUnderMouse();
+            }
+        }
+    }
+
+    /**
+     * Splits the segment under the mouse at the point nearest the cursor.
+     */
+    private void insertAnchorUnderMouse() {
+
+        Camera cam = getApplication().getCamera();
+        BezierPath path = pathCreator.getBezierPath();
+
+        Vector2f mouseScreenCoords = getApplication().getInputManager().getCursorPosition();
+        Vector3f mouseWorldCoords = cam.getWorldCoordinates(mouseScreenCoords, 0);
+        Vector3f mouseWorldCoords2 = cam.getWorldCoordinates(mouseScreenCoords, 1);
+
+        // pick in the space of the path. The length of the transformed direction is how the scale of the path changes distances.
+        Vector3f localOrigin = MathUtility.InverseTransformPoint(mouseWorldCoords, pathCreator.getNode(), path.getSpace());
+        Vector3f localDirection = MathUtility.InverseTransformPoint(mouseWorldCoords2, pathCreator.getNode(), path.getSpace())
+                .subtractLocal(localOrigin);
+        float localScale = localDirection.length() / mouseWorldCoords2.distance(mouseWorldCoords);
+        localDirection.divideLocal(localDirection.length());
+
+        // the size of a pixel: constant for a parallel projection, growing with distance for a perspective one.
+        float pixelSize = (cam.getFrustumTop() - cam.getFrustumBottom()) / cam.getHeight();
+        float tolerance = cam.isParallelProjection() ? curvePickPixels * pixelSize * localScale : 0;
+        float tolerancePerDistance = cam.isParallelProjection() ? 0 : curvePickPixels * pixelSize / cam.getFrustumNear();
+
+        BezierPath.CurveHit hit = path.pickCurve(new Ray(localOrigin, localDirection), tolerance, tolerancePerDistance);
+
+        if (hit != null && hit.getTime() > 0 && hit.getTime() < 1) {
+            path.insertAnchor(hit.getSegmentIndex(), hit.getTime());
+            repaint();
         }
     }
     
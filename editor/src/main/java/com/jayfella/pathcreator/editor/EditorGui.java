@@ -3,21 +3,34 @@ package com.jayfella.pathcreator.editor;
 import com.jayfella.pathcreator.PathCreator;
 import com.jayfella.pathcreator.PathEditorState;
 import com.jayfella.pathcreator.ext.RoadMesh;
+import com.jayfella.pathcreator.jobs.PathJobScheduler;
+import com.jayfella.pathcreator.metrics.PathMetrics;
+import com.jayfella.pathcreator.metrics.SimpleMetricsRecorder;
 import com.jayfella.pathcreator.objects.BezierPath;
 import com.jayfella.pathcreator.objects.PathCreatorData;
 import com.simsilica.lemur.Checkbox;
+import com.jme3.app.SimpleApplication;
 import com.simsilica.lemur.Container;
+import com.simsilica.lemur.Label;
 import com.simsilica.lemur.RollupPanel;
 import com.simsilica.lemur.TabbedPanel;
 import com.simsilica.lemur.core.VersionedReference;
 import com.simsilica.lemur.props.PropertyPanel;
 
+import java.util.Map;
+
 public class EditorGui extends TabbedPanel {
 
     private final PathEditorState editorState;
     private final PathCreator pathCreator;
 
     private VersionedReference<Boolean> showRoadsRef;
+    private VersionedReference<Boolean> showStatsRef;
+
+    // refresh the stats overlay twice a second rather than every frame.
+    private static final long statsRefreshNanos = 500_000_000L;
+    private Label statsOverlay;
+    private long lastStatsRefresh;
 
     public EditorGui(PathEditorState editorState, PathCreator pathCreator) {
         super();
@@ -28,6 +41,7 @@ public class EditorGui extends TabbedPanel {
         createBezierPathTab();
         createVertexPathTab();
         createRoadTab();
+        createStatsTab();
     }
 
     private void createBezierPathTab() {
@@ -74,8 +88,14 @@ public class EditorGui extends TabbedPanel {
         PathCreatorData pathCreatorData = pathCreator.getEditorData();
 
         PropertyPanel vertexPathOptions = new PropertyPanel("glass");
+        vertexPathOptions.addEnumProperty("Mode", pathCreatorData, "vertexPathMode");
         vertexPathOptions.addFloatProperty("Max Angle Error", pathCreatorData, "vertexPathMaxAngleError", 0, 45, 0.01f);
         vertexPathOptions.addFloatProperty("Min Vertex Dst", pathCreatorData, "vertexPathMinVertexSpacing", 0, 1, 0.01f);
+        vertexPathOptions.addFloatProperty("Max Deviation", pathCreatorData, "vertexPathMaxDeviation", 0.001f, 1, 0.001f);
+        vertexPathOptions.addIntProperty("Vertex Budget", pathCreatorData, "vertexPathVertexBudget", 2, 10000, 1);
+        vertexPathOptions.addEnumProperty("Storage", pathCreatorData, "vertexPathStorage");
+        vertexPathOptions.addFloatProperty("Preview Max Deviation", pathCreatorData, "previewMaxDeviation", 0.001f, 1, 0.001f);
+        vertexPathOptions.addFloatProperty("Preview Frame Time (ms)", pathCreatorData, "previewFrameTimeTarget", 0.5f, 50, 0.5f);
 
         RollupPanel vertexOptionsRollup = container.addChild(new RollupPanel("Vertex Path Options", vertexPathOptions, "glass"));
 
@@ -92,6 +112,16 @@ public class EditorGui extends TabbedPanel {
         addTab("Road", container);
     }
 
+    private void createStatsTab() {
+
+        Container container = new Container();
+
+        Checkbox showStatsCheckBox = container.addChild(new Checkbox("Show Stats Overlay"));
+        showStatsRef = showStatsCheckBox.getModel().createReference();
+
+        addTab("Stats", container);
+    }
+
     private RoadMesh roadMesh;
 
     public void update() {
@@ -103,6 +133,7 @@ public class EditorGui extends TabbedPanel {
             if (value) {
                 if (roadMesh == null) {
                     roadMesh = new RoadMesh(pathCreator, editorState.getApplication().getAssetManager());
+                    roadMesh.setScheduler(editorState.getApplication().getStateManager().getState(PathJobScheduler.class));
                 }
 
                 pathCreator.getNode().attachChild(roadMesh.getGeometry());
@@ -115,6 +146,68 @@ public class EditorGui extends TabbedPanel {
 
         }
 
+        if (showStatsRef.update()) {
+
+            if (showStatsRef.get()) {
+
+                // metrics are discarded by default, so start recording when the overlay is first shown.
+                if (!(PathMetrics.getRecorder() instanceof SimpleMetricsRecorder)) {
+                    PathMetrics.setRecorder(new SimpleMetricsRecorder());
+                }
+
+                if (statsOverlay == null) {
+                    statsOverlay = new Label("");
+                }
+
+                SimpleApplication app = (SimpleApplication) editorState.getApplication();
+                statsOverlay.setLocalTranslation(app.getCamera().getWidth() - 400, app.getCamera().getHeight() - 10, 0);
+                app.getGuiNode().attachChild(statsOverlay);
+                lastStatsRefresh = 0;
+            }
+            else if (statsOverlay != null) {
+                statsOverlay.removeFromParent();
+            }
+        }
+
+        if (statsOverlay != null && statsOverlay.getParent() != null) {
+            long now = System.nanoTime();
+
+            if (now - lastStatsRefresh >= statsRefreshNanos) {
+                lastStatsRefresh = now;
+                statsOverlay.setText(formatStats());
+            }
+        }
+
+    }
+
+    private String formatStats() {
+
+        if (!(PathMetrics.getRecorder() instanceof SimpleMetricsRecorder)) {
+            return "Metrics are not being recorded.";
+        }
+
+        SimpleMetricsRecorder recorder = (SimpleMetricsRecorder) PathMetrics.getRecorder();
+        StringBuilder text = new StringBuilder();
+
+        for (Map.Entry<String, SimpleMetricsRecorder.Timer> entry : recorder.getTimers().entrySet()) {
+            SimpleMetricsRecorder.Timer timer = entry.getValue();
+            text.append(String.format("%s: %d, mean %.1fus, p99 %.1fus, max %.1fus\n",
+                    entry.getKey(), timer.getCount(), timer.getMeanNanos() / 1000,
+                    timer.getPercentileNanos(0.99) / 1000f, timer.getMaxNanos() / 1000f));
+        }
+
+        for (Map.Entry<String, Long> entry : recorder.getCounters().entrySet()) {
+            text.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+
+        PathJobScheduler scheduler = editorState.getApplication().getStateManager().getState(PathJobScheduler.class);
+
+        if (scheduler != null) {
+            text.append(String.format("scheduler: %d queued, %d overruns, max overrun %.1fms\n",
+                    scheduler.getQueueDepth(), scheduler.getOverrunFrames(), scheduler.getMaxOverrunMillis()));
+        }
+
+        return text.toString();
     }
 
 }
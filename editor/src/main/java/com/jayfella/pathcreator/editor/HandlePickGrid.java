@@ -0,0 +1,233 @@
+package com.jayfella.pathcreator.editor;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the editor handle under the cursor without casting a ray into the scene.
+ * Each handle is projected to a circle on the screen and stored in a uniform grid of screen cells, so looking up
+ * the handle under a screen position only tests the few handles in a single cell. The grid has to be rebuilt
+ * whenever the handles or the camera change.
+ *
+ * Handles are geometries carrying their point index in the "ID" user data, the same as the editor scene graph.
+ */
+public class HandlePickGrid {
+
+    private final float cellSize;
+
+    private int numColumns;
+    private int numRows;
+
+    // the handles, in screen space
+    private int numHandles;
+    private int[] ids = new int[0];
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+    private float[] screenDepth = new float[0];
+    private float[] screenRadius = new float[0];
+
+    // handles sorted by cell: the handles in cell c are cellHandles[cellStart[c]] to cellHandles[cellStart[c + 1] - 1]
+    private int[] cellStart = new int[1];
+    private int[] cellHandles = new int[0];
+
+    /**
+     * Creates an empty grid.
+     * @param cellSize the width and height of each cell, in pixels.
+     */
+    public HandlePickGrid(float cellSize) {
+
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("The cell size must be larger than zero.");
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Projects the handles with the camera and sorts them into cells.
+     * Geometries without an "ID" and handles behind the camera or off the screen are left out.
+     * @param camera  the camera the handles are seen through.
+     * @param handles the handle geometries.
+     */
+    public void rebuild(Camera camera, List<Geometry> handles) {
+
+        numColumns = Math.max(1, (int) Math.ceil(camera.getWidth() / cellSize));
+        numRows = Math.max(1, (int) Math.ceil(camera.getHeight() / cellSize));
+
+        ensureHandleCapacity(handles.size());
+        numHandles = 0;
+
+        Vector3f screen = new Vector3f();
+        Vector3f edge = new Vector3f();
+
+        for (Geometry handle : handles) {
+
+            Integer id = handle.getUserData("ID");
+
+            if (id == null) {
+                continue;
+            }
+
+            Vector3f center = handle.getWorldTranslation();
+            camera.getScreenCoordinates(center, screen);
+
+            if (screen.z < 0 || screen.z > 1) {
+                continue;
+            }
+
+            // measure the radius on screen by projecting a point on the edge of the handle, across the view.
+            edge.set(camera.getUp()).multLocal(getWorldRadius(handle)).addLocal(center);
+            Vector3f screenEdge = camera.getScreenCoordinates(edge);
+            float radius = (float) Math.hypot(screenEdge.x - screen.x, screenEdge.y - screen.y);
+
+            if (screen.x + radius < 0 || screen.x - radius > camera.getWidth()
+                    || screen.y + radius < 0 || screen.y - radius > camera.getHeight()) {
+                continue;
+            }
+
+            ids[numHandles] = id;
+            screenX[numHandles] = screen.x;
+            screenY[numHandles] = screen.y;
+            screenDepth[numHandles] = screen.z;
+            screenRadius[numHandles] = radius;
+            numHandles++;
+        }
+
+        sortIntoCells();
+    }
+
+    /**
+     * Returns the ID of the handle at a screen position, or -1 if there is none.
+     * Where handles overlap, the one nearest the camera is returned.
+     * @param x the horizontal screen position, in pixels.
+     * @param y the vertical screen position, in pixels.
+     * @return the ID of the handle, or -1.
+     */
+    public int pick(float x, float y) {
+
+        int column = (int) Math.floor(x / cellSize);
+        int row = (int) Math.floor(y / cellSize);
+
+        if (column < 0 || column >= numColumns || row < 0 || row >= numRows) {
+            return -1;
+        }
+
+        int cell = row * numColumns + column;
+
+        int nearest = -1;
+        float nearestDepth = Float.MAX_VALUE;
+
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+
+            int handle = cellHandles[i];
+
+            float dx = x - screenX[handle];
+            float dy = y - screenY[handle];
+            float radius = screenRadius[handle];
+
+            if (dx * dx + dy * dy <= radius * radius && screenDepth[handle] < nearestDepth) {
+                nearest = handle;
+                nearestDepth = screenDepth[handle];
+            }
+        }
+
+        return (nearest == -1) ? -1 : ids[nearest];
+    }
+
+    private static float getWorldRadius(Geometry handle) {
+
+        BoundingVolume bound = handle.getWorldBound();
+
+        if (bound instanceof BoundingSphere) {
+            return ((BoundingSphere) bound).getRadius();
+        }
+
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            return Math.max(box.getXExtent(), Math.max(box.getYExtent(), box.getZExtent()));
+        }
+
+        return 0;
+    }
+
+    private void ensureHandleCapacity(int capacity) {
+        if (ids.length < capacity) {
+            ids = new int[capacity];
+            screenX = new float[capacity];
+            screenY = new float[capacity];
+            screenDepth = new float[capacity];
+            screenRadius = new float[capacity];
+        }
+    }
+
+    /// Counting sort of the handles into every cell their circle overlaps.
+    private void sortIntoCells() {
+
+        int numCells = numColumns * numRows;
+
+        if (cellStart.length < numCells + 1) {
+            cellStart = new int[numCells + 1];
+        }
+        else {
+            Arrays.fill(cellStart, 0);
+        }
+
+        // count the handles in each cell, offset by one so the prefix sum gives the start of each cell.
+        int total = 0;
+
+        for (int handle = 0; handle < numHandles; handle++) {
+
+            int minColumn = clampColumn(screenX[handle] - screenRadius[handle]);
+            int maxColumn = clampColumn(screenX[handle] + screenRadius[handle]);
+            int minRow = clampRow(screenY[handle] - screenRadius[handle]);
+            int maxRow = clampRow(screenY[handle] + screenRadius[handle]);
+
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    cellStart[row * numColumns + column + 1]++;
+                    total++;
+                }
+            }
+        }
+
+        for (int cell = 0; cell < numCells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        if (cellHandles.length < total) {
+            cellHandles = new int[total];
+        }
+
+        int[] fill = Arrays.copyOf(cellStart, numCells);
+
+        for (int handle = 0; handle < numHandles; handle++) {
+
+            int minColumn = clampColumn(screenX[handle] - screenRadius[handle]);
+            int maxColumn = clampColumn(screenX[handle] + screenRadius[handle]);
+            int minRow = clampRow(screenY[handle] - screenRadius[handle]);
+            int maxRow = clampRow(screenY[handle] + screenRadius[handle]);
+
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    cellHandles[fill[row * numColumns + column]++] = handle;
+                }
+            }
+        }
+    }
+
+    private int clampColumn(float x) {
+        return Math.max(0, Math.min(numColumns - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int clampRow(float y) {
+        return Math.max(0, Math.min(numRows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+}
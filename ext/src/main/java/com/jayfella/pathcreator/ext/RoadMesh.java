@@ -1,17 +1,19 @@
 package com.jayfella.pathcreator.ext;
 
 import com.jayfella.pathcreator.PathCreator;
+import com.jayfella.pathcreator.jobs.PathJobScheduler;
+import com.jayfella.pathcreator.jobs.PathJobType;
+import com.jayfella.pathcreator.metrics.PathMetrics;
 import com.jayfella.pathcreator.objects.PathSpace;
 import com.jayfella.pathcreator.objects.VertexPath;
+import com.jayfella.pathcreator.utility.MeshBufferUtility;
 import com.jme3.asset.AssetManager;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
-import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
-import com.jme3.util.BufferUtils;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -32,6 +34,9 @@ public class RoadMesh {
 
     private Geometry geometry;
 
+    // optional scheduler that rebuilds the mesh within a frame budget, instead of in the path modified event.
+    private PathJobScheduler scheduler;
+
     public RoadMesh(PathCreator pathCreator, AssetManager assetManager) {
         this.pathCreator = pathCreator;
         this.assetManager = assetManager;
@@ -40,18 +45,58 @@ public class RoadMesh {
         pathCreator.getBezierPath().addModifiedEvent(this::updateMesh);
     }
 
+    /// Rebuilds the mesh, or queues a rebuild if a scheduler has been set. Nothing happens while the path is being previewed,
+    /// as the path is rebuilt (and notifies this mesh) once the preview ends.
     public void updateMesh() {
-        createRoadMesh();
+        if (pathCreator.getEditorData().isPreviewMode()) {
+            return;
+        }
+
+        if (scheduler != null) {
+            // the vertex path is tessellated in its own job, which runs first, so the two can land in different frames.
+            // meshes that share the path share the job, and then use the vertex path it built.
+            scheduler.submit(pathCreator, PathJobType.RebuildVertexPath, () -> pathCreator.getVertexPath());
+            scheduler.submit(this, PathJobType.RebuildMesh, this::createRoadMesh);
+        }
+        else {
+            createRoadMesh();
+        }
+    }
+
+    public PathJobScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets a scheduler to queue mesh rebuilds with, or null to rebuild the mesh as soon as the path is modified.
+     * Queued rebuilds of the same mesh supersede each other, so a path edited several times a frame is rebuilt once.
+     * @param scheduler the scheduler to use, or null.
+     */
+    public void setScheduler(PathJobScheduler scheduler) {
+        this.scheduler = scheduler;
     }
 
     private void createRoadMesh() {
 
+        long buildStart = PathMetrics.startTimer();
+
         // BezierPath path = pathCreator.getBezierPath();
         VertexPath path = pathCreator.getVertexPath();
 
-        Vector3f[] verts = new Vector3f[path.getNumPoints() * 8];
-        Vector2f[] uvs = new Vector2f[verts.length];
-        Vector3f[] normals = new Vector3f[verts.length];
+        if (geometry == null) {
+            geometry = new Geometry("Road Geometry", new Mesh());
+            geometry.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
+            geometry.getMaterial().setColor("Color", ColorRGBA.Yellow);
+            geometry.getMaterial().getAdditionalRenderState().setWireframe(true);
+        }
+
+        // vertex data is written straight into the mesh's buffers, which are reused while they are large enough.
+        Mesh mesh = geometry.getMesh();
+        int numVerts = path.getNumPoints() * 8;
+
+        FloatBuffer pb = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.Position, 3, numVerts);
+        FloatBuffer nb = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.Normal, 3, numVerts);
+        FloatBuffer tb = MeshBufferUtility.getFloatBuffer(mesh, VertexBuffer.Type.TexCoord, 2, numVerts);
 
         int numTris = 2 * (path.getNumPoints() - 1) + ((path.isClosedLoop()) ? 2 : 0);
         int[] roadTriangles = new int[numTris * 3];
@@ -80,49 +125,53 @@ public class RoadMesh {
             // Find position to left and right of current path vertex
             Vector3f vertSideA = path.getPoint(i).subtract(localRight.mult(Math.abs(roadWidth)));
             Vector3f vertSideB = path.getPoint(i).add(localRight.mult(Math.abs(roadWidth)));
+            Vector3f vertBottomA = vertSideA.subtract(localUp.mult(thickness));
+            Vector3f vertBottomB = vertSideB.subtract(localUp.mult(thickness));
+
+            // Add top of road vertices, then bottom of road vertices, then the same again to get flat shading for sides of road
+            for (int copy = 0; copy < 2; copy++) {
+                put(pb, vertSideA);
+                put(pb, vertSideB);
+                put(pb, vertBottomA);
+                put(pb, vertBottomB);
+            }
 
-            // Add top of road vertices
-            verts[vertIndex + 0] = vertSideA;
-            verts[vertIndex + 1] = vertSideB;
-            // Add bottom of road vertices
-            verts[vertIndex + 2] = vertSideA.subtract(localUp.mult(thickness));
-            verts[vertIndex + 3] = vertSideB.subtract(localUp.mult(thickness));
+            // Set uv on y axis to path time (0 at start of path, up to 1 at end of path)
+            tb.put(0).put(path.getTime(i));
+            tb.put(1).put(path.getTime(i));
 
-            // Duplicate vertices to get flat shading for sides of road
-            verts[vertIndex + 4] = verts[vertIndex + 0];
-            verts[vertIndex + 5] = verts[vertIndex + 1];
-            verts[vertIndex + 6] = verts[vertIndex + 2];
-            verts[vertIndex + 7] = verts[vertIndex + 3];
+            for (int j = 2; j < 8; j++) {
+                tb.put(0).put(0);
+            }
 
-            // Set uv on y axis to path time (0 at start of path, up to 1 at end of path)
-            uvs[vertIndex + 0] = new Vector2f (0, path.getTime(i));
-            uvs[vertIndex + 1] = new Vector2f (1, path.getTime(i));
+            Vector3f localDown = localUp.negate();
+            Vector3f localLeft = localRight.negate();
 
             // Top of road normals
-            normals[vertIndex + 0] = localUp;
-            normals[vertIndex + 1] = localUp;
+            put(nb, localUp);
+            put(nb, localUp);
             // Bottom of road normals
-            normals[vertIndex + 2] = localUp.negate();
-            normals[vertIndex + 3] = localUp.negate();
+            put(nb, localDown);
+            put(nb, localDown);
             // Sides of road normals
-            normals[vertIndex + 4] = localRight.negate();
-            normals[vertIndex + 5] = localRight;
-            normals[vertIndex + 6] = localRight.negate();
-            normals[vertIndex + 7] = localRight;
+            put(nb, localLeft);
+            put(nb, localRight);
+            put(nb, localLeft);
+            put(nb, localRight);
 
             // Set triangle indices
             if (i < path.getNumPoints() - 1 || path.isClosedLoop()) {
                 for (int j = 0; j < triangleMap.length; j++) {
 
 
-                    // roadTriangles[triIndex + j] = (vertIndex + triangleMap[j]) % verts.length;
-                    roadTriangles[triIndex + j] = (vertIndex + triangleMap[triangleMap.length - 1 - j] + 2) % verts.length;
+                    // roadTriangles[triIndex + j] = (vertIndex + triangleMap[j]) % numVerts;
+                    roadTriangles[triIndex + j] = (vertIndex + triangleMap[triangleMap.length - 1 - j] + 2) % numVerts;
 
                     // reverse triangle map for under road so that triangles wind the other way and are visible from underneath
-                    underRoadTriangles[triIndex + j] = (vertIndex + triangleMap[triangleMap.length - 1 - j] + 2) % verts.length;
+                    underRoadTriangles[triIndex + j] = (vertIndex + triangleMap[triangleMap.length - 1 - j] + 2) % numVerts;
                 }
                 for (int j = 0; j < sidesTriangleMap.length; j++) {
-                    sideOfRoadTriangles[triIndex * 2 + j] = (vertIndex + sidesTriangleMap[j]) % verts.length;
+                    sideOfRoadTriangles[triIndex * 2 + j] = (vertIndex + sidesTriangleMap[j]) % numVerts;
                 }
 
             }
@@ -131,37 +180,24 @@ public class RoadMesh {
             triIndex += 6;
         }
 
-        if (geometry == null) {
-            geometry = new Geometry("Road Geometry", new Mesh());
-            geometry.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
-            geometry.getMaterial().setColor("Color", ColorRGBA.Yellow);
-            geometry.getMaterial().getAdditionalRenderState().setWireframe(true);
-        }
-
-
-        FloatBuffer pb = BufferUtils.createFloatBuffer(verts);
-        geometry.getMesh().setBuffer(VertexBuffer.Type.Position, 3, pb);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.Position, 3, pb);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.Normal, 3, nb);
+        MeshBufferUtility.commitBuffer(mesh, VertexBuffer.Type.TexCoord, 2, tb);
 
         // indexes
-        int[] allIndexes = new int[roadTriangles.length + underRoadTriangles.length + sideOfRoadTriangles.length];
-        int idx = 0;
-
-        for (int i = 0; i < roadTriangles.length; i++) allIndexes[idx++] = roadTriangles[i];
-        for (int i = 0; i < underRoadTriangles.length; i++) allIndexes[idx++] = underRoadTriangles[i];
-        for (int i = 0; i < sideOfRoadTriangles.length; i++) allIndexes[idx++] = sideOfRoadTriangles[i];
-
-        IntBuffer ib = BufferUtils.createIntBuffer(allIndexes);
-        geometry.getMesh().setBuffer(VertexBuffer.Type.Index, 3, ib);
-
-
-        FloatBuffer nb = BufferUtils.createFloatBuffer(normals);
-        geometry.getMesh().setBuffer(VertexBuffer.Type.Normal, 3, nb);
-
-        FloatBuffer tb = BufferUtils.createFloatBuffer(uvs);
-        geometry.getMesh().setBuffer(VertexBuffer.Type.TexCoord, 2, tb);
+        IntBuffer ib = MeshBufferUtility.getIndexBuffer(mesh, roadTriangles.length + underRoadTriangles.length + sideOfRoadTriangles.length);
+        ib.put(roadTriangles);
+        ib.put(underRoadTriangles);
+        ib.put(sideOfRoadTriangles);
+        MeshBufferUtility.commitIndexBuffer(mesh, 3, ib);
 
+        mesh.updateCounts();
         geometry.updateModelBound();
 
+        PathMetrics.stopTimer(PathMetrics.ROAD_MESH_BUILD, buildStart);
+        PathMetrics.increment(PathMetrics.ROAD_MESH_BUFFER_BYTES,
+                (pb.limit() + nb.limit() + tb.limit()) * 4L + ib.limit() * 4L);
+
         /*
         mesh.Clear ();
         mesh.vertices = verts;
@@ -176,6 +212,10 @@ public class RoadMesh {
 
     }
 
+    private static void put(FloatBuffer buffer, Vector3f v) {
+        buffer.put(v.x).put(v.y).put(v.z);
+    }
+
     public Geometry getGeometry() {
         return geometry;
     }